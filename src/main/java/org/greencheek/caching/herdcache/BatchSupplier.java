@@ -0,0 +1,55 @@
+package org.greencheek.caching.herdcache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Obtains the values for a set of keys, with a single call to the backend.  When a cache supports batching,
+ * the misses for different keys, that are computed with the same BatchSupplier and that occur within
+ * a short window of each other, are grouped into one call of the function.
+ *
+ * Keys that are not present in the returned map are given the value null.
+ */
+@FunctionalInterface
+public interface BatchSupplier<V> extends Function<Set<String>,Map<String,V>> {
+
+    /**
+     * @param key The key to obtain the value for
+     * @return A Supplier that obtains the value of the single key from this BatchSupplier
+     */
+    default Supplier<V> forKey(String key) {
+        return new KeySupplier<>(this, key);
+    }
+
+    /**
+     * The Supplier of the value for a single key, from a BatchSupplier.  Caches that support batching
+     * identify the supplier, and add the key to the current batch of its BatchSupplier; rather than calling
+     * {@link #get()}
+     */
+    final class KeySupplier<V> implements Supplier<V> {
+        private final BatchSupplier<V> batchSupplier;
+        private final String key;
+
+        private KeySupplier(BatchSupplier<V> batchSupplier, String key) {
+            this.batchSupplier = batchSupplier;
+            this.key = key;
+        }
+
+        public BatchSupplier<V> getBatchSupplier() {
+            return batchSupplier;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public V get() {
+            Map<String,V> values = batchSupplier.apply(Collections.singleton(key));
+            return values == null ? null : values.get(key);
+        }
+    }
+}
@@ -3,9 +3,9 @@ package org.greencheek.caching.herdcache;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import org.greencheek.caching.herdcache.await.AwaitOnFuture;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.util.executors.SharedDirectExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +35,7 @@ public interface Cache<V> extends AwaitOnFuture<V> {
 
 
     default public ListenableFuture<V> apply(String key, Supplier<V> computation) {
-        return apply(key, computation, MoreExecutors.newDirectExecutorService());
+        return apply(key, computation, SharedDirectExecutorService.INSTANCE);
     }
 
     default public ListenableFuture<V> apply(String key, Supplier<V> computation, ListeningExecutorService executorService) {
@@ -43,7 +43,7 @@ public interface Cache<V> extends AwaitOnFuture<V> {
     }
 
     default public ListenableFuture<V> get(String key) {
-        return get(key, MoreExecutors.newDirectExecutorService());
+        return get(key, SharedDirectExecutorService.INSTANCE);
     }
 
 
@@ -66,7 +66,7 @@ public interface Cache<V> extends AwaitOnFuture<V> {
      * @return
      */
     default public ListenableFuture<V> set(String keyString, V value) {
-        return set(keyString,value, MoreExecutors.newDirectExecutorService());
+        return set(keyString,value, SharedDirectExecutorService.INSTANCE);
     }
 
     /**
@@ -76,7 +76,7 @@ public interface Cache<V> extends AwaitOnFuture<V> {
      * @return
      */
     default public ListenableFuture<V> set(String keyString, Supplier<V> value) {
-        return set(keyString,value, MoreExecutors.newDirectExecutorService());
+        return set(keyString,value, SharedDirectExecutorService.INSTANCE);
     }
 
     /**
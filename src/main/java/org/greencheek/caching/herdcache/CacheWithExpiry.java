@@ -2,9 +2,15 @@ package org.greencheek.caching.herdcache;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
+import org.greencheek.caching.herdcache.util.executors.SharedDirectExecutorService;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -67,6 +73,77 @@ public interface CacheWithExpiry<V> extends Cache<V> {
                                      Predicate<V> isCachedValueValid);
 
 
+    /**
+     * obtain the values for a number of keys from the cache.  The returned map contains a future per (distinct) key,
+     * in the iteration order of the given keys, each of which completes independently.
+     * The @link #computation function is called only with the set of keys whose values are neither
+     * already being calculated, nor are present (and valid) in the cache.  Keys that are not present in the
+     * map returned by the function are completed with null.
+     *
+     * @param keys The keys to obtain/cache values under
+     * @param computation The function that calculates the values for the given set of keys
+     * @param timeToLive How long the values should be cached for
+     * @param executorService The executor service in which to run the futures.
+     * @param isSupplierValueCachable Should the value returned by the #computation function be cached or not
+     * @param isCachedValueValid Should the value returned by the cache be returned or not (and therefore the function called).
+     * @return map of key to the future that will contain the value for that key.
+     */
+    default Map<String,ListenableFuture<V>> applyAll(Collection<String> keys,
+                                                     Function<Set<String>,Map<String,V>> computation,
+                                                     Duration timeToLive,
+                                                     ListeningExecutorService executorService,
+                                                     Predicate<V> isSupplierValueCachable,
+                                                     Predicate<V> isCachedValueValid) {
+        Map<String,ListenableFuture<V>> results = new LinkedHashMap<>(keys.size());
+        for(String key : keys) {
+            if(!results.containsKey(key)) {
+                results.put(key, apply(key, () -> {
+                    Map<String,V> values = computation.apply(Collections.singleton(key));
+                    return values == null ? null : values.get(key);
+                }, timeToLive, executorService, isSupplierValueCachable, isCachedValueValid));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * obtain a value from the cache.  On a cache miss the value is obtained from the @link #batchSupplier.
+     * Implementations that support batching group the misses, for different keys, that occur concurrently
+     * for the same BatchSupplier; into a single call of the BatchSupplier.  By default the BatchSupplier
+     * is called with the single key.
+     *
+     * @param key The key to obtain/cache a value under
+     * @param batchSupplier The function that would calculate the values for a set of keys
+     * @param timeToLive How long the value should be cached for
+     * @param executorService The executor service in which to run the futures.
+     * @param isSupplierValueCachable Should the value returned by the #batchSupplier be cached or not
+     * @param isCachedValueValid Should the value returned by the cache be returned or not (and therefore the batchSupplier called).
+     * @return
+     */
+    default ListenableFuture<V> apply(String key, BatchSupplier<V> batchSupplier, Duration timeToLive,
+                                      ListeningExecutorService executorService, Predicate<V> isSupplierValueCachable,
+                                      Predicate<V> isCachedValueValid) {
+        return apply(key,batchSupplier.forKey(key),timeToLive,executorService,isSupplierValueCachable,isCachedValueValid);
+    }
+
+    default ListenableFuture<V> apply(String key, BatchSupplier<V> batchSupplier, Duration timeToLive,
+                                      ListeningExecutorService executorService) {
+        return apply(key,batchSupplier,timeToLive,executorService,CAN_ALWAYS_CACHE_VALUE,CACHED_VALUE_IS_ALWAYS_VALID);
+    }
+
+    default Map<String,ListenableFuture<V>> applyAll(Collection<String> keys,
+                                                     Function<Set<String>,Map<String,V>> computation,
+                                                     Duration timeToLive,
+                                                     ListeningExecutorService executorService) {
+        return applyAll(keys,computation,timeToLive,executorService,CAN_ALWAYS_CACHE_VALUE,CACHED_VALUE_IS_ALWAYS_VALID);
+    }
+
+    default Map<String,ListenableFuture<V>> applyAll(Collection<String> keys,
+                                                     Function<Set<String>,Map<String,V>> computation,
+                                                     ListeningExecutorService executorService) {
+        return applyAll(keys,computation,NO_TTL,executorService);
+    }
+
 
 
     /**
@@ -77,7 +154,7 @@ public interface CacheWithExpiry<V> extends Cache<V> {
      * @return
      */
     default public ListenableFuture<V> set(String keyString, Supplier<V> value, Duration timeToLive) {
-        return set(keyString,value,timeToLive,MoreExecutors.newDirectExecutorService());
+        return set(keyString,value,timeToLive,SharedDirectExecutorService.INSTANCE);
     }
 
     /**
@@ -88,7 +165,7 @@ public interface CacheWithExpiry<V> extends Cache<V> {
      * @return
      */
     default ListenableFuture<V> set(String keyString, V value, Duration timeToLive) {
-        return set(keyString,value,timeToLive,MoreExecutors.newDirectExecutorService());
+        return set(keyString,value,timeToLive,SharedDirectExecutorService.INSTANCE);
     }
 
 
@@ -0,0 +1,57 @@
+package org.greencheek.caching.herdcache;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The {@link java.util.concurrent.CompletionStage} equivalent of the apply and get operations of
+ * {@link org.greencheek.caching.herdcache.RevalidateInBackgroundCapableCache}.  The herd protection, stale
+ * caching and background revalidation are the same as those of the ListenableFuture operations.
+ * Each call returns its own stage, dependent on the (shared) result for the key; completing or obtruding the
+ * returned stage only affects that caller.
+ */
+public interface CompletionStageCache<V extends Serializable> {
+
+    /**
+     * obtain a value from the cache.  The cached value is only used if the {@code #isCachedValueValid} predicate
+     * returns true, otherwise the {@code #computation} Supplier is called to provide the value.
+     *
+     * @param key The key to obtain/cache a value under
+     * @param computation The function that would calculate the value to be cached
+     * @param timeToLive How long the value should be cached for
+     * @param executorService The executor service in which to run the supplier.
+     * @param canCacheValueEvalutor Should the value returned by the #computation Supplier be cached or not
+     * @param isCachedValueValid Should the value returned by the cache be returned or not (and therefore the supplier called).
+     * @param returnInvalidCachedItemWhileRevalidate boolean to specific if a stale item is returned while fresh value is obtained in background.
+     * @return
+     */
+    public CompletionStage<V> applyAsync(String key, Supplier<V> computation, Duration timeToLive,
+                                         ListeningExecutorService executorService,
+                                         Predicate<V> canCacheValueEvalutor, Predicate<V> isCachedValueValid,
+                                         boolean returnInvalidCachedItemWhileRevalidate);
+
+    default CompletionStage<V> applyAsync(String key, Supplier<V> computation, Duration timeToLive,
+                                          ListeningExecutorService executorService,
+                                          Predicate<V> canCacheValueEvalutor, Predicate<V> isCachedValueValid) {
+        return applyAsync(key,computation,timeToLive,executorService,canCacheValueEvalutor,isCachedValueValid,false);
+    }
+
+    default CompletionStage<V> applyAsync(String key, Supplier<V> computation, Duration timeToLive,
+                                          ListeningExecutorService executorService) {
+        return applyAsync(key,computation,timeToLive,executorService,Cache.CAN_ALWAYS_CACHE_VALUE,Cache.CACHED_VALUE_IS_ALWAYS_VALID);
+    }
+
+    /**
+     * obtain a value from the cache, without calculating the value if it is not present
+     *
+     * @param key The key to obtain the value for
+     * @param executorService The executor service in which to perform the lookup, if it is not performed asynchronously
+     * @return A stage that completes with the cached value, or null if there is no cached value
+     */
+    public CompletionStage<V> getAsync(String key, ListeningExecutorService executorService);
+}
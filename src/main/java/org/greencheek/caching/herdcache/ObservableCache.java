@@ -8,6 +8,12 @@ import rx.Single;
 
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.Optional;
@@ -82,6 +88,43 @@ public interface ObservableCache<V extends Serializable>  {
                                      Predicate<V> isSupplierValueCachable,
                                      Predicate<V> isCachedValueValid);
 
+    /**
+     * obtain the values for a number of keys from the cache.  The returned map contains a Single per (distinct) key,
+     * in the iteration order of the given keys.
+     * The @link #computation function is called only with the set of keys whose values are neither
+     * already being calculated, nor are present (and valid) in the cache.  Keys that are not present in the
+     * map returned by the function are returned as an empty CacheItem.
+     *
+     * @param keys The keys to obtain/cache values under
+     * @param computation The function that calculates the values for the given set of keys
+     * @param timeToLive How long the values should be cached for
+     * @param isSupplierValueCachable Should the value returned by the #computation function be cached or not
+     * @param isCachedValueValid Should the value returned by the cache be returned or not (and therefore the function called).
+     * @return map of key to the Single that will contain the value for that key.
+     */
+    default Map<String,Single<CacheItem<V>>> applyAll(Collection<String> keys,
+                                                      Function<Set<String>,Map<String,V>> computation,
+                                                      Duration timeToLive,
+                                                      Predicate<V> isSupplierValueCachable,
+                                                      Predicate<V> isCachedValueValid) {
+        Map<String,Single<CacheItem<V>>> results = new LinkedHashMap<>(keys.size());
+        for(String key : keys) {
+            if(!results.containsKey(key)) {
+                results.put(key, apply(key, () -> {
+                    Map<String,V> values = computation.apply(Collections.singleton(key));
+                    return values == null ? null : values.get(key);
+                }, timeToLive, isSupplierValueCachable, isCachedValueValid));
+            }
+        }
+        return results;
+    }
+
+    default Map<String,Single<CacheItem<V>>> applyAll(Collection<String> keys,
+                                                      Function<Set<String>,Map<String,V>> computation,
+                                                      Duration timeToLive) {
+        return applyAll(keys,computation,timeToLive,CAN_ALWAYS_CACHE_VALUE,CACHED_VALUE_IS_ALWAYS_VALID);
+    }
+
 
 
     /**
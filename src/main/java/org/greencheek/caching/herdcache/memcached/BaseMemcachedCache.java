@@ -1,8 +1,8 @@
 package org.greencheek.caching.herdcache.memcached;
 
 //import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.*;
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import net.spy.memcached.ConnectionFactory;
 import org.greencheek.caching.herdcache.*;
 import org.greencheek.caching.herdcache.callables.GetFromDistributedCache;
@@ -10,18 +10,42 @@ import org.greencheek.caching.herdcache.exceptions.UnableToScheduleCacheGetExecu
 import org.greencheek.caching.herdcache.exceptions.UnableToSubmitSupplierForExecutionException;
 import org.greencheek.caching.herdcache.lru.CacheRequestFutureComputationCompleteNotifier;
 import org.greencheek.caching.herdcache.lru.CacheValueComputationFailureHandler;
+import org.greencheek.caching.herdcache.memcached.batchsupplier.MissBatchKey;
+import org.greencheek.caching.herdcache.memcached.batchsupplier.MissBatcher;
 import org.greencheek.caching.herdcache.memcached.config.ElastiCacheCacheConfig;
 import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+import org.greencheek.caching.herdcache.memcached.config.StaleCacheMode;
+import org.greencheek.caching.herdcache.memcached.envelope.CachedValueEnvelope;
+import org.greencheek.caching.herdcache.memcached.envelope.NegativeCacheEntry;
 import org.greencheek.caching.herdcache.memcached.factory.*;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitter;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitterTracker;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitterTrackerFactory;
+import org.greencheek.caching.herdcache.memcached.latency.LatencyInstrumentation;
+import org.greencheek.caching.herdcache.memcached.latency.LatencyInstrumentationFactory;
+import org.greencheek.caching.herdcache.memcached.latency.LatencySnapshot;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.nearcache.NearCache;
+import org.greencheek.caching.herdcache.memcached.nearcache.NearCacheEntry;
+import org.greencheek.caching.herdcache.memcached.nearcache.NearCacheFactory;
 import org.greencheek.caching.herdcache.memcached.operations.*;
+import org.greencheek.caching.herdcache.memcached.predicates.StatefulPredicate;
+import org.greencheek.caching.herdcache.memcached.refreshahead.RefreshAheadScheduler;
+import org.greencheek.caching.herdcache.memcached.refreshahead.RefreshAheadSchedulerFactory;
+import org.greencheek.caching.herdcache.memcached.spy.extensions.transcoders.SerializingTranscoder;
 import org.greencheek.caching.herdcache.memcached.spyconnectionfactory.SpyConnectionFactoryBuilder;
 import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+import org.greencheek.caching.herdcache.memcached.virtualthreads.ExecutionMode;
+import org.greencheek.caching.herdcache.memcached.virtualthreads.ExecutionModeFactory;
 import org.greencheek.caching.herdcache.util.CacheKeyCreatorFactory;
+import org.greencheek.caching.herdcache.util.DistributedLeaseKeyCreator;
 import org.greencheek.caching.herdcache.util.DurationToSeconds;
+import org.greencheek.caching.herdcache.util.HotKeyReplicaKeyCreator;
 import org.greencheek.caching.herdcache.util.StaleCacheKeyCreator;
 import org.greencheek.caching.herdcache.util.futures.FutureCompleter;
 import org.greencheek.caching.herdcache.util.futures.SettableFuture;
+import org.greencheek.caching.herdcache.util.executors.SharedDirectExecutorService;
+import org.greencheek.caching.herdcache.util.futures.CompletableSettableFuture;
 import org.greencheek.caching.herdcache.util.futures.DoNothingSettableFuture;
 import org.greencheek.caching.herdcache.util.futures.GuavaSettableFuture;
 import org.greencheek.caching.herdcache.util.keycreators.CacheKeyCreator;
@@ -30,15 +54,19 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  *
  */
- class BaseMemcachedCache<V extends Serializable> implements RequiresShutdown,ClearableCache,
-        SerializableOnlyCacheWithExpiry<V>, RevalidateInBackgroundCapableCache<V>
+ class BaseMemcachedCache<V extends Serializable> implements RequiresShutdown,ClearableCache,HeavyHitterTrackingCache,LatencyTrackingCache,
+        SerializableOnlyCacheWithExpiry<V>, RevalidateInBackgroundCapableCache<V>, CompletionStageCache<V>
 {
 
 
@@ -51,13 +79,18 @@ import java.util.function.Supplier;
     }
 
     public static ReferencedClientFactory createReferenceClientFactory(ElastiCacheCacheConfig config) {
+        return BatchingReferencedClientFactory.create(createUnbatchedReferenceClientFactory(config),
+                config.getMemcachedCacheConfig());
+    }
+
+    private static ReferencedClientFactory createUnbatchedReferenceClientFactory(ElastiCacheCacheConfig config) {
         switch(config.getClientType()) {
             case SPY:
-                return new SpyMemcachedReferencedClientFactory<>(createMemcachedConnectionFactory(config.getMemcachedCacheConfig()));
+                return new SpyMemcachedReferencedClientFactory<>(() -> createMemcachedConnectionFactory(config.getMemcachedCacheConfig()));
             case FOLSOM:
                 return new FolsomReferencedClientFactory<>(config);
             default:
-                return new SpyMemcachedReferencedClientFactory<>(createMemcachedConnectionFactory(config.getMemcachedCacheConfig()));
+                return new SpyMemcachedReferencedClientFactory<>(() -> createMemcachedConnectionFactory(config.getMemcachedCacheConfig()));
         }
     }
 
@@ -68,10 +101,19 @@ import java.util.function.Supplier;
     private final CacheRead<V> cacheReader;
     private static final Logger logger  = LoggerFactory.getLogger(BaseMemcachedCache.class);
 
+    // the value of the lease item in memcached, compatible with both the serializing and string transcoders
+    private static final String DISTRIBUTED_LEASE_VALUE = "lease";
+
     private final SettableFuture<V> DUMMY_FUTURE_NOT_TO_RETURN = new DoNothingSettableFuture<>();
 
     private final ConcurrentMap<String,ListenableFuture<V>> DO_NOTHING_MAP = new NoOpConcurrentMap<>();
 
+    private static final Runnable NO_COMPUTATION_LISTENER = () -> {};
+
+    // runs the suppliers, for misses completed from a memcached callback, when apply is not given an executor
+    private static final ListeningExecutorService CALLBACK_SUPPLIER_EXECUTOR =
+            MoreExecutors.listeningDecorator(ForkJoinPool.commonPool());
+
     private final MemcachedCacheConfig config;
     private final MemcachedClientFactory clientFactory;
     private final ConcurrentMap<String,ListenableFuture<V>> store;
@@ -90,6 +132,56 @@ import java.util.function.Supplier;
     private final MetricRecorder metricRecorder;
     private final CacheKeyCreator cacheKeyCreator;
 
+    // Used to time out the non blocking lookups against memcached
+    private final ScheduledExecutorService cacheLookupTimeoutScheduler;
+
+    // in process cache of deserialized values, in front of memcached
+    private final NearCache<V> nearCache;
+    private final boolean nearCacheEnabled;
+
+    // items are stored in memcached in an envelope, with their compute time and logical expiry
+    private final boolean earlyRecomputationEnabled;
+    private final double earlyRecomputationBeta;
+
+    // the stale value is held in the same memcached item as the fresh value, with a soft expiry
+    private final boolean singleItemStaleCache;
+
+    // the last known value is returned when the supplier fails, or does not complete within the deadline
+    private final boolean staleIfErrorEnabled;
+    private final long staleIfErrorSupplierTimeoutInMillis;
+
+    // only the JVM that adds the lease item to memcached calls the supplier, on a cache miss
+    private final boolean distributedLeaseEnabled;
+    private final int distributedLeaseTimeToLiveInSeconds;
+    private final long distributedLeaseMaxWaitInNanos;
+    private final long distributedLeasePollIntervalInMillis;
+
+    // null (or non cacheable) supplier results are stored in memcached as a sentinel
+    private final boolean negativeCachingEnabled;
+    private final int negativeCacheTimeToLiveInSeconds;
+
+    // the values of hot keys are replicated to the successor nodes, and reads are spread across the replicas
+    private final Set<String> hotKeys;
+    private final int hotKeyReplicas;
+    private final long hotKeyHedgedReadDelayInMillis;
+
+    // a sample of the requests is used to estimate the most frequently requested keys
+    private final HeavyHitterTracker heavyHitterTracker;
+
+    // the latencies of the memcached gets and sets (by node), suppliers, decoding and queueing are recorded
+    private final LatencyInstrumentation latencyInstrumentation;
+    private final LongConsumer decodeTimeListener;
+
+    // hot keys are recomputed on a dedicated executor, shortly before they expire
+    private final boolean refreshAheadEnabled;
+    private final RefreshAheadScheduler refreshAheadScheduler;
+
+    // the misses of keys computed by the same BatchSupplier are grouped into a single call of the BatchSupplier
+    private final MissBatcher<V> missBatcher;
+
+    // the threads on which the suppliers, and blocking memcached reads, are executed
+    private final ExecutionMode executionMode;
+
 
     public BaseMemcachedCache(
             MemcachedClientFactory clientFactory,
@@ -100,9 +192,9 @@ import java.util.function.Supplier;
 
         int maxCapacity = config.getMaxCapacity();
 
-        this.store = createInternalCache(config.isHerdProtectionEnabled(),maxCapacity,maxCapacity);
+        this.store = createInternalCache(config.isHerdProtectionEnabled(),maxCapacity);
 
-        this.backgroundRevalidationStore = createInternalCache(true,maxCapacity,maxCapacity);
+        this.backgroundRevalidationStore = createInternalCache(true,maxCapacity);
 
         int staleCapacity = config.getStaleMaxCapacity();
         if(staleCapacity<=0) {
@@ -118,7 +210,7 @@ import java.util.function.Supplier;
             staleCacheAdditionalTimeToLiveValue = staleDuration;
         }
 
-        staleStore = config.isUseStaleCache() ? createInternalCache(config.isUseStaleCache(),staleMaxCapacityValue,staleMaxCapacityValue) : null;
+        staleStore = config.isUseStaleCache() ? createInternalCache(config.isUseStaleCache(),staleMaxCapacityValue) : null;
 
 
         memcachedGetTimeoutInMillis = config.getMemcachedGetTimeout().toMillis();
@@ -132,33 +224,88 @@ import java.util.function.Supplier;
         failureHandler = (String key, Throwable t) -> { store.remove(key); };
 
         metricRecorder = config.getMetricsRecorder();
+        registerInFlightGauges();
+
+        latencyInstrumentation = LatencyInstrumentationFactory.create(config);
+        decodeTimeListener = latencyInstrumentation::recordDecode;
+        if(config.isUseLatencyInstrumentation() && config.getSerializingTranscoder() instanceof SerializingTranscoder) {
+            ((SerializingTranscoder)config.getSerializingTranscoder()).addDecodeTimeListener(decodeTimeListener);
+        }
 
-        cacheReader = new BasicCacheRead<>();
+        cacheReader = new BasicCacheRead<>(latencyInstrumentation);
 
         cacheWriter = config.isWaitForMemcachedSet() ?
-                new WaitForCacheWrite(metricRecorder,config.getSetWaitDuration().toMillis()) :
-                new NoWaitForCacheWrite(metricRecorder);
+                new WaitForCacheWrite(metricRecorder,config.getSetWaitDuration().toMillis(),latencyInstrumentation) :
+                new NoWaitForCacheWrite(metricRecorder,latencyInstrumentation);
+
+        staleCacheWriter = new NoWaitForCacheWrite(metricRecorder,latencyInstrumentation);
+
+        cacheLookupTimeoutScheduler = createCacheLookupTimeoutScheduler();
+
+        nearCache = NearCacheFactory.create(config);
+        nearCacheEnabled = config.isUseNearCache();
+
+        earlyRecomputationEnabled = config.isUseProbabilisticEarlyRecomputation();
+        earlyRecomputationBeta = config.getProbabilisticEarlyRecomputationBeta();
+
+        singleItemStaleCache = config.isUseStaleCache() && config.getStaleCacheMode() == StaleCacheMode.SINGLE_ITEM;
+
+        staleIfErrorEnabled = config.isUseStaleIfError();
+        staleIfErrorSupplierTimeoutInMillis = config.getStaleIfErrorSupplierTimeout().toMillis();
+
+        distributedLeaseEnabled = config.isUseDistributedLease();
+        distributedLeaseTimeToLiveInSeconds = Math.max(1,DurationToSeconds.getSeconds(config.getDistributedLeaseTimeToLive()));
+        distributedLeaseMaxWaitInNanos = config.getDistributedLeaseMaxWait().toNanos();
+        distributedLeasePollIntervalInMillis = Math.max(1,config.getDistributedLeasePollInterval().toMillis());
+
+        negativeCachingEnabled = config.isUseNegativeCaching();
+        negativeCacheTimeToLiveInSeconds = Math.max(1,DurationToSeconds.getSeconds(config.getNegativeCacheTimeToLive()));
+
+        hotKeyReplicas = Math.max(0,config.getHotKeyReplicas());
+        hotKeyHedgedReadDelayInMillis = config.getHotKeyHedgedReadDelay().toMillis();
+        hotKeys = new HashSet<>();
+        for(String hotKey : config.getHotKeys()) {
+            hotKeys.add(getHashedKey(hotKey));
+        }
+
+        heavyHitterTracker = HeavyHitterTrackerFactory.create(config);
 
-        staleCacheWriter = new NoWaitForCacheWrite(metricRecorder);
+        refreshAheadEnabled = config.isUseRefreshAhead();
+        refreshAheadScheduler = RefreshAheadSchedulerFactory.create(config);
+
+        missBatcher = new MissBatcher<>(config.getBatchSupplierWindow().toNanos(), config.getBatchSupplierMaxKeys(),
+                this::computeBatchOfMisses);
+
+        executionMode = ExecutionModeFactory.create(config);
+    }
+
+    private static ScheduledExecutorService createCacheLookupTimeoutScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "herdcache-lookup-timeout");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
     }
 
     private ConcurrentMap createInternalCache(boolean createCache,
-                                            int initialCapacity,
-                                            int maxCapacity) {
+                                            int initialCapacity) {
         if(createCache) {
-            return new ConcurrentLinkedHashMap.Builder()
-                    .initialCapacity(initialCapacity)
-                    .maximumWeightedCapacity(maxCapacity)
-                    .build();
-//                (ConcurrentMap)Caffeine.newBuilder()
-//                .maximumSize(maxCapacity)
-//                .initialCapacity(maxCapacity)
-//                .build()
-//                .asMap();
+            return new InFlightRegistry(initialCapacity,Runtime.getRuntime().availableProcessors());
         } else {
             return new NoOpConcurrentMap();
         }
+    }
 
+    private void registerInFlightGauges() {
+        if(store instanceof InFlightRegistry) {
+            final InFlightRegistry registry = (InFlightRegistry)store;
+            metricRecorder.registerGauge(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_IN_FLIGHT_GAUGE, registry::getInFlight);
+            metricRecorder.registerGauge(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_IN_FLIGHT_PEAK_GAUGE, registry::getPeakInFlight);
+        }
     }
 
 
@@ -172,6 +319,311 @@ import java.util.function.Supplier;
         return cacheKeyCreator.createKey(key);
     }
 
+    /**
+     * Returns the object that is to be written to memcached for the given value.  When probabilistic early
+     * recomputation, refresh ahead, or the single item stale cache is enabled, this is an envelope containing
+     * the compute time, and logical expiry of the value.
+     */
+    private Object createCacheValue(V value, long computeTimeNanos, Duration timeToLive) {
+        if(earlyRecomputationEnabled || singleItemStaleCache || refreshAheadEnabled) {
+            return CachedValueEnvelope.create(value, computeTimeNanos, timeToLive, System.currentTimeMillis());
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Returns the value from the item that was obtained from memcached, removing the envelope if present.
+     * The negative cache sentinel is returned as null.
+     */
+    private V unwrapCacheValue(Object cachedObject) {
+        if(cachedObject instanceof CachedValueEnvelope) {
+            return ((CachedValueEnvelope<V>) cachedObject).getValue();
+        } else if(NegativeCacheEntry.isNegativeCacheEntry(cachedObject)) {
+            return null;
+        } else {
+            return (V) cachedObject;
+        }
+    }
+
+    /**
+     * Returns the value from the item that was obtained from memcached, or null if the
+     * item has passed its soft expiry (i.e. is only available as a stale value).
+     */
+    private V unwrapFreshCacheValue(Object cachedObject) {
+        if(isStaleItem(cachedObject)) {
+            return null;
+        } else {
+            return unwrapCacheValue(cachedObject);
+        }
+    }
+
+    private ListenableFuture<V> unwrapFreshCacheValue(final String keyString, ListenableFuture<V> lookup) {
+        return Futures.transform(lookup, (Object result) -> {
+            V value = unwrapFreshCacheValue(result);
+            if(value==null) {
+                heavyHitterTracker.recordMiss(keyString);
+            }
+            return value;
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Is the key (hashed) a hot key, that is replicated across several memcached nodes
+     */
+    private boolean isHotKey(String keyString) {
+        return hotKeyReplicas > 0 && hotKeys.contains(keyString);
+    }
+
+    /**
+     * Writes the value of a hot key to each of its replicas.  The writes are not waited upon.
+     */
+    private void writeHotKeyReplicas(ReferencedClient client, String keyString, Object valueToCache, int ttlInSeconds) {
+        if(isHotKey(keyString)) {
+            for(int replica=1;replica<=hotKeyReplicas;replica++) {
+                staleCacheWriter.writeToDistributedCache(client,
+                        HotKeyReplicaKeyCreator.createKey(keyString, replica),
+                        valueToCache,
+                        ttlInSeconds);
+            }
+        }
+    }
+
+    /**
+     * Performs the get against memcached without blocking.  The get for a hot key is spread across
+     * its replicas.
+     */
+    private ListenableFuture<V> lookupInDistributedCache(ReferencedClient client, String keyString) {
+        if(isHotKey(keyString)) {
+            return getFromHotKeyReplicas(client, keyString);
+        } else {
+            return cacheReader.getFromDistributedCacheAsync(client,
+                    keyString,
+                    memcachedGetTimeoutInMillis,
+                    CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                    metricRecorder,
+                    cacheLookupTimeoutScheduler);
+        }
+    }
+
+    /**
+     * Gets the hot key from a randomly chosen replica (the original item being replica 0).  If hedged
+     * reads are enabled, a second get is sent to the next replica if the first has not completed within
+     * the hedge delay; the first value returned is used.  If the replicas do not contain the item (i.e. they
+     * have not yet been written, or have been evicted) the original item is read.
+     */
+    private ListenableFuture<V> getFromHotKeyReplicas(final ReferencedClient client, final String keyString) {
+        final int replica = ThreadLocalRandom.current().nextInt(hotKeyReplicas + 1);
+        ListenableFuture<V> lookup = getFromHotKeyReplica(client, keyString, replica);
+        if(hotKeyHedgedReadDelayInMillis > 0) {
+            lookup = hedgeHotKeyRead(client, keyString, (replica + 1) % (hotKeyReplicas + 1), lookup);
+        }
+
+        if(replica==0) {
+            return lookup;
+        } else {
+            return Futures.transformAsync(lookup,
+                    (V value) -> value == null ? getFromHotKeyReplica(client, keyString, 0) : Futures.immediateFuture(value),
+                    MoreExecutors.directExecutor());
+        }
+    }
+
+    private ListenableFuture<V> getFromHotKeyReplica(ReferencedClient client, String keyString, int replica) {
+        if(replica==0) {
+            return cacheReader.getFromDistributedCacheAsync(client,
+                    keyString,
+                    memcachedGetTimeoutInMillis,
+                    CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                    metricRecorder,
+                    cacheLookupTimeoutScheduler);
+        } else {
+            return cacheReader.getFromDistributedCacheAsync(client,
+                    HotKeyReplicaKeyCreator.createKey(keyString, replica),
+                    memcachedGetTimeoutInMillis,
+                    CacheMetricStrings.CACHE_TYPE_HOT_KEY_REPLICA,
+                    metricRecorder,
+                    cacheLookupTimeoutScheduler);
+        }
+    }
+
+    /**
+     * Returns a future that completes with the first non null value of either the given lookup, or the
+     * hedged get of the given replica; that is only sent if the lookup has not completed within the hedge delay.
+     */
+    private ListenableFuture<V> hedgeHotKeyRead(final ReferencedClient client,
+                                                final String keyString,
+                                                final int hedgeReplica,
+                                                final ListenableFuture<V> lookup) {
+        final SettableFuture<V> result = new GuavaSettableFuture<>();
+        final AtomicInteger outstandingLookups = new AtomicInteger(1);
+        final FutureCallback<V> callback = new FutureCallback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                if(value!=null) {
+                    result.set(value);
+                } else if(outstandingLookups.decrementAndGet()==0) {
+                    result.set(null);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                onSuccess(null);
+            }
+        };
+
+        Futures.addCallback(lookup, callback, MoreExecutors.directExecutor());
+        try {
+            final ScheduledFuture<?> hedge = cacheLookupTimeoutScheduler.schedule(() -> {
+                // no hedge if the lookup has completed
+                if (!result.isDone() && outstandingLookups.incrementAndGet() > 1) {
+                    metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_HOT_KEY_HEDGED_READ);
+                    Futures.addCallback(getFromHotKeyReplica(client, keyString, hedgeReplica), callback,
+                            MoreExecutors.directExecutor());
+                }
+            }, hotKeyHedgedReadDelayInMillis, TimeUnit.MILLISECONDS);
+            result.addListener(() -> hedge.cancel(false), MoreExecutors.directExecutor());
+        } catch (RejectedExecutionException e) {
+            return lookup;
+        }
+        return result;
+    }
+
+    /**
+     * Is the item from memcached the negative cache sentinel.  Logs the negative cache hit if so.
+     */
+    private boolean isNegativeCacheHit(String keyString, Object cachedObject) {
+        if(NegativeCacheEntry.isNegativeCacheEntry(cachedObject)) {
+            Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_NEGATIVE_CACHE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the negative cache sentinel for the key, if negative caching is enabled
+     */
+    private void writeNegativeCacheEntry(ReferencedClient client, String keyString) {
+        if(negativeCachingEnabled && client.isAvailable()) {
+            metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_NEGATIVE_CACHE_WRITES_COUNTER);
+            cacheWriter.writeToDistributedCache(client,
+                    keyString,
+                    NegativeCacheEntry.INSTANCE,
+                    negativeCacheTimeToLiveInSeconds);
+            writeHotKeyReplicas(client, keyString, NegativeCacheEntry.INSTANCE, negativeCacheTimeToLiveInSeconds);
+        }
+    }
+
+    /**
+     * Is the item from memcached a single item stale cache entry, that has passed its soft expiry
+     */
+    private boolean isStaleItem(Object cachedObject) {
+        return singleItemStaleCache && cachedObject instanceof CachedValueEnvelope &&
+                ((CachedValueEnvelope<V>) cachedObject).isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * The memcached TTL for an item that is to be considered fresh for the given duration.  For the single item
+     * stale cache this includes the additional time the item can be served as a stale value.
+     */
+    private int getDistributedCacheTimeToLiveInSeconds(Duration itemExpiry) {
+        if(singleItemStaleCache && itemExpiry.compareTo(Duration.ZERO) > 0) {
+            return DurationToSeconds.getSeconds(itemExpiry.plus(staleCacheAdditionalTimeToLiveValue));
+        } else {
+            return DurationToSeconds.getSeconds(itemExpiry);
+        }
+    }
+
+    /**
+     * Should the item obtained from memcached be recomputed in the background, ahead of its expiry
+     */
+    private boolean isEarlyRecomputationRequired(Object cachedObject) {
+        if(earlyRecomputationEnabled && cachedObject instanceof CachedValueEnvelope) {
+            double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+            return ((CachedValueEnvelope<V>) cachedObject).isEarlyRecomputationRequired(earlyRecomputationBeta,
+                    System.currentTimeMillis(), random);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the value from the near cache, if present and valid.  If the near cache entry
+     * is stale, a refresh of the entry from memcached is performed in the background.
+     *
+     * @param keyString The hashed key
+     * @param isCachedValueValid predicate that determines if the near cached value can be used
+     * @return a completed future for the value (shared by all hits on the entry), or null if it is not in the near cache.
+     */
+    private ListenableFuture<V> getFromNearCache(String keyString, Predicate<V> isCachedValueValid) {
+        if(!nearCacheEnabled) {
+            return null;
+        }
+
+        NearCacheEntry<V> entry = nearCache.get(keyString);
+        if(entry!=null) {
+            V value = entry.getValue();
+            if(isCachedValueValid.test(value)) {
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_NEAR_CACHE);
+                if(entry.requiresRefresh()) {
+                    refreshNearCacheEntry(keyString);
+                }
+                return entry.getCompletedFuture();
+            } else {
+                nearCache.invalidate(keyString);
+            }
+        }
+        Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_NEAR_CACHE);
+        return null;
+    }
+
+    /**
+     * Re-reads the item from memcached, without blocking, replacing the stale near cache entry.
+     */
+    private void refreshNearCacheEntry(final String keyString) {
+        ReferencedClient client = clientFactory.getClient();
+        if(!client.isAvailable()) {
+            nearCache.invalidate(keyString);
+            return;
+        }
+
+        ListenableFuture<V> lookup = cacheReader.getFromDistributedCacheAsync(client,
+                keyString,
+                memcachedGetTimeoutInMillis,
+                CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                metricRecorder,
+                cacheLookupTimeoutScheduler);
+
+        Futures.addCallback(lookup, new FutureCallback<V>() {
+            @Override
+            public void onSuccess(V cachedObject) {
+                V result = unwrapFreshCacheValue(cachedObject);
+                if(result==null) {
+                    nearCache.invalidate(keyString);
+                } else {
+                    nearCache.put(keyString, result, Duration.ZERO);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                nearCache.invalidate(keyString);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<V> addToNearCacheOnHit(final String keyString, ListenableFuture<V> lookup) {
+        if(!nearCacheEnabled) {
+            return lookup;
+        }
+        return Futures.transform(lookup, (V result) -> {
+            if(result!=null) {
+                nearCache.put(keyString, result, Duration.ZERO);
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
     /**
      * Used when the cache is disabled (all hosts are down for maintenance, etc).
      * The {@link java.util.function.Supplier} is submitted to the executor, and
@@ -198,6 +650,7 @@ import java.util.function.Supplier;
 
                             V results = null;
                             try {
+                                heavyHitterTracker.recordSupplierCall(key);
                                 results = computation.get();
                                 notifier.onSuccess(results);
                             } catch(Throwable e) {
@@ -222,14 +675,17 @@ import java.util.function.Supplier;
     private ListenableFuture<V> getFromDistributedCache(final ReferencedClient client,
                                                         final String key,
                                                         final ListeningExecutorService ec) {
+        if(config.isUseAsyncCacheReads() || isHotKey(key)) {
+            return getFromDistributedCacheAsync(client, key);
+        }
         try {
-            return ec.submit(
+            return ec.submit(executionMode.timeBlockingRead(
                             new GetFromDistributedCache<V>(key,
                                     metricRecorder,
                                     memcachedGetTimeoutInMillis,
                                     client,
                                     CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
-                                    cacheReader)
+                                    cacheReader))
                     );
         } catch(Throwable failedToSubmit) {
             final SettableFuture<V> promise = new GuavaSettableFuture<>();
@@ -241,15 +697,34 @@ import java.util.function.Supplier;
         }
     }
 
+    /**
+     * Performs the get against memcached, without blocking the calling thread or
+     * using a thread from the executor.
+     */
+    private ListenableFuture<V> getFromDistributedCacheAsync(final ReferencedClient client,
+                                                             final String key) {
+        ListenableFuture<V> lookup = lookupInDistributedCache(client, key);
+
+        return Futures.transform(lookup, (V result) -> {
+            if(result==null) {
+                Cache.logCacheMiss(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_ALL);
+            } else {
+                Cache.logCacheHit(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_ALL);
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
     @Override
     public ListenableFuture<V> get(String key) {
-        return get(key, MoreExecutors.newDirectExecutorService());
+        return get(key, SharedDirectExecutorService.INSTANCE);
     }
 
 
     @Override
     public ListenableFuture<V> get(String key, ListeningExecutorService executorService) {
         final String keyString = getHashedKey(key);
+        heavyHitterTracker.recordRequest(keyString);
         ReferencedClient client = clientFactory.getClient();
         if(!client.isAvailable()) {
             warnCacheDisabled();
@@ -262,16 +737,22 @@ import java.util.function.Supplier;
                 return previousFuture;
             }
         } else {
+            ListenableFuture<V> nearCachedValue = getFromNearCache(keyString, (Predicate<V>) CACHED_VALUE_IS_ALWAYS_VALID);
+            if(nearCachedValue!=null) {
+                return nearCachedValue;
+            }
+
             ListenableFuture<V> future = store.get(keyString);
             if(future==null) {
                 Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
-                ListenableFuture<V> futureForCacheLookup = getFromDistributedCache(client,keyString,executorService);
-                return futureForCacheLookup;
+                ListenableFuture<V> futureForCacheLookup = unwrapFreshCacheValue(keyString,
+                        getFromDistributedCache(client,keyString,executionMode.getExecutor(executorService)));
+                return addToNearCacheOnHit(keyString,futureForCacheLookup);
             }
             else {
                 Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
                 if(config.isUseStaleCache()) {
-                    return getFutureForStaleDistributedCacheLookup(client,
+                    return getFutureForStaleLookup(client,
                             StaleCacheKeyCreator.createKey(config, keyString), future);
                 } else {
                     return future;
@@ -350,10 +831,27 @@ import java.util.function.Supplier;
                                      Duration timeToLive,
                                      ListeningExecutorService executorService,
                                      Predicate<V> canCacheValueEvalutor,Predicate<V> isCachedValueValid,
-                                     boolean returnInvalidCachedItemWhileRevalidate)
+                                     boolean returnInvalidCachedItemWhileRevalidate) {
+        return applyOnExecutor(key, computation, timeToLive, executionMode.getExecutor(executorService),
+                canCacheValueEvalutor, isCachedValueValid, returnInvalidCachedItemWhileRevalidate);
+    }
+
+    private ListenableFuture<V> applyOnExecutor(String key,
+                                                Supplier<V> computation,
+                                                Duration timeToLive,
+                                                ListeningExecutorService executorService,
+                                                Predicate<V> canCacheValueEvalutor,Predicate<V> isCachedValueValid,
+                                                boolean returnInvalidCachedItemWhileRevalidate)
     {
 
         String keyString = getHashedKey(key);
+        heavyHitterTracker.recordRequest(keyString);
+
+        ListenableFuture<V> nearCachedValue = getFromNearCache(keyString, isCachedValueValid);
+        if(nearCachedValue!=null) {
+            refreshAheadScheduler.recordAccess(keyString);
+            return nearCachedValue;
+        }
 
         ReferencedClient client = clientFactory.getClient();
         if(!client.isAvailable()) {
@@ -361,60 +859,724 @@ import java.util.function.Supplier;
             return scheduleValueComputation(keyString,computation,executorService);
         }
         else {
-            final SettableFuture<V> promise = new GuavaSettableFuture<>();
+            final SettableFuture<V> promise = new CompletableSettableFuture<>();
             // create and store a new future for the to be generated value
             // first checking against local a cache to see if the computation is already
             // occurring
             ListenableFuture<V> existingFuture  = store.putIfAbsent(keyString, promise);
             if(existingFuture==null) {
                 Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
+                if(singleItemStaleCache) {
+                    registerStaleValuePromise(keyString, promise);
+                }
                 // check memcached.
+                final boolean asyncLookup = config.isUseAsyncCacheReads() || isHotKey(keyString);
+                final ListeningExecutorService supplierExecutor = (asyncLookup || distributedLeaseEnabled) ?
+                        getCallbackSupplierExecutor(executorService) : executorService;
+                if(asyncLookup) {
+                    ListenableFuture<V> lookup = lookupInDistributedCache(client, keyString);
+
+                    Futures.addCallback(lookup, new FutureCallback<V>() {
+                        @Override
+                        public void onSuccess(V cachedObject) {
+                            completeFromDistributedCacheLookup(client, keyString, cachedObject, promise, computation,
+                                    timeToLive, supplierExecutor, canCacheValueEvalutor, isCachedValueValid,
+                                    returnInvalidCachedItemWhileRevalidate);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            completeFromDistributedCacheLookup(client, keyString, null, promise, computation,
+                                    timeToLive, supplierExecutor, canCacheValueEvalutor, isCachedValueValid,
+                                    returnInvalidCachedItemWhileRevalidate);
+                        }
+                    }, MoreExecutors.directExecutor());
+                } else if(executionMode.isBlockingReadOffloaded()) {
+                    // the blocking read is performed on the executor, rather than the calling thread
+                    try {
+                        executorService.submit(() -> {
+                            V cachedObject = executionMode.timeBlockingRead(() -> cacheReader.getFromDistributedCache(client,
+                                    keyString,
+                                    memcachedGetTimeoutInMillis,
+                                    CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                                    metricRecorder)).call();
+
+                            completeFromDistributedCacheLookup(client, keyString, cachedObject, promise, computation,
+                                    timeToLive, supplierExecutor, canCacheValueEvalutor, isCachedValueValid,
+                                    returnInvalidCachedItemWhileRevalidate);
+                            return null;
+                        });
+                    } catch(Throwable failedToSubmit) {
+                        metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE_REJECTION);
+                        String message = "Unable able to submit memcached get to executor in order to obtain the value for key: " + keyString;
+                        logger.warn(message, failedToSubmit);
+                        FutureCompleter.completeWithException(promise, keyString,
+                                new UnableToScheduleCacheGetExecutionException(message,failedToSubmit), store,
+                                config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                    }
+                } else {
+                    V cachedObject = cacheReader.getFromDistributedCache(client,
+                            keyString,
+                            memcachedGetTimeoutInMillis,
+                            CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                            metricRecorder);
+
+                    completeFromDistributedCacheLookup(client, keyString, cachedObject, promise, computation,
+                            timeToLive, supplierExecutor, canCacheValueEvalutor, isCachedValueValid,
+                            returnInvalidCachedItemWhileRevalidate);
+                }
+
+                return promise;
+
+            } else {
+                return returnStaleOrCachedItem(client,keyString,existingFuture,executorService);
+            }
+        }
+    }
+
+    @Override
+    public CompletionStage<V> applyAsync(String key,
+                                        Supplier<V> computation,
+                                        Duration timeToLive,
+                                        ListeningExecutorService executorService,
+                                        Predicate<V> canCacheValueEvalutor,Predicate<V> isCachedValueValid,
+                                        boolean returnInvalidCachedItemWhileRevalidate) {
+        // each caller is given a stage dependent on the herd's promise, so that one caller cannot complete the promise
+        return CompletableSettableFuture.toCompletionStage(apply(key, computation, timeToLive, executorService,
+                canCacheValueEvalutor, isCachedValueValid, returnInvalidCachedItemWhileRevalidate));
+    }
+
+    @Override
+    public CompletionStage<V> getAsync(String key, ListeningExecutorService executorService) {
+        return CompletableSettableFuture.toCompletionStage(get(key, executorService));
+    }
+
+    /**
+     * Returns the executor on which to run the supplier, when the supplier is submitted from a callback of a
+     * memcached future (the async lookup, the bulk lookup or the distributed lease).  These callbacks run on the
+     * spy listener thread, or the folsom netty io thread.  If apply was not given an executor, running the supplier
+     * (and waiting for the memcached set) on the shared direct executor would block that thread; and with folsom, which
+     * completes the set on the same io thread, deadlock.  So the supplier is run on the common fork join pool instead.
+     */
+    private ListeningExecutorService getCallbackSupplierExecutor(ListeningExecutorService executorService) {
+        return executorService == SharedDirectExecutorService.INSTANCE ? CALLBACK_SUPPLIER_EXECUTOR : executorService;
+    }
+
+    /**
+     * Records the access of the item obtained from memcached.  If the key is hot, the recomputation of the
+     * value is scheduled for shortly before the item expires.
+     */
+    private void scheduleRefreshAheadIfHot(final String keyString,
+                                           final Object cachedItem,
+                                           final Supplier<V> computation,
+                                           final Duration timeToLive,
+                                           final Predicate<V> canCacheValueEvalutor) {
+        if(!refreshAheadEnabled || !(cachedItem instanceof CachedValueEnvelope) ||
+                !refreshAheadScheduler.recordAccess(keyString)) {
+            return;
+        }
+
+        CachedValueEnvelope<V> envelope = (CachedValueEnvelope<V>) cachedItem;
+        if(envelope.getExpiresAtMillis()==CachedValueEnvelope.NO_EXPIRY) {
+            return;
+        }
 
-                V cachedObject = cacheReader.getFromDistributedCache(client,
+        refreshAheadScheduler.scheduleRefresh(keyString, envelope.getExpiresAtMillis(), envelope.getComputeTimeMillis(),
+                (ListeningExecutorService refreshExecutor) -> {
+                    ReferencedClient client = clientFactory.getClient();
+                    if(client.isAvailable()) {
+                        performBackgroundRevalidationIfNeeded(keyString, client, computation, timeToLive,
+                                refreshExecutor, canCacheValueEvalutor);
+                    }
+                });
+    }
+
+    /**
+     * Given the result of the lookup against memcached, either completes the promise with the
+     * cached value, or schedules the supplier to generate the value.  When the lookup has been performed
+     * without blocking, this is executed on the thread that completed the memcached lookup; and the given
+     * executor is then one that does not run the supplier on that thread.
+     *
+     * @param cachedItem The item obtained from memcached, or null if the item was not in memcached
+     * @param promise The future that is in the herd store, that is to be completed.
+     */
+    private void completeFromDistributedCacheLookup(final ReferencedClient client,
+                                                    final String keyString,
+                                                    final Object cachedItem,
+                                                    final SettableFuture<V> promise,
+                                                    final Supplier<V> computation,
+                                                    final Duration timeToLive,
+                                                    final ListeningExecutorService executorService,
+                                                    final Predicate<V> canCacheValueEvalutor,
+                                                    final Predicate<V> isCachedValueValid,
+                                                    final boolean returnInvalidCachedItemWhileRevalidate) {
+        try {
+            if(isNegativeCacheHit(keyString, cachedItem)) {
+                // the supplier has previously returned no value for the key
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                offerStaleValue(keyString, null);
+                FutureCompleter.completeWithValue(promise, keyString, null, store,
+                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                return;
+            }
+
+            V cachedObject;
+            V lastKnownValue = null;
+            if(isStaleItem(cachedItem)) {
+                // make the stale value available to the concurrent requests, whilst the value is recomputed.
+                lastKnownValue = unwrapCacheValue(cachedItem);
+                offerStaleValue(keyString, lastKnownValue);
+                cachedObject = null;
+            } else {
+                offerStaleValue(keyString, null);
+                cachedObject = unwrapCacheValue(cachedItem);
+            }
+            boolean cachedObjectFoundInCache = cachedObject!=null;
+            boolean validCachedObject = (cachedObjectFoundInCache && isCachedValueValid.test(cachedObject));
+            boolean doRevalidationInBackground = returnInvalidCachedItemWhileRevalidate && cachedObjectFoundInCache && !validCachedObject;
+
+            if(validCachedObject || doRevalidationInBackground) {
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+
+                if(validCachedObject) {
+                    nearCache.put(keyString, cachedObject, Duration.ZERO);
+                    scheduleRefreshAheadIfHot(keyString, cachedItem, computation, timeToLive, canCacheValueEvalutor);
+                }
+
+                FutureCompleter.completeWithValue(promise, keyString, cachedObject, store,
+                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+
+                if(doRevalidationInBackground) {
+                    // return the future, but schedule update in background
+                    // without tying to current future to the background update
+                    //
+                    performBackgroundRevalidationIfNeeded(keyString, client, computation, timeToLive, executorService, canCacheValueEvalutor);
+                } else if(isEarlyRecomputationRequired(cachedItem)) {
+                    // the item is close to expiry, recompute it in the background before
+                    // it expires for all the consumers of the key.
+                    metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_EARLY_RECOMPUTATION);
+                    performBackgroundRevalidationIfNeeded(keyString, client, computation, timeToLive, executorService, canCacheValueEvalutor);
+                }
+            }
+            else {
+                // write with normal semantics
+                logger.debug("set requested for {}", keyString);
+                Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                heavyHitterTracker.recordMiss(keyString);
+                if(cachedObjectFoundInCache) {
+                    lastKnownValue = cachedObject;
+                } else if(lastKnownValue==null && isCachedValueValid instanceof StatefulPredicate) {
+                    lastKnownValue = ((StatefulPredicate<V>) isCachedValueValid).getTestedObject();
+                }
+                if(distributedLeaseEnabled) {
+                    acquireDistributedLease(client, keyString, promise, computation, timeToLive, executorService,
+                            canCacheValueEvalutor, isCachedValueValid, lastKnownValue);
+                } else {
+                    computeValue(client, keyString, promise, computation, timeToLive, executorService,
+                            canCacheValueEvalutor, lastKnownValue);
+                }
+            }
+        } catch(Throwable t) {
+            // i.e. the isCachedValueValid predicate has thrown an exception.  Do not leave the future
+            // in the herd store.
+            FutureCompleter.completeWithException(promise, keyString, t, store,
+                    config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+            if(!config.isUseAsyncCacheReads()) {
+                Throwables.propagate(t);
+            }
+        }
+    }
+
+    /**
+     * Submits the supplier for execution, the result of which completes the promise in the herd store
+     */
+    private void computeValue(final ReferencedClient client,
+                              final String keyString,
+                              final SettableFuture<V> promise,
+                              final Supplier<V> computation,
+                              final Duration timeToLive,
+                              final ListeningExecutorService executorService,
+                              final Predicate<V> canCacheValueEvalutor,
+                              final V lastKnownValue) {
+        computeValue(client, keyString, promise, computation, timeToLive, executorService,
+                canCacheValueEvalutor, lastKnownValue, NO_COMPUTATION_LISTENER);
+    }
+
+    /**
+     * As {@link #computeValue(ReferencedClient, String, SettableFuture, Supplier, Duration, ListeningExecutorService, Predicate, Object)},
+     * but runs the {@code onComputationComplete} listener once the supplier (and the write to memcached) has finished.
+     * This may be after the promise is completed, i.e. with the last known value by the staleIfErrorSupplierTimeout.
+     */
+    private void computeValue(final ReferencedClient client,
+                              final String keyString,
+                              final SettableFuture<V> promise,
+                              final Supplier<V> computation,
+                              final Duration timeToLive,
+                              final ListeningExecutorService executorService,
+                              final Predicate<V> canCacheValueEvalutor,
+                              final V lastKnownValue,
+                              final Runnable onComputationComplete) {
+        if(computation instanceof BatchSupplier.KeySupplier && !(staleIfErrorEnabled && lastKnownValue!=null)) {
+            // the last known value is only returned on the failure of an individual supplier
+            BatchSupplier.KeySupplier<V> keySupplier = (BatchSupplier.KeySupplier<V>)computation;
+            // the promise of a batched key is only completed by the batch supplier
+            promise.addListener(onComputationComplete, MoreExecutors.directExecutor());
+            missBatcher.add(new MissBatchKey<>(client, keySupplier.getBatchSupplier(), timeToLive, executorService,
+                    canCacheValueEvalutor), keyString, keySupplier.getKey(), promise);
+            return;
+        }
+
+        Throwable exceptionDuringWrite = cacheWriteFunction(client, computation,
+                keyString, timeToLive, executorService,
+                canCacheValueEvalutor, promise,store, staleIfErrorEnabled, lastKnownValue, onComputationComplete);
+
+        if(exceptionDuringWrite!=null) {
+            FutureCompleter.completeWithException(promise, keyString, exceptionDuringWrite, store,
+                    config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+        }
+    }
+
+    /**
+     * Submits a batch of misses, for the same BatchSupplier, as one call of the BatchSupplier
+     */
+    private void computeBatchOfMisses(MissBatchKey<V> batchKey,
+                                      Map<String,SettableFuture<V>> promises,
+                                      Map<String,String> requestedKeys) {
+        metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_BATCH_SUPPLIER);
+        metricRecorder.updateHistogram(CacheMetricStrings.CACHE_TYPE_BATCH_SUPPLIER_KEYS, promises.size());
+        scheduleBulkValueComputation(batchKey.getClient(), promises, requestedKeys, batchKey.getBatchSupplier(),
+                batchKey.getTimeToLive(), batchKey.getExecutorService(), batchKey.getCanCacheValueEvalutor());
+    }
+
+    /**
+     * Attempts to add the lease item for the key to memcached.  If the lease is obtained the supplier is called
+     * and the lease removed once the value has been calculated.  If another JVM holds the lease, memcached is polled
+     * for the value that JVM is calculating; for up to distributedLeaseMaxWait.  If memcached cannot be contacted
+     * the supplier is called, as if there was no lease.
+     */
+    private void acquireDistributedLease(final ReferencedClient client,
+                                         final String keyString,
+                                         final SettableFuture<V> promise,
+                                         final Supplier<V> computation,
+                                         final Duration timeToLive,
+                                         final ListeningExecutorService executorService,
+                                         final Predicate<V> canCacheValueEvalutor,
+                                         final Predicate<V> isCachedValueValid,
+                                         final V lastKnownValue) {
+        final String leaseKey = DistributedLeaseKeyCreator.createKey(config, keyString);
+        ListenableFuture<Boolean> lease;
+        try {
+            lease = Futures.withTimeout(client.add(leaseKey, distributedLeaseTimeToLiveInSeconds, DISTRIBUTED_LEASE_VALUE),
+                    memcachedGetTimeoutInMillis, TimeUnit.MILLISECONDS, cacheLookupTimeoutScheduler);
+        } catch (Throwable t) {
+            lease = Futures.immediateFailedFuture(t);
+        }
+
+        Futures.addCallback(lease, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean acquired) {
+                if(Boolean.TRUE.equals(acquired)) {
+                    metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_LEASE_ACQUIRED);
+                    // released when the supplier finishes, not when the promise is completed; which
+                    // the staleIfErrorSupplierTimeout can do whilst the supplier is still running
+                    computeValue(client, keyString, promise, computation, timeToLive, executorService,
+                            canCacheValueEvalutor, lastKnownValue, () -> releaseDistributedLease(client, leaseKey));
+                } else {
+                    metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_LEASE_LOST);
+                    logger.debug("distributed lease for {} is held by another client, waiting for value", keyString);
+                    scheduleDistributedLeasePoll(client, keyString, promise, computation, timeToLive, executorService,
+                            canCacheValueEvalutor, isCachedValueValid, lastKnownValue,
+                            System.nanoTime() + distributedLeaseMaxWaitInNanos);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                logger.warn("Unable to obtain distributed lease for key {}, calculating value: {}", keyString, t.getMessage());
+                computeValue(client, keyString, promise, computation, timeToLive, executorService,
+                        canCacheValueEvalutor, lastKnownValue);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void releaseDistributedLease(ReferencedClient client, String leaseKey) {
+        try {
+            client.delete(leaseKey);
+        } catch (Throwable t) {
+            logger.warn("Unable to remove distributed lease {}, it will expire: {}", leaseKey, t.getMessage());
+        }
+    }
+
+    /**
+     * Schedules a non blocking lookup against memcached for the value being calculated by the holder of the lease.
+     */
+    private void scheduleDistributedLeasePoll(final ReferencedClient client,
+                                              final String keyString,
+                                              final SettableFuture<V> promise,
+                                              final Supplier<V> computation,
+                                              final Duration timeToLive,
+                                              final ListeningExecutorService executorService,
+                                              final Predicate<V> canCacheValueEvalutor,
+                                              final Predicate<V> isCachedValueValid,
+                                              final V lastKnownValue,
+                                              final long deadlineNanos) {
+        try {
+            cacheLookupTimeoutScheduler.schedule(() -> {
+                ListenableFuture<V> lookup = cacheReader.getFromDistributedCacheAsync(client,
                         keyString,
                         memcachedGetTimeoutInMillis,
                         CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
-                        metricRecorder);
+                        metricRecorder,
+                        cacheLookupTimeoutScheduler);
+
+                Futures.addCallback(lookup, new FutureCallback<V>() {
+                    @Override
+                    public void onSuccess(V item) {
+                        completeFromDistributedLeasePoll(item, client, keyString, promise, computation, timeToLive,
+                                executorService, canCacheValueEvalutor, isCachedValueValid, lastKnownValue, deadlineNanos);
+                    }
 
-                boolean cachedObjectFoundInCache = cachedObject!=null;
-                boolean validCachedObject = (cachedObjectFoundInCache && isCachedValueValid.test(cachedObject));
-                boolean doRevalidationInBackground = returnInvalidCachedItemWhileRevalidate && cachedObjectFoundInCache && !validCachedObject;
+                    @Override
+                    public void onFailure(Throwable t) {
+                        completeFromDistributedLeasePoll(null, client, keyString, promise, computation, timeToLive,
+                                executorService, canCacheValueEvalutor, isCachedValueValid, lastKnownValue, deadlineNanos);
+                    }
+                }, MoreExecutors.directExecutor());
+            }, distributedLeasePollIntervalInMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            computeValue(client, keyString, promise, computation, timeToLive, executorService,
+                    canCacheValueEvalutor, lastKnownValue);
+        }
+    }
 
-                if(validCachedObject || doRevalidationInBackground) {
-                    Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+    /**
+     * Completes the promise with the value written to memcached by the holder of the lease.  If the value is not
+     * yet present, memcached is polled again; unless distributedLeaseMaxWait has passed, in which case the promise is
+     * completed with the stale (last known) value, or if there is no stale value the supplier is called.
+     */
+    private void completeFromDistributedLeasePoll(final Object cachedItem,
+                                                  final ReferencedClient client,
+                                                  final String keyString,
+                                                  final SettableFuture<V> promise,
+                                                  final Supplier<V> computation,
+                                                  final Duration timeToLive,
+                                                  final ListeningExecutorService executorService,
+                                                  final Predicate<V> canCacheValueEvalutor,
+                                                  final Predicate<V> isCachedValueValid,
+                                                  final V lastKnownValue,
+                                                  final long deadlineNanos) {
+        if(isNegativeCacheHit(keyString, cachedItem)) {
+            FutureCompleter.completeWithValue(promise, keyString, null, store,
+                    config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+            return;
+        }
 
-                    FutureCompleter.completeWithValue(promise, keyString, cachedObject, store,
-                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+        V cachedObject;
+        try {
+            cachedObject = unwrapFreshCacheValue(cachedItem);
+            if(cachedObject!=null && !isCachedValueValid.test(cachedObject)) {
+                cachedObject = null;
+            }
+        } catch (Throwable t) {
+            cachedObject = null;
+        }
 
-                    if(doRevalidationInBackground) {
-                        // return the future, but schedule update in background
-                        // without tying to current future to the background update
-                        //
-                        performBackgroundRevalidationIfNeeded(keyString, client, computation, timeToLive, executorService, canCacheValueEvalutor);
+        if(cachedObject!=null) {
+            nearCache.put(keyString, cachedObject, Duration.ZERO);
+            FutureCompleter.completeWithValue(promise, keyString, cachedObject, store,
+                    config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+        } else if(System.nanoTime() - deadlineNanos < 0) {
+            scheduleDistributedLeasePoll(client, keyString, promise, computation, timeToLive, executorService,
+                    canCacheValueEvalutor, isCachedValueValid, lastKnownValue, deadlineNanos);
+        } else {
+            metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_LEASE_WAIT_TIMEOUT);
+            Futures.addCallback(getLastKnownValue(client, keyString, lastKnownValue), new FutureCallback<V>() {
+                @Override
+                public void onSuccess(V staleValue) {
+                    if(staleValue!=null) {
+                        FutureCompleter.completeWithValue(promise, keyString, staleValue, store,
+                                config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                    } else {
+                        onFailure(null);
                     }
                 }
-                else {
-                    // write with normal semantics
-                    logger.debug("set requested for {}", keyString);
-                    Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
-                    Throwable exceptionDuringWrite = cacheWriteFunction(client, computation,
-                            keyString, timeToLive, executorService,
-                            canCacheValueEvalutor, promise,store);
 
-                    if(exceptionDuringWrite!=null) {
-                        FutureCompleter.completeWithException(promise, keyString, exceptionDuringWrite, store,
-                                config.isRemoveFutureFromInternalCacheBeforeSettingValue());
-                    }
+                @Override
+                public void onFailure(Throwable t) {
+                    computeValue(client, keyString, promise, computation, timeToLive, executorService,
+                            canCacheValueEvalutor, lastKnownValue);
                 }
+            }, MoreExecutors.directExecutor());
+        }
+    }
 
-                return promise;
+    @Override
+    public Map<String,ListenableFuture<V>> applyAll(Collection<String> keys,
+                                                    Function<Set<String>,Map<String,V>> computation,
+                                                    ListeningExecutorService executorService) {
+        return applyAll(keys,computation,config.getTimeToLive(),executorService);
+    }
 
+    @Override
+    public Map<String,ListenableFuture<V>> applyAll(Collection<String> keys,
+                                                    Function<Set<String>,Map<String,V>> computation,
+                                                    Duration timeToLive,
+                                                    ListeningExecutorService executorService,
+                                                    Predicate<V> canCacheValueEvalutor,
+                                                    Predicate<V> isCachedValueValid) {
+        return applyAllOnExecutor(keys, computation, timeToLive, executionMode.getExecutor(executorService),
+                canCacheValueEvalutor, isCachedValueValid);
+    }
+
+    private Map<String,ListenableFuture<V>> applyAllOnExecutor(Collection<String> keys,
+                                                               Function<Set<String>,Map<String,V>> computation,
+                                                               Duration timeToLive,
+                                                               ListeningExecutorService executorService,
+                                                               Predicate<V> canCacheValueEvalutor,
+                                                               Predicate<V> isCachedValueValid) {
+        Map<String,ListenableFuture<V>> results = new LinkedHashMap<>(keys.size());
+        // hashed key -> promise, for the keys this call is responsible for obtaining
+        Map<String,SettableFuture<V>> promises = new LinkedHashMap<>(keys.size());
+        // hashed key -> requested key, as the computation is given the requested keys
+        Map<String,String> requestedKeys = new HashMap<>(keys.size());
+
+        ReferencedClient client = clientFactory.getClient();
+        boolean cacheAvailable = client.isAvailable();
+        if(!cacheAvailable) {
+            warnCacheDisabled();
+        }
+
+        for(String key : keys) {
+            if(results.containsKey(key)) {
+                continue;
+            }
+            String keyString = getHashedKey(key);
+            heavyHitterTracker.recordRequest(keyString);
+
+            ListenableFuture<V> nearCachedValue = getFromNearCache(keyString, isCachedValueValid);
+            if(nearCachedValue!=null) {
+                results.put(key, nearCachedValue);
+                continue;
+            }
+
+            final SettableFuture<V> promise = new CompletableSettableFuture<>();
+            ListenableFuture<V> existingFuture = store.putIfAbsent(keyString, promise);
+            if(existingFuture==null) {
+                Cache.logCacheMiss(metricRecorder, keyString, cacheAvailable ? CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION :
+                                                                               CacheMetricStrings.CACHE_TYPE_CACHE_DISABLED);
+                promises.put(keyString, promise);
+                requestedKeys.put(keyString, key);
+                results.put(key, promise);
+            } else if(cacheAvailable) {
+                results.put(key, returnStaleOrCachedItem(client, keyString, existingFuture, executorService));
             } else {
-                return returnStaleOrCachedItem(client,keyString,existingFuture,executorService);
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
+                results.put(key, existingFuture);
+            }
+        }
+
+        if(promises.isEmpty()) {
+            return results;
+        }
+
+        if(!cacheAvailable) {
+            scheduleBulkValueComputation(client, promises, requestedKeys, computation, timeToLive,
+                    executorService, canCacheValueEvalutor);
+            return results;
+        }
+
+        ListenableFuture<Map<String,V>> lookup = cacheReader.getBulkFromDistributedCacheAsync(client,
+                promises.keySet(),
+                memcachedGetTimeoutInMillis,
+                CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                metricRecorder,
+                cacheLookupTimeoutScheduler);
+
+        final ListeningExecutorService supplierExecutor = getCallbackSupplierExecutor(executorService);
+        Futures.addCallback(lookup, new FutureCallback<Map<String,V>>() {
+            @Override
+            public void onSuccess(Map<String,V> cachedObjects) {
+                completeFromDistributedCacheBulkLookup(client, cachedObjects, promises, requestedKeys, computation,
+                        timeToLive, supplierExecutor, canCacheValueEvalutor, isCachedValueValid);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                completeFromDistributedCacheBulkLookup(client, Collections.<String,V>emptyMap(), promises, requestedKeys,
+                        computation, timeToLive, supplierExecutor, canCacheValueEvalutor, isCachedValueValid);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return results;
+    }
+
+    /**
+     * Given the result of the multi-get against memcached, completes the promises of the keys that
+     * were found (and are valid), and submits a single call of the computation for the remaining keys.
+     */
+    private void completeFromDistributedCacheBulkLookup(final ReferencedClient client,
+                                                        final Map<String,V> cachedObjects,
+                                                        final Map<String,SettableFuture<V>> promises,
+                                                        final Map<String,String> requestedKeys,
+                                                        final Function<Set<String>,Map<String,V>> computation,
+                                                        final Duration timeToLive,
+                                                        final ListeningExecutorService executorService,
+                                                        final Predicate<V> canCacheValueEvalutor,
+                                                        final Predicate<V> isCachedValueValid) {
+        Map<String,SettableFuture<V>> missing = new LinkedHashMap<>(promises.size());
+        for(Map.Entry<String,SettableFuture<V>> entry : promises.entrySet()) {
+            String keyString = entry.getKey();
+            SettableFuture<V> promise = entry.getValue();
+            try {
+                Object cachedItem = cachedObjects.get(keyString);
+                if(isNegativeCacheHit(keyString, cachedItem)) {
+                    Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                    FutureCompleter.completeWithValue(promise, keyString, null, store,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                    continue;
+                }
+                V cachedObject = unwrapFreshCacheValue(cachedItem);
+                if(cachedObject!=null && isCachedValueValid.test(cachedObject)) {
+                    Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                    nearCache.put(keyString, cachedObject, Duration.ZERO);
+                    FutureCompleter.completeWithValue(promise, keyString, cachedObject, store,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                    if(isEarlyRecomputationRequired(cachedItem)) {
+                        metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_EARLY_RECOMPUTATION);
+                        final String requestedKey = requestedKeys.get(keyString);
+                        performBackgroundRevalidationIfNeeded(keyString, client, () -> {
+                            Map<String,V> values = computation.apply(Collections.singleton(requestedKey));
+                            return values == null ? null : values.get(requestedKey);
+                        }, timeToLive, executorService, canCacheValueEvalutor);
+                    }
+                } else {
+                    Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                    heavyHitterTracker.recordMiss(keyString);
+                    missing.put(keyString, promise);
+                }
+            } catch(Throwable t) {
+                FutureCompleter.completeWithException(promise, keyString, t, store,
+                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+            }
+        }
+
+        if(!missing.isEmpty()) {
+            scheduleBulkValueComputation(client, missing, requestedKeys, computation, timeToLive,
+                    executorService, canCacheValueEvalutor);
+        }
+    }
+
+    /**
+     * Submits the computation, for the given keys, to the executor.  Each of the keys promises
+     * is completed with their individual value.
+     */
+    private void scheduleBulkValueComputation(final ReferencedClient client,
+                                              final Map<String,SettableFuture<V>> promises,
+                                              final Map<String,String> requestedKeys,
+                                              final Function<Set<String>,Map<String,V>> computation,
+                                              final Duration timeToLive,
+                                              final ListeningExecutorService executorService,
+                                              final Predicate<V> canCacheValueEvalutor) {
+        try {
+            executorService.submit(createBulkCacheWriteRunnable(client, promises, requestedKeys, computation,
+                    timeToLive, canCacheValueEvalutor));
+        } catch(Throwable failedToSubmit) {
+            metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_REJECTION_COUNTER);
+            String message = "Unable able to submit computation (Function) to executor in order to obtain the values for keys: " + promises.keySet();
+            logger.warn(message,failedToSubmit);
+            Throwable exception = new UnableToSubmitSupplierForExecutionException(message,failedToSubmit);
+            for(Map.Entry<String,SettableFuture<V>> entry : promises.entrySet()) {
+                FutureCompleter.completeWithException(entry.getValue(), entry.getKey(), exception, store,
+                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
             }
         }
     }
 
+    private Runnable createBulkCacheWriteRunnable(final ReferencedClient client,
+                                                  final Map<String,SettableFuture<V>> promises,
+                                                  final Map<String,String> requestedKeys,
+                                                  final Function<Set<String>,Map<String,V>> computation,
+                                                  final Duration itemExpiry,
+                                                  final Predicate<V> canCacheValue) {
+        final long submittedNanos = System.nanoTime();
+        return () -> {
+            latencyInstrumentation.recordQueueWait(System.nanoTime() - submittedNanos);
+            Set<String> keysToCompute = new LinkedHashSet<>(promises.size());
+            for(String keyString : promises.keySet()) {
+                keysToCompute.add(requestedKeys.get(keyString));
+                heavyHitterTracker.recordSupplierCall(keyString);
+            }
+
+            final long startNanos =  System.nanoTime();
+            Map<String,V> results;
+            try {
+                results = computation.apply(Collections.unmodifiableSet(keysToCompute));
+                if(results==null) {
+                    results = Collections.emptyMap();
+                }
+            } catch(Throwable err) {
+                setCacheWriteMetrics(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_FAILURE_TIMER,
+                        System.nanoTime()-startNanos,
+                        CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_FAILURE_COUNTER);
+
+                for(Map.Entry<String,SettableFuture<V>> entry : promises.entrySet()) {
+                    FutureCompleter.completeWithException(entry.getValue(), entry.getKey(), err, store,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                }
+                return;
+            }
+
+            final long computeTimeNanos = System.nanoTime()-startNanos;
+            setCacheWriteMetrics(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_SUCCESS_TIMER,
+                    computeTimeNanos,
+                    CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_SUCCESS_COUNTER);
+
+            // the values are written to memcached as one pipelined batch, before the promises are completed
+            Map<String,Object> valuesToCache = new LinkedHashMap<>(promises.size());
+            Map<String,SettableFuture<V>> promisesToComplete = new LinkedHashMap<>(promises.size());
+            for(Map.Entry<String,SettableFuture<V>> entry : promises.entrySet()) {
+                String keyString = entry.getKey();
+                V result = results.get(requestedKeys.get(keyString));
+                try {
+                    if (client.isAvailable() && result != null && canCacheValue.test(result)) {
+                        Object valueToCache = createCacheValue(result, computeTimeNanos, itemExpiry);
+                        writeToDistributedStaleCache(client, keyString, itemExpiry, valueToCache);
+                        valuesToCache.put(keyString, valueToCache);
+                    } else {
+                        nearCache.invalidate(keyString);
+                        writeNegativeCacheEntry(client, keyString);
+                    }
+                    promisesToComplete.put(keyString, entry.getValue());
+                } catch(Throwable err) {
+                    FutureCompleter.completeWithException(entry.getValue(), keyString, err, store,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                }
+            }
+
+            int timeToLiveInSeconds = getDistributedCacheTimeToLiveInSeconds(itemExpiry);
+            if(!valuesToCache.isEmpty()) {
+                cacheWriter.writeAllToDistributedCache(client, valuesToCache, timeToLiveInSeconds);
+            }
+
+            for(Map.Entry<String,SettableFuture<V>> entry : promisesToComplete.entrySet()) {
+                String keyString = entry.getKey();
+                V result = results.get(requestedKeys.get(keyString));
+                try {
+                    Object valueToCache = valuesToCache.get(keyString);
+                    if(valueToCache!=null) {
+                        writeHotKeyReplicas(client, keyString, valueToCache, timeToLiveInSeconds);
+                        nearCache.put(keyString, result, itemExpiry);
+                    }
+                    FutureCompleter.completeWithValue(entry.getValue(), keyString, result, store,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                } catch(Throwable err) {
+                    FutureCompleter.completeWithException(entry.getValue(), keyString, err, store,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                }
+            }
+        };
+    }
+
     @Override
     public ListenableFuture<V> set(String keyString, Supplier<V> value, Predicate<V> canCacheValueEvalutor, ListeningExecutorService executorService) {
         return set(keyString, value, config.getTimeToLive(), canCacheValueEvalutor, executorService);
@@ -425,7 +1587,7 @@ import java.util.function.Supplier;
                                    Predicate<V> canCacheValueEvalutor,
                                    ListeningExecutorService executorService) {
         String keyString = getHashedKey(key);
-
+        executorService = executionMode.getExecutor(executorService);
 
         ReferencedClient client = clientFactory.getClient();
         if(!client.isAvailable()) {
@@ -434,7 +1596,7 @@ import java.util.function.Supplier;
         }
         else {
             // write with normal semantics
-            final SettableFuture<V> promise = new GuavaSettableFuture<>();
+            final SettableFuture<V> promise = new CompletableSettableFuture<>();
 
             logger.debug("set requested for {}", keyString);
             Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
@@ -494,12 +1656,80 @@ import java.util.function.Supplier;
         Cache.logCacheHit(metricRecorder, keyRequested, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
         if(config.isUseStaleCache()) {
             String staleCacheKey = StaleCacheKeyCreator.createKey(config, keyRequested);
-            return getFutureForStaleDistributedCacheLookup(client, staleCacheKey, cachedFuture);
+            return getFutureForStaleLookup(client, staleCacheKey, cachedFuture);
         } else {
             return cachedFuture;
         }
     }
 
+    private ListenableFuture<V> getFutureForStaleLookup(ReferencedClient client,
+                                                        String staleCacheKey,
+                                                        ListenableFuture<V> backendFuture) {
+        if(singleItemStaleCache) {
+            return getFutureForStaleValue(staleCacheKey, backendFuture);
+        } else {
+            return getFutureForStaleDistributedCacheLookup(client, staleCacheKey, backendFuture);
+        }
+    }
+
+    /**
+     * For the single item stale cache, registers a future in the stale store that will contain the stale value
+     * (if the item obtained from memcached has passed its soft expiry).  The future is removed from the
+     * stale store when the fresh value has been calculated.
+     *
+     * @param keyString The key
+     * @param promise The future that is calculating the fresh value
+     */
+    private void registerStaleValuePromise(String keyString, ListenableFuture<V> promise) {
+        final String staleCacheKey = StaleCacheKeyCreator.createKey(config, keyString);
+        final SettableFuture<V> stalePromise = new GuavaSettableFuture<>();
+        staleStore.put(staleCacheKey, stalePromise);
+        promise.addListener(() -> {
+            stalePromise.set(null);
+            staleStore.remove(staleCacheKey, stalePromise);
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Completes the stale value future registered by {@link #registerStaleValuePromise}
+     * @param staleValue The stale value, or null if there is no stale value.
+     */
+    private void offerStaleValue(String keyString, V staleValue) {
+        if(singleItemStaleCache) {
+            ListenableFuture<V> stalePromise = staleStore.get(StaleCacheKeyCreator.createKey(config, keyString));
+            if(stalePromise instanceof SettableFuture) {
+                ((SettableFuture<V>) stalePromise).set(staleValue);
+            }
+        }
+    }
+
+    /**
+     * Returns a future that either contains the stale value, obtained by the request that is calculating the
+     * fresh value; or the future that is calculating the value (if there is no stale value).
+     * No additional lookup against memcached is performed.
+     *
+     * @param key The stale cache key
+     * @param backendFuture The future that is actually calculating the fresh cache entry
+     */
+    private ListenableFuture<V> getFutureForStaleValue(final String key,
+                                                       final ListenableFuture<V> backendFuture) {
+        ListenableFuture<V> staleFuture = staleStore.get(key);
+        if(staleFuture==null) {
+            Cache.logCacheMiss(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_STALE_VALUE_CALCULATION);
+            return backendFuture;
+        }
+
+        Cache.logCacheHit(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_STALE_VALUE_CALCULATION);
+        return staleValueOrBackendFuture(Futures.transform(staleFuture, (V staleValue) -> {
+            if(staleValue==null) {
+                Cache.logCacheMiss(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_STALE_CACHE);
+            } else {
+                Cache.logCacheHit(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_STALE_CACHE);
+            }
+            return staleValue;
+        }, MoreExecutors.directExecutor()), backendFuture);
+    }
+
     /**
      * Returns a future that either:
      * <ul>
@@ -507,6 +1737,8 @@ import java.util.function.Supplier;
      *     <li>the future that is calculating the value from the given supplier (this future is already executing)</li>
      * </ul>
      *
+     * The stale lookup against memcached is performed without blocking, and is shared by all the concurrent
+     * requests for the key.  None of the requesting threads wait on the stale lookup.
      *
      * @param key The stale cache key
      * @param backendFuture The future that is actually calculating the fresh cache entry
@@ -524,37 +1756,48 @@ import java.util.function.Supplier;
         if (existingFuture == null) {
             Cache.logCacheMiss(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_STALE_VALUE_CALCULATION);
 
-            V item = cacheReader.getFromDistributedCache(client,
+            ListenableFuture<V> lookup = cacheReader.getFromDistributedCacheAsync(client,
                     key,
                     this.staleCacheMemachedGetTimeoutInMillis,
                     CacheMetricStrings.CACHE_TYPE_STALE_CACHE,
-                    metricRecorder);
+                    metricRecorder,
+                    cacheLookupTimeoutScheduler);
 
-            if(item==null) {
-                FutureCompleter.completeWithValue(promise, key, null, staleStore,
-                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
-                return backendFuture;
-            } else {
-                FutureCompleter.completeWithValue(promise, key, item, staleStore,
-                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
-                return promise;
-            }
+            Futures.addCallback(lookup, new FutureCallback<V>() {
+                @Override
+                public void onSuccess(V item) {
+                    FutureCompleter.completeWithValue(promise, key, unwrapCacheValue(item), staleStore,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    FutureCompleter.completeWithValue(promise, key, null, staleStore,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                }
+            }, MoreExecutors.directExecutor());
 
+            return staleValueOrBackendFuture(promise, backendFuture);
         } else {
             Cache.logCacheHit(metricRecorder, key, CacheMetricStrings.CACHE_TYPE_STALE_VALUE_CALCULATION);
-            try {
-                V item = promise.get();
-                if(item==null) {
-                    return backendFuture;
-                } else {
-                    return promise;
-                }
-            } catch (Throwable e) {
-                return backendFuture;
-            }
+            return staleValueOrBackendFuture(existingFuture, backendFuture);
         }
     }
 
+    /**
+     * Composes a future that completes with the stale value, if there is one, otherwise with the result
+     * of the backend future.  Cancellation of the returned future is not propagated to either of the futures,
+     * as these are shared between requests.
+     */
+    private ListenableFuture<V> staleValueOrBackendFuture(final ListenableFuture<V> staleFuture,
+                                                          final ListenableFuture<V> backendFuture) {
+        final ListenableFuture<V> backend = Futures.nonCancellationPropagating(backendFuture);
+        ListenableFuture<V> result = Futures.transformAsync(Futures.nonCancellationPropagating(staleFuture),
+                (V staleValue) -> staleValue == null ? backend : Futures.immediateFuture(staleValue),
+                MoreExecutors.directExecutor());
+        return Futures.catchingAsync(result, Throwable.class, (Throwable t) -> backend, MoreExecutors.directExecutor());
+    }
+
 
     private Runnable createCacheWriteRunnable(final ReferencedClient client,
                                               final Supplier<V> computation,
@@ -562,24 +1805,34 @@ import java.util.function.Supplier;
                                               final Duration itemExpiry,
                                               final Predicate<V> canCacheValue,
                                               final SettableFuture<V> future,
-                                              final ConcurrentMap<String, ListenableFuture<V>> cachedFutures)
+                                              final ConcurrentMap<String, ListenableFuture<V>> cachedFutures,
+                                              final boolean staleIfError,
+                                              final V lastKnownValue)
     {
+        final long submittedNanos = System.nanoTime();
         return () -> {
             final long startNanos =  System.nanoTime();
+            latencyInstrumentation.recordQueueWait(startNanos - submittedNanos);
             Throwable throwable = null;
             try {
+                heavyHitterTracker.recordSupplierCall(key);
                 V results = computation.get();
                 long time = System.nanoTime()-startNanos;
                 boolean isNotNullResults = (results != null);
                 boolean isCacheable = canCacheValue.test(results);
                 if (isNotNullResults & isCacheable) {
-                    writeToDistributedStaleCache(client, key, itemExpiry, results);
+                    Object valueToCache = createCacheValue(results, time, itemExpiry);
+                    writeToDistributedStaleCache(client, key, itemExpiry, valueToCache);
                     // write the cache entry
                     cacheWriter.writeToDistributedCache(client,
                             key,
-                            results,
-                            DurationToSeconds.getSeconds(itemExpiry));
+                            valueToCache,
+                            getDistributedCacheTimeToLiveInSeconds(itemExpiry));
+                    writeHotKeyReplicas(client, key, valueToCache, getDistributedCacheTimeToLiveInSeconds(itemExpiry));
+                    nearCache.put(key, results, itemExpiry);
                 } else {
+                    nearCache.invalidate(key);
+                    writeNegativeCacheEntry(client, key);
                     logger.debug("Cache Value cannot be cached.  It has to be either not null:({}), or cachable as determine by predicate:({}). " +
                             "Therefore, not storing in memcached",isNotNullResults,isCacheable);
                 }
@@ -599,8 +1852,12 @@ import java.util.function.Supplier;
                         time,
                         CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_FAILURE_COUNTER);
 
-                FutureCompleter.completeWithException(future, key, throwable, cachedFutures,
-                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                if(staleIfError) {
+                    completeWithLastKnownValue(client, key, lastKnownValue, throwable, future, cachedFutures);
+                } else {
+                    FutureCompleter.completeWithException(future, key, throwable, cachedFutures,
+                            config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                }
             }
         };
     }
@@ -609,6 +1866,7 @@ import java.util.function.Supplier;
         metricRecorder.setDuration(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_ALL_TIMER,duration);
         metricRecorder.setDuration(timerMetricName,duration);
         metricRecorder.incrementCounter(counterMetricName);
+        latencyInstrumentation.recordSupplier(duration);
     }
 
     /**
@@ -630,24 +1888,144 @@ import java.util.function.Supplier;
                                                    final SettableFuture<V> future,
                                                    final ConcurrentMap<String,ListenableFuture<V>> cachedFutureStore
 
+    ) {
+        return cacheWriteFunction(client, computation, key, itemExpiry, executorService, canCacheValue,
+                future, cachedFutureStore, false, null, NO_COMPUTATION_LISTENER);
+    }
+
+    /**
+     * As {@link #cacheWriteFunction(ReferencedClient, Supplier, String, Duration, ListeningExecutorService, Predicate, SettableFuture, ConcurrentMap)},
+     * but when {@code staleIfError} is true the future is completed with the last known value for the key, if
+     * the computation fails or does not complete within the staleIfErrorSupplierTimeout.
+     *
+     * @param staleIfError should the last known value be returned on failure of the computation
+     * @param lastKnownValue the last known value for the key (i.e. the invalid or stale item), or null if not known.
+     * @param onComputationComplete run when the computation has finished, or could not be submitted for execution
+     */
+    private Throwable cacheWriteFunction(final ReferencedClient client,
+                                         final Supplier<V> computation,
+                                         final String key,
+                                         final Duration itemExpiry,
+                                         final ListeningExecutorService executorService,
+                                         final Predicate<V> canCacheValue,
+                                         final SettableFuture<V> future,
+                                         final ConcurrentMap<String,ListenableFuture<V>> cachedFutureStore,
+                                         final boolean staleIfError,
+                                         final V lastKnownValue,
+                                         final Runnable onComputationComplete
     ) {
         try {
             executorService.submit(
-                    createCacheWriteRunnable(client, computation, key, itemExpiry, canCacheValue, future, cachedFutureStore));
+                    createCacheWriteRunnable(client, computation, key, itemExpiry, canCacheValue, future, cachedFutureStore,
+                            staleIfError, lastKnownValue))
+                    .addListener(onComputationComplete, MoreExecutors.directExecutor());
 
         } catch(Throwable failedToSubmit) {
+            onComputationComplete.run();
             metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_REJECTION_COUNTER);
             String message = "Unable able to submit computation (Supplier) to executor in order to obtain the value for key: " + key;
             logger.warn(message,failedToSubmit);
             return new UnableToSubmitSupplierForExecutionException(message,failedToSubmit);
         }
 
+        if(staleIfError && staleIfErrorSupplierTimeoutInMillis>0) {
+            scheduleStaleIfErrorDeadline(client, key, future, lastKnownValue);
+        }
+
         return null;
     }
 
+    /**
+     * Schedules a check, that if the computation has not completed within the staleIfErrorSupplierTimeout, completes
+     * the future with the last known value.  The future is left in the herd store, so that concurrent requests also
+     * receive the last known value, until the computation completes (and removes the future).
+     */
+    private void scheduleStaleIfErrorDeadline(final ReferencedClient client,
+                                              final String key,
+                                              final SettableFuture<V> future,
+                                              final V lastKnownValue) {
+        try {
+            final ScheduledFuture<?> deadline = cacheLookupTimeoutScheduler.schedule(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                Futures.addCallback(getLastKnownValue(client, key, lastKnownValue), new FutureCallback<V>() {
+                    @Override
+                    public void onSuccess(V value) {
+                        // only recorded if the last known value won the race with the computation
+                        if (value != null && future.set(value)) {
+                            logger.warn("Supplier did not complete within {}ms, returning last known value for key: {}",
+                                    staleIfErrorSupplierTimeoutInMillis, key);
+                            metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_STALE_IF_ERROR);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        // leave the future to be completed by the computation
+                    }
+                }, MoreExecutors.directExecutor());
+            }, staleIfErrorSupplierTimeoutInMillis, TimeUnit.MILLISECONDS);
+            future.addListener(() -> deadline.cancel(false), MoreExecutors.directExecutor());
+        } catch (RejectedExecutionException e) {
+            logger.debug("Unable to schedule stale if error deadline for key: {}", key);
+        }
+    }
+
+    /**
+     * Completes the future with the last known value for the key, or with the given exception if there
+     * is no last known value.
+     */
+    private void completeWithLastKnownValue(final ReferencedClient client,
+                                            final String key,
+                                            final V lastKnownValue,
+                                            final Throwable exception,
+                                            final SettableFuture<V> future,
+                                            final ConcurrentMap<String,ListenableFuture<V>> cachedFutures) {
+        Futures.addCallback(getLastKnownValue(client, key, lastKnownValue), new FutureCallback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                if (value == null) {
+                    onFailure(exception);
+                } else if (FutureCompleter.completeWithValue(future, key, value, cachedFutures,
+                        config.isRemoveFutureFromInternalCacheBeforeSettingValue())) {
+                    logger.warn("Supplier failed, returning last known value for key: {}", key, exception);
+                    metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_STALE_IF_ERROR);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                FutureCompleter.completeWithException(future, key, exception, cachedFutures,
+                        config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Returns the last known value for the key.  This is either the value given, or when the stale
+     * value is stored in a separate memcached item, the value obtained (without blocking) from the stale item.
+     * The returned future contains null if there is no last known value.
+     */
+    private ListenableFuture<V> getLastKnownValue(final ReferencedClient client,
+                                                  final String key,
+                                                  final V lastKnownValue) {
+        if(lastKnownValue!=null || !config.isUseStaleCache() || singleItemStaleCache || !client.isAvailable()) {
+            return Futures.immediateFuture(lastKnownValue);
+        }
+
+        ListenableFuture<V> lookup = cacheReader.getFromDistributedCacheAsync(client,
+                StaleCacheKeyCreator.createKey(config, key),
+                this.staleCacheMemachedGetTimeoutInMillis,
+                CacheMetricStrings.CACHE_TYPE_STALE_CACHE,
+                metricRecorder,
+                cacheLookupTimeoutScheduler);
+        return Futures.transform(lookup, (V item) -> unwrapCacheValue(item), MoreExecutors.directExecutor());
+    }
+
     private void writeToDistributedStaleCache(ReferencedClient client,String key,Duration ttl,
-                                   V valueToWriteToCache) {
-        if (config.isUseStaleCache()) {
+                                   Object valueToWriteToCache) {
+        if (config.isUseStaleCache() && !singleItemStaleCache) {
             String staleCacheKey = StaleCacheKeyCreator.createKey(config,key);
             Duration staleCacheExpiry = ttl.plus(staleCacheAdditionalTimeToLiveValue);
             // overwrite the stale cache entry
@@ -660,15 +2038,34 @@ import java.util.function.Supplier;
     }
 
 
+    @Override
+    public List<HeavyHitter> getHeavyHitters() {
+        return heavyHitterTracker.getHeavyHitters();
+    }
+
+    @Override
+    public Map<String,LatencySnapshot> getLatencySnapshots() {
+        return latencyInstrumentation.getLatencySnapshots();
+    }
+
     @Override
     public void shutdown() {
+        if(config.getSerializingTranscoder() instanceof SerializingTranscoder) {
+            ((SerializingTranscoder)config.getSerializingTranscoder()).removeDecodeTimeListener(decodeTimeListener);
+        }
+        latencyInstrumentation.shutdown();
+        refreshAheadScheduler.shutdown();
+        missBatcher.shutdown();
+        executionMode.shutdown();
         clearInternalCaches();
         clientFactory.shutdown();
+        cacheLookupTimeoutScheduler.shutdownNow();
     }
 
 
     private void clearInternalCaches() {
         store.clear();
+        nearCache.invalidateAll();
         if(config.isUseStaleCache()) {
             staleStore.clear();
         }
@@ -731,9 +2128,10 @@ import java.util.function.Supplier;
      */
     @Override
     public void clear(String key) {
+        key = getHashedKey(key);
+        nearCache.invalidate(key);
         ReferencedClient client = clientFactory.getClient();
         if (client.isAvailable()) {
-            key = getHashedKey(key);
             long millisToWait = config.getWaitForRemove().toMillis();
             if (config.isUseStaleCache()) {
                 Future<Boolean> staleCacheFuture = client.delete(StaleCacheKeyCreator.createKey(config, key));
@@ -741,6 +2139,11 @@ import java.util.function.Supplier;
                     waitForDelete(staleCacheFuture, millisToWait, key, "stale cache");
                 }
             }
+            if (isHotKey(key)) {
+                for (int replica = 1; replica <= hotKeyReplicas; replica++) {
+                    client.delete(HotKeyReplicaKeyCreator.createKey(key, replica));
+                }
+            }
             Future<Boolean> future = client.delete(key);
             if (future != null) {
                 waitForDelete(future, millisToWait, key, "cache");
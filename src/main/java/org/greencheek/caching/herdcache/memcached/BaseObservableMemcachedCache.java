@@ -6,10 +6,17 @@ import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import net.spy.memcached.ConnectionFactory;
 import org.greencheek.caching.herdcache.*;
 import org.greencheek.caching.herdcache.domain.CacheItem;
+import org.greencheek.caching.herdcache.memcached.envelope.NegativeCacheEntry;
 import org.greencheek.caching.herdcache.memcached.config.ElastiCacheCacheConfig;
 import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
 import org.greencheek.caching.herdcache.memcached.factory.*;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitter;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitterTracker;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitterTrackerFactory;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.nearcache.NearCache;
+import org.greencheek.caching.herdcache.memcached.nearcache.NearCacheEntry;
+import org.greencheek.caching.herdcache.memcached.nearcache.NearCacheFactory;
 import org.greencheek.caching.herdcache.memcached.operations.*;
 import org.greencheek.caching.herdcache.memcached.spyconnectionfactory.SpyConnectionFactoryBuilder;
 import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
@@ -27,15 +34,16 @@ import rx.schedulers.Schedulers;
 
 import java.io.Serializable;
 import java.time.Duration;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  *
  */
-class BaseObservableMemcachedCache<V extends Serializable> implements ObservableCache<V>
+class BaseObservableMemcachedCache<V extends Serializable> implements ObservableCache<V>, HeavyHitterTrackingCache
 {
 
 
@@ -48,7 +56,9 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
     }
 
     public static ReferencedClientFactory createReferenceClientFactory(ElastiCacheCacheConfig config) {
-        return new SpyMemcachedReferencedClientFactory<>(createMemcachedConnectionFactory(config.getMemcachedCacheConfig()));
+        return BatchingReferencedClientFactory.create(
+                new SpyMemcachedReferencedClientFactory<>(() -> createMemcachedConnectionFactory(config.getMemcachedCacheConfig())),
+                config.getMemcachedCacheConfig());
     }
 
 
@@ -72,7 +82,16 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
     private final long millisToWaitForDelete;
     private final boolean waitForMemcachedSet;
 
+    // in process cache of deserialized values, in front of memcached
+    private final NearCache<V> nearCache;
+    private final boolean nearCacheEnabled;
 
+    // null (or non cacheable) supplier results are stored in memcached as a sentinel
+    private final boolean negativeCachingEnabled;
+    private final int negativeCacheTimeToLiveInSeconds;
+
+    // a sample of the requests is used to estimate the most frequently requested keys
+    private final HeavyHitterTracker heavyHitterTracker;
 
     public BaseObservableMemcachedCache(
             MemcachedClientFactory clientFactory,
@@ -96,6 +115,36 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
         millisToWaitForDelete = config.getWaitForRemove().toMillis();
 
         waitForMemcachedSet = config.isWaitForMemcachedSet();
+
+        nearCache = NearCacheFactory.create(config);
+        nearCacheEnabled = config.isUseNearCache();
+
+        negativeCachingEnabled = config.isUseNegativeCaching();
+        negativeCacheTimeToLiveInSeconds = Math.max(1,DurationToSeconds.getSeconds(config.getNegativeCacheTimeToLive()));
+
+        heavyHitterTracker = HeavyHitterTrackerFactory.create(config);
+    }
+
+    /**
+     * Is the item from memcached the negative cache sentinel.  Logs the negative cache hit if so.
+     */
+    private boolean isNegativeCacheHit(String keyString, Object cachedObject) {
+        if(NegativeCacheEntry.isNegativeCacheEntry(cachedObject)) {
+            Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_NEGATIVE_CACHE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the negative cache sentinel for the key, if negative caching is enabled
+     */
+    private void writeNegativeCacheEntry(ReferencedClient client, String keyString) {
+        if(negativeCachingEnabled) {
+            metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_NEGATIVE_CACHE_WRITES_COUNTER);
+            cacheWriter.writeToDistributedCache(client, keyString, NegativeCacheEntry.INSTANCE,
+                    negativeCacheTimeToLiveInSeconds);
+        }
     }
 
     private ConcurrentMap createInternalCache(boolean createCache,
@@ -123,6 +172,60 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
         return cacheKeyCreator.createKey(key);
     }
 
+    /**
+     * Returns the value from the near cache, if present and valid.  If the near cache entry
+     * is stale, a refresh of the entry from memcached is performed in the background.
+     *
+     * @param keyString The hashed key
+     * @param isCachedValueValid predicate that determines if the near cached value can be used
+     * @return the value, or null if it is not in the near cache.
+     */
+    private V getFromNearCache(String keyString, Predicate<V> isCachedValueValid) {
+        if(!nearCacheEnabled) {
+            return null;
+        }
+
+        NearCacheEntry<V> entry = nearCache.get(keyString);
+        if(entry!=null) {
+            V value = entry.getValue();
+            if(isCachedValueValid.test(value)) {
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_NEAR_CACHE);
+                if(entry.requiresRefresh()) {
+                    refreshNearCacheEntry(keyString);
+                }
+                return value;
+            } else {
+                nearCache.invalidate(keyString);
+            }
+        }
+        Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_NEAR_CACHE);
+        return null;
+    }
+
+    /**
+     * Re-reads the item from memcached, on the background write scheduler, replacing the stale near cache entry.
+     */
+    private void refreshNearCacheEntry(final String keyString) {
+        final ReferencedClient client = clientFactory.getClient();
+        if(!client.isAvailable()) {
+            nearCache.invalidate(keyString);
+            return;
+        }
+
+        Single.<V>create(sub -> {
+            V result = cacheReader.getFromDistributedCache(client, keyString,
+                    memcachedGetTimeoutInMillis,
+                    CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                    metricRecorder);
+            if(result==null || NegativeCacheEntry.isNegativeCacheEntry(result)) {
+                nearCache.invalidate(keyString);
+            } else {
+                nearCache.put(keyString, result, Duration.ZERO);
+            }
+            sub.onSuccess(result);
+        }).subscribeOn(config.getWaitForMemcachedSetRxScheduler()).subscribe();
+    }
+
     /**
      * Used when the cache is disabled (all hosts are down for maintenance, etc).
      * The {@link java.util.function.Supplier} is submitted to the executor, and
@@ -139,6 +242,7 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
             @Override
             public void call(SingleSubscriber<? super CacheItem<V>> singleSubscriber) {
                 try {
+                    heavyHitterTracker.recordSupplierCall(key);
                     singleSubscriber.onSuccess(new CacheItem<V>(key, computation.get(),false));
                 } catch (Throwable e) {
                     singleSubscriber.onError(e);
@@ -160,6 +264,9 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
                                                              CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
                                                              metricRecorder);
                 ok = true;
+                if(isNegativeCacheHit(keyString, result)) {
+                    result = null;
+                }
             } catch (Throwable throwable) {
                 ok = false;
             }
@@ -168,6 +275,7 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
                 Cache.logCacheHit(metricRecorder,keyString, CacheMetricStrings.CACHE_TYPE_ALL);
             } else {
                 Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                heavyHitterTracker.recordMiss(keyString);
             }
 
             return result;
@@ -180,12 +288,18 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
     @Override
     public Single<CacheItem<V>> get(String key) {
         final String keyString = getHashedKey(key);
+        heavyHitterTracker.recordRequest(keyString);
         final ReferencedClient client = clientFactory.getClient();
         if(!client.isAvailable()) {
             warnCacheDisabled();
             Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_CACHE_DISABLED);
             return Single.just(new CacheItem<V>(keyString,null,false));
         } else {
+            V nearCachedValue = getFromNearCache(keyString, (Predicate<V>) Cache.CACHED_VALUE_IS_ALWAYS_VALID);
+            if(nearCachedValue!=null) {
+                return Single.just(new CacheItem<V>(keyString,nearCachedValue,true));
+            }
+
             Single<CacheItem<V>> future = store.get(keyString);
             if(future==null) {
 
@@ -195,6 +309,9 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
                     @Override
                     public void call(SingleSubscriber<? super CacheItem<V>> singleSubscriber) {
                         V result = getFromDistributedCache(client,keyString);
+                        if(result!=null) {
+                            nearCache.put(keyString, result, Duration.ZERO);
+                        }
                         singleSubscriber.onSuccess(new CacheItem<V>(keyString,result,result != null));
                     }
                 }).toObservable().cacheWithInitialCapacity(1).toSingle();
@@ -223,9 +340,15 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
                 if(isSupplierValueCachable.test(value)) {
                     isCacheable = true;
                     cacheWriter.writeToDistributedCache(client, key, value, entryTTLInSeconds);
+                    nearCache.put(key, value, Duration.ofSeconds(entryTTLInSeconds));
                 }
             }
 
+            if(!isCacheable) {
+                nearCache.invalidate(key);
+                writeNegativeCacheEntry(client, key);
+            }
+
             if(!isNotNullResults || !isCacheable) {
                 logger.debug("Cache Value cannot be cached.  It has to be either not null:({}), or cachable as determine by predicate:({}). " +
                         "Therefore, not storing in memcached", isNotNullResults, isCacheable);
@@ -240,6 +363,12 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
         {
 
             final String keyString = getHashedKey(key);
+            heavyHitterTracker.recordRequest(keyString);
+
+            V nearCachedValue = getFromNearCache(keyString, isCachedValueValid);
+            if(nearCachedValue!=null) {
+                return Single.just(new CacheItem<V>(keyString,nearCachedValue,true));
+            }
 
             ReferencedClient client = clientFactory.getClient();
             if (!client.isAvailable()) {
@@ -259,11 +388,20 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
                                 CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
                                 metricRecorder);
 
+                        if (isNegativeCacheHit(keyString, cachedObject)) {
+                            // the supplier has previously returned no value for the key
+                            Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                            SubscriptionCompleter.completeWithValue(singleSubscriber, keyString, (V) null, store, true,
+                                    config.isRemoveFutureFromInternalCacheBeforeSettingValue());
+                            return;
+                        }
+
                         boolean cachedObjectFoundInCache = cachedObject != null;
                         boolean validCachedObject = (cachedObjectFoundInCache && isCachedValueValid.test(cachedObject));
 
                         if (validCachedObject) {
                             Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                            nearCache.put(keyString, cachedObject, Duration.ZERO);
 
                             SubscriptionCompleter.completeWithValue(singleSubscriber, keyString, cachedObject, store, true,
                                     config.isRemoveFutureFromInternalCacheBeforeSettingValue());
@@ -272,6 +410,8 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
                             // write with normal semantics
                             logger.debug("set requested for {}", keyString);
                             Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                            heavyHitterTracker.recordMiss(keyString);
+                            heavyHitterTracker.recordSupplierCall(keyString);
                             SupplierStatus<V> value = callSupplier(computation);
 
                             notifySubscriberAndWriteToCache(client,keyString,value,singleSubscriber,isSupplierValueCachable,timeToLive);
@@ -294,6 +434,157 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
         }
     }
 
+    @Override
+    public Map<String,Single<CacheItem<V>>> applyAll(final Collection<String> keys,
+                                                     final Function<Set<String>,Map<String,V>> computation,
+                                                     final Duration timeToLive,
+                                                     final Predicate<V> isSupplierValueCachable,
+                                                     final Predicate<V> isCachedValueValid) {
+        final Map<String,Single<CacheItem<V>>> results = new LinkedHashMap<>(keys.size());
+        // hashed key -> requested key, for the keys this call is responsible for obtaining
+        final Map<String,String> requestedKeys = new LinkedHashMap<>(keys.size());
+
+        final ReferencedClient client = clientFactory.getClient();
+        final boolean cacheAvailable = client.isAvailable();
+        if(!cacheAvailable) {
+            warnCacheDisabled();
+        }
+
+        final Single<Map<String,CacheItem<V>>> batch = Single.create(new Single.OnSubscribe<Map<String,CacheItem<V>>>() {
+            @Override
+            public void call(SingleSubscriber<? super Map<String,CacheItem<V>>> singleSubscriber) {
+                Map<String,CacheItem<V>> items;
+                try {
+                    items = getOrComputeAll(client, cacheAvailable, requestedKeys, computation, timeToLive,
+                            isSupplierValueCachable, isCachedValueValid);
+                } catch(Throwable t) {
+                    completeBulk(requestedKeys.keySet(), () -> singleSubscriber.onError(t));
+                    return;
+                }
+                completeBulk(requestedKeys.keySet(), () -> singleSubscriber.onSuccess(items));
+            }
+        }).toObservable().cacheWithInitialCapacity(1).toSingle();
+
+        for(String key : keys) {
+            if(results.containsKey(key)) {
+                continue;
+            }
+            final String keyString = getHashedKey(key);
+            heavyHitterTracker.recordRequest(keyString);
+
+            V nearCachedValue = getFromNearCache(keyString, isCachedValueValid);
+            if(nearCachedValue!=null) {
+                results.put(key, Single.just(new CacheItem<V>(keyString,nearCachedValue,true)));
+                continue;
+            }
+
+            Single<CacheItem<V>> item = batch.map(items -> items.get(keyString));
+            if(!cacheAvailable) {
+                Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_CACHE_DISABLED);
+                requestedKeys.put(keyString, key);
+                results.put(key, item);
+                continue;
+            }
+
+            Single<CacheItem<V>> existingFuture = store.putIfAbsent(keyString, item);
+            if (existingFuture == null) {
+                Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
+                requestedKeys.put(keyString, key);
+                results.put(key, item);
+            } else {
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION);
+                results.put(key, existingFuture);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Performs a multi-get against memcached for the given keys, and calls the computation once for those
+     * keys that are not in memcached (or are invalid).  The computed values are written to memcached.
+     *
+     * @param requestedKeys map of hashed key to requested key
+     * @return map of hashed key, to the CacheItem for that key
+     */
+    private Map<String,CacheItem<V>> getOrComputeAll(final ReferencedClient client,
+                                                     final boolean cacheAvailable,
+                                                     final Map<String,String> requestedKeys,
+                                                     final Function<Set<String>,Map<String,V>> computation,
+                                                     final Duration timeToLive,
+                                                     final Predicate<V> isSupplierValueCachable,
+                                                     final Predicate<V> isCachedValueValid) throws Throwable {
+        Map<String,CacheItem<V>> items = new HashMap<>(requestedKeys.size());
+        Map<String,V> cachedObjects = Collections.emptyMap();
+        if(cacheAvailable) {
+            cachedObjects = cacheReader.getBulkFromDistributedCache(client, requestedKeys.keySet(),
+                    memcachedGetTimeoutInMillis,
+                    CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE,
+                    metricRecorder);
+        }
+
+        Map<String,String> missing = new LinkedHashMap<>(requestedKeys.size());
+        for(Map.Entry<String,String> entry : requestedKeys.entrySet()) {
+            String keyString = entry.getKey();
+            V cachedObject = cachedObjects.get(keyString);
+            if(isNegativeCacheHit(keyString, cachedObject)) {
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                items.put(keyString, new CacheItem<V>(keyString, null, true));
+            } else if(cachedObject!=null && isCachedValueValid.test(cachedObject)) {
+                Cache.logCacheHit(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                nearCache.put(keyString, cachedObject, Duration.ZERO);
+                items.put(keyString, new CacheItem<V>(keyString, cachedObject, true));
+            } else {
+                if(cacheAvailable) {
+                    Cache.logCacheMiss(metricRecorder, keyString, CacheMetricStrings.CACHE_TYPE_ALL);
+                    heavyHitterTracker.recordMiss(keyString);
+                }
+                missing.put(keyString, entry.getValue());
+            }
+        }
+
+        if(missing.isEmpty()) {
+            return items;
+        }
+
+        for(String keyString : missing.keySet()) {
+            heavyHitterTracker.recordSupplierCall(keyString);
+        }
+        final Set<String> keysToCompute = Collections.unmodifiableSet(new LinkedHashSet<>(missing.values()));
+        SupplierStatus<Map<String,V>> status = callSupplier(() -> computation.apply(keysToCompute));
+        if(status.isError()) {
+            throw status.getThrowable();
+        }
+
+        Map<String,V> values = status.getValue() == null ? Collections.<String,V>emptyMap() : status.getValue();
+        int entryTTLInSeconds = DurationToSeconds.getSeconds(timeToLive);
+        for(Map.Entry<String,String> entry : missing.entrySet()) {
+            String keyString = entry.getKey();
+            CacheItem<V> cacheItem = new CacheItem<>(keyString, values.get(entry.getValue()), false);
+            items.put(keyString, cacheItem);
+            if(cacheAvailable) {
+                Single<CacheItem<V>> write = writeToCache(client, cacheItem, keyString, entryTTLInSeconds, isSupplierValueCachable);
+                write.subscribeOn(waitForMemcachedSet ? Schedulers.immediate() : config.getWaitForMemcachedSetRxScheduler()).subscribe();
+            }
+        }
+        return items;
+    }
+
+    private void completeBulk(Set<String> keys, Runnable notifySubscriber) {
+        boolean removeFirst = config.isRemoveFutureFromInternalCacheBeforeSettingValue();
+        if(removeFirst) {
+            store.keySet().removeAll(keys);
+        }
+        try {
+            notifySubscriber.run();
+        } catch (Throwable e) {
+            logger.error("Unable to call subscriber for keys:({})",keys,e);
+        }
+        if(!removeFirst) {
+            store.keySet().removeAll(keys);
+        }
+    }
+
     private void notifySubscriberAndWriteToCache(ReferencedClient client,
                                                  String keyString,
                                                  SupplierStatus<V> value,
@@ -372,10 +663,10 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
      * @param computation  The future that will generate the value
      * @return SupplierStatus This will contain the throwable or the suppliers computed value.
      */
-    private SupplierStatus<V> callSupplier(final Supplier<V> computation)
+    private <T> SupplierStatus<T> callSupplier(final Supplier<T> computation)
     {
         final long startNanos =  System.nanoTime();
-        V results = null;
+        T results = null;
         boolean ok = false;
         long time;
         Throwable error = null;
@@ -393,12 +684,12 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
             setCacheWriteMetrics(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_SUCCESS_TIMER,
                     time,
                     CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_SUCCESS_COUNTER);
-            return new SupplierStatus<V>(results);
+            return new SupplierStatus<T>(results);
         } else {
             setCacheWriteMetrics(CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_FAILURE_TIMER,
                     time,
                     CacheMetricStrings.CACHE_TYPE_VALUE_CALCULATION_FAILURE_COUNTER);
-            return new SupplierStatus<V>(error);
+            return new SupplierStatus<T>(error);
         }
     }
 
@@ -414,6 +705,11 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
 
     }
 
+    @Override
+    public List<HeavyHitter> getHeavyHitters() {
+        return heavyHitterTracker.getHeavyHitters();
+    }
+
     @Override
     public void shutdown() {
         clearInternalCaches();
@@ -423,6 +719,7 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
 
     private void clearInternalCaches() {
         store.clear();
+        nearCache.invalidateAll();
     }
 
 
@@ -458,6 +755,7 @@ class BaseObservableMemcachedCache<V extends Serializable> implements Observable
             Single<Boolean> single = Single.create(new Single.OnSubscribe<Boolean>() {
                 @Override
                 public void call(SingleSubscriber<? super Boolean> singleSubscriber) {
+                    nearCache.invalidate(keyString);
                     Future<Boolean> future = client.delete(keyString);
                     singleSubscriber.onSuccess(waitForDelete(future,millisToWaitForDelete,keyString,"cache"));
                 }
@@ -1,6 +1,7 @@
 package org.greencheek.caching.herdcache.memcached;
 
 import org.greencheek.caching.herdcache.memcached.config.ElastiCacheCacheConfig;
+import org.greencheek.caching.herdcache.memcached.factory.BatchingReferencedClientFactory;
 import org.greencheek.caching.herdcache.memcached.factory.FolsomReferencedClientFactory;
 import org.greencheek.caching.herdcache.memcached.factory.SpyMemcachedClientFactory;
 
@@ -13,6 +14,7 @@ public class FolsomMemcachedCache<V extends Serializable> extends BaseMemcachedC
     public FolsomMemcachedCache(ElastiCacheCacheConfig config) {
         super(new SpyMemcachedClientFactory<V>(config.getMemcachedCacheConfig().getMemcachedHosts(),
                 config.getMemcachedCacheConfig().getDnsConnectionTimeout(), config.getMemcachedCacheConfig().getHostStringParser(),
-                config.getMemcachedCacheConfig().getHostResolver(), new FolsomReferencedClientFactory<V>(config)), config.getMemcachedCacheConfig());
+                config.getMemcachedCacheConfig().getHostResolver(), BatchingReferencedClientFactory.create(
+                        new FolsomReferencedClientFactory<V>(config), config.getMemcachedCacheConfig())), config.getMemcachedCacheConfig());
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitter;
+
+import java.util.List;
+
+/**
+ * A cache that tracks its most frequently requested keys
+ */
+public interface HeavyHitterTrackingCache {
+    /**
+     * @return The current heavy hitters, most frequent first.  Empty if heavy hitter tracking is not enabled
+     */
+    List<HeavyHitter> getHeavyHitters();
+}
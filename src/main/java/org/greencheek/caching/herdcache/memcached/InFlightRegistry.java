@@ -0,0 +1,74 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the futures for the values that are currently being calculated (or looked up).
+ * Unlike a capacity bound LRU map, an entry is never evicted whilst it is live;
+ * it is only removed by the caller when the future completes.  A future evicted
+ * under load would silently remove the thundering herd protection for its key.
+ *
+ * Reads are lock free, and writes contend only on the hash bin of the key.
+ * The number of entries in flight, and the peak number of entries, are
+ * available for monitoring.
+ */
+public class InFlightRegistry<V> extends ConcurrentHashMap<String,V> {
+
+    private final AtomicInteger peak = new AtomicInteger();
+
+    /**
+     * @param initialCapacity The number of entries expected to be in flight
+     * @param concurrencyLevel The estimated number of concurrently updating threads
+     */
+    public InFlightRegistry(int initialCapacity, int concurrencyLevel) {
+        super(Math.max(16,initialCapacity), 0.75f, Math.max(1,concurrencyLevel));
+    }
+
+    @Override
+    public V put(String key, V value) {
+        V previous = super.put(key, value);
+        if(previous==null) {
+            recordPeak();
+        }
+        return previous;
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+        V previous = super.putIfAbsent(key, value);
+        if(previous==null) {
+            recordPeak();
+        }
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> m) {
+        super.putAll(m);
+        recordPeak();
+    }
+
+    private void recordPeak() {
+        int inFlight = size();
+        // only contend on the peak when it is being raised
+        if(inFlight > peak.get()) {
+            peak.accumulateAndGet(inFlight, Math::max);
+        }
+    }
+
+    /**
+     * @return The number of entries currently in flight
+     */
+    public int getInFlight() {
+        return size();
+    }
+
+    /**
+     * @return The largest number of entries that have been in flight at the same time
+     */
+    public int getPeakInFlight() {
+        return peak.get();
+    }
+}
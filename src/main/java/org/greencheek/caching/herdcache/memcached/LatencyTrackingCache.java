@@ -0,0 +1,16 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import org.greencheek.caching.herdcache.memcached.latency.LatencySnapshot;
+
+import java.util.Map;
+
+/**
+ * A cache that records the latencies of its memcached operations, suppliers, decoding and queueing
+ */
+public interface LatencyTrackingCache {
+    /**
+     * @return The latencies of the most recently completed snapshot interval, by series name.  Empty if latency
+     * instrumentation is not enabled
+     */
+    Map<String,LatencySnapshot> getLatencySnapshots();
+}
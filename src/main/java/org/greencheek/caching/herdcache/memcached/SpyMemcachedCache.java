@@ -2,6 +2,7 @@ package org.greencheek.caching.herdcache.memcached;
 
 import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
 import org.greencheek.caching.herdcache.memcached.factory.SpyMemcachedClientFactory;
+import org.greencheek.caching.herdcache.memcached.factory.BatchingReferencedClientFactory;
 import org.greencheek.caching.herdcache.memcached.factory.SpyMemcachedReferencedClientFactory;
 
 import java.io.Serializable;
@@ -13,6 +14,7 @@ public class SpyMemcachedCache<V extends Serializable> extends BaseMemcachedCach
     public SpyMemcachedCache(MemcachedCacheConfig config) {
         super(new SpyMemcachedClientFactory<V>(config.getMemcachedHosts(),
                 config.getDnsConnectionTimeout(),config.getHostStringParser(),
-                config.getHostResolver(),new SpyMemcachedReferencedClientFactory<V>(createMemcachedConnectionFactory(config))), config);
+                config.getHostResolver(),BatchingReferencedClientFactory.create(
+                        new SpyMemcachedReferencedClientFactory<V>(createMemcachedConnectionFactory(config)), config)), config);
     }
 }
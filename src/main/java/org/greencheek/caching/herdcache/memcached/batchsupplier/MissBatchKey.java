@@ -0,0 +1,74 @@
+package org.greencheek.caching.herdcache.memcached.batchsupplier;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.greencheek.caching.herdcache.BatchSupplier;
+import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Identifies the batch that a cache miss is added to.  Only the misses that are computed by the same
+ * BatchSupplier, and that are to be cached in the same way, can be grouped into the one call.
+ */
+public final class MissBatchKey<V> {
+    private final ReferencedClient client;
+    private final BatchSupplier<V> batchSupplier;
+    private final Duration timeToLive;
+    private final ListeningExecutorService executorService;
+    private final Predicate<V> canCacheValueEvalutor;
+    private final int hashCode;
+
+    public MissBatchKey(ReferencedClient client, BatchSupplier<V> batchSupplier, Duration timeToLive,
+                        ListeningExecutorService executorService, Predicate<V> canCacheValueEvalutor) {
+        this.client = client;
+        this.batchSupplier = batchSupplier;
+        this.timeToLive = timeToLive;
+        this.executorService = executorService;
+        this.canCacheValueEvalutor = canCacheValueEvalutor;
+
+        int hash = System.identityHashCode(batchSupplier);
+        hash = 31 * hash + System.identityHashCode(client);
+        hash = 31 * hash + timeToLive.hashCode();
+        hash = 31 * hash + System.identityHashCode(executorService);
+        this.hashCode = 31 * hash + System.identityHashCode(canCacheValueEvalutor);
+    }
+
+    public ReferencedClient getClient() {
+        return client;
+    }
+
+    public BatchSupplier<V> getBatchSupplier() {
+        return batchSupplier;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public ListeningExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public Predicate<V> getCanCacheValueEvalutor() {
+        return canCacheValueEvalutor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MissBatchKey)) return false;
+
+        MissBatchKey<?> that = (MissBatchKey<?>) o;
+        return batchSupplier == that.batchSupplier &&
+                client == that.client &&
+                timeToLive.equals(that.timeToLive) &&
+                executorService == that.executorService &&
+                canCacheValueEvalutor == that.canCacheValueEvalutor;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
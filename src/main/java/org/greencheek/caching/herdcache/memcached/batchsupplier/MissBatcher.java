@@ -0,0 +1,139 @@
+package org.greencheek.caching.herdcache.memcached.batchsupplier;
+
+import org.greencheek.caching.herdcache.util.futures.SettableFuture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the cache misses, that are to be computed by a {@link org.greencheek.caching.herdcache.BatchSupplier},
+ * into batches.  A batch is handed to the handler when it reaches maxKeys, or when the window (that starts
+ * with the first miss of the batch) has passed.
+ */
+public class MissBatcher<V> {
+
+    /**
+     * Computes the values for a batch of misses, completing the promise of each key
+     */
+    @FunctionalInterface
+    public interface BatchHandler<V> {
+        /**
+         * @param batchKey The key shared by all the misses of the batch
+         * @param promises hashed key -> promise, in the order the misses occurred
+         * @param requestedKeys hashed key -> requested key, as the BatchSupplier is given the requested keys
+         */
+        void handle(MissBatchKey<V> batchKey, Map<String,SettableFuture<V>> promises, Map<String,String> requestedKeys);
+    }
+
+    private class Batch implements Runnable {
+        private final MissBatchKey<V> batchKey;
+        private final Map<String,SettableFuture<V>> promises = new LinkedHashMap<>();
+        private final Map<String,String> requestedKeys = new HashMap<>();
+
+        private Batch(MissBatchKey<V> batchKey) {
+            this.batchKey = batchKey;
+        }
+
+        private boolean add(String keyString, String requestedKey, SettableFuture<V> promise) {
+            promises.put(keyString, promise);
+            requestedKeys.put(keyString, requestedKey);
+            return promises.size() >= maxKeys;
+        }
+
+        /**
+         * Run at the end of the window, handing over the batch if it has not already been handed over because it was full
+         */
+        @Override
+        public void run() {
+            synchronized (lock) {
+                if(batches.get(batchKey) != this) {
+                    return;
+                }
+                batches.remove(batchKey);
+            }
+            handle();
+        }
+
+        private void handle() {
+            handler.handle(batchKey, promises, requestedKeys);
+        }
+    }
+
+    private final long windowInNanos;
+    private final int maxKeys;
+    private final BatchHandler<V> handler;
+    private final ScheduledExecutorService windowScheduler;
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private final Map<MissBatchKey<V>,Batch> batches = new HashMap<>();
+
+    public MissBatcher(long windowInNanos, int maxKeys, BatchHandler<V> handler) {
+        this.windowInNanos = Math.max(0,windowInNanos);
+        this.maxKeys = Math.max(1,maxKeys);
+        this.handler = handler;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "herdcache-batch-supplier");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.windowScheduler = scheduler;
+    }
+
+    /**
+     * Adds the miss to the current batch for the batchKey
+     */
+    public void add(MissBatchKey<V> batchKey, String keyString, String requestedKey, SettableFuture<V> promise) {
+        Batch fullBatch = null;
+        boolean newBatch = false;
+        Batch batch;
+        synchronized (lock) {
+            batch = batches.get(batchKey);
+            if(batch == null) {
+                batch = new Batch(batchKey);
+                batches.put(batchKey, batch);
+                newBatch = true;
+            }
+            if(batch.add(keyString, requestedKey, promise)) {
+                batches.remove(batchKey);
+                fullBatch = batch;
+            }
+        }
+
+        if(fullBatch != null) {
+            fullBatch.handle();
+        } else if(newBatch) {
+            try {
+                windowScheduler.schedule(batch, windowInNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException shutdown) {
+                batch.run();
+            }
+        }
+    }
+
+    /**
+     * Stops the window timer, handing over the batches that are pending
+     */
+    public void shutdown() {
+        windowScheduler.shutdownNow();
+        List<Batch> pending;
+        synchronized (lock) {
+            pending = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        for(Batch batch : pending) {
+            batch.handle();
+        }
+    }
+}
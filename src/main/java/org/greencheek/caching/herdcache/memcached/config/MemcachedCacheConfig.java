@@ -11,6 +11,7 @@ import rx.Scheduler;
 
 import java.time.Duration;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
@@ -48,6 +49,47 @@ public class MemcachedCacheConfig {
     private final boolean herdProtectionEnabled;
     private final Scheduler waitForMemcachedSetRxScheduler;
     private final KeyValidationType keyValidationType;
+    private final boolean useAsyncCacheReads;
+    private final boolean useNearCache;
+    private final int nearCacheMaxCapacity;
+    private final Duration nearCacheTimeToLive;
+    private final Duration nearCacheMaxStaleness;
+    private final boolean useProbabilisticEarlyRecomputation;
+    private final double probabilisticEarlyRecomputationBeta;
+    private final StaleCacheMode staleCacheMode;
+    private final boolean useStaleIfError;
+    private final Duration staleIfErrorSupplierTimeout;
+    private final boolean useDistributedLease;
+    private final Duration distributedLeaseTimeToLive;
+    private final Duration distributedLeaseMaxWait;
+    private final Duration distributedLeasePollInterval;
+    private final String distributedLeasePrefix;
+    private final boolean useNegativeCaching;
+    private final Duration negativeCacheTimeToLive;
+    private final Set<String> hotKeys;
+    private final int hotKeyReplicas;
+    private final Duration hotKeyHedgedReadDelay;
+    private final boolean useHeavyHitterTracking;
+    private final int heavyHitterTopK;
+    private final int heavyHitterSamplingRate;
+    private final Duration heavyHitterWindow;
+    private final boolean useRefreshAhead;
+    private final int refreshAheadMinAccessesPerMinute;
+    private final Duration refreshAheadTime;
+    private final double refreshAheadMaxRefreshesPerSecond;
+    private final int refreshAheadThreads;
+    private final int refreshAheadMaxPendingRefreshes;
+    private final boolean useMicroBatchedGets;
+    private final Duration microBatchWindow;
+    private final int microBatchMaxKeys;
+    private final Duration batchSupplierWindow;
+    private final int batchSupplierMaxKeys;
+    private final boolean useVirtualThreads;
+    private final Duration virtualThreadPinnedThreshold;
+    private final boolean useLatencyInstrumentation;
+    private final Duration latencySnapshotInterval;
+    private final String latencyJmxName;
+    private final boolean useKeyHashForNodeLocation;
 
 
     public MemcachedCacheConfig(Duration timeToLive,
@@ -79,7 +121,48 @@ public class MemcachedCacheConfig {
                                 LocatorFactory locatorFactory,
                                 boolean herdProtectionEnabled,
                                 Scheduler waitForMemcachedSetRxScheduler,
-                                KeyValidationType keyValidationType) {
+                                KeyValidationType keyValidationType,
+                                boolean useAsyncCacheReads,
+                                boolean useNearCache,
+                                int nearCacheMaxCapacity,
+                                Duration nearCacheTimeToLive,
+                                Duration nearCacheMaxStaleness,
+                                boolean useProbabilisticEarlyRecomputation,
+                                double probabilisticEarlyRecomputationBeta,
+                                StaleCacheMode staleCacheMode,
+                                boolean useStaleIfError,
+                                Duration staleIfErrorSupplierTimeout,
+                                boolean useDistributedLease,
+                                Duration distributedLeaseTimeToLive,
+                                Duration distributedLeaseMaxWait,
+                                Duration distributedLeasePollInterval,
+                                String distributedLeasePrefix,
+                                boolean useNegativeCaching,
+                                Duration negativeCacheTimeToLive,
+                                Set<String> hotKeys,
+                                int hotKeyReplicas,
+                                Duration hotKeyHedgedReadDelay,
+                                boolean useHeavyHitterTracking,
+                                int heavyHitterTopK,
+                                int heavyHitterSamplingRate,
+                                Duration heavyHitterWindow,
+                                boolean useRefreshAhead,
+                                int refreshAheadMinAccessesPerMinute,
+                                Duration refreshAheadTime,
+                                double refreshAheadMaxRefreshesPerSecond,
+                                int refreshAheadThreads,
+                                int refreshAheadMaxPendingRefreshes,
+                                boolean useMicroBatchedGets,
+                                Duration microBatchWindow,
+                                int microBatchMaxKeys,
+                                Duration batchSupplierWindow,
+                                int batchSupplierMaxKeys,
+                                boolean useVirtualThreads,
+                                Duration virtualThreadPinnedThreshold,
+                                boolean useLatencyInstrumentation,
+                                Duration latencySnapshotInterval,
+                                String latencyJmxName,
+                                boolean useKeyHashForNodeLocation) {
         this.timeToLive =  timeToLive;
         this.maxCapacity = maxCapacity;
         this.memcachedHosts = hosts;
@@ -111,6 +194,47 @@ public class MemcachedCacheConfig {
         this.herdProtectionEnabled = herdProtectionEnabled;
         this.waitForMemcachedSetRxScheduler = waitForMemcachedSetRxScheduler;
         this.keyValidationType = keyValidationType;
+        this.useAsyncCacheReads = useAsyncCacheReads;
+        this.useNearCache = useNearCache;
+        this.nearCacheMaxCapacity = nearCacheMaxCapacity;
+        this.nearCacheTimeToLive = nearCacheTimeToLive;
+        this.nearCacheMaxStaleness = nearCacheMaxStaleness;
+        this.useProbabilisticEarlyRecomputation = useProbabilisticEarlyRecomputation;
+        this.probabilisticEarlyRecomputationBeta = probabilisticEarlyRecomputationBeta;
+        this.staleCacheMode = staleCacheMode;
+        this.useStaleIfError = useStaleIfError;
+        this.staleIfErrorSupplierTimeout = staleIfErrorSupplierTimeout;
+        this.useDistributedLease = useDistributedLease;
+        this.distributedLeaseTimeToLive = distributedLeaseTimeToLive;
+        this.distributedLeaseMaxWait = distributedLeaseMaxWait;
+        this.distributedLeasePollInterval = distributedLeasePollInterval;
+        this.distributedLeasePrefix = distributedLeasePrefix;
+        this.useNegativeCaching = useNegativeCaching;
+        this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+        this.hotKeys = hotKeys;
+        this.hotKeyReplicas = hotKeyReplicas;
+        this.hotKeyHedgedReadDelay = hotKeyHedgedReadDelay;
+        this.useHeavyHitterTracking = useHeavyHitterTracking;
+        this.heavyHitterTopK = heavyHitterTopK;
+        this.heavyHitterSamplingRate = heavyHitterSamplingRate;
+        this.heavyHitterWindow = heavyHitterWindow;
+        this.useRefreshAhead = useRefreshAhead;
+        this.refreshAheadMinAccessesPerMinute = refreshAheadMinAccessesPerMinute;
+        this.refreshAheadTime = refreshAheadTime;
+        this.refreshAheadMaxRefreshesPerSecond = refreshAheadMaxRefreshesPerSecond;
+        this.refreshAheadThreads = refreshAheadThreads;
+        this.refreshAheadMaxPendingRefreshes = refreshAheadMaxPendingRefreshes;
+        this.useMicroBatchedGets = useMicroBatchedGets;
+        this.microBatchWindow = microBatchWindow;
+        this.microBatchMaxKeys = microBatchMaxKeys;
+        this.batchSupplierWindow = batchSupplierWindow;
+        this.batchSupplierMaxKeys = batchSupplierMaxKeys;
+        this.useVirtualThreads = useVirtualThreads;
+        this.virtualThreadPinnedThreshold = virtualThreadPinnedThreshold;
+        this.useLatencyInstrumentation = useLatencyInstrumentation;
+        this.latencySnapshotInterval = latencySnapshotInterval;
+        this.latencyJmxName = latencyJmxName;
+        this.useKeyHashForNodeLocation = useKeyHashForNodeLocation;
     }
 
     public Duration getTimeToLive() {
@@ -252,4 +376,336 @@ public class MemcachedCacheConfig {
     public KeyValidationType getKeyValidationType() {
         return keyValidationType;
     }
+
+    /**
+     * Should the apply/get lookups against memcached be performed without blocking the calling thread
+     * @return
+     */
+    public boolean isUseAsyncCacheReads() {
+        return useAsyncCacheReads;
+    }
+
+    /**
+     * Should deserialized values be held in process, in front of memcached
+     * @return
+     */
+    public boolean isUseNearCache() {
+        return useNearCache;
+    }
+
+    public int getNearCacheMaxCapacity() {
+        return nearCacheMaxCapacity;
+    }
+
+    /**
+     * The amount of time a near cache entry is served without contacting memcached
+     * @return
+     */
+    public Duration getNearCacheTimeToLive() {
+        return nearCacheTimeToLive;
+    }
+
+    /**
+     * The additional amount of time, past the near cache time to live, that an entry is served
+     * whilst it is refreshed from memcached
+     * @return
+     */
+    public Duration getNearCacheMaxStaleness() {
+        return nearCacheMaxStaleness;
+    }
+
+    /**
+     * Should items be stored with their computation time and expiry, so that reads close to the expiry
+     * can trigger a background recomputation (XFetch)
+     * @return
+     */
+    public boolean isUseProbabilisticEarlyRecomputation() {
+        return useProbabilisticEarlyRecomputation;
+    }
+
+    /**
+     * The XFetch beta.  Values greater than 1.0 favour earlier recomputation, less than 1.0 later recomputation.
+     * @return
+     */
+    public double getProbabilisticEarlyRecomputationBeta() {
+        return probabilisticEarlyRecomputationBeta;
+    }
+
+    /**
+     * How stale items are stored in memcached, when the stale cache is enabled
+     * @return
+     */
+    public StaleCacheMode getStaleCacheMode() {
+        return staleCacheMode;
+    }
+
+    /**
+     * Should the last known value for an item be returned, if the Supplier fails (or exceeds the staleIfErrorSupplierTimeout)
+     * @return
+     */
+    public boolean isUseStaleIfError() {
+        return useStaleIfError;
+    }
+
+    /**
+     * The amount of time to wait for the Supplier, before the last known value is returned.  Duration.ZERO for no deadline
+     * @return
+     */
+    public Duration getStaleIfErrorSupplierTimeout() {
+        return staleIfErrorSupplierTimeout;
+    }
+
+    /**
+     * Should a lease (lock item) be added to memcached, on a cache miss, so that only one JVM calls the Supplier for the key
+     * @return
+     */
+    public boolean isUseDistributedLease() {
+        return useDistributedLease;
+    }
+
+    /**
+     * The expiry of the lease item in memcached.  Should be longer than the Supplier takes to compute the value
+     * @return
+     */
+    public Duration getDistributedLeaseTimeToLive() {
+        return distributedLeaseTimeToLive;
+    }
+
+    /**
+     * The maximum amount of time that a JVM that did not obtain the lease waits for the value to appear in memcached
+     * @return
+     */
+    public Duration getDistributedLeaseMaxWait() {
+        return distributedLeaseMaxWait;
+    }
+
+    /**
+     * How often memcached is checked for the value, by a JVM waiting on the lease
+     * @return
+     */
+    public Duration getDistributedLeasePollInterval() {
+        return distributedLeasePollInterval;
+    }
+
+    /**
+     * The prefix added to the key, to create the key of the lease item
+     * @return
+     */
+    public String getDistributedLeasePrefix() {
+        return distributedLeasePrefix;
+    }
+
+    /**
+     * Should a sentinel be stored in memcached, when the Supplier returns null (or a value that cannot be cached), so that
+     * subsequent requests for the key do not call the Supplier
+     * @return
+     */
+    public boolean isUseNegativeCaching() {
+        return useNegativeCaching;
+    }
+
+    /**
+     * The expiry of the negative cache sentinel in memcached
+     * @return
+     */
+    public Duration getNegativeCacheTimeToLive() {
+        return negativeCacheTimeToLive;
+    }
+
+    /**
+     * The keys that are known to be hot.  The values of hot keys are replicated to the successor memcached nodes,
+     * and reads are spread across the replicas
+     * @return
+     */
+    public Set<String> getHotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * The number of replicas (in addition to the item itself) that are written for a hot key
+     * @return
+     */
+    public int getHotKeyReplicas() {
+        return hotKeyReplicas;
+    }
+
+    /**
+     * The time after which a second get is sent to another replica of a hot key, if the first get has
+     * not completed.  Hedged reads are disabled if zero
+     * @return
+     */
+    public Duration getHotKeyHedgedReadDelay() {
+        return hotKeyHedgedReadDelay;
+    }
+
+    /**
+     * Whether the most frequently requested keys (the heavy hitters) are tracked
+     * @return
+     */
+    public boolean isUseHeavyHitterTracking() {
+        return useHeavyHitterTracking;
+    }
+
+    /**
+     * The number of heavy hitters (top-k) that are tracked
+     * @return
+     */
+    public int getHeavyHitterTopK() {
+        return heavyHitterTopK;
+    }
+
+    /**
+     * One in every heavyHitterSamplingRate requests is sampled by the heavy hitter tracker
+     * @return
+     */
+    public int getHeavyHitterSamplingRate() {
+        return heavyHitterSamplingRate;
+    }
+
+    /**
+     * The duration after which the heavy hitter frequencies are decayed
+     * @return
+     */
+    public Duration getHeavyHitterWindow() {
+        return heavyHitterWindow;
+    }
+
+    /**
+     * Whether hot keys are recomputed in the background, shortly before they expire
+     * @return
+     */
+    public boolean isUseRefreshAhead() {
+        return useRefreshAhead;
+    }
+
+    /**
+     * The number of accesses per minute at which a key is considered hot, and is refreshed ahead of its expiry
+     * @return
+     */
+    public int getRefreshAheadMinAccessesPerMinute() {
+        return refreshAheadMinAccessesPerMinute;
+    }
+
+    /**
+     * How long before its expiry a hot key is refreshed.  This is extended to twice the time the
+     * value took to compute, for values that are slow to compute
+     * @return
+     */
+    public Duration getRefreshAheadTime() {
+        return refreshAheadTime;
+    }
+
+    /**
+     * The maximum number of refresh ahead recomputations started per second, across all keys
+     * @return
+     */
+    public double getRefreshAheadMaxRefreshesPerSecond() {
+        return refreshAheadMaxRefreshesPerSecond;
+    }
+
+    /**
+     * The number of threads on which the refresh ahead recomputations are run
+     * @return
+     */
+    public int getRefreshAheadThreads() {
+        return refreshAheadThreads;
+    }
+
+    /**
+     * The maximum number of keys with a refresh scheduled, or queued for execution
+     * @return
+     */
+    public int getRefreshAheadMaxPendingRefreshes() {
+        return refreshAheadMaxPendingRefreshes;
+    }
+
+    /**
+     * Whether the gets issued concurrently, within the micro batch window, are sent to memcached as
+     * one multi-get per memcached node
+     * @return
+     */
+    public boolean isUseMicroBatchedGets() {
+        return useMicroBatchedGets;
+    }
+
+    /**
+     * How long the first get of a micro batch waits for other gets to join the batch
+     * @return
+     */
+    public Duration getMicroBatchWindow() {
+        return microBatchWindow;
+    }
+
+    /**
+     * The number of gets at which a micro batch is sent, without waiting for the end of the window
+     * @return
+     */
+    public int getMicroBatchMaxKeys() {
+        return microBatchMaxKeys;
+    }
+
+    /**
+     * How long the first miss of a BatchSupplier batch waits for other misses to join the batch
+     * @return
+     */
+    public Duration getBatchSupplierWindow() {
+        return batchSupplierWindow;
+    }
+
+    /**
+     * The number of misses at which a BatchSupplier batch is computed, without waiting for the end of the window
+     * @return
+     */
+    public int getBatchSupplierMaxKeys() {
+        return batchSupplierMaxKeys;
+    }
+
+    /**
+     * Whether the suppliers, and blocking memcached reads, are run on virtual threads (requires Java 21)
+     * @return
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * The minimum time a virtual thread is pinned to its carrier thread, for it to be recorded
+     * @return
+     */
+    public Duration getVirtualThreadPinnedThreshold() {
+        return virtualThreadPinnedThreshold;
+    }
+
+    /**
+     * Whether the latency of memcached gets and sets (by node), the suppliers, decoding and queue waits are recorded
+     * in HdrHistograms
+     * @return
+     */
+    public boolean isUseLatencyInstrumentation() {
+        return useLatencyInstrumentation;
+    }
+
+    /**
+     * The interval over which the latency percentiles are calculated
+     * @return
+     */
+    public Duration getLatencySnapshotInterval() {
+        return latencySnapshotInterval;
+    }
+
+    /**
+     * The name under which the latency snapshots are registered with JMX, or null if they are not registered
+     * @return
+     */
+    public String getLatencyJmxName() {
+        return latencyJmxName;
+    }
+
+    /**
+     * @return true if the node of a hashed key is located from the hash the key already is, rather than
+     * hashing the key again with the hash algorithm
+     */
+    public boolean isUseKeyHashForNodeLocation() {
+        return useKeyHashForNodeLocation;
+    }
 }
@@ -0,0 +1,12 @@
+package org.greencheek.caching.herdcache.memcached.config;
+
+/**
+ * How the stale cache entries are stored in memcached.
+ * <ul>
+ *     <li>SEPARATE_ITEM: The stale value is written under a second, prefixed, key with a longer TTL</li>
+ *     <li>SINGLE_ITEM: One item is written, with a soft expiry; and a memcached TTL that includes the additional stale period</li>
+ * </ul>
+ */
+public enum StaleCacheMode {
+    SEPARATE_ITEM,SINGLE_ITEM
+}
@@ -4,6 +4,7 @@ import net.spy.memcached.*;
 import net.spy.memcached.transcoders.Transcoder;
 import org.greencheek.caching.herdcache.memcached.config.KeyValidationType;
 import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+import org.greencheek.caching.herdcache.memcached.config.StaleCacheMode;
 import org.greencheek.caching.herdcache.memcached.config.hostparsing.CommaSeparatedHostAndPortStringParser;
 import org.greencheek.caching.herdcache.memcached.config.hostparsing.HostStringParser;
 import org.greencheek.caching.herdcache.memcached.dns.lookup.AddressByNameHostResolver;
@@ -23,7 +24,9 @@ import rx.Scheduler;
 import rx.schedulers.Schedulers;
 
 import java.time.Duration;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
@@ -62,9 +65,53 @@ public abstract class MemcachedCacheConfigBuilder<T extends MemcachedCacheConfig
 
     private Scheduler waitForMemcachedSetRxScheduler = Schedulers.io();
     private KeyValidationType keyValidationType = KeyValidationType.BY_HASHING_TYPE;
+    private boolean useAsyncCacheReads = false;
+    private boolean useNearCache = false;
+    private int nearCacheMaxCapacity = 10000;
+    private Duration nearCacheTimeToLive = Duration.ofSeconds(5);
+    private Duration nearCacheMaxStaleness = Duration.ZERO;
+    private boolean useProbabilisticEarlyRecomputation = false;
+    private double probabilisticEarlyRecomputationBeta = 1.0;
+    private StaleCacheMode staleCacheMode = StaleCacheMode.SEPARATE_ITEM;
+    private boolean useStaleIfError = false;
+    private Duration staleIfErrorSupplierTimeout = Duration.ZERO;
+    private boolean useDistributedLease = false;
+    private Duration distributedLeaseTimeToLive = Duration.ofSeconds(10);
+    private Duration distributedLeaseMaxWait = Duration.ofSeconds(2);
+    private Duration distributedLeasePollInterval = Duration.ofMillis(50);
+    private String distributedLeasePrefix = "lease";
+    private boolean useNegativeCaching = false;
+    private Duration negativeCacheTimeToLive = Duration.ofSeconds(30);
+    private Set<String> hotKeys = Collections.emptySet();
+    private int hotKeyReplicas = 2;
+    private Duration hotKeyHedgedReadDelay = Duration.ZERO;
+    private boolean useHeavyHitterTracking = false;
+    private int heavyHitterTopK = 10;
+    private int heavyHitterSamplingRate = 16;
+    private Duration heavyHitterWindow = Duration.ofSeconds(60);
+    private boolean useRefreshAhead = false;
+    private int refreshAheadMinAccessesPerMinute = 10;
+    private Duration refreshAheadTime = Duration.ofSeconds(5);
+    private double refreshAheadMaxRefreshesPerSecond = 10.0;
+    private int refreshAheadThreads = 2;
+    private int refreshAheadMaxPendingRefreshes = 1000;
+    private boolean useMicroBatchedGets = false;
+    private Duration microBatchWindow = Duration.ofNanos(200000);
+    private int microBatchMaxKeys = 64;
+    private Duration batchSupplierWindow = Duration.ofMillis(2);
+    private int batchSupplierMaxKeys = 100;
+    private boolean useVirtualThreads = false;
+    private Duration virtualThreadPinnedThreshold = Duration.ofMillis(20);
+    private boolean useLatencyInstrumentation = false;
+    private Duration latencySnapshotInterval = Duration.ofSeconds(10);
+    private String latencyJmxName = null;
+    private boolean useKeyHashForNodeLocation = false;
 
     public MemcachedCacheConfig buildMemcachedConfig()
     {
+       if(keyHashType.isBinary() && protocol != ConnectionFactoryBuilder.Protocol.BINARY) {
+           throw new IllegalStateException("Key hashing type " + keyHashType + " requires the binary protocol");
+       }
        return new MemcachedCacheConfig(
                timeToLive,
                maxCapacity,memcachedHosts,
@@ -81,10 +128,51 @@ public abstract class MemcachedCacheConfigBuilder<T extends MemcachedCacheConfig
                hashKeyPrefix,
                waitForRemove,
                metricRecorder,
-               locatorFactory,
+               useKeyHashForNodeLocation ? LocatorFactory.keyHashKetamaCeilingArray(keyHashType) : locatorFactory,
                herdProtectionEnabled,
                waitForMemcachedSetRxScheduler,
-               keyValidationType);
+               keyValidationType,
+               useAsyncCacheReads,
+               useNearCache,
+               nearCacheMaxCapacity,
+               nearCacheTimeToLive,
+               nearCacheMaxStaleness,
+               useProbabilisticEarlyRecomputation,
+               probabilisticEarlyRecomputationBeta,
+               staleCacheMode,
+               useStaleIfError,
+               staleIfErrorSupplierTimeout,
+               useDistributedLease,
+               distributedLeaseTimeToLive,
+               distributedLeaseMaxWait,
+               distributedLeasePollInterval,
+               distributedLeasePrefix,
+               useNegativeCaching,
+               negativeCacheTimeToLive,
+               hotKeys,
+               hotKeyReplicas,
+               hotKeyHedgedReadDelay,
+               useHeavyHitterTracking,
+               heavyHitterTopK,
+               heavyHitterSamplingRate,
+               heavyHitterWindow,
+               useRefreshAhead,
+               refreshAheadMinAccessesPerMinute,
+               refreshAheadTime,
+               refreshAheadMaxRefreshesPerSecond,
+               refreshAheadThreads,
+               refreshAheadMaxPendingRefreshes,
+               useMicroBatchedGets,
+               microBatchWindow,
+               microBatchMaxKeys,
+               batchSupplierWindow,
+               batchSupplierMaxKeys,
+               useVirtualThreads,
+               virtualThreadPinnedThreshold,
+               useLatencyInstrumentation,
+               latencySnapshotInterval,
+               latencyJmxName,
+               useKeyHashForNodeLocation);
     }
 
     public T setCompressionAlgorithm(CompressionAlgorithm algorithm) {
@@ -195,6 +283,10 @@ public abstract class MemcachedCacheConfigBuilder<T extends MemcachedCacheConfig
         return self();
     }
 
+    /**
+     * The {@link KeyHashingType#isBinary()} types can only be used with the binary protocol, the build of
+     * the config fails otherwise.  They cannot be used with the folsom client, whose creation fails.
+     */
     public T setKeyHashType(KeyHashingType keyHashType) {
         this.keyHashType = keyHashType;
         return self();
@@ -279,4 +371,225 @@ public abstract class MemcachedCacheConfigBuilder<T extends MemcachedCacheConfig
         this.keyValidationType = type;
         return self();
     }
+
+    public T setUseAsyncCacheReads(boolean useAsyncCacheReads) {
+        this.useAsyncCacheReads = useAsyncCacheReads;
+        return self();
+    }
+
+    public T setUseNearCache(boolean useNearCache) {
+        this.useNearCache = useNearCache;
+        return self();
+    }
+
+    public T setNearCacheMaxCapacity(int nearCacheMaxCapacity) {
+        this.nearCacheMaxCapacity = nearCacheMaxCapacity;
+        return self();
+    }
+
+    public T setNearCacheTimeToLive(Duration nearCacheTimeToLive) {
+        this.nearCacheTimeToLive = nearCacheTimeToLive;
+        return self();
+    }
+
+    public T setNearCacheMaxStaleness(Duration nearCacheMaxStaleness) {
+        this.nearCacheMaxStaleness = nearCacheMaxStaleness;
+        return self();
+    }
+
+    public T setUseProbabilisticEarlyRecomputation(boolean useProbabilisticEarlyRecomputation) {
+        this.useProbabilisticEarlyRecomputation = useProbabilisticEarlyRecomputation;
+        return self();
+    }
+
+    public T setProbabilisticEarlyRecomputationBeta(double probabilisticEarlyRecomputationBeta) {
+        this.probabilisticEarlyRecomputationBeta = probabilisticEarlyRecomputationBeta;
+        return self();
+    }
+
+    public T setStaleCacheMode(StaleCacheMode staleCacheMode) {
+        this.staleCacheMode = staleCacheMode;
+        return self();
+    }
+
+    public T setUseStaleIfError(boolean useStaleIfError) {
+        this.useStaleIfError = useStaleIfError;
+        return self();
+    }
+
+    public T setStaleIfErrorSupplierTimeout(Duration staleIfErrorSupplierTimeout) {
+        this.staleIfErrorSupplierTimeout = staleIfErrorSupplierTimeout;
+        return self();
+    }
+
+    public T setUseDistributedLease(boolean useDistributedLease) {
+        this.useDistributedLease = useDistributedLease;
+        return self();
+    }
+
+    public T setDistributedLeaseTimeToLive(Duration distributedLeaseTimeToLive) {
+        this.distributedLeaseTimeToLive = distributedLeaseTimeToLive;
+        return self();
+    }
+
+    public T setDistributedLeaseMaxWait(Duration distributedLeaseMaxWait) {
+        this.distributedLeaseMaxWait = distributedLeaseMaxWait;
+        return self();
+    }
+
+    public T setDistributedLeasePollInterval(Duration distributedLeasePollInterval) {
+        this.distributedLeasePollInterval = distributedLeasePollInterval;
+        return self();
+    }
+
+    public T setDistributedLeasePrefix(String distributedLeasePrefix) {
+        this.distributedLeasePrefix = distributedLeasePrefix;
+        return self();
+    }
+
+    public T setUseNegativeCaching(boolean useNegativeCaching) {
+        this.useNegativeCaching = useNegativeCaching;
+        return self();
+    }
+
+    public T setNegativeCacheTimeToLive(Duration negativeCacheTimeToLive) {
+        this.negativeCacheTimeToLive = negativeCacheTimeToLive;
+        return self();
+    }
+
+    /**
+     * The replicas of the hot keys are only guaranteed to be placed on distinct nodes by the
+     * {@link LocatorFactory#KETAMA_CEILING_ARRAY} (and {@link LocatorFactory#keyHashKetamaCeilingArray(KeyHashingType)})
+     * locator, which recognises the replica keys.  With the other locators, and with the folsom client, the replica
+     * keys are located like any other key; so a replica may be on the same node as the item, or another replica.
+     */
+    public T setHotKeys(Set<String> hotKeys) {
+        this.hotKeys = hotKeys;
+        return self();
+    }
+
+    public T setHotKeyReplicas(int hotKeyReplicas) {
+        this.hotKeyReplicas = hotKeyReplicas;
+        return self();
+    }
+
+    public T setHotKeyHedgedReadDelay(Duration hotKeyHedgedReadDelay) {
+        this.hotKeyHedgedReadDelay = hotKeyHedgedReadDelay;
+        return self();
+    }
+
+    public T setUseHeavyHitterTracking(boolean useHeavyHitterTracking) {
+        this.useHeavyHitterTracking = useHeavyHitterTracking;
+        return self();
+    }
+
+    public T setHeavyHitterTopK(int heavyHitterTopK) {
+        this.heavyHitterTopK = heavyHitterTopK;
+        return self();
+    }
+
+    public T setHeavyHitterSamplingRate(int heavyHitterSamplingRate) {
+        this.heavyHitterSamplingRate = heavyHitterSamplingRate;
+        return self();
+    }
+
+    public T setHeavyHitterWindow(Duration heavyHitterWindow) {
+        this.heavyHitterWindow = heavyHitterWindow;
+        return self();
+    }
+
+    public T setUseRefreshAhead(boolean useRefreshAhead) {
+        this.useRefreshAhead = useRefreshAhead;
+        return self();
+    }
+
+    public T setRefreshAheadMinAccessesPerMinute(int refreshAheadMinAccessesPerMinute) {
+        this.refreshAheadMinAccessesPerMinute = refreshAheadMinAccessesPerMinute;
+        return self();
+    }
+
+    public T setRefreshAheadTime(Duration refreshAheadTime) {
+        this.refreshAheadTime = refreshAheadTime;
+        return self();
+    }
+
+    public T setRefreshAheadMaxRefreshesPerSecond(double refreshAheadMaxRefreshesPerSecond) {
+        this.refreshAheadMaxRefreshesPerSecond = refreshAheadMaxRefreshesPerSecond;
+        return self();
+    }
+
+    public T setRefreshAheadThreads(int refreshAheadThreads) {
+        this.refreshAheadThreads = refreshAheadThreads;
+        return self();
+    }
+
+    public T setRefreshAheadMaxPendingRefreshes(int refreshAheadMaxPendingRefreshes) {
+        this.refreshAheadMaxPendingRefreshes = refreshAheadMaxPendingRefreshes;
+        return self();
+    }
+
+    public T setUseMicroBatchedGets(boolean useMicroBatchedGets) {
+        this.useMicroBatchedGets = useMicroBatchedGets;
+        return self();
+    }
+
+    public T setMicroBatchWindow(Duration microBatchWindow) {
+        this.microBatchWindow = microBatchWindow;
+        return self();
+    }
+
+    public T setMicroBatchMaxKeys(int microBatchMaxKeys) {
+        this.microBatchMaxKeys = microBatchMaxKeys;
+        return self();
+    }
+
+    public T setBatchSupplierWindow(Duration batchSupplierWindow) {
+        this.batchSupplierWindow = batchSupplierWindow;
+        return self();
+    }
+
+    public T setBatchSupplierMaxKeys(int batchSupplierMaxKeys) {
+        this.batchSupplierMaxKeys = batchSupplierMaxKeys;
+        return self();
+    }
+
+    /**
+     * On Java 21, or later, the suppliers and the blocking memcached reads are run on a new virtual thread per task.
+     * The executor given to the cache operations is then ignored.
+     */
+    public T setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+        return self();
+    }
+
+    public T setVirtualThreadPinnedThreshold(Duration virtualThreadPinnedThreshold) {
+        this.virtualThreadPinnedThreshold = virtualThreadPinnedThreshold;
+        return self();
+    }
+
+    public T setUseLatencyInstrumentation(boolean useLatencyInstrumentation) {
+        this.useLatencyInstrumentation = useLatencyInstrumentation;
+        return self();
+    }
+
+    public T setLatencySnapshotInterval(Duration latencySnapshotInterval) {
+        this.latencySnapshotInterval = latencySnapshotInterval;
+        return self();
+    }
+
+    public T setLatencyJmxName(String latencyJmxName) {
+        this.latencyJmxName = latencyJmxName;
+        return self();
+    }
+
+    /**
+     * When the keys are hashed (see {@link #setKeyHashType(KeyHashingType)}), the position of the key on the ketama
+     * ring is taken from the hash the key already is.  This replaces the locator factory with
+     * {@link LocatorFactory#keyHashKetamaCeilingArray(KeyHashingType)}.  The nodes the keys are located on differ
+     * from those of the hash algorithm, so all clients of the memcached cluster need to use the same setting.
+     */
+    public T setUseKeyHashForNodeLocation(boolean useKeyHashForNodeLocation) {
+        this.useKeyHashForNodeLocation = useKeyHashForNodeLocation;
+        return self();
+    }
 }
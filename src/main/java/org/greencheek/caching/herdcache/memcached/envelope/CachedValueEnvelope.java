@@ -0,0 +1,75 @@
+package org.greencheek.caching.herdcache.memcached.envelope;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Wraps the value that is stored in memcached, along with how long the value took to compute
+ * and the (logical) time at which the value expires.
+ */
+public class CachedValueEnvelope<V extends Serializable> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The logical expiry for items that are stored without a TTL
+     */
+    public static final long NO_EXPIRY = 0;
+
+    private final V value;
+    private final long computeTimeMillis;
+    private final long expiresAtMillis;
+
+    public CachedValueEnvelope(V value, long computeTimeMillis, long expiresAtMillis) {
+        this.value = value;
+        this.computeTimeMillis = computeTimeMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * @param value The value to be cached
+     * @param computeTimeNanos How long the value took to compute
+     * @param timeToLive The TTL of the item.  Duration.ZERO for no expiry
+     * @param nowMillis current time (epoch millis)
+     */
+    public static <V extends Serializable> CachedValueEnvelope<V> create(V value, long computeTimeNanos,
+                                                                         Duration timeToLive, long nowMillis) {
+        long expiresAt = timeToLive.compareTo(Duration.ZERO) <= 0 ? NO_EXPIRY : nowMillis + timeToLive.toMillis();
+        return new CachedValueEnvelope<>(value, computeTimeNanos / 1000000, expiresAt);
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public long getComputeTimeMillis() {
+        return computeTimeMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis != NO_EXPIRY && nowMillis >= expiresAtMillis;
+    }
+
+    /**
+     * XFetch (probabilistic early expiration).  Returns true if the value should be recomputed ahead
+     * of its expiry.  The probability of recomputation increases as the expiry approaches, and is
+     * greater for values that take longer to compute:
+     * <pre>
+     *     now - computeTime * beta * ln(random) &gt;= expiry
+     * </pre>
+     *
+     * @param beta Values greater than 1.0 favour earlier recomputation
+     * @param nowMillis current time (epoch millis)
+     * @param random uniformly distributed random number in the range (0,1]
+     */
+    public boolean isEarlyRecomputationRequired(double beta, long nowMillis, double random) {
+        if(expiresAtMillis == NO_EXPIRY) {
+            return false;
+        }
+        return nowMillis - (computeTimeMillis * beta * Math.log(random)) >= expiresAtMillis;
+    }
+}
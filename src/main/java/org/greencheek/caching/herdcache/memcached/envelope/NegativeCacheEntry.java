@@ -0,0 +1,38 @@
+package org.greencheek.caching.herdcache.memcached.envelope;
+
+import java.io.Serializable;
+
+/**
+ * Sentinel that is stored in memcached, in place of a value, to record that the Supplier returned
+ * null (or a value that could not be cached) for the key.  The transcoders encode the sentinel as a
+ * zero length item, rather than serializing the object.
+ */
+public final class NegativeCacheEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final NegativeCacheEntry INSTANCE = new NegativeCacheEntry();
+
+    /**
+     * The encoded form of the sentinel
+     */
+    public static final byte[] ENCODED = new byte[0];
+
+    private NegativeCacheEntry() {
+    }
+
+    public static boolean isNegativeCacheEntry(Object cachedItem) {
+        return cachedItem instanceof NegativeCacheEntry;
+    }
+
+    /**
+     * Preserve the singleton, if the sentinel is serialized by a transcoder that does not recognise it
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    public String toString() {
+        return "NegativeCacheEntry";
+    }
+}
@@ -0,0 +1,244 @@
+package org.greencheek.caching.herdcache.memcached.factory;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decorates a {@link ReferencedClient}, collecting the single key gets that are issued concurrently into
+ * micro batches.  A batch is sent when it reaches maxKeys, or when the window (that starts with the first get
+ * of the batch) has passed.  The keys of a batch are grouped by the memcached node they reside on, and a
+ * multi-get is sent to each node.  The future of each get is completed individually, as the response
+ * from its node arrives.
+ *
+ * All other operations are passed straight through to the decorated client.
+ */
+public class BatchingReferencedClient implements ReferencedClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingReferencedClient.class);
+
+    // most batches hold a few gets, so the lists grow to maxKeys rather than being allocated at it
+    private static final int INITIAL_BATCH_CAPACITY = 8;
+
+    private class Batch implements Runnable {
+        private final List<String> keys = new ArrayList<>(Math.min(maxKeys, INITIAL_BATCH_CAPACITY));
+        private final List<SettableFuture<Object>> futures = new ArrayList<>(Math.min(maxKeys, INITIAL_BATCH_CAPACITY));
+
+        private boolean add(String key, SettableFuture<Object> future) {
+            keys.add(key);
+            futures.add(future);
+            return keys.size() == maxKeys;
+        }
+
+        /**
+         * Run at the end of the window, sending the batch if it has not already been sent because it was full
+         */
+        @Override
+        public void run() {
+            synchronized (lock) {
+                if(currentBatch != this) {
+                    return;
+                }
+                currentBatch = null;
+            }
+            send();
+        }
+
+        private void send() {
+            Map<SocketAddress,List<Integer>> keysByNode = new HashMap<>();
+            for(int i=0;i<keys.size();i++) {
+                SocketAddress node = null;
+                try {
+                    node = delegate.getPrimaryNodeAddress(keys.get(i));
+                } catch (Throwable t) {
+                    // the bulk get determines the node
+                }
+                List<Integer> indexes = keysByNode.get(node);
+                if(indexes==null) {
+                    indexes = new ArrayList<>();
+                    keysByNode.put(node,indexes);
+                }
+                indexes.add(i);
+            }
+
+            for(List<Integer> indexes : keysByNode.values()) {
+                sendToNode(indexes);
+            }
+        }
+
+        private void sendToNode(final List<Integer> indexes) {
+            Set<String> nodeKeys = new LinkedHashSet<>(indexes.size());
+            for(int index : indexes) {
+                nodeKeys.add(keys.get(index));
+            }
+
+            ListenableFuture<Map<String,Object>> bulk;
+            try {
+                bulk = delegate.asyncGetBulk(nodeKeys);
+            } catch (Throwable t) {
+                bulk = Futures.immediateFailedFuture(t);
+            }
+
+            Futures.addCallback(bulk, new FutureCallback<Map<String,Object>>() {
+                @Override
+                public void onSuccess(Map<String,Object> items) {
+                    for(int index : indexes) {
+                        futures.get(index).set(items == null ? null : items.get(keys.get(index)));
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    for(int index : indexes) {
+                        futures.get(index).setException(t);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+    }
+
+    private final ReferencedClient delegate;
+    private final long windowInNanos;
+    private final int maxKeys;
+    private final ScheduledExecutorService windowScheduler;
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private Batch currentBatch;
+
+    public BatchingReferencedClient(ReferencedClient delegate, long windowInNanos, int maxKeys) {
+        this.delegate = delegate;
+        this.windowInNanos = Math.max(0,windowInNanos);
+        this.maxKeys = Math.max(1,maxKeys);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "herdcache-get-micro-batch");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.windowScheduler = scheduler;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public List<InetSocketAddress> getResolvedHosts() {
+        return delegate.getResolvedHosts();
+    }
+
+    @Override
+    public Object get(String key, long timeout, TimeUnit unit) {
+        Object value = null;
+        try {
+            value = asyncGet(key).get(timeout, unit);
+        } catch (TimeoutException e) {
+            logger.warn("timeout when retrieving key {} from memcached", key);
+        } catch(Exception e) {
+            logger.warn("Unable to contact memcached for get({}): {}", key, e.getMessage());
+        } catch(Throwable e) {
+            logger.warn("Exception thrown when communicating with memcached for get({}): {}", key, e.getMessage());
+        }
+        return value;
+    }
+
+    @Override
+    public ListenableFuture<Object> asyncGet(String key) {
+        SettableFuture<Object> future = SettableFuture.create();
+        Batch fullBatch = null;
+        boolean newBatch = false;
+        Batch batch;
+        synchronized (lock) {
+            batch = currentBatch;
+            if(batch == null) {
+                batch = new Batch();
+                currentBatch = batch;
+                newBatch = true;
+            }
+            if(batch.add(key, future)) {
+                currentBatch = null;
+                fullBatch = batch;
+            }
+        }
+
+        if(fullBatch != null) {
+            fullBatch.send();
+        } else if(newBatch) {
+            try {
+                windowScheduler.schedule(batch, windowInNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException shutdown) {
+                batch.run();
+            }
+        }
+        return future;
+    }
+
+    @Override
+    public ListenableFuture<Map<String,Object>> asyncGetBulk(Collection<String> keys) {
+        return delegate.asyncGetBulk(keys);
+    }
+
+    @Override
+    public SocketAddress getPrimaryNodeAddress(String key) {
+        return delegate.getPrimaryNodeAddress(key);
+    }
+
+    @Override
+    public Future set(String key, int ttlInSeconds, Object value) {
+        return delegate.set(key, ttlInSeconds, value);
+    }
+
+    @Override
+    public ListenableFuture<Boolean> add(String key, int ttlInSeconds, Object value) {
+        return delegate.add(key, ttlInSeconds, value);
+    }
+
+    @Override
+    public Future delete(String key) {
+        return delegate.delete(key);
+    }
+
+    @Override
+    public Future flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public void shutdown() {
+        windowScheduler.shutdownNow();
+        Batch batch;
+        synchronized (lock) {
+            batch = currentBatch;
+            currentBatch = null;
+        }
+        if(batch != null) {
+            batch.send();
+        }
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,44 @@
+package org.greencheek.caching.herdcache.memcached.factory;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Decorates the clients created by another factory with a {@link BatchingReferencedClient}
+ */
+public class BatchingReferencedClientFactory<V> implements ReferencedClientFactory<V> {
+
+    private final ReferencedClientFactory<V> factory;
+    private final long windowInNanos;
+    private final int maxKeys;
+
+    public BatchingReferencedClientFactory(ReferencedClientFactory<V> factory, long windowInNanos, int maxKeys) {
+        this.factory = factory;
+        this.windowInNanos = windowInNanos;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return The given factory, decorated with micro batching of gets if enabled by the config
+     */
+    public static <V> ReferencedClientFactory<V> create(ReferencedClientFactory<V> factory, MemcachedCacheConfig config) {
+        if(config.isUseMicroBatchedGets()) {
+            return new BatchingReferencedClientFactory<>(factory, config.getMicroBatchWindow().toNanos(),
+                    config.getMicroBatchMaxKeys());
+        } else {
+            return factory;
+        }
+    }
+
+    @Override
+    public ReferencedClient createClient(List<InetSocketAddress> resolvedHosts) {
+        ReferencedClient client = factory.createClient(resolvedHosts);
+        if(client.isAvailable()) {
+            return new BatchingReferencedClient(client, windowInNanos, maxKeys);
+        } else {
+            return client;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import net.spy.memcached.ConnectionFactoryBuilder;
 import org.greencheek.caching.herdcache.memcached.config.ElastiCacheCacheConfig;
 import org.greencheek.caching.herdcache.memcached.folsom.transcoder.FastTranscoder;
 import org.greencheek.caching.herdcache.memcached.folsom.transcoder.StringTranscoder;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
 
 import java.net.InetSocketAddress;
 import java.util.List;
@@ -20,7 +21,15 @@ public class FolsomReferencedClientFactory<V> implements ReferencedClientFactory
 
     private final ElastiCacheCacheConfig config;
 
+    /**
+     * @throws IllegalStateException if the config hashes keys with a {@link KeyHashingType#isBinary()} type.  Folsom
+     * rejects keys with whitespace and control characters, for the binary protocol as well as the ascii protocol.
+     */
     public FolsomReferencedClientFactory(ElastiCacheCacheConfig config) {
+        KeyHashingType keyHashType = config.getMemcachedCacheConfig().getKeyHashType();
+        if(keyHashType.isBinary()) {
+            throw new IllegalStateException("Key hashing type " + keyHashType + " cannot be used with the folsom client");
+        }
         this.config = config;
     }
 
@@ -37,7 +46,8 @@ public class FolsomReferencedClientFactory<V> implements ReferencedClientFactory
             builder = new MemcacheClientBuilder<>(new StringTranscoder(config.getFolsomStringClientCharset()));
 
         } else {
-            builder = new MemcacheClientBuilder(new FastTranscoder());
+            builder = new MemcacheClientBuilder(new FastTranscoder(true,
+                    config.getMemcachedCacheConfig().isUseNegativeCaching()));
         }
 
         builder = builder.withAddresses(hosts)
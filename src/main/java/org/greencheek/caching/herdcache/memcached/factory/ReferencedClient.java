@@ -1,7 +1,12 @@
 package org.greencheek.caching.herdcache.memcached.factory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -14,7 +19,50 @@ public interface ReferencedClient {
     List<InetSocketAddress> getResolvedHosts();
 
     Object get(String key, long time,TimeUnit unit);
+
+    /**
+     * Issues the get to memcached without waiting for the response.  The returned future
+     * is completed by the client's io/listener thread when memcached responds.  No timeout is
+     * applied to the returned future; it is up to the caller to time the request out.
+     *
+     * @param key the key to obtain from memcached
+     * @return future that is completed with the value, or null if the item is not in memcached
+     */
+    ListenableFuture<Object> asyncGet(String key);
+
+    /**
+     * Issues a multi-get to memcached for the given keys, without waiting for the response.
+     * The keys are grouped by the memcached node they reside on, so that one request is sent to each node.
+     * As with {@link #asyncGet(String)} no timeout is applied to the returned future.
+     *
+     * @param keys the keys to obtain from memcached
+     * @return future that is completed with the items found in memcached.  Keys that are not in memcached are absent
+     * from the map.
+     */
+    ListenableFuture<Map<String,Object>> asyncGetBulk(Collection<String> keys);
+
+    /**
+     * The address of the memcached node that the key resides on, as determined by the client's node locator.
+     *
+     * @param key the key to locate
+     * @return the address of the node, or null if the client does not expose its node locator
+     */
+    default SocketAddress getPrimaryNodeAddress(String key) {
+        return null;
+    }
+
     Future set(String key, int ttlInSeconds, Object value);
+
+    /**
+     * Stores the item in memcached, only if there is not already an item for the key (memcached add).
+     * As with {@link #asyncGet(String)} no timeout is applied to the returned future.
+     *
+     * @param key the key to store the item under
+     * @param ttlInSeconds the expiry of the item
+     * @param value the item to store
+     * @return future that is completed with true if the item was stored, false if an item already exists for the key.
+     */
+    ListenableFuture<Boolean> add(String key, int ttlInSeconds, Object value);
     Future delete(String key);
     Future flush();
 
@@ -6,14 +6,26 @@ import net.spy.memcached.MemcachedClient;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Created by dominictootell on 05/04/2015.
  */
 public class SpyMemcachedReferencedClientFactory<V> implements ReferencedClientFactory<V>{
-    private final ConnectionFactory factory;
+    private final Supplier<ConnectionFactory> factory;
 
     public SpyMemcachedReferencedClientFactory(ConnectionFactory factory) {
+        this(() -> factory);
+    }
+
+    /**
+     * A new ConnectionFactory is obtained for each client that is created.  The client shuts down the
+     * listener executor of its ConnectionFactory on shutdown; so a factory cannot be shared between the
+     * clients that replace each other when the elasticache configuration changes.
+     *
+     * @param factory supplies the connection factory for each client
+     */
+    public SpyMemcachedReferencedClientFactory(Supplier<ConnectionFactory> factory) {
         this.factory = factory;
     }
 
@@ -21,7 +33,7 @@ public class SpyMemcachedReferencedClientFactory<V> implements ReferencedClientF
     @Override
     public ReferencedClient createClient(List<InetSocketAddress> resolvedHosts) {
         try {
-            return new SpyReferencedClient<V>(true,resolvedHosts,new MemcachedClient(factory,resolvedHosts));
+            return new SpyReferencedClient<V>(true,resolvedHosts,new MemcachedClient(factory.get(),resolvedHosts));
         } catch (IOException e) {
             return SpyReferencedClient.UNAVAILABLE_REFERENCE_CLIENT;
         }
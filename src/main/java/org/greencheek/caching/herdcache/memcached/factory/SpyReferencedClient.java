@@ -1,14 +1,29 @@
 package org.greencheek.caching.herdcache.memcached.factory;
 
+import com.google.common.util.concurrent.JdkFutureAdapters;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import net.spy.memcached.MemcachedClientIF;
+import net.spy.memcached.NodeLocator;
 import net.spy.memcached.OperationTimeoutException;
+import net.spy.memcached.internal.BulkGetCompletionListener;
+import net.spy.memcached.internal.BulkGetFuture;
 import net.spy.memcached.internal.CheckedOperationTimeoutException;
+import net.spy.memcached.internal.GetCompletionListener;
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.OperationCompletionListener;
+import net.spy.memcached.internal.OperationFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -24,6 +39,8 @@ public class SpyReferencedClient<V> implements ReferencedClient {
     private final boolean isAvailable;
     private final List<InetSocketAddress> resolvedHosts;
     private final MemcachedClientIF client;
+    // read only copy of the client's locator; the client creates a new copy on each request for it
+    private volatile NodeLocator nodeLocator;
 
 
     public SpyReferencedClient(boolean isAvailable,
@@ -62,11 +79,99 @@ public class SpyReferencedClient<V> implements ReferencedClient {
         return value;
     }
 
+    @Override
+    public ListenableFuture<Object> asyncGet(String key) {
+        final Future<Object> future = client.asyncGet(key);
+        if(future instanceof GetFuture) {
+            final SettableFuture<Object> result = SettableFuture.create();
+            ((GetFuture<Object>)future).addListener((GetCompletionListener) completed -> {
+                try {
+                    result.set(completed.get());
+                } catch (ExecutionException e) {
+                    result.setException(e.getCause() == null ? e : e.getCause());
+                } catch (Throwable e) {
+                    result.setException(e);
+                }
+            });
+            // a cancelled (i.e. timed out) result cancels the outstanding memcached operation
+            result.addListener(() -> {
+                if(result.isCancelled()) {
+                    future.cancel(false);
+                }
+            }, MoreExecutors.directExecutor());
+            return result;
+        } else {
+            return JdkFutureAdapters.listenInPoolThread(future);
+        }
+    }
+
+    @Override
+    public ListenableFuture<Map<String,Object>> asyncGetBulk(Collection<String> keys) {
+        final Future<Map<String,Object>> future = client.asyncGetBulk(keys);
+        if(future instanceof BulkGetFuture) {
+            final SettableFuture<Map<String,Object>> result = SettableFuture.create();
+            ((BulkGetFuture<Object>)future).addListener((BulkGetCompletionListener) completed -> {
+                try {
+                    result.set((Map<String,Object>)completed.get());
+                } catch (ExecutionException e) {
+                    result.setException(e.getCause() == null ? e : e.getCause());
+                } catch (Throwable e) {
+                    result.setException(e);
+                }
+            });
+            // a cancelled (i.e. timed out) result cancels the outstanding memcached operations
+            result.addListener(() -> {
+                if(result.isCancelled()) {
+                    future.cancel(false);
+                }
+            }, MoreExecutors.directExecutor());
+            return result;
+        } else {
+            return JdkFutureAdapters.listenInPoolThread(future);
+        }
+    }
+
+    @Override
+    public SocketAddress getPrimaryNodeAddress(String key) {
+        NodeLocator locator = nodeLocator;
+        if(locator==null) {
+            locator = client.getNodeLocator();
+            nodeLocator = locator;
+        }
+        return locator.getPrimary(key).getSocketAddress();
+    }
+
     @Override
     public Future set(String key, int entryTTLInSeconds, Object value) {
         return client.set(key, entryTTLInSeconds, value);
     }
 
+    @Override
+    public ListenableFuture<Boolean> add(String key, int entryTTLInSeconds, Object value) {
+        final Future<Boolean> future = client.add(key, entryTTLInSeconds, value);
+        if(future instanceof OperationFuture) {
+            final SettableFuture<Boolean> result = SettableFuture.create();
+            ((OperationFuture<Boolean>)future).addListener((OperationCompletionListener) completed -> {
+                try {
+                    result.set((Boolean)completed.get());
+                } catch (ExecutionException e) {
+                    result.setException(e.getCause() == null ? e : e.getCause());
+                } catch (Throwable e) {
+                    result.setException(e);
+                }
+            });
+            // a cancelled (i.e. timed out) result cancels the outstanding memcached operation
+            result.addListener(() -> {
+                if(result.isCancelled()) {
+                    future.cancel(false);
+                }
+            }, MoreExecutors.directExecutor());
+            return result;
+        } else {
+            return JdkFutureAdapters.listenInPoolThread(future);
+        }
+    }
+
     @Override
     public Future delete(String key) {
         return client.delete(key);
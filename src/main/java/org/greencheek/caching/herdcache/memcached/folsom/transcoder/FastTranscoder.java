@@ -4,6 +4,7 @@ import com.spotify.folsom.Transcoder;
 import de.ruedigermoeller.serialization.FSTConfiguration;
 import de.ruedigermoeller.serialization.FSTObjectInput;
 import de.ruedigermoeller.serialization.FSTObjectOutput;
+import org.greencheek.caching.herdcache.memcached.envelope.NegativeCacheEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
@@ -18,6 +19,8 @@ public class FastTranscoder implements Transcoder {
     private static final Logger logger = LoggerFactory.getLogger(FastTranscoder.class);
 
     private final boolean compress;
+    // only when negative caching is enabled is a zero length item the negative cache sentinel
+    private final boolean negativeCaching;
 
 
     // ! reuse this Object, it caches metadata. Performance degrades massively
@@ -29,9 +32,17 @@ public class FastTranscoder implements Transcoder {
     }
 
     public FastTranscoder(boolean compress) {
+        this(compress,false);
+    }
+
+    /**
+     * @param negativeCaching if true a zero length item is decoded as the {@link NegativeCacheEntry}
+     */
+    public FastTranscoder(boolean compress, boolean negativeCaching) {
         conf = FSTConfiguration.createDefaultConfiguration();
         conf.setShareReferences(true);
         this.compress = compress;
+        this.negativeCaching = negativeCaching;
     }
 
     @Override
@@ -39,7 +50,9 @@ public class FastTranscoder implements Transcoder {
         Object rv = null;
 
         try {
-            if (in != null) {
+            if (in != null && in.length == 0 && negativeCaching) {
+                rv = NegativeCacheEntry.INSTANCE;
+            } else if (in != null) {
                 FSTObjectInput is = null;
                 if(compress) {
                     is = conf.getObjectInput(Snappy.uncompress(in));
@@ -63,6 +76,9 @@ public class FastTranscoder implements Transcoder {
         if (o == null) {
             throw new NullPointerException("Can't serialize null");
         }
+        if (o instanceof NegativeCacheEntry) {
+            return NegativeCacheEntry.ENCODED;
+        }
         byte[] rv = null;
         try {
             FSTObjectOutput os = conf.getObjectOutput();
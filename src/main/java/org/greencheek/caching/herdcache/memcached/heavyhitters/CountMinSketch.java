@@ -0,0 +1,60 @@
+package org.greencheek.caching.herdcache.memcached.heavyhitters;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A count-min sketch of the frequency of keys.  The estimate for a key is never less than
+ * the number of times it has been added; it can be more when keys share counters.
+ * Adding a key does not allocate.
+ */
+public class CountMinSketch {
+    private static final int[] SEEDS = new int[] { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int mask;
+
+    /**
+     * @param width The number of counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        this.width = Integer.highestOneBit(Math.max(16,width-1)) << 1;
+        this.mask = this.width - 1;
+        this.counters = new AtomicLongArray(this.width * SEEDS.length);
+    }
+
+    private int index(int row, int hash) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return row * width + (h & mask);
+    }
+
+    /**
+     * Increments the counters for the key
+     * @return The estimated count for the key, after the increment
+     */
+    public long add(int hash) {
+        long estimate = Long.MAX_VALUE;
+        for(int row=0;row<SEEDS.length;row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    public long estimate(int hash) {
+        long estimate = Long.MAX_VALUE;
+        for(int row=0;row<SEEDS.length;row++) {
+            estimate = Math.min(estimate, counters.get(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halves all the counters, so that the keys that were frequent in the past decay
+     */
+    public void halve() {
+        for(int i=0;i<counters.length();i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.greencheek.caching.herdcache.memcached.heavyhitters;
+
+/**
+ * A snapshot of one of the most frequently requested keys.  The rates are estimated from
+ * the sampled requests, over the current tracking window.
+ */
+public class HeavyHitter {
+    private final String key;
+    private final long estimatedRequests;
+    private final double requestsPerSecond;
+    private final double missesPerSecond;
+    private final double supplierCallsPerSecond;
+
+    public HeavyHitter(String key, long estimatedRequests, double requestsPerSecond,
+                       double missesPerSecond, double supplierCallsPerSecond) {
+        this.key = key;
+        this.estimatedRequests = estimatedRequests;
+        this.requestsPerSecond = requestsPerSecond;
+        this.missesPerSecond = missesPerSecond;
+        this.supplierCallsPerSecond = supplierCallsPerSecond;
+    }
+
+    /**
+     * @return The key, as stored in memcached (i.e. after any key hashing)
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The estimated number of requests for the key (decayed at the end of each tracking window)
+     */
+    public long getEstimatedRequests() {
+        return estimatedRequests;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * @return The rate at which requests for the key were not found in memcached
+     */
+    public double getMissesPerSecond() {
+        return missesPerSecond;
+    }
+
+    public double getSupplierCallsPerSecond() {
+        return supplierCallsPerSecond;
+    }
+
+    public String toString() {
+        return key + "(requests/s=" + requestsPerSecond + ", misses/s=" + missesPerSecond +
+                ", supplier calls/s=" + supplierCallsPerSecond + ")";
+    }
+}
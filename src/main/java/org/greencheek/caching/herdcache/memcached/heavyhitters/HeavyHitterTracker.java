@@ -0,0 +1,24 @@
+package org.greencheek.caching.herdcache.memcached.heavyhitters;
+
+import java.util.List;
+
+/**
+ * Tracks the keys that are requested the most (the heavy hitters), along with the rate at which they are
+ * requested, missed in memcached, and calculated by the Supplier.
+ */
+public interface HeavyHitterTracker {
+
+    /**
+     * @param key The hashed cache key
+     */
+    void recordRequest(String key);
+
+    void recordMiss(String key);
+
+    void recordSupplierCall(String key);
+
+    /**
+     * @return The current heavy hitters, most frequent first
+     */
+    List<HeavyHitter> getHeavyHitters();
+}
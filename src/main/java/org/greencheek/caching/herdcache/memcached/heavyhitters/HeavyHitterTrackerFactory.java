@@ -0,0 +1,22 @@
+package org.greencheek.caching.herdcache.memcached.heavyhitters;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+
+/**
+ * Creates the {@link HeavyHitterTracker} as specified by the cache config, registering the
+ * heavy hitter gauges with the config's metric recorder
+ */
+public class HeavyHitterTrackerFactory {
+
+    public static HeavyHitterTracker create(MemcachedCacheConfig config) {
+        if(config.isUseHeavyHitterTracking() && config.getHeavyHitterTopK()>0) {
+            SampledHeavyHitterTracker tracker = new SampledHeavyHitterTracker(config.getHeavyHitterTopK(),
+                    config.getHeavyHitterSamplingRate(),
+                    config.getHeavyHitterWindow());
+            tracker.registerGauges(config.getMetricsRecorder());
+            return tracker;
+        } else {
+            return new NoOpHeavyHitterTracker();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.greencheek.caching.herdcache.memcached.heavyhitters;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Heavy hitter tracking is disabled
+ */
+public class NoOpHeavyHitterTracker implements HeavyHitterTracker {
+    @Override
+    public void recordRequest(String key) {
+    }
+
+    @Override
+    public void recordMiss(String key) {
+    }
+
+    @Override
+    public void recordSupplierCall(String key) {
+    }
+
+    @Override
+    public List<HeavyHitter> getHeavyHitters() {
+        return Collections.emptyList();
+    }
+}
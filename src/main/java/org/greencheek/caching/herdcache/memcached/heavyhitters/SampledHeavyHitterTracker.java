@@ -0,0 +1,267 @@
+package org.greencheek.caching.herdcache.memcached.heavyhitters;
+
+import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the heavy hitters from a sample of the requests.  The frequency of each sampled key is estimated
+ * by a count-min sketch; the keys with the highest estimates are held in a min heap of size top-k.
+ * Recording a sampled request, for a key that is already a heavy hitter (or that is not frequent enough to
+ * be one), does not allocate.  The heap is only updated (under a lock) when a key's estimate exceeds that
+ * of the least frequent heavy hitter.
+ *
+ * At the end of each tracking window the sketch is halved, so that keys that are no longer requested
+ * are replaced.  The rates are calculated over the previous and current windows.
+ */
+public class SampledHeavyHitterTracker implements HeavyHitterTracker {
+
+    // the number of counters per row of the sketch, per heavy hitter being tracked
+    private static final int SKETCH_WIDTH_PER_HEAVY_HITTER = 256;
+    private static final long SNAPSHOT_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static class Entry {
+        private final String key;
+        private final int hash;
+        private volatile long estimate;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong supplierCalls = new AtomicLong();
+        private volatile long previousRequests;
+        private volatile long previousMisses;
+        private volatile long previousSupplierCalls;
+
+        private Entry(String key, long estimate) {
+            this.key = key;
+            this.hash = key.hashCode();
+            this.estimate = estimate;
+        }
+    }
+
+    private final int topK;
+    private final int samplingRate;
+    private final long windowNanos;
+    private final CountMinSketch sketch;
+    private final ConcurrentHashMap<String,Entry> heavyHitters;
+
+    // min heap on the estimate, guarded by this
+    private final Entry[] heap;
+    private int heapSize;
+
+    private volatile long admissionThreshold;
+    private volatile long windowStartNanos;
+    private volatile long previousWindowNanos;
+
+    private volatile List<HeavyHitter> snapshot = Collections.emptyList();
+    private volatile long snapshotNanos;
+
+    /**
+     * @param topK The number of heavy hitters to track
+     * @param samplingRate One in every samplingRate requests is sampled
+     * @param window The duration after which the frequencies are decayed
+     */
+    public SampledHeavyHitterTracker(int topK, int samplingRate, Duration window) {
+        this.topK = Math.max(1,topK);
+        this.samplingRate = Math.max(1,samplingRate);
+        this.windowNanos = Math.max(1,window.toNanos());
+        this.sketch = new CountMinSketch(this.topK * SKETCH_WIDTH_PER_HEAVY_HITTER);
+        this.heavyHitters = new ConcurrentHashMap<>(this.topK * 2);
+        this.heap = new Entry[this.topK];
+        this.windowStartNanos = System.nanoTime();
+        this.snapshotNanos = windowStartNanos - SNAPSHOT_MAX_AGE_NANOS;
+    }
+
+    /**
+     * Registers gauges for the rates of each heavy hitter, by rank (1 being the most frequent)
+     */
+    public void registerGauges(MetricRecorder metricRecorder) {
+        for(int i=0;i<topK;i++) {
+            final int rank = i;
+            String name = CacheMetricStrings.CACHE_TYPE_HEAVY_HITTER + "_" + (rank+1);
+            metricRecorder.registerGauge(name + "_requests_per_second",
+                    () -> getRecentSnapshot(rank) == null ? 0 : Math.round(getRecentSnapshot(rank).getRequestsPerSecond()));
+            metricRecorder.registerGauge(name + "_misses_per_second",
+                    () -> getRecentSnapshot(rank) == null ? 0 : Math.round(getRecentSnapshot(rank).getMissesPerSecond()));
+            metricRecorder.registerGauge(name + "_supplier_calls_per_second",
+                    () -> getRecentSnapshot(rank) == null ? 0 : Math.round(getRecentSnapshot(rank).getSupplierCallsPerSecond()));
+        }
+    }
+
+    private boolean isSampled() {
+        return samplingRate == 1 || ThreadLocalRandom.current().nextInt(samplingRate) == 0;
+    }
+
+    @Override
+    public void recordRequest(String key) {
+        if(!isSampled()) {
+            return;
+        }
+        rollWindowIfRequired();
+
+        long estimate = sketch.add(key.hashCode());
+        Entry entry = heavyHitters.get(key);
+        if(entry!=null) {
+            entry.requests.incrementAndGet();
+            entry.estimate = estimate;
+        } else if(estimate > admissionThreshold) {
+            admit(key, estimate);
+        }
+    }
+
+    @Override
+    public void recordMiss(String key) {
+        Entry entry = heavyHitters.get(key);
+        if(entry!=null && isSampled()) {
+            entry.misses.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void recordSupplierCall(String key) {
+        Entry entry = heavyHitters.get(key);
+        if(entry!=null && isSampled()) {
+            entry.supplierCalls.incrementAndGet();
+        }
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        if(heavyHitters.containsKey(key)) {
+            return;
+        }
+
+        if(heapSize < topK) {
+            Entry entry = newEntry(key, estimate);
+            heap[heapSize] = entry;
+            siftUp(heapSize++);
+            if(heapSize == topK) {
+                admissionThreshold = heap[0].estimate;
+            }
+            return;
+        }
+
+        // the estimates of the heavy hitters change as they are requested
+        heapify();
+        if(estimate > heap[0].estimate) {
+            heavyHitters.remove(heap[0].key);
+            heap[0] = newEntry(key, estimate);
+            siftDown(0);
+        }
+        admissionThreshold = heap[0].estimate;
+    }
+
+    private Entry newEntry(String key, long estimate) {
+        Entry entry = new Entry(key, estimate);
+        entry.requests.incrementAndGet();
+        heavyHitters.put(key, entry);
+        return entry;
+    }
+
+    private void heapify() {
+        for(int i=(heapSize/2)-1;i>=0;i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(heap[parent].estimate <= entry.estimate) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+        int half = heapSize >>> 1;
+        while(index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if(right < heapSize && heap[right].estimate < heap[child].estimate) {
+                child = right;
+            }
+            if(entry.estimate <= heap[child].estimate) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = entry;
+    }
+
+    private void rollWindowIfRequired() {
+        long now = System.nanoTime();
+        if(now - windowStartNanos < windowNanos) {
+            return;
+        }
+        synchronized (this) {
+            long elapsed = now - windowStartNanos;
+            if(elapsed < windowNanos) {
+                return;
+            }
+            sketch.halve();
+            for(int i=0;i<heapSize;i++) {
+                Entry entry = heap[i];
+                entry.estimate = entry.estimate >>> 1;
+                entry.previousRequests = entry.requests.getAndSet(0);
+                entry.previousMisses = entry.misses.getAndSet(0);
+                entry.previousSupplierCalls = entry.supplierCalls.getAndSet(0);
+            }
+            heapify();
+            if(heapSize == topK) {
+                admissionThreshold = heap[0].estimate;
+            }
+            previousWindowNanos = elapsed;
+            windowStartNanos = now;
+        }
+    }
+
+    private double perSecond(long previous, long current, double seconds) {
+        return ((previous + current) * (double)samplingRate) / seconds;
+    }
+
+    @Override
+    public List<HeavyHitter> getHeavyHitters() {
+        List<HeavyHitter> heavyHitters;
+        synchronized (this) {
+            double seconds = Math.max(1.0, (previousWindowNanos + (System.nanoTime() - windowStartNanos)) / 1e9);
+            heavyHitters = new ArrayList<>(heapSize);
+            for(int i=0;i<heapSize;i++) {
+                Entry entry = heap[i];
+                heavyHitters.add(new HeavyHitter(entry.key,
+                        sketch.estimate(entry.hash) * samplingRate,
+                        perSecond(entry.previousRequests, entry.requests.get(), seconds),
+                        perSecond(entry.previousMisses, entry.misses.get(), seconds),
+                        perSecond(entry.previousSupplierCalls, entry.supplierCalls.get(), seconds)));
+            }
+        }
+        heavyHitters.sort((a, b) -> Long.compare(b.getEstimatedRequests(), a.getEstimatedRequests()));
+        return heavyHitters;
+    }
+
+    /**
+     * @return The heavy hitter at the given rank, from a snapshot that is at most a second old; or null.
+     */
+    private HeavyHitter getRecentSnapshot(int rank) {
+        long now = System.nanoTime();
+        List<HeavyHitter> current = snapshot;
+        if(now - snapshotNanos >= SNAPSHOT_MAX_AGE_NANOS) {
+            current = getHeavyHitters();
+            snapshot = current;
+            snapshotNanos = now;
+        }
+        return rank < current.size() ? current.get(rank) : null;
+    }
+}
@@ -9,4 +9,26 @@ public interface KeyHashing {
 
     public String hash(String key);
     public String hash(byte[] bytes, int offset, int length);
+
+    /**
+     * @return The hash of the prefix followed by the key, i.e. {@code hash(prefix + key)}
+     */
+    default String hash(String prefix, String key) {
+        return hash(prefix + key);
+    }
+
+    /**
+     * @return A hashing that gives {@code hash(prefix, key)} for each key.  As the prefix is constant, implementations
+     * can process it once, rather than for every key.
+     */
+    default PrefixedKeyHashing withHashedPrefix(String prefix) {
+        return key -> hash(prefix, key);
+    }
+
+    /**
+     * @return The prefix followed by the hash of the key, i.e. {@code prefix + hash(key)}
+     */
+    default String prependToHash(String prefix, String key) {
+        return prefix + hash(key);
+    }
 }
@@ -0,0 +1,253 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+/**
+ * Per thread scratch buffers for the hashing of keys.  A key (and optionally its prefix) is encoded straight from the
+ * chars of the String into the thread's byte buffer, and the hash is formatted into the thread's char buffer;
+ * so that the only allocation on the hashing of a key is the resulting key String.
+ *
+ * The buffers grow to fit the largest key seen by the thread, up to {@link #MAX_RETAINED_LENGTH}.  Larger keys
+ * are encoded into buffers that are not retained.
+ *
+ * The UTF-8 encoding is identical to that of {@code String.getBytes("UTF-8")}, unpaired surrogates are encoded as '?'
+ */
+public final class KeyHashingBuffers {
+
+    public static final int MAX_RETAINED_LENGTH = 16 * 1024;
+
+    private static final int INITIAL_LENGTH = 256;
+    private static final int MAX_DIGEST_LENGTH = 64;
+    // -9223372036854775808
+    private static final int MAX_LONG_DIGITS = 20;
+
+    private static final ThreadLocal<KeyHashingBuffers> BUFFERS = ThreadLocal.withInitial(KeyHashingBuffers::new);
+
+    private byte[] retainedBytes = new byte[INITIAL_LENGTH];
+    private char[] retainedChars = new char[INITIAL_LENGTH];
+    private final byte[] digest = new byte[MAX_DIGEST_LENGTH];
+
+    private byte[] bytes = retainedBytes;
+
+    private KeyHashingBuffers() {
+    }
+
+    /**
+     * @return The buffers of the calling thread
+     */
+    public static KeyHashingBuffers get() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * @return The byte buffer into which the last key was encoded
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return A buffer into which a message digest can be written
+     */
+    public byte[] digest() {
+        return digest;
+    }
+
+    private byte[] bytesOfLength(int length) {
+        if(length <= retainedBytes.length) {
+            return retainedBytes;
+        }
+        if(length <= MAX_RETAINED_LENGTH) {
+            retainedBytes = new byte[Math.max(length, Math.min(MAX_RETAINED_LENGTH, retainedBytes.length << 1))];
+            return retainedBytes;
+        }
+        return new byte[length];
+    }
+
+    private char[] charsOfLength(int length) {
+        if(length <= retainedChars.length) {
+            return retainedChars;
+        }
+        if(length <= MAX_RETAINED_LENGTH) {
+            retainedChars = new char[Math.max(length, Math.min(MAX_RETAINED_LENGTH, retainedChars.length << 1))];
+            return retainedChars;
+        }
+        return new char[length];
+    }
+
+    /**
+     * Encodes the key, as UTF-8, into {@link #bytes()}
+     * @return the number of bytes written
+     */
+    public int encodeUtf8(String key) {
+        return encodeUtf8(null, key);
+    }
+
+    /**
+     * Encodes the prefix followed by the key, as UTF-8, into {@link #bytes()}
+     * @param prefix The prefix, can be null
+     * @return the number of bytes written
+     */
+    public int encodeUtf8(String prefix, String key) {
+        int prefixLength = prefix == null ? 0 : prefix.length();
+        // at most 3 bytes for each char, a surrogate pair being 4 bytes for 2 chars
+        bytes = bytesOfLength((prefixLength + key.length()) * 3);
+        int position = 0;
+        if(prefixLength>0) {
+            position = encodeUtf8(prefix, bytes, position);
+        }
+        return encodeUtf8(key, bytes, position);
+    }
+
+    /**
+     * Copies the prefix, already encoded as UTF-8, into {@link #bytes()} followed by the key encoded as UTF-8
+     * @return the number of bytes written
+     */
+    public int encodeUtf8AfterPrefix(byte[] prefixBytes, String key) {
+        bytes = bytesOfLength(prefixBytes.length + key.length() * 3);
+        System.arraycopy(prefixBytes, 0, bytes, 0, prefixBytes.length);
+        return encodeUtf8(key, bytes, prefixBytes.length);
+    }
+
+    private static int encodeUtf8(String s, byte[] out, int position) {
+        int length = s.length();
+        int i = 0;
+        // ascii fast path
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            out[position++] = (byte) c;
+        }
+
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    out[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    out[position++] = '?';
+                }
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Writes the low byte of each char of the key into {@link #bytes()}
+     * @return the number of bytes written
+     */
+    public int encodeAscii(String key) {
+        int length = key.length();
+        bytes = bytesOfLength(length);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) key.charAt(i);
+        }
+        return length;
+    }
+
+    /**
+     * @param prefix The prefix, can be null
+     * @return The prefix followed by the decimal representation of the value, as given by {@link Long#toString(long)}
+     */
+    public String toDecimalString(String prefix, long value) {
+        int prefixLength = prefix == null ? 0 : prefix.length();
+        char[] out = charsOfLength(prefixLength + MAX_LONG_DIGITS);
+        if(prefixLength>0) {
+            prefix.getChars(0, prefixLength, out, 0);
+        }
+
+        int end = prefixLength + stringSize(value);
+        int position = end;
+        // negate to work with negative numbers, so that Long.MIN_VALUE does not overflow
+        long remaining = value < 0 ? value : -value;
+        do {
+            out[--position] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            out[--position] = '-';
+        }
+        return new String(out, 0, end);
+    }
+
+    private static int stringSize(long value) {
+        int size = value < 0 ? 2 : 1;
+        long remaining = value < 0 ? value : -value;
+        while (remaining <= -10) {
+            remaining /= 10;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * @param prefix The prefix, can be null
+     * @param digits The 16 hex digits to use, i.e. {@link UpperCaseToHexString#DIGITS_UPPER}
+     * @return The prefix followed by the hex representation of the given bytes
+     */
+    public String toHexString(String prefix, byte[] data, int length, char[] digits) {
+        int prefixLength = prefix == null ? 0 : prefix.length();
+        char[] out = charsOfLength(prefixLength + (length << 1));
+        if(prefixLength>0) {
+            prefix.getChars(0, prefixLength, out, 0);
+        }
+
+        for(int i=0,j=prefixLength;i<length;i++) {
+            out[j++] = digits[(0xF0 & data[i]) >>> 4];
+            out[j++] = digits[0x0F & data[i]];
+        }
+        return new String(out, 0, prefixLength + (length << 1));
+    }
+
+    /**
+     * @return The number of chars that {@link #toSevenBitString} produces for the given number of bytes
+     */
+    public static int sevenBitLength(int length) {
+        return (length * 8 + 6) / 7;
+    }
+
+    /**
+     * Packs the bits of the given bytes, most significant first, 7 to a char; the last char being padded with zero
+     * bits.  Each char is below 0x80, and is therefore a single byte when encoded as UTF-8.
+     *
+     * @param prefix The prefix, can be null
+     * @return The prefix followed by the 7 bit packed representation of the given bytes
+     */
+    public String toSevenBitString(String prefix, byte[] data, int length) {
+        int prefixLength = prefix == null ? 0 : prefix.length();
+        char[] out = charsOfLength(prefixLength + sevenBitLength(length));
+        if(prefixLength>0) {
+            prefix.getChars(0, prefixLength, out, 0);
+        }
+
+        int j = prefixLength;
+        int buffered = 0;
+        int bits = 0;
+        for(int i=0;i<length;i++) {
+            buffered = (buffered << 8) | (data[i] & 0xFF);
+            bits += 8;
+            while(bits >= 7) {
+                bits -= 7;
+                out[j++] = (char) ((buffered >>> bits) & 0x7F);
+            }
+            buffered &= (1 << bits) - 1;
+        }
+        if(bits > 0) {
+            out[j++] = (char) ((buffered << (7 - bits)) & 0x7F);
+        }
+        return new String(out, 0, j);
+    }
+}
@@ -12,5 +12,20 @@ public enum KeyHashingType {
     MD5_UPPER,
     SHA256_UPPER,
     MD5_LOWER,
-    SHA256_LOWER
+    SHA256_LOWER,
+    /**
+     * The digest is packed 7 bits to a char (see {@link KeyHashingBuffers#toSevenBitString}), giving keys of 19 bytes
+     * for MD5 and 37 bytes for SHA-256, rather than the 32 and 64 bytes of the hex keys.  The keys contain
+     * whitespace and control characters, and as a result can only be used with the binary protocol of the spy client.
+     * The folsom client rejects such keys for either protocol.
+     */
+    MD5_BINARY,
+    SHA256_BINARY;
+
+    /**
+     * @return true if the keys of the type can only be sent with the binary protocol
+     */
+    public boolean isBinary() {
+        return this == MD5_BINARY || this == SHA256_BINARY;
+    }
 }
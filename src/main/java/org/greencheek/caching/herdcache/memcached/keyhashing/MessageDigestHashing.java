@@ -1,19 +1,26 @@
 package org.greencheek.caching.herdcache.memcached.keyhashing;
 
-import java.io.UnsupportedEncodingException;
+import java.security.DigestException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Created by dominictootell on 09/04/2014.
+ *
+ * The digests are supplied by a {@link MessageDigests}; a bounded pool when created with a number of digests,
+ * or one digest per thread when created with {@link MessageDigests#threadLocal(String)}.
  */
 public class MessageDigestHashing implements KeyHashing {
 
     private final boolean upperCase;
+    private final boolean binaryKeys;
 
     private final ToHexString byteToHexStringConverter;
-    private final ArrayBlockingQueue<MessageDigest> digesters;
+    private final char[] hexDigits;
+    private final MessageDigests digesters;
+
+    // a block of MD5 and SHA-256
+    private static final int MIN_SEEDED_PREFIX_LENGTH = 64;
 
     public MessageDigestHashing() {
         this(KeyHashing.MD5);
@@ -28,54 +35,149 @@ public class MessageDigestHashing implements KeyHashing {
     }
 
     public MessageDigestHashing(String algorithm,int messageDigests,boolean toUpper) {
+        this(algorithm,messageDigests,toUpper,false);
+    }
+
+    /**
+     * @param binaryKeys if true the digest is packed 7 bits to a char ({@link KeyHashingBuffers#toSevenBitString}),
+     *                   rather than output as hex; toUpper is then ignored
+     */
+    public MessageDigestHashing(String algorithm,int messageDigests,boolean toUpper,boolean binaryKeys) {
+        this(MessageDigests.pooled(algorithm,messageDigests),toUpper,binaryKeys);
+    }
+
+    public MessageDigestHashing(MessageDigests digesters,boolean toUpper,boolean binaryKeys) {
         this.upperCase = toUpper;
+        this.binaryKeys = binaryKeys;
 
         if(upperCase) {
             byteToHexStringConverter = UpperCaseToHexString.INSTANCE;
+            hexDigits = UpperCaseToHexString.DIGITS_UPPER;
         } else {
             byteToHexStringConverter = LowerCaseToHexString.INSTANCE;
+            hexDigits = LowerCaseToHexString.DIGITS_LOWER;
+        }
+
+        this.digesters = digesters;
+    }
+
+    @Override
+    public String hash(String key) {
+        return hash(null, key, null);
+    }
+
+    @Override
+    public String hash(String prefix, String key) {
+        return hash(prefix, key, null);
+    }
+
+    @Override
+    public String prependToHash(String prefix, String key) {
+        return hash(null, key, prefix);
+    }
+
+    /**
+     * The key (after the hashed prefix) is encoded into the thread's buffer, the digest is written into the thread's
+     * digest buffer, and the hex is formatted after the prepended prefix; only the resulting String is allocated.
+     */
+    private String hash(String hashedPrefix, String key, String prependedPrefix) {
+        KeyHashingBuffers buffers = KeyHashingBuffers.get();
+        int length = buffers.encodeUtf8(hashedPrefix, key);
+        byte[] digest = buffers.digest();
+        int digestLength = digest(null, buffers.bytes(), length, digest);
+        return format(buffers, prependedPrefix, digest, digestLength);
+    }
+
+    private String format(KeyHashingBuffers buffers, String prependedPrefix, byte[] digest, int digestLength) {
+        if(binaryKeys) {
+            return buffers.toSevenBitString(prependedPrefix, digest, digestLength);
         }
+        return buffers.toHexString(prependedPrefix, digest, digestLength, hexDigits);
+    }
 
+    /**
+     * @param prefixBytes The already encoded prefix that is digested before the bytes, can be null
+     */
+    private int digest(byte[] prefixBytes, byte[] bytes, int length, byte[] digest) {
+        MessageDigest md = digesters.acquire();
         try {
-            digesters = createDigests(messageDigests, algorithm);
-        } catch (NoSuchAlgorithmException e) {
-            throw new InstantiationError("Unable to create MessageDigest for algo: " + algorithm);
+            if(prefixBytes != null) {
+                md.update(prefixBytes);
+            }
+            md.update(bytes, 0, length);
+            return md.digest(digest, 0, digest.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException("Unable to digest key", e);
+        } finally {
+            digesters.release(md);
         }
     }
 
+    /**
+     * The prefix is encoded once.  A prefix of at least a block of the digest is digested once, into a digest
+     * that is cloned for each key; so that only the key's bytes are digested per key.  A shorter prefix does not
+     * fill a block, so saves no digesting, and is fed to the digest ahead of each key rather than paying for a clone.
+     */
+    @Override
+    public PrefixedKeyHashing withHashedPrefix(String prefix) {
+        final byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        final MessageDigest seeded = prefixBytes.length >= MIN_SEEDED_PREFIX_LENGTH ? seededDigest(prefixBytes) : null;
+        if(seeded == null) {
+            return key -> {
+                KeyHashingBuffers buffers = KeyHashingBuffers.get();
+                int length = buffers.encodeUtf8(key);
+                byte[] digest = buffers.digest();
+                return format(buffers, null, digest, digest(prefixBytes, buffers.bytes(), length, digest));
+            };
+        } else {
+            return key -> {
+                KeyHashingBuffers buffers = KeyHashingBuffers.get();
+                int length = buffers.encodeUtf8(key);
+                byte[] digest = buffers.digest();
+                return format(buffers, null, digest, digestAfterSeed(seeded, buffers.bytes(), length, digest));
+            };
+        }
+    }
 
-    private final ArrayBlockingQueue<MessageDigest> createDigests(int numToCreate, String algorithm)
-    throws NoSuchAlgorithmException {
-        ArrayBlockingQueue<MessageDigest> queue = new ArrayBlockingQueue<MessageDigest>(numToCreate);
-        for(int i = 0;i<numToCreate;i++) {
-            queue.add(MessageDigest.getInstance(algorithm));
+    /**
+     * @return A digest that has been fed the prefix, or null if the digest cannot be cloned
+     */
+    private MessageDigest seededDigest(byte[] prefixBytes) {
+        MessageDigest md = digesters.acquire();
+        try {
+            MessageDigest seeded = (MessageDigest) md.clone();
+            seeded.update(prefixBytes);
+            return seeded;
+        } catch (CloneNotSupportedException e) {
+            return null;
+        } finally {
+            digesters.release(md);
         }
-        return queue;
     }
 
-    @Override
-    public String hash(String key) {
-        byte[] bytes;
+    private static int digestAfterSeed(MessageDigest seeded, byte[] bytes, int length, byte[] digest) {
         try {
-            bytes = key.getBytes("UTF-8");
-        } catch(UnsupportedEncodingException e) {
-            bytes = key.getBytes();
+            MessageDigest md = (MessageDigest) seeded.clone();
+            md.update(bytes, 0, length);
+            return md.digest(digest, 0, digest.length);
+        } catch (CloneNotSupportedException | DigestException e) {
+            throw new IllegalStateException("Unable to digest key", e);
         }
-        return hash(bytes,0,bytes.length);
     }
 
     @Override
     public String hash(byte[] bytes,int offset, int length) {
-        MessageDigest md;
+        MessageDigest md = digesters.acquire();
+        byte[] result;
         try {
-            md = digesters.take();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            md.update(bytes, offset, length);
+            result = md.digest();
+        } finally {
+            digesters.release(md);
+        }
+        if(binaryKeys) {
+            return KeyHashingBuffers.get().toSevenBitString(null, result, result.length);
         }
-        md.update(bytes, offset, length);
-        byte[] result = md.digest();
-        md.reset();
-        digesters.add(md);
         return byteToHexStringConverter.bytesToHex(result);
     }
 }
@@ -0,0 +1,52 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Supplies the {@link MessageDigest} with which a key is hashed.  A digest that is acquired is used by the calling
+ * thread only, and is reset and released after the hashing of the key.
+ */
+public interface MessageDigests {
+
+    MessageDigest acquire();
+
+    void release(MessageDigest digest);
+
+    /**
+     * @return A digest per thread, see {@link ThreadLocalMessageDigests}
+     */
+    static MessageDigests threadLocal(String algorithm) {
+        return new ThreadLocalMessageDigests(algorithm);
+    }
+
+    /**
+     * @return A bounded pool of digests, see {@link PooledMessageDigests}
+     */
+    static MessageDigests pooled(String algorithm, int messageDigests) {
+        return new PooledMessageDigests(algorithm, messageDigests);
+    }
+
+    /**
+     * @return The digest of the given algorithm
+     * @throws InstantiationError if the algorithm is not available
+     */
+    static MessageDigest create(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new InstantiationError("Unable to create MessageDigest for algo: " + algorithm);
+        }
+    }
+
+    /**
+     * @return A clone of the prototype, or if the provider's digest cannot be cloned a new digest of the algorithm
+     */
+    static MessageDigest copyOf(MessageDigest prototype) {
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return create(prototype.getAlgorithm());
+        }
+    }
+}
@@ -13,4 +13,14 @@ public class NoKeyHashing implements KeyHashing {
     public String hash(byte[] bytes, int offset, int length) {
         return new String(bytes,offset,length);
     }
+
+    @Override
+    public String hash(String prefix, String key) {
+        return prefix.concat(key);
+    }
+
+    @Override
+    public String prependToHash(String prefix, String key) {
+        return prefix.concat(key);
+    }
 }
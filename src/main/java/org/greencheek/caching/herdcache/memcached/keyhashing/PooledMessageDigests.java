@@ -0,0 +1,35 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of digests.  When the pool is empty, as more threads are hashing than there are digests,
+ * a clone of the prototype is used rather than waiting for a digest to be released.  Released digests that do
+ * not fit in the pool are discarded.
+ */
+public class PooledMessageDigests implements MessageDigests {
+
+    private final MessageDigest prototype;
+    private final ArrayBlockingQueue<MessageDigest> digests;
+
+    public PooledMessageDigests(String algorithm, int messageDigests) {
+        prototype = MessageDigests.create(algorithm);
+        digests = new ArrayBlockingQueue<MessageDigest>(Math.max(1, messageDigests));
+        for(int i = 0;i<messageDigests;i++) {
+            digests.add(MessageDigests.copyOf(prototype));
+        }
+    }
+
+    @Override
+    public MessageDigest acquire() {
+        MessageDigest digest = digests.poll();
+        return digest == null ? MessageDigests.copyOf(prototype) : digest;
+    }
+
+    @Override
+    public void release(MessageDigest digest) {
+        digest.reset();
+        digests.offer(digest);
+    }
+}
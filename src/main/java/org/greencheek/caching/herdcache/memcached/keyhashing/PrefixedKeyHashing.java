@@ -0,0 +1,12 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+/**
+ * Hashes keys after a constant prefix, see {@link KeyHashing#withHashedPrefix(String)}
+ */
+public interface PrefixedKeyHashing {
+
+    /**
+     * @return The hash of the prefix followed by the key
+     */
+    String hash(String key);
+}
@@ -0,0 +1,27 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+import java.security.MessageDigest;
+
+/**
+ * Gives each thread its own digest, cloned from a prototype on the thread's first hash.  Threads never wait on,
+ * or contend for, a digest; at the cost of a digest for every thread that hashes a key.
+ */
+public class ThreadLocalMessageDigests implements MessageDigests {
+
+    private final ThreadLocal<MessageDigest> digests;
+
+    public ThreadLocalMessageDigests(String algorithm) {
+        MessageDigest prototype = MessageDigests.create(algorithm);
+        digests = ThreadLocal.withInitial(() -> MessageDigests.copyOf(prototype));
+    }
+
+    @Override
+    public MessageDigest acquire() {
+        return digests.get();
+    }
+
+    @Override
+    public void release(MessageDigest digest) {
+        digest.reset();
+    }
+}
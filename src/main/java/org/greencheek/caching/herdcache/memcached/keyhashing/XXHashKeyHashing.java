@@ -1,49 +1,87 @@
 package org.greencheek.caching.herdcache.memcached.keyhashing;
 
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHash64;
 import net.jpountz.xxhash.XXHashFactory;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Created by dominictootell on 04/05/2014.
  */
 public class XXHashKeyHashing implements KeyHashing {
 
-    private final XXHashFactory factory;
+    private final XXHash32 hash32;
+    private final XXHash64 hash64;
     private final boolean use64BitHashing;
 
     public XXHashKeyHashing(boolean allowNative) {
-         this(true,false);
+         this(allowNative,false);
     }
 
     public XXHashKeyHashing(boolean allowNative, boolean use64BitHashing) {
+        XXHashFactory factory;
         if(allowNative) {
             factory = XXHashFactory.fastestInstance();
         } else {
             factory = XXHashFactory.fastestJavaInstance();
         }
+        hash32 = factory.hash32();
+        hash64 = factory.hash64();
 
         this.use64BitHashing = use64BitHashing;
     }
 
     @Override
     public String hash(String key) {
-        byte[] bytes;
-        try {
-            bytes = key.getBytes("UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            bytes = key.getBytes();
-        }
+        return hash(null, key, null);
+    }
 
-        return hash(bytes,0,bytes.length);
+    @Override
+    public String hash(String prefix, String key) {
+        return hash(prefix, key, null);
     }
 
     @Override
-    public String hash(byte[] bytes, int offset, int length) {
+    public String prependToHash(String prefix, String key) {
+        return hash(null, key, prefix);
+    }
+
+    /**
+     * The key (after the hashed prefix) is encoded into the thread's buffer, and the hash is formatted after
+     * the prepended prefix into the thread's char buffer; only the resulting String is allocated.
+     */
+    private String hash(String hashedPrefix, String key, String prependedPrefix) {
+        KeyHashingBuffers buffers = KeyHashingBuffers.get();
+        int length = buffers.encodeUtf8(hashedPrefix, key);
+        return buffers.toDecimalString(prependedPrefix, hashValue(buffers.bytes(), 0, length));
+    }
+
+    /**
+     * The prefix is encoded once, and copied into the thread's buffer ahead of each key.  The streaming xxhash
+     * cannot be reset to its state after the prefix, so the prefix and key are hashed together in one shot; which
+     * gives the same hash as {@link #hash(String, String)}.
+     */
+    @Override
+    public PrefixedKeyHashing withHashedPrefix(String prefix) {
+        final byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return key -> {
+            KeyHashingBuffers buffers = KeyHashingBuffers.get();
+            int length = buffers.encodeUtf8AfterPrefix(prefixBytes, key);
+            return buffers.toDecimalString(null, hashValue(buffers.bytes(), 0, length));
+        };
+    }
+
+    private long hashValue(byte[] bytes, int offset, int length) {
         if(use64BitHashing) {
-            return Long.toString(factory.hash64().hash(bytes, offset, length, 0));
+            return hash64.hash(bytes, offset, length, 0);
         } else {
-            return Integer.toString(factory.hash32().hash(bytes, offset, length, 0));
+            return hash32.hash(bytes, offset, length, 0);
         }
     }
+
+    @Override
+    public String hash(byte[] bytes, int offset, int length) {
+        return Long.toString(hashValue(bytes, offset, length));
+    }
 }
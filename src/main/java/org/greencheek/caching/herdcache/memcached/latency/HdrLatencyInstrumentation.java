@@ -0,0 +1,260 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the latencies into HdrHistogram {@link Recorder}s, one per series (i.e. the gets sent to a memcached node).
+ * Recording a latency is wait free, and does not allocate once the series exists.  At the end of each snapshot
+ * interval the histogram of the interval is taken from each recorder, from which the percentiles of the series are
+ * calculated.  The percentiles of the most recent interval are available from {@link #getLatencySnapshots()},
+ * as gauges registered with the {@link MetricRecorder}, and optionally over JMX.
+ */
+public class HdrLatencyInstrumentation implements LatencyInstrumentation, LatencyInstrumentationMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(HdrLatencyInstrumentation.class);
+
+    // 2 significant digits, the percentiles are within 1% of the recorded values.
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final String UNKNOWN_NODE = "unknown";
+    private static final String JMX_DOMAIN = "org.greencheek.caching.herdcache";
+    private static final LatencySnapshot NO_SNAPSHOT = new LatencySnapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private static class Series {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        // only accessed by the snapshot thread
+        private Histogram intervalHistogram;
+        private volatile LatencySnapshot snapshot;
+
+        private void record(long nanos) {
+            recorder.recordValue(Math.max(0, nanos));
+        }
+
+        private void snapshot() {
+            intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+            snapshot = LatencySnapshot.from(intervalHistogram);
+        }
+    }
+
+    // the node of a recently recorded key, so that the get and set of a key (and the gets of a hot key) locate
+    // the key on the ring once.  Cleared at each snapshot, so that a change of the ring is observed.
+    private static final int NODE_CACHE_SIZE = 1024;
+
+    private static final class KeyNode {
+        private final ReferencedClient client;
+        private final String key;
+        private final SocketAddress node;
+
+        private KeyNode(ReferencedClient client, String key, SocketAddress node) {
+            this.client = client;
+            this.key = key;
+            this.node = node;
+        }
+    }
+
+    private final MetricRecorder metricRecorder;
+    private final AtomicReferenceArray<KeyNode> nodeCache = new AtomicReferenceArray<>(NODE_CACHE_SIZE);
+    private final ConcurrentHashMap<String,Series> series = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<SocketAddress,Series> getsByNode = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<SocketAddress,Series> setsByNode = new ConcurrentHashMap<>();
+    private final Series unknownNodeGets;
+    private final Series unknownNodeSets;
+    private final Series supplier;
+    private final Series decode;
+    private final Series queueWait;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ObjectName jmxName;
+
+    /**
+     * @param snapshotInterval The interval at which the percentiles are calculated
+     * @param metricRecorder The recorder with which the gauges of each series are registered
+     * @param jmxName The name under which the snapshots are registered in the platform MBean server, or null for
+     *                the snapshots not to be registered
+     */
+    public HdrLatencyInstrumentation(Duration snapshotInterval, MetricRecorder metricRecorder, String jmxName) {
+        this.metricRecorder = metricRecorder;
+        unknownNodeGets = createSeries(CacheMetricStrings.CACHE_TYPE_LATENCY_MEMCACHED_GET + "_" + UNKNOWN_NODE);
+        unknownNodeSets = createSeries(CacheMetricStrings.CACHE_TYPE_LATENCY_MEMCACHED_SET + "_" + UNKNOWN_NODE);
+        supplier = createSeries(CacheMetricStrings.CACHE_TYPE_LATENCY_SUPPLIER);
+        decode = createSeries(CacheMetricStrings.CACHE_TYPE_LATENCY_DECODE);
+        queueWait = createSeries(CacheMetricStrings.CACHE_TYPE_LATENCY_QUEUE_WAIT);
+
+        long intervalMillis = Math.max(1, snapshotInterval.toMillis());
+        scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "herdcache-latency-snapshot");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.scheduleAtFixedRate(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        this.jmxName = registerMBean(jmxName);
+    }
+
+    private ObjectName registerMBean(String name) {
+        if(name==null) {
+            return null;
+        }
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=LatencyInstrumentation,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (Exception e) {
+            logger.warn("Unable to register latency instrumentation with JMX under name {}: {}", name, e.toString());
+            return null;
+        }
+    }
+
+    private Series createSeries(String name) {
+        Series created = new Series();
+        Series existing = series.putIfAbsent(name, created);
+        if(existing!=null) {
+            return existing;
+        }
+        metricRecorder.registerGauge(name + "_count", () -> snapshotOf(created).getCount());
+        metricRecorder.registerGauge(name + "_p50", () -> snapshotOf(created).getP50Nanos());
+        metricRecorder.registerGauge(name + "_p90", () -> snapshotOf(created).getP90Nanos());
+        metricRecorder.registerGauge(name + "_p99", () -> snapshotOf(created).getP99Nanos());
+        metricRecorder.registerGauge(name + "_p999", () -> snapshotOf(created).getP999Nanos());
+        metricRecorder.registerGauge(name + "_max", () -> snapshotOf(created).getMaxNanos());
+        return created;
+    }
+
+    private static LatencySnapshot snapshotOf(Series series) {
+        LatencySnapshot snapshot = series.snapshot;
+        return snapshot == null ? NO_SNAPSHOT : snapshot;
+    }
+
+    private static String nodeName(SocketAddress node) {
+        if(node instanceof InetSocketAddress) {
+            InetSocketAddress address = (InetSocketAddress) node;
+            return address.getHostString() + "_" + address.getPort();
+        }
+        return node.toString();
+    }
+
+    private Series getNodeSeries(ConcurrentHashMap<SocketAddress,Series> byNode, String seriesName, Series unknownNode,
+                                 ReferencedClient client, String key) {
+        SocketAddress node = getNode(client, key);
+        if(node==null) {
+            return unknownNode;
+        }
+
+        Series nodeSeries = byNode.get(node);
+        if(nodeSeries==null) {
+            nodeSeries = createSeries(seriesName + "_" + nodeName(node));
+            Series existing = byNode.putIfAbsent(node, nodeSeries);
+            if(existing!=null) {
+                nodeSeries = existing;
+            }
+        }
+        return nodeSeries;
+    }
+
+    private SocketAddress getNode(ReferencedClient client, String key) {
+        int hash = key.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (NODE_CACHE_SIZE - 1);
+        KeyNode cached = nodeCache.get(index);
+        if(cached!=null && cached.client==client && cached.key.equals(key)) {
+            return cached.node;
+        }
+
+        SocketAddress node;
+        try {
+            node = client.getPrimaryNodeAddress(key);
+        } catch (Exception e) {
+            return null;
+        }
+        if(node!=null) {
+            nodeCache.lazySet(index, new KeyNode(client, key, node));
+        }
+        return node;
+    }
+
+    @Override
+    public void recordGet(ReferencedClient client, String key, long nanos) {
+        getNodeSeries(getsByNode, CacheMetricStrings.CACHE_TYPE_LATENCY_MEMCACHED_GET, unknownNodeGets, client, key)
+                .record(nanos);
+    }
+
+    @Override
+    public void recordSet(ReferencedClient client, String key, long nanos) {
+        getNodeSeries(setsByNode, CacheMetricStrings.CACHE_TYPE_LATENCY_MEMCACHED_SET, unknownNodeSets, client, key)
+                .record(nanos);
+    }
+
+    @Override
+    public void recordSupplier(long nanos) {
+        supplier.record(nanos);
+    }
+
+    @Override
+    public void recordDecode(long nanos) {
+        decode.record(nanos);
+    }
+
+    @Override
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * Takes the histogram of the interval that has just ended from each series
+     */
+    void snapshot() {
+        try {
+            for(Series s : series.values()) {
+                s.snapshot();
+            }
+            for(int i=0;i<NODE_CACHE_SIZE;i++) {
+                nodeCache.lazySet(i, null);
+            }
+        } catch (Throwable t) {
+            logger.warn("Exception taking latency snapshot", t);
+        }
+    }
+
+    @Override
+    public Map<String,LatencySnapshot> getLatencySnapshots() {
+        Map<String,LatencySnapshot> snapshots = new TreeMap<>();
+        for(Map.Entry<String,Series> entry : series.entrySet()) {
+            LatencySnapshot snapshot = entry.getValue().snapshot;
+            if(snapshot!=null) {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if(jmxName!=null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+            } catch (Exception e) {
+                logger.debug("Unable to unregister latency instrumentation from JMX", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+
+import java.util.Map;
+
+/**
+ * Records the latency of the memcached gets and sets, by the memcached node they are sent to; along with
+ * the time spent executing the Supplier, decoding values obtained from memcached, and the time the
+ * Supplier waits in the executor's queue before it is run.
+ */
+public interface LatencyInstrumentation {
+
+    /**
+     * @param client The client the get was performed with, from which the node the key resides on is determined
+     * @param key The hashed key
+     * @param nanos The time taken by the get
+     */
+    void recordGet(ReferencedClient client, String key, long nanos);
+
+    /**
+     * @param client The client the set was performed with, from which the node the key resides on is determined
+     * @param key The hashed key
+     * @param nanos The time taken by the set
+     */
+    void recordSet(ReferencedClient client, String key, long nanos);
+
+    void recordSupplier(long nanos);
+
+    void recordDecode(long nanos);
+
+    void recordQueueWait(long nanos);
+
+    /**
+     * @return The latencies recorded in the most recently completed snapshot interval, by series name.
+     * Empty if latency instrumentation is not enabled.
+     */
+    Map<String,LatencySnapshot> getLatencySnapshots();
+
+    void shutdown();
+}
@@ -0,0 +1,20 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+
+/**
+ * Creates the {@link LatencyInstrumentation} as specified by the cache config, registering the
+ * latency gauges with the config's metric recorder
+ */
+public class LatencyInstrumentationFactory {
+
+    public static LatencyInstrumentation create(MemcachedCacheConfig config) {
+        if(config.isUseLatencyInstrumentation()) {
+            return new HdrLatencyInstrumentation(config.getLatencySnapshotInterval(),
+                    config.getMetricsRecorder(),
+                    config.getLatencyJmxName());
+        } else {
+            return new NoOpLatencyInstrumentation();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import java.util.Map;
+
+/**
+ * Exposes the latency snapshots over JMX
+ */
+public interface LatencyInstrumentationMXBean {
+
+    /**
+     * @return The latencies recorded in the most recently completed snapshot interval, by series name
+     */
+    Map<String,LatencySnapshot> getLatencySnapshots();
+}
@@ -0,0 +1,97 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latencies recorded, for one series, over a snapshot interval.  All latencies are in nanoseconds.
+ */
+public class LatencySnapshot {
+    private final long intervalStartMillis;
+    private final long intervalEndMillis;
+    private final long count;
+    private final long minNanos;
+    private final long maxNanos;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+
+    public LatencySnapshot(long intervalStartMillis, long intervalEndMillis, long count, long minNanos, long maxNanos,
+                           double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos) {
+        this.intervalStartMillis = intervalStartMillis;
+        this.intervalEndMillis = intervalEndMillis;
+        this.count = count;
+        this.minNanos = minNanos;
+        this.maxNanos = maxNanos;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+    }
+
+    static LatencySnapshot from(Histogram interval) {
+        if(interval.getTotalCount()==0) {
+            return new LatencySnapshot(interval.getStartTimeStamp(), interval.getEndTimeStamp(),
+                    0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new LatencySnapshot(interval.getStartTimeStamp(), interval.getEndTimeStamp(),
+                interval.getTotalCount(),
+                interval.getMinValue(),
+                interval.getMaxValue(),
+                interval.getMean(),
+                interval.getValueAtPercentile(50.0),
+                interval.getValueAtPercentile(90.0),
+                interval.getValueAtPercentile(99.0),
+                interval.getValueAtPercentile(99.9));
+    }
+
+    public long getIntervalStartMillis() {
+        return intervalStartMillis;
+    }
+
+    public long getIntervalEndMillis() {
+        return intervalEndMillis;
+    }
+
+    /**
+     * @return The number of latencies recorded in the interval
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getMinNanos() {
+        return minNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public String toString() {
+        return "count=" + count + ", p50=" + p50Nanos + "ns, p99=" + p99Nanos + "ns, p99.9=" + p999Nanos +
+                "ns, max=" + maxNanos + "ns";
+    }
+}
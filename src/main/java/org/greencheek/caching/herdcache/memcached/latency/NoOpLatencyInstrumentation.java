@@ -0,0 +1,46 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Does nothing.  Used when latency instrumentation is not enabled.
+ */
+public class NoOpLatencyInstrumentation implements LatencyInstrumentation {
+    @Override
+    public void recordGet(ReferencedClient client, String key, long nanos) {
+
+    }
+
+    @Override
+    public void recordSet(ReferencedClient client, String key, long nanos) {
+
+    }
+
+    @Override
+    public void recordSupplier(long nanos) {
+
+    }
+
+    @Override
+    public void recordDecode(long nanos) {
+
+    }
+
+    @Override
+    public void recordQueueWait(long nanos) {
+
+    }
+
+    @Override
+    public Map<String, LatencySnapshot> getLatencySnapshots() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void shutdown() {
+
+    }
+}
@@ -1,7 +1,12 @@
 package org.greencheek.caching.herdcache.memcached.metrics;
 
+import java.util.function.LongSupplier;
+
 /**
- *
+ * Records the metrics of a cache.  The metric names passed are the constants of
+ * {@link org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings} (listed in
+ * {@link org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings#METRIC_NAMES}), so an implementation
+ * can resolve the metrics for each name up front, rather than on every call from the cache.
  */
 public interface MetricRecorder {
     public void cacheHit(String metricName);
@@ -9,4 +14,11 @@ public interface MetricRecorder {
     public void incrementCounter(String metricName);
     public void setDuration(String metricName,long nanos);
     public void updateHistogram(String metricName,long update);
+
+    /**
+     * Registers a gauge, the value of which is obtained from the given supplier when the gauge is read.
+     * Recorders that do not support gauges ignore the registration.
+     */
+    public default void registerGauge(String metricName,LongSupplier value) {
+    }
 }
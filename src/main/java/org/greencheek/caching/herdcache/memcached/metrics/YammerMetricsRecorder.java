@@ -1,16 +1,31 @@
 package org.greencheek.caching.herdcache.memcached.metrics;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
- * uses https://dropwizard.github.io/metrics to record metrics
+ * uses https://dropwizard.github.io/metrics to record metrics.
+ *
+ * The Counter, Meter and Timer for a metric name are held by the recorder once they have been obtained from the
+ * registry, so recording a metric only updates the metric itself, there is no name concatenation or registry
+ * lookup.  As a consequence, a metric that is removed from the registry after it has been recorded continues
+ * to be updated by the recorder, rather than being re-registered.
  */
 public class YammerMetricsRecorder implements MetricRecorder {
     private final MetricRegistry registry;
     private final String prefix;
     private final boolean hasPrefix;
+    private final ConcurrentMap<String,Metrics> metrics = new ConcurrentHashMap<>();
 
     public YammerMetricsRecorder(MetricRegistry registry) {
         this(registry,null);
@@ -24,42 +39,146 @@ public class YammerMetricsRecorder implements MetricRecorder {
         } else {
             hasPrefix = true;
         }
+
+        for(String metricName : CacheMetricStrings.METRIC_NAMES) {
+            metrics.put(metricName, new Metrics(registry, getMetricName(metricName)));
+        }
     }
 
     private String getMetricName(String metricName) {
         return hasPrefix ? prefix + metricName : metricName;
     }
 
+    /**
+     * The metrics recorded for the given name.  The metrics for each of the {@link CacheMetricStrings} names
+     * are created on construction of the recorder; any other name on its first use.
+     */
+    private Metrics getMetrics(String metricName) {
+        Metrics resolved = metrics.get(metricName);
+        if(resolved==null) {
+            resolved = new Metrics(registry, getMetricName(metricName));
+            Metrics existing = metrics.putIfAbsent(metricName, resolved);
+            if(existing!=null) {
+                resolved = existing;
+            }
+        }
+        return resolved;
+    }
+
 
     @Override
     public void cacheHit(String metricName) {
-        metricName = getMetricName(metricName);
-        registry.counter(metricName+"_hitcount").inc();
-        registry.meter(metricName+"_hitrate").mark();
+        Metrics resolved = getMetrics(metricName);
+        resolved.hitCount().inc();
+        resolved.hitRate().mark();
     }
 
     @Override
     public void cacheMiss(String metricName) {
-        metricName = getMetricName(metricName);
-        registry.counter(metricName+"_misscount").inc();
-        registry.meter(metricName+"_missrate").mark();
+        Metrics resolved = getMetrics(metricName);
+        resolved.missCount().inc();
+        resolved.missRate().mark();
     }
 
     @Override
     public void incrementCounter(String metricName) {
-        metricName = getMetricName(metricName);
-        registry.counter(metricName+"_count").inc();
+        getMetrics(metricName).count().inc();
     }
 
     @Override
     public void setDuration(String metricName, long nanos) {
-        metricName = getMetricName(metricName);
-        registry.timer(metricName+"_timer").update(nanos, TimeUnit.NANOSECONDS);
+        getMetrics(metricName).timer().update(nanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void updateHistogram(String metricName, long update) {
+        getMetrics(metricName).histogram().update(update);
+    }
+
+    /**
+     * Registers the gauge, replacing any gauge previously registered under the same name
+     * (i.e. by a cache that has been replaced)
+     */
+    @Override
+    public void registerGauge(String metricName, LongSupplier value) {
         metricName = getMetricName(metricName);
-        registry.histogram(metricName).update(update);
+        registry.remove(metricName);
+        try {
+            registry.register(metricName, (Gauge<Long>) value::getAsLong);
+        } catch (IllegalArgumentException e) {
+            // registered concurrently by another cache
+        }
+    }
+
+    /**
+     * The Counter, Meter, Timer and Histogram handles for a metric name.  Each handle is obtained from
+     * the registry when it is first updated (so that only the metrics that are recorded appear in the registry),
+     * and then held; subsequent updates do not perform a registry lookup.
+     */
+    private static final class Metrics {
+        private final MetricRegistry registry;
+        private final String hitCountName;
+        private final String hitRateName;
+        private final String missCountName;
+        private final String missRateName;
+        private final String countName;
+        private final String timerName;
+        private final String histogramName;
+
+        private volatile Counter hitCount;
+        private volatile Meter hitRate;
+        private volatile Counter missCount;
+        private volatile Meter missRate;
+        private volatile Counter count;
+        private volatile Timer timer;
+        private volatile Histogram histogram;
+
+        private Metrics(MetricRegistry registry, String metricName) {
+            this.registry = registry;
+            hitCountName = metricName + "_hitcount";
+            hitRateName = metricName + "_hitrate";
+            missCountName = metricName + "_misscount";
+            missRateName = metricName + "_missrate";
+            countName = metricName + "_count";
+            timerName = metricName + "_timer";
+            histogramName = metricName;
+        }
+
+        // the registry returns the same metric for a name, so concurrent first updates resolve the same handle
+
+        private Counter hitCount() {
+            Counter resolved = hitCount;
+            return resolved == null ? (hitCount = registry.counter(hitCountName)) : resolved;
+        }
+
+        private Meter hitRate() {
+            Meter resolved = hitRate;
+            return resolved == null ? (hitRate = registry.meter(hitRateName)) : resolved;
+        }
+
+        private Counter missCount() {
+            Counter resolved = missCount;
+            return resolved == null ? (missCount = registry.counter(missCountName)) : resolved;
+        }
+
+        private Meter missRate() {
+            Meter resolved = missRate;
+            return resolved == null ? (missRate = registry.meter(missRateName)) : resolved;
+        }
+
+        private Counter count() {
+            Counter resolved = count;
+            return resolved == null ? (count = registry.counter(countName)) : resolved;
+        }
+
+        private Timer timer() {
+            Timer resolved = timer;
+            return resolved == null ? (timer = registry.timer(timerName)) : resolved;
+        }
+
+        private Histogram histogram() {
+            Histogram resolved = histogram;
+            return resolved == null ? (histogram = registry.histogram(histogramName)) : resolved;
+        }
     }
 }
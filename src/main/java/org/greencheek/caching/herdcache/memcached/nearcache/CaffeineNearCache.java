@@ -0,0 +1,65 @@
+package org.greencheek.caching.herdcache.memcached.nearcache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NearCache} backed by a size bounded caffeine cache.
+ */
+public class CaffeineNearCache<V> implements NearCache<V> {
+
+    private final Cache<String,NearCacheEntry<V>> cache;
+    private final long timeToLiveNanos;
+    private final long maxStalenessNanos;
+
+    /**
+     * @param maxCapacity The max number of entries held
+     * @param timeToLive The amount of time an entry is served before a refresh from memcached is required
+     * @param maxStaleness The additional amount of time, after the time to live, an entry can be served
+     *                     whilst it is refreshed from memcached
+     */
+    public CaffeineNearCache(int maxCapacity, Duration timeToLive, Duration maxStaleness) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.maxStalenessNanos = Math.max(0,maxStaleness.toNanos());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxCapacity)
+                .expireAfterWrite(timeToLiveNanos + maxStalenessNanos, TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    @Override
+    public NearCacheEntry<V> get(String key) {
+        NearCacheEntry<V> entry = cache.getIfPresent(key);
+        if(entry!=null && entry.isExpired(System.nanoTime())) {
+            cache.asMap().remove(key,entry);
+            return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public void put(String key, V value, Duration timeToLive) {
+        long now = System.nanoTime();
+        long staleIn = timeToLiveNanos;
+        long expiresIn = timeToLiveNanos + maxStalenessNanos;
+        long itemTimeToLive = timeToLive.toNanos();
+        if(itemTimeToLive>0) {
+            staleIn = Math.min(staleIn,itemTimeToLive);
+            expiresIn = Math.min(expiresIn,itemTimeToLive);
+        }
+        cache.put(key,new NearCacheEntry<>(value,now+staleIn,now+expiresIn));
+    }
+
+    @Override
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
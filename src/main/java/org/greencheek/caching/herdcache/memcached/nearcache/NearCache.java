@@ -0,0 +1,31 @@
+package org.greencheek.caching.herdcache.memcached.nearcache;
+
+import java.time.Duration;
+
+/**
+ * An in process cache of deserialized values, that sits in front of memcached.
+ * Entries are held for at most the configured time to live, after which they
+ * can be served for a bounded period of staleness whilst they are refreshed from memcached.
+ */
+public interface NearCache<V> {
+
+    /**
+     * @param key The hashed cache key
+     * @return The entry for the given key, or null if there is no entry, or the entry has expired
+     */
+    NearCacheEntry<V> get(String key);
+
+    /**
+     * Stores the value in the near cache.
+     *
+     * @param key The hashed cache key
+     * @param value The value
+     * @param timeToLive The time to live of the item in memcached, the near cache entry will not outlive
+     *                   this duration.  {@link java.time.Duration#ZERO} if the item's expiry is not known, or the item does not expire
+     */
+    void put(String key, V value, Duration timeToLive);
+
+    void invalidate(String key);
+
+    void invalidateAll();
+}
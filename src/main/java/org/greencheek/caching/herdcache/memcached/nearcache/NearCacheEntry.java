@@ -0,0 +1,53 @@
+package org.greencheek.caching.herdcache.memcached.nearcache;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.greencheek.caching.herdcache.util.futures.CompletableSettableFuture;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A value held in the {@link NearCache}, along with the times at which the
+ * value becomes stale, and at which it can no longer be served.
+ */
+public class NearCacheEntry<V> {
+    private final V value;
+    private final ListenableFuture<V> completedFuture;
+    private final long staleAtNanos;
+    private final long expiresAtNanos;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    public NearCacheEntry(V value, long staleAtNanos, long expiresAtNanos) {
+        this.value = value;
+        this.completedFuture = CompletableSettableFuture.completed(value);
+        this.staleAtNanos = staleAtNanos;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * @return A future completed with the value, that is returned to every caller that hits the entry;
+     * rather than allocating a future per hit.
+     */
+    public ListenableFuture<V> getCompletedFuture() {
+        return completedFuture;
+    }
+
+    public boolean isStale(long nowNanos) {
+        return nowNanos - staleAtNanos >= 0;
+    }
+
+    public boolean isExpired(long nowNanos) {
+        return nowNanos - expiresAtNanos >= 0;
+    }
+
+    /**
+     * Returns true to only one caller, the first to find the entry stale.  That caller
+     * is responsible for refreshing the entry from memcached.
+     */
+    public boolean requiresRefresh() {
+        return isStale(System.nanoTime()) && refreshing.compareAndSet(false, true);
+    }
+}
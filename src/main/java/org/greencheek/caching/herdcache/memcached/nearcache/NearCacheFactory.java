@@ -0,0 +1,19 @@
+package org.greencheek.caching.herdcache.memcached.nearcache;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+
+/**
+ * Creates the {@link NearCache} as specified by the cache config
+ */
+public class NearCacheFactory {
+
+    public static <V> NearCache<V> create(MemcachedCacheConfig config) {
+        if(config.isUseNearCache() && config.getNearCacheMaxCapacity()>0) {
+            return new CaffeineNearCache<>(config.getNearCacheMaxCapacity(),
+                    config.getNearCacheTimeToLive(),
+                    config.getNearCacheMaxStaleness());
+        } else {
+            return new NoOpNearCache<>();
+        }
+    }
+}
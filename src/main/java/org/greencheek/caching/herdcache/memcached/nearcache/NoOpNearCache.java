@@ -0,0 +1,25 @@
+package org.greencheek.caching.herdcache.memcached.nearcache;
+
+import java.time.Duration;
+
+/**
+ * Used when the near cache is disabled
+ */
+public class NoOpNearCache<V> implements NearCache<V> {
+    @Override
+    public NearCacheEntry<V> get(String key) {
+        return null;
+    }
+
+    @Override
+    public void put(String key, V value, Duration timeToLive) {
+    }
+
+    @Override
+    public void invalidate(String key) {
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+}
@@ -1,12 +1,24 @@
 package org.greencheek.caching.herdcache.memcached.operations;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.greencheek.caching.herdcache.Cache;
 import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+import org.greencheek.caching.herdcache.memcached.latency.LatencyInstrumentation;
+import org.greencheek.caching.herdcache.memcached.latency.NoOpLatencyInstrumentation;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  */
@@ -14,6 +26,19 @@ public class BasicCacheRead<V> implements CacheRead<V> {
 
     private static Logger LOGGER = LoggerFactory.getLogger(CacheRead.class);
 
+    private final LatencyInstrumentation latencyInstrumentation;
+
+    public BasicCacheRead() {
+        this(new NoOpLatencyInstrumentation());
+    }
+
+    /**
+     * @param latencyInstrumentation records the latency of the single key gets, by the memcached node of the key
+     */
+    public BasicCacheRead(LatencyInstrumentation latencyInstrumentation) {
+        this.latencyInstrumentation = latencyInstrumentation;
+    }
+
     @Override
     public V getFromDistributedCache(ReferencedClient client,
                                      String key,
@@ -32,10 +57,140 @@ public class BasicCacheRead<V> implements CacheRead<V> {
         } catch(Throwable e) {
             LOGGER.warn("Exception thrown when communicating with memcached for get({}): {}", key, e.getMessage());
         } finally {
+            long duration = System.nanoTime()-nanos;
             metricRecorder.incrementCounter(cacheType);
-            metricRecorder.setDuration(cacheType,System.nanoTime()-nanos);
+            metricRecorder.setDuration(cacheType,duration);
+            latencyInstrumentation.recordGet(client, key, duration);
         }
 
         return serialisedObj;
     }
+
+    @Override
+    public ListenableFuture<V> getFromDistributedCacheAsync(ReferencedClient client,
+                                                            String key,
+                                                            long timeoutInMillis,
+                                                            String cacheType,
+                                                            MetricRecorder metricRecorder,
+                                                            ScheduledExecutorService timeoutScheduler) {
+        final long nanos = System.nanoTime();
+        final ListenableFuture<Object> lookup;
+        try {
+            lookup = Futures.withTimeout(client.asyncGet(key), timeoutInMillis, TimeUnit.MILLISECONDS, timeoutScheduler);
+        } catch(Throwable e) {
+            LOGGER.warn("Exception thrown when communicating with memcached for get({}): {}", key, e.getMessage());
+            recordRead(metricRecorder, cacheType, nanos);
+            return Futures.immediateFuture(null);
+        }
+
+        final SettableFuture<V> result = SettableFuture.create();
+        Futures.addCallback(lookup, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object value) {
+                V serialisedObj = (V) value;
+                if(serialisedObj==null){
+                    Cache.logCacheMiss(metricRecorder, key, cacheType);
+                } else {
+                    Cache.logCacheHit(metricRecorder, key, cacheType);
+                }
+                recordRead(metricRecorder, cacheType, nanos);
+                latencyInstrumentation.recordGet(client, key, System.nanoTime()-nanos);
+                result.set(serialisedObj);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                if(e instanceof TimeoutException) {
+                    LOGGER.warn("timeout when retrieving key {} from memcached", key);
+                } else {
+                    LOGGER.warn("Exception thrown when communicating with memcached for get({}): {}", key, e.getMessage());
+                }
+                recordRead(metricRecorder, cacheType, nanos);
+                latencyInstrumentation.recordGet(client, key, System.nanoTime()-nanos);
+                result.set(null);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+
+    @Override
+    public Map<String,V> getBulkFromDistributedCache(ReferencedClient client,
+                                                     Collection<String> keys,
+                                                     long timeoutInMillis,
+                                                     String cacheType,
+                                                     MetricRecorder metricRecorder) {
+        Map<String,V> found = Collections.emptyMap();
+        long nanos = System.nanoTime();
+        try {
+            found = (Map<String,V>) client.asyncGetBulk(keys).get(timeoutInMillis, TimeUnit.MILLISECONDS);
+            logBulkHitsAndMisses(metricRecorder, keys, found, cacheType);
+        } catch (TimeoutException e) {
+            LOGGER.warn("timeout when retrieving {} keys from memcached", keys.size());
+        } catch(Throwable e) {
+            LOGGER.warn("Exception thrown when communicating with memcached for getBulk({}): {}", keys, e.getMessage());
+        } finally {
+            recordRead(metricRecorder, cacheType, nanos);
+        }
+
+        return found;
+    }
+
+    @Override
+    public ListenableFuture<Map<String,V>> getBulkFromDistributedCacheAsync(ReferencedClient client,
+                                                                            Collection<String> keys,
+                                                                            long timeoutInMillis,
+                                                                            String cacheType,
+                                                                            MetricRecorder metricRecorder,
+                                                                            ScheduledExecutorService timeoutScheduler) {
+        final long nanos = System.nanoTime();
+        final ListenableFuture<Map<String,Object>> lookup;
+        try {
+            lookup = Futures.withTimeout(client.asyncGetBulk(keys), timeoutInMillis, TimeUnit.MILLISECONDS, timeoutScheduler);
+        } catch(Throwable e) {
+            LOGGER.warn("Exception thrown when communicating with memcached for getBulk({}): {}", keys, e.getMessage());
+            recordRead(metricRecorder, cacheType, nanos);
+            return Futures.immediateFuture(Collections.<String,V>emptyMap());
+        }
+
+        final SettableFuture<Map<String,V>> result = SettableFuture.create();
+        Futures.addCallback(lookup, new FutureCallback<Map<String,Object>>() {
+            @Override
+            public void onSuccess(Map<String,Object> values) {
+                Map<String,V> found = values == null ? Collections.<String,V>emptyMap() : (Map<String,V>) (Map) values;
+                logBulkHitsAndMisses(metricRecorder, keys, found, cacheType);
+                recordRead(metricRecorder, cacheType, nanos);
+                result.set(found);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                if(e instanceof TimeoutException) {
+                    LOGGER.warn("timeout when retrieving {} keys from memcached", keys.size());
+                } else {
+                    LOGGER.warn("Exception thrown when communicating with memcached for getBulk({}): {}", keys, e.getMessage());
+                }
+                recordRead(metricRecorder, cacheType, nanos);
+                result.set(Collections.<String,V>emptyMap());
+            }
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+
+    private static void logBulkHitsAndMisses(MetricRecorder metricRecorder, Collection<String> keys,
+                                             Map<String,?> found, String cacheType) {
+        for(String key : keys) {
+            if(found.get(key)==null) {
+                Cache.logCacheMiss(metricRecorder, key, cacheType);
+            } else {
+                Cache.logCacheHit(metricRecorder, key, cacheType);
+            }
+        }
+    }
+
+    private static void recordRead(MetricRecorder metricRecorder, String cacheType, long startNanos) {
+        metricRecorder.incrementCounter(cacheType);
+        metricRecorder.setDuration(cacheType,System.nanoTime()-startNanos);
+    }
 }
@@ -1,8 +1,13 @@
 package org.greencheek.caching.herdcache.memcached.operations;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
 
 /**
  * Performs the read from the distributed
@@ -14,4 +19,43 @@ public interface CacheRead<V> {
                                      long timeoutInMillis,
                                      String cacheType,
                                      MetricRecorder metricRecorder);
+
+    /**
+     * Performs the read from the distributed cache without blocking the calling thread.
+     * The returned future is completed with null if the item is not in the cache, the read
+     * fails, or the read does not complete within the given timeout.  The future is never
+     * completed exceptionally.
+     *
+     * @param timeoutScheduler The scheduler used to time out the read
+     */
+    public ListenableFuture<V> getFromDistributedCacheAsync(ReferencedClient client,
+                                                            String key,
+                                                            long timeoutInMillis,
+                                                            String cacheType,
+                                                            MetricRecorder metricRecorder,
+                                                            ScheduledExecutorService timeoutScheduler);
+
+    /**
+     * Performs a multi-get against the distributed cache, waiting up to the given timeout for the response.
+     * Keys that are not in the cache, or that could not be read, are absent from the returned map.
+     */
+    public Map<String,V> getBulkFromDistributedCache(ReferencedClient client,
+                                                     Collection<String> keys,
+                                                     long timeoutInMillis,
+                                                     String cacheType,
+                                                     MetricRecorder metricRecorder);
+
+    /**
+     * Performs a multi-get against the distributed cache without blocking the calling thread.
+     * As with {@link #getFromDistributedCacheAsync}, the returned future is never completed exceptionally;
+     * on failure or timeout it is completed with an empty map.
+     *
+     * @param timeoutScheduler The scheduler used to time out the read
+     */
+    public ListenableFuture<Map<String,V>> getBulkFromDistributedCacheAsync(ReferencedClient client,
+                                                                            Collection<String> keys,
+                                                                            long timeoutInMillis,
+                                                                            String cacheType,
+                                                                            MetricRecorder metricRecorder,
+                                                                            ScheduledExecutorService timeoutScheduler);
 }
@@ -2,6 +2,8 @@ package org.greencheek.caching.herdcache.memcached.operations;
 
 import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
 
+import java.util.Map;
+
 /**
  *
  */
@@ -11,4 +13,15 @@ public interface CacheWrite {
                                          Object valueToCache,
                                          int entryTTLInSeconds);
 
+    /**
+     * Writes a number of items to memcached.  The sets are issued one after the other, without
+     * waiting for the previous set to complete; so that they are pipelined on the connections to memcached.
+     */
+    default void writeAllToDistributedCache(ReferencedClient client,
+                                            Map<String,Object> valuesToCache,
+                                            int entryTTLInSeconds) {
+        for(Map.Entry<String,Object> entry : valuesToCache.entrySet()) {
+            writeToDistributedCache(client, entry.getKey(), entry.getValue(), entryTTLInSeconds);
+        }
+    }
 }
@@ -1,13 +1,18 @@
 package org.greencheek.caching.herdcache.memcached.operations;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.internal.OperationCompletionListener;
+import net.spy.memcached.internal.OperationFuture;
 import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+import org.greencheek.caching.herdcache.memcached.latency.LatencyInstrumentation;
+import org.greencheek.caching.herdcache.memcached.latency.NoOpLatencyInstrumentation;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
 import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -15,9 +20,23 @@ public class NoWaitForCacheWrite implements CacheWrite {
     private static Logger LOGGER = LoggerFactory.getLogger(CacheWrite.class);
 
     private final MetricRecorder metricRecorder;
+    private final LatencyInstrumentation latencyInstrumentation;
+    private final boolean recordSetLatency;
 
     public NoWaitForCacheWrite(MetricRecorder metricRecorder) {
+        this(metricRecorder, new NoOpLatencyInstrumentation());
+    }
+
+    /**
+     * @param latencyInstrumentation records the latency of the sets, by the memcached node of the key, when the
+     *                               set completes.  The set is not waited for; a listener is added to the future
+     *                               of the spy and folsom clients.
+     */
+    public NoWaitForCacheWrite(MetricRecorder metricRecorder,
+                               LatencyInstrumentation latencyInstrumentation) {
         this.metricRecorder = metricRecorder;
+        this.latencyInstrumentation = latencyInstrumentation;
+        this.recordSetLatency = !(latencyInstrumentation instanceof NoOpLatencyInstrumentation);
     }
 
     @Override
@@ -28,9 +47,24 @@ public class NoWaitForCacheWrite implements CacheWrite {
     ) {
         try {
             metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE_WRITES_COUNTER);
-            client.set(key, entryTTLInSeconds, valueToCache);
+            long startNanos = System.nanoTime();
+            Future futureSet = client.set(key, entryTTLInSeconds, valueToCache);
+            if(recordSetLatency) {
+                recordSetOnCompletion(futureSet, client, key, startNanos);
+            }
         } catch (Throwable e) {
             LOGGER.warn("Exception performing memcached set for key {}",key, e);
         }
     }
+
+    private void recordSetOnCompletion(Future futureSet, ReferencedClient client, String key, long startNanos) {
+        if(futureSet instanceof OperationFuture) {
+            ((OperationFuture<?>) futureSet).addListener((OperationCompletionListener)
+                    completed -> latencyInstrumentation.recordSet(client, key, System.nanoTime() - startNanos));
+        } else if(futureSet instanceof ListenableFuture) {
+            ((ListenableFuture<?>) futureSet).addListener(
+                    () -> latencyInstrumentation.recordSet(client, key, System.nanoTime() - startNanos),
+                    MoreExecutors.directExecutor());
+        }
+    }
 }
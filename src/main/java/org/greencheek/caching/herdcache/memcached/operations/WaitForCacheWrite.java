@@ -1,11 +1,16 @@
 package org.greencheek.caching.herdcache.memcached.operations;
 
 import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+import org.greencheek.caching.herdcache.memcached.latency.LatencyInstrumentation;
+import org.greencheek.caching.herdcache.memcached.latency.NoOpLatencyInstrumentation;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
 import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -16,11 +21,23 @@ public class WaitForCacheWrite implements CacheWrite {
 
     private final MetricRecorder metricRecorder;
     private final long waitForSetDurationInMillis;
+    private final LatencyInstrumentation latencyInstrumentation;
 
     public WaitForCacheWrite(MetricRecorder metricRecorder,
                              long waitForSetDurationInMillis) {
+        this(metricRecorder, waitForSetDurationInMillis, new NoOpLatencyInstrumentation());
+    }
+
+    /**
+     * @param latencyInstrumentation records the latency of the sets that complete within the wait duration,
+     *                               by the memcached node of the key
+     */
+    public WaitForCacheWrite(MetricRecorder metricRecorder,
+                             long waitForSetDurationInMillis,
+                             LatencyInstrumentation latencyInstrumentation) {
         this.metricRecorder = metricRecorder;
         this.waitForSetDurationInMillis = waitForSetDurationInMillis;
+        this.latencyInstrumentation = latencyInstrumentation;
     }
 
     @Override
@@ -32,10 +49,12 @@ public class WaitForCacheWrite implements CacheWrite {
         try {
             metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE_WRITES_COUNTER);
 
+            long startNanos = System.nanoTime();
             Future futureSet = client.set(key, entryTTLInSeconds, valueToCache);
 
             try {
                 futureSet.get(waitForSetDurationInMillis, TimeUnit.MILLISECONDS);
+                latencyInstrumentation.recordSet(client, key, System.nanoTime() - startNanos);
             } catch (Throwable e) {
                 LOGGER.warn("Exception waiting for memcached set to occur for key {}", key, e);
             }
@@ -44,4 +63,37 @@ public class WaitForCacheWrite implements CacheWrite {
             LOGGER.warn("Exception performing memcached set for key {}",key, e);
         }
     }
+
+    /**
+     * Issues all the sets before waiting for any of them, so that the wait for the batch is that
+     * of the slowest set, rather than the sum of them.
+     */
+    @Override
+    public void writeAllToDistributedCache(ReferencedClient client,
+                                           Map<String,Object> valuesToCache,
+                                           int entryTTLInSeconds) {
+        List<String> keys = new ArrayList<>(valuesToCache.size());
+        List<Future> futureSets = new ArrayList<>(valuesToCache.size());
+        long startNanos = System.nanoTime();
+        for(Map.Entry<String,Object> entry : valuesToCache.entrySet()) {
+            try {
+                metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE_WRITES_COUNTER);
+                futureSets.add(client.set(entry.getKey(), entryTTLInSeconds, entry.getValue()));
+                keys.add(entry.getKey());
+            } catch (Throwable e) {
+                LOGGER.warn("Exception performing memcached set for key {}",entry.getKey(), e);
+            }
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitForSetDurationInMillis);
+        for(int i=0;i<futureSets.size();i++) {
+            try {
+                futureSets.get(i).get(Math.max(0,deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                // the sets are pipelined, so each is timed from the issue of the batch
+                latencyInstrumentation.recordSet(client, keys.get(i), System.nanoTime() - startNanos);
+            } catch (Throwable e) {
+                LOGGER.warn("Exception waiting for memcached set to occur for key {}", keys.get(i), e);
+            }
+        }
+    }
 }
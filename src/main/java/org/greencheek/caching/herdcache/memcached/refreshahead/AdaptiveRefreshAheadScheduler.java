@@ -0,0 +1,149 @@
+package org.greencheek.caching.herdcache.memcached.refreshahead;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.CountMinSketch;
+import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Estimates the access frequency of each key with a count-min sketch, that is halved every minute.
+ * A key accessed at least minAccessesPerMinute times is hot.  The refresh of a hot key is scheduled for
+ * refreshAheadTime before its expiry (or twice the time the value took to compute, if greater).
+ *
+ * When the refresh is due, it is skipped if the key has since cooled down, or if the global budget of
+ * refreshes per second has been used.  Otherwise the recomputation is submitted to a dedicated, bounded,
+ * executor; so that refreshes never compete with the callers' executors.  A skipped key is rescheduled
+ * by its next access.
+ */
+public class AdaptiveRefreshAheadScheduler implements RefreshAheadScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveRefreshAheadScheduler.class);
+
+    // the number of counters per row of the sketch, per key that may have a refresh pending
+    private static final int SKETCH_WIDTH_PER_PENDING_REFRESH = 4;
+
+    private final CountMinSketch frequencies;
+    private final long minAccessesPerMinute;
+    private final long refreshAheadMillis;
+    private final RateLimiter refreshBudget;
+    private final int maxPendingRefreshes;
+    private final MetricRecorder metricRecorder;
+
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingRefreshes = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler;
+    private final ListeningExecutorService refreshExecutor;
+
+    public AdaptiveRefreshAheadScheduler(int minAccessesPerMinute, Duration refreshAheadTime,
+                                         double maxRefreshesPerSecond, int threads, int maxPendingRefreshes,
+                                         MetricRecorder metricRecorder) {
+        this.minAccessesPerMinute = Math.max(1,minAccessesPerMinute);
+        this.refreshAheadMillis = refreshAheadTime.toMillis();
+        this.refreshBudget = RateLimiter.create(maxRefreshesPerSecond);
+        this.maxPendingRefreshes = Math.max(1,maxPendingRefreshes);
+        this.metricRecorder = metricRecorder;
+        this.frequencies = new CountMinSketch(this.maxPendingRefreshes * SKETCH_WIDTH_PER_PENDING_REFRESH);
+
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreadFactory("herdcache-refresh-ahead-scheduler"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        scheduler.scheduleAtFixedRate(frequencies::halve, 1, 1, TimeUnit.MINUTES);
+        this.scheduler = scheduler;
+
+        int poolSize = Math.max(1,threads);
+        this.refreshExecutor = MoreExecutors.listeningDecorator(
+                new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(this.maxPendingRefreshes),
+                        daemonThreadFactory("herdcache-refresh-ahead")));
+    }
+
+    private static ThreadFactory daemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    @Override
+    public boolean recordAccess(String key) {
+        return frequencies.add(key.hashCode()) >= minAccessesPerMinute && !scheduled.contains(key);
+    }
+
+    @Override
+    public void scheduleRefresh(final String key, long expiresAtMillis, long computeTimeMillis,
+                                final Consumer<ListeningExecutorService> refresh) {
+        // reserve the pending refresh before the key is added, so concurrent callers cannot exceed the limit
+        if(pendingRefreshes.incrementAndGet() > maxPendingRefreshes) {
+            pendingRefreshes.decrementAndGet();
+            return;
+        }
+        if(!scheduled.add(key)) {
+            pendingRefreshes.decrementAndGet();
+            return;
+        }
+
+        long refreshAhead = Math.max(refreshAheadMillis, computeTimeMillis * 2);
+        long delay = Math.max(0, expiresAtMillis - refreshAhead - System.currentTimeMillis());
+        try {
+            scheduler.schedule(() -> refresh(key, refresh), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shutdown) {
+            unschedule(key);
+        }
+    }
+
+    private void unschedule(String key) {
+        scheduled.remove(key);
+        pendingRefreshes.decrementAndGet();
+    }
+
+    int getPendingRefreshes() {
+        return pendingRefreshes.get();
+    }
+
+    private void refresh(String key, Consumer<ListeningExecutorService> refresh) {
+        unschedule(key);
+
+        if(frequencies.estimate(key.hashCode()) < minAccessesPerMinute) {
+            // the key is no longer hot
+            return;
+        }
+
+        if(!refreshBudget.tryAcquire()) {
+            metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_REFRESH_AHEAD_BUDGET_EXCEEDED);
+            return;
+        }
+
+        metricRecorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_REFRESH_AHEAD);
+        try {
+            refresh.accept(refreshExecutor);
+        } catch (Throwable t) {
+            logger.warn("Unable to refresh ahead the value for key {}", key, t);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+}
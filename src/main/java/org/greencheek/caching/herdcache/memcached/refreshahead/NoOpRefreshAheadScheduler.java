@@ -0,0 +1,24 @@
+package org.greencheek.caching.herdcache.memcached.refreshahead;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.function.Consumer;
+
+/**
+ * Refresh ahead is disabled
+ */
+public class NoOpRefreshAheadScheduler implements RefreshAheadScheduler {
+    @Override
+    public boolean recordAccess(String key) {
+        return false;
+    }
+
+    @Override
+    public void scheduleRefresh(String key, long expiresAtMillis, long computeTimeMillis,
+                                Consumer<ListeningExecutorService> refresh) {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,31 @@
+package org.greencheek.caching.herdcache.memcached.refreshahead;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.function.Consumer;
+
+/**
+ * Recomputes the values of hot keys in the background, shortly before they expire; so that
+ * the requests for a hot key do not all miss at the point of expiry.
+ */
+public interface RefreshAheadScheduler {
+
+    /**
+     * Records an access of the (hashed) key.
+     *
+     * @return true if the key is hot, and does not currently have a refresh scheduled
+     */
+    boolean recordAccess(String key);
+
+    /**
+     * Schedules the refresh of the key ahead of its expiry, unless a refresh is already scheduled
+     *
+     * @param expiresAtMillis The logical expiry of the item (epoch millis)
+     * @param computeTimeMillis How long the current value took to compute
+     * @param refresh Submits the recomputation of the key to the given (refresh ahead) executor
+     */
+    void scheduleRefresh(String key, long expiresAtMillis, long computeTimeMillis,
+                         Consumer<ListeningExecutorService> refresh);
+
+    void shutdown();
+}
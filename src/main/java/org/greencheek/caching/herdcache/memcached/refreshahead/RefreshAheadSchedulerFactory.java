@@ -0,0 +1,22 @@
+package org.greencheek.caching.herdcache.memcached.refreshahead;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+
+/**
+ * Creates the {@link RefreshAheadScheduler} as specified by the cache config
+ */
+public class RefreshAheadSchedulerFactory {
+
+    public static RefreshAheadScheduler create(MemcachedCacheConfig config) {
+        if(config.isUseRefreshAhead() && config.getRefreshAheadMaxRefreshesPerSecond()>0) {
+            return new AdaptiveRefreshAheadScheduler(config.getRefreshAheadMinAccessesPerMinute(),
+                    config.getRefreshAheadTime(),
+                    config.getRefreshAheadMaxRefreshesPerSecond(),
+                    config.getRefreshAheadThreads(),
+                    config.getRefreshAheadMaxPendingRefreshes(),
+                    config.getMetricsRecorder());
+        } else {
+            return new NoOpRefreshAheadScheduler();
+        }
+    }
+}
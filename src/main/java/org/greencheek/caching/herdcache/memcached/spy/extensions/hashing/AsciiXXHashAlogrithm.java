@@ -1,18 +1,20 @@
 package org.greencheek.caching.herdcache.memcached.spy.extensions.hashing;
 
+import net.jpountz.xxhash.XXHash32;
 import net.jpountz.xxhash.XXHashFactory;
 import net.spy.memcached.HashAlgorithm;
-import org.greencheek.caching.herdcache.memcached.util.AsciiStringToBytes;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingBuffers;
 
 /**
  * Created by dominictootell on 28/05/2014.
  */
 public class AsciiXXHashAlogrithm implements HashAlgorithm {
-    private static final XXHashFactory factory = XXHashFactory.fastestJavaInstance();
+    private static final XXHash32 HASH = XXHashFactory.fastestJavaInstance().hash32();
 
     @Override
     public long hash(String k) {
-        byte[] b = AsciiStringToBytes.getBytes(k);
-        return factory.hash32().hash(b,0,b.length,0) & 0xFFFFFFFFl;
+        KeyHashingBuffers buffers = KeyHashingBuffers.get();
+        int length = buffers.encodeAscii(k);
+        return HASH.hash(buffers.bytes(), 0, length, 0) & 0xFFFFFFFFl;
     }
 }
@@ -1,23 +1,20 @@
 package org.greencheek.caching.herdcache.memcached.spy.extensions.hashing;
 
+import net.jpountz.xxhash.XXHash32;
 import net.jpountz.xxhash.XXHashFactory;
 import net.spy.memcached.HashAlgorithm;
-
-import java.io.UnsupportedEncodingException;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingBuffers;
 
 /**
  * Created by dominictootell on 28/05/2014.
  */
 public class XXHashAlogrithm implements HashAlgorithm {
-    private static final XXHashFactory factory = XXHashFactory.fastestJavaInstance();
+    private static final XXHash32 HASH = XXHashFactory.fastestJavaInstance().hash32();
 
     @Override
     public long hash(String k) {
-        try {
-            byte[] b = k.getBytes("UTF-8");
-            return factory.hash32().hash(b, 0, b.length, 0) & 0xFFFFFFFFl;
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException("Hash function error", e);
-        }
+        KeyHashingBuffers buffers = KeyHashingBuffers.get();
+        int length = buffers.encodeUtf8(k);
+        return HASH.hash(buffers.bytes(), 0, length, 0) & 0xFFFFFFFFl;
     }
 }
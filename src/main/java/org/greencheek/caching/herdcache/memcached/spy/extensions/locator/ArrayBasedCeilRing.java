@@ -44,7 +44,6 @@ public class ArrayBasedCeilRing {
         for(Long position : sortedObjectNodePositions) {
             sortedNodePositions[i] = position;
             sortedNodes[i++] = nodes.get(position);
-            allNodes.add(nodes.get(position));
         }
 
         this.sortedNodePositions = sortedNodePositions;
@@ -92,6 +91,46 @@ public class ArrayBasedCeilRing {
         return sortedNodes[findCeilIndex(key)];
     }
 
+    /**
+     * Returns the nth distinct memcached node that is found walking the ring from the node closest to the given hashVal;
+     * where the 0th is the closest node itself.  If the ring has n or fewer distinct nodes, n wraps around the distinct
+     * nodes.  The ring is walked in place, so no objects are created.
+     *
+     * @param hashVal The value to find the closest item
+     * @param n the number of distinct nodes to skip
+     */
+    public MemcachedNode findDistinctNode(final long hashVal, final int n) {
+        final int start = findCeilIndex(hashVal);
+        final int distinctNodes = allNodes.size();
+        int remaining = distinctNodes > 0 ? n % distinctNodes : n;
+        int found = 0;
+        for(int offset=0;offset<=lastIndexPosition;offset++) {
+            MemcachedNode node = sortedNodes[ringIndex(start, offset)];
+            if(isFirstOccurrence(start, offset, node)) {
+                if(remaining-- == 0) {
+                    return node;
+                }
+                found++;
+            }
+        }
+        // fewer nodes are in the ring than are in the cluster
+        return findDistinctNode(hashVal, n % found);
+    }
+
+    private boolean isFirstOccurrence(final int start, final int offset, final MemcachedNode node) {
+        for(int i=0;i<offset;i++) {
+            if(sortedNodes[ringIndex(start, i)] == node) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int ringIndex(final int start, final int offset) {
+        int index = start + offset;
+        return index > lastIndexPosition ? index - lastIndexPosition - 1 : index;
+    }
+
     /**
      * Find the index in the array at which the first value greater than or equal
      * to the given hashVal is.   If hashVal is greater than the maximum value in the
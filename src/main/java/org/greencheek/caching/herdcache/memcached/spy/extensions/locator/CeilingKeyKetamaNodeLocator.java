@@ -4,6 +4,8 @@ import net.spy.memcached.*;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.util.DefaultKetamaNodeLocatorConfiguration;
 import net.spy.memcached.util.KetamaNodeLocatorConfiguration;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
+import org.greencheek.caching.herdcache.util.HotKeyReplicaKeyCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +25,8 @@ public class CeilingKeyKetamaNodeLocator extends SpyObject implements NodeLocato
     private final Map<InetSocketAddress, Integer> weights;
     private final boolean isWeightedKetama;
     private final KetamaNodeLocatorConfiguration config;
+    // when set, the ring position of a key is taken from the hash the key already is (see KeyHashRingPosition)
+    private final KeyHashingType keyHashType;
 
     /**
      * Create a new KetamaNodeLocator using specified nodes and the specifed hash
@@ -37,6 +41,23 @@ public class CeilingKeyKetamaNodeLocator extends SpyObject implements NodeLocato
         this(nodes, alg, KetamaNodeKeyFormatter.Format.SPYMEMCACHED, new HashMap<InetSocketAddress, Integer>());
     }
 
+    /**
+     * Create a new KetamaNodeLocator that takes the position of a key, that is the output of the given key hashing type,
+     * from the hash the key already is.  Keys that are not in the format of the key hashing type are hashed with the
+     * specified hash algorithm.
+     *
+     * @param nodes The List of nodes to use in the Ketama consistent hash
+     *          continuum
+     * @param alg The hash algorithm used to place the nodes, and to hash keys that are not the output of
+     *          the key hashing type
+     * @param keyHashType The hashing with which the keys have been created
+     */
+    public CeilingKeyKetamaNodeLocator(List<MemcachedNode> nodes, HashAlgorithm alg, KeyHashingType keyHashType) {
+        this(nodes, alg, new HashMap<InetSocketAddress, Integer>(),
+                new DefaultKetamaNodeLocatorConfiguration(new KetamaNodeKeyFormatter(KetamaNodeKeyFormatter.Format.SPYMEMCACHED)),
+                keyHashType);
+    }
+
     /**
      * Create a new KetamaNodeLocator with specific nodes, hash, node key format,
      * and weight
@@ -86,24 +107,34 @@ public class CeilingKeyKetamaNodeLocator extends SpyObject implements NodeLocato
     public CeilingKeyKetamaNodeLocator(List<MemcachedNode> nodes, HashAlgorithm alg,
                                        Map<InetSocketAddress, Integer> nodeWeights,
                                        KetamaNodeLocatorConfiguration configuration) {
+        this(nodes, alg, nodeWeights, configuration, null);
+    }
+
+    private CeilingKeyKetamaNodeLocator(List<MemcachedNode> nodes, HashAlgorithm alg,
+                                        Map<InetSocketAddress, Integer> nodeWeights,
+                                        KetamaNodeLocatorConfiguration configuration,
+                                        KeyHashingType keyHashType) {
         super();
         hashAlg = alg;
         config = configuration;
         weights = nodeWeights;
         isWeightedKetama = !weights.isEmpty();
+        this.keyHashType = KeyHashRingPosition.isSupported(keyHashType) ? keyHashType : null;
         setKetamaNodes(nodes);
     }
 
     private CeilingKeyKetamaNodeLocator(ArrayBasedCeilRing nodes,
                                         HashAlgorithm alg,
                                         Map<InetSocketAddress, Integer> nodeWeights,
-                                        KetamaNodeLocatorConfiguration conf) {
+                                        KetamaNodeLocatorConfiguration conf,
+                                        KeyHashingType keyHashType) {
         super();
         ketamaNodes = nodes;
         hashAlg = alg;
         config = conf;
         weights = nodeWeights;
         isWeightedKetama = !weights.isEmpty();
+        this.keyHashType = keyHashType;
     }
 
     public Collection<MemcachedNode> getAll() {
@@ -111,11 +142,40 @@ public class CeilingKeyKetamaNodeLocator extends SpyObject implements NodeLocato
     }
 
     public MemcachedNode getPrimary(final String k) {
-        MemcachedNode rv = getNodeForKey(hashAlg.hash(k));
+        MemcachedNode rv;
+        if(HotKeyReplicaKeyCreator.isReplicaKey(k)) {
+            int replica = HotKeyReplicaKeyCreator.getReplica(k);
+            rv = replica == 0 ? getNodeForKey(getPosition(k)) :
+                    getReplicaNode(HotKeyReplicaKeyCreator.getKey(k), replica);
+        } else {
+            rv = getNodeForKey(getPosition(k));
+        }
         assert rv != null : "Found no node for key " + k;
         return rv;
     }
 
+    private long getPosition(final String k) {
+        if(keyHashType != null) {
+            long position = KeyHashRingPosition.position(keyHashType, k);
+            if(position != KeyHashRingPosition.NO_POSITION) {
+                return position;
+            }
+        }
+        return hashAlg.hash(k);
+    }
+
+    /**
+     * Returns the node for the given replica of a hot key.  The replicas are placed on the distinct nodes
+     * that follow the node of the key on the ring (see {@link ArrayBasedCeilRing#findDistinctNode(long, int)}).
+     * If there are fewer distinct nodes than replicas, the replicas wrap around the nodes.
+     *
+     * @param key The key that is replicated
+     * @param replica The replica number (1 being the first replica)
+     */
+    MemcachedNode getReplicaNode(final String key, final int replica) {
+        return ketamaNodes.findDistinctNode(getPosition(key), replica);
+    }
+
     long getMaxKey() {
         return ketamaNodes.getMaxPosition();
     }
@@ -131,7 +191,7 @@ public class CeilingKeyKetamaNodeLocator extends SpyObject implements NodeLocato
     }
 
     public NodeLocator getReadonlyCopy() {
-        return new CeilingKeyKetamaNodeLocator(ketamaNodes.roClone(), hashAlg, weights, config);
+        return new CeilingKeyKetamaNodeLocator(ketamaNodes.roClone(), hashAlg, weights, config, keyHashType);
     }
 
 
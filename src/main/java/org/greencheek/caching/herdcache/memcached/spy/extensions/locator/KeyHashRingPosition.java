@@ -0,0 +1,120 @@
+package org.greencheek.caching.herdcache.memcached.spy.extensions.locator;
+
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingBuffers;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
+
+/**
+ * Obtains the position on the ketama ring of a key that is the output of a {@link KeyHashingType}, from the hash
+ * that the key already is, rather than hashing the key again.  The decimal keys of the XXHash types are parsed, and
+ * the lower 32 bits of the hash are the position.  The first 8 hex digits of the MD5 and SHA-256 keys are the position,
+ * as are the first 32 bits of the 7 bit packed digest of the binary keys.
+ *
+ * Keys that are not in the format of the hashing type (i.e. the stale, lease and prefixed keys) have no position.
+ */
+public final class KeyHashRingPosition {
+
+    public static final long NO_POSITION = -1;
+
+    // 20 chars is the length of -9223372036854775808
+    private static final int MAX_DECIMAL_LENGTH = 20;
+    private static final int POSITION_HEX_DIGITS = 8;
+    private static final int MD5_HEX_LENGTH = 32;
+    private static final int SHA256_HEX_LENGTH = 64;
+    private static final int MD5_BINARY_LENGTH = KeyHashingBuffers.sevenBitLength(16);
+    private static final int SHA256_BINARY_LENGTH = KeyHashingBuffers.sevenBitLength(32);
+    // 5 chars of 7 bits hold the first 32 bits
+    private static final int POSITION_SEVEN_BIT_CHARS = 5;
+
+    private KeyHashRingPosition() {
+    }
+
+    /**
+     * @return true if the keys of the given type carry a hash from which the ring position can be taken
+     */
+    public static boolean isSupported(KeyHashingType type) {
+        return type != null && type != KeyHashingType.NONE;
+    }
+
+    /**
+     * @return The ring position (an unsigned 32 bit value), or {@link #NO_POSITION} if the key is not in the format of
+     * the given hashing type
+     */
+    public static long position(KeyHashingType type, String key) {
+        switch (type) {
+            case NATIVE_XXHASH:
+            case NATIVE_XXHASH_64:
+            case JAVA_XXHASH:
+            case JAVA_XXHASH_64:
+                return decimalPosition(key);
+            case MD5_UPPER:
+            case MD5_LOWER:
+                return hexPosition(key, MD5_HEX_LENGTH);
+            case SHA256_UPPER:
+            case SHA256_LOWER:
+                return hexPosition(key, SHA256_HEX_LENGTH);
+            case MD5_BINARY:
+                return sevenBitPosition(key, MD5_BINARY_LENGTH);
+            case SHA256_BINARY:
+                return sevenBitPosition(key, SHA256_BINARY_LENGTH);
+            default:
+                return NO_POSITION;
+        }
+    }
+
+    private static long decimalPosition(String key) {
+        int length = key.length();
+        if(length == 0 || length > MAX_DECIMAL_LENGTH) {
+            return NO_POSITION;
+        }
+
+        int i = key.charAt(0) == '-' ? 1 : 0;
+        if(i == length) {
+            return NO_POSITION;
+        }
+
+        long value = 0;
+        for(;i<length;i++) {
+            char c = key.charAt(i);
+            if(c < '0' || c > '9') {
+                return NO_POSITION;
+            }
+            value = value * 10 + (c - '0');
+        }
+        if(key.charAt(0) == '-') {
+            value = -value;
+        }
+        return value & 0xFFFFFFFFL;
+    }
+
+    private static long hexPosition(String key, int hexLength) {
+        if(key.length() != hexLength) {
+            return NO_POSITION;
+        }
+
+        long value = 0;
+        for(int i=0;i<POSITION_HEX_DIGITS;i++) {
+            int digit = Character.digit(key.charAt(i), 16);
+            if(digit < 0) {
+                return NO_POSITION;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static long sevenBitPosition(String key, int length) {
+        if(key.length() != length) {
+            return NO_POSITION;
+        }
+
+        long value = 0;
+        for(int i=0;i<POSITION_SEVEN_BIT_CHARS;i++) {
+            char c = key.charAt(i);
+            if(c >= 0x80) {
+                return NO_POSITION;
+            }
+            value = (value << 7) | c;
+        }
+        return value >>> (POSITION_SEVEN_BIT_CHARS * 7 - 32);
+    }
+}
@@ -1,6 +1,7 @@
 package org.greencheek.caching.herdcache.memcached.spy.extensions.locator;
 
 import net.spy.memcached.*;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
 
 import java.util.List;
 
@@ -13,6 +14,14 @@ public interface LocatorFactory {
     public static LocatorFactory KETAMA = (nodes,algorithm) -> new KetamaNodeLocator(nodes,algorithm);
     public static LocatorFactory KETAMA_CEILING_ARRAY = (nodes,algorithm) -> new CeilingKeyKetamaNodeLocator(nodes,algorithm);
 
+    /**
+     * A {@link #KETAMA_CEILING_ARRAY} locator that takes the ring position of the keys created with the given key
+     * hashing type from the hash the key already is, rather than hashing the key again.
+     */
+    public static LocatorFactory keyHashKetamaCeilingArray(KeyHashingType keyHashType) {
+        return (nodes,algorithm) -> new CeilingKeyKetamaNodeLocator(nodes,algorithm,keyHashType);
+    }
+
 
     public NodeLocator createNodeLocator(List<MemcachedNode> nodes,HashAlgorithm algorithm);
 }
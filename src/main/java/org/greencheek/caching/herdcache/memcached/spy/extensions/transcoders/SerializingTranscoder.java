@@ -25,6 +25,7 @@ package org.greencheek.caching.herdcache.memcached.spy.extensions.transcoders;
 import net.spy.memcached.CachedData;
 import net.spy.memcached.transcoders.Transcoder;
 import net.spy.memcached.transcoders.TranscoderUtils;
+import org.greencheek.caching.herdcache.memcached.envelope.NegativeCacheEntry;
 import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
 import org.greencheek.caching.herdcache.memcached.metrics.NoOpMetricRecorder;
 import org.greencheek.caching.herdcache.memcached.spy.extensions.transcoders.compression.Compression;
@@ -32,6 +33,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
 
 /**
  * Transcoder that serializes and compresses objects.
@@ -66,11 +70,15 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
     static final int SPECIAL_FLOAT = (6 << 8);
     static final int SPECIAL_DOUBLE = (7 << 8);
     static final int SPECIAL_BYTEARRAY = (8 << 8);
+    static final int SPECIAL_NEGATIVE_CACHE_ENTRY = (9 << 8);
 
     private final TranscoderUtils tu = new TranscoderUtils(true);
 
     private final MetricRecorder metricRecorder;
 
+    // notified of the nanos taken to decode each item, decoding is only timed when there are listeners
+    private final List<LongConsumer> decodeTimeListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Get a serializing transcoder with the default max data size.
      */
@@ -113,6 +121,33 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
      * @see net.spy.memcached.Transcoder#decode(net.spy.memcached.CachedData)
      */
     public Object decode(CachedData d) {
+        if(decodeTimeListeners.isEmpty()) {
+            return decodeData(d);
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            return decodeData(d);
+        } finally {
+            long duration = System.nanoTime() - startNanos;
+            for(LongConsumer listener : decodeTimeListeners) {
+                listener.accept(duration);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener that is notified of the time, in nanos, taken to decode each item
+     */
+    public void addDecodeTimeListener(LongConsumer listener) {
+        decodeTimeListeners.add(listener);
+    }
+
+    public void removeDecodeTimeListener(LongConsumer listener) {
+        decodeTimeListeners.remove(listener);
+    }
+
+    private Object decodeData(CachedData d) {
         byte[] data = d.getData();
 
         Object rv = null;
@@ -148,6 +183,9 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
                 case SPECIAL_BYTEARRAY:
                     rv = data;
                     break;
+                case SPECIAL_NEGATIVE_CACHE_ENTRY:
+                    rv = NegativeCacheEntry.INSTANCE;
+                    break;
                 default:
                     logger.warn("Undecodeable with flags {}", flags);
             }
@@ -203,6 +241,11 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
         data.flags |= SPECIAL_BYTEARRAY;
     }
 
+    private void encodeNegativeCacheEntry(EncodedData data) {
+        data.encoded = NegativeCacheEntry.ENCODED;
+        data.flags |= SPECIAL_NEGATIVE_CACHE_ENTRY;
+    }
+
     private void encodeObject(EncodedData data,Object o) {
         data.encoded = serialize(o);
         data.flags |= SERIALIZED;
@@ -233,6 +276,8 @@ public class SerializingTranscoder extends BaseSerializingTranscoder implements
             encodeDouble(data,(Double)o);
         } else if (o instanceof byte[]) {
             encodeByteArray(data,(byte[])o);
+        } else if (o instanceof NegativeCacheEntry) {
+            encodeNegativeCacheEntry(data);
         } else {
             encodeObject(data,o);
         }
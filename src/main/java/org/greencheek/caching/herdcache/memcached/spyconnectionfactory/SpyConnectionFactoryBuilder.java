@@ -72,6 +72,10 @@ public class SpyConnectionFactoryBuilder {
                     return false;
                 case SHA256_LOWER:
                     return false;
+                case MD5_BINARY:
+                    return false;
+                case SHA256_BINARY:
+                    return false;
                 default:
                     return false;
             }
@@ -1,5 +1,11 @@
 package org.greencheek.caching.herdcache.memcached.util;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  *
  */
@@ -11,6 +17,8 @@ public class CacheMetricStrings {
     public static final String CACHE_TYPE_VALUE_CALCULATION_SUCCESS_COUNTER = "value_calculation_success";
     public static final String CACHE_TYPE_VALUE_CALCULATION_FAILURE_COUNTER = "value_calculation_failure";
     public static final String CACHE_TYPE_VALUE_CALCULATION_REJECTION_COUNTER= "value_calculation_rejected_execution";
+    public static final String CACHE_TYPE_VALUE_CALCULATION_IN_FLIGHT_GAUGE = "value_calculation_in_flight";
+    public static final String CACHE_TYPE_VALUE_CALCULATION_IN_FLIGHT_PEAK_GAUGE = "value_calculation_in_flight_peak";
     public static final String CACHE_TYPE_STALE_VALUE_CALCULATION = "stale_value_calculation_cache";
     public static final String CACHE_TYPE_CACHE_DISABLED = "disabled_cache";
     public static final String CACHE_TYPE_CACHE_DISABLED_REJECTION = "disabled_cache";
@@ -19,5 +27,48 @@ public class CacheMetricStrings {
     public static final String CACHE_TYPE_DISTRIBUTED_CACHE = "distributed_cache";
     public static final String CACHE_TYPE_DISTRIBUTED_CACHE_WRITES_COUNTER="distributed_cache_writes";
     public static final String CACHE_TYPE_DISTRIBUTED_CACHE_REJECTION = "distributed_cache_rejection";
+    public static final String CACHE_TYPE_NEAR_CACHE = "near_cache";
+    public static final String CACHE_TYPE_NEGATIVE_CACHE = "negative_cache";
+    public static final String CACHE_TYPE_NEGATIVE_CACHE_WRITES_COUNTER = "negative_cache_writes";
+    public static final String CACHE_TYPE_EARLY_RECOMPUTATION = "early_recomputation";
+    public static final String CACHE_TYPE_STALE_IF_ERROR = "stale_if_error";
+    public static final String CACHE_TYPE_DISTRIBUTED_LEASE_ACQUIRED = "distributed_lease_acquired";
+    public static final String CACHE_TYPE_DISTRIBUTED_LEASE_LOST = "distributed_lease_lost";
+    public static final String CACHE_TYPE_DISTRIBUTED_LEASE_WAIT_TIMEOUT = "distributed_lease_wait_timeout";
+    public static final String CACHE_TYPE_HOT_KEY_REPLICA = "hot_key_replica";
+    public static final String CACHE_TYPE_HOT_KEY_HEDGED_READ = "hot_key_hedged_read";
+    public static final String CACHE_TYPE_HEAVY_HITTER = "heavy_hitter";
+    public static final String CACHE_TYPE_REFRESH_AHEAD = "refresh_ahead";
+    public static final String CACHE_TYPE_REFRESH_AHEAD_BUDGET_EXCEEDED = "refresh_ahead_budget_exceeded";
+    public static final String CACHE_TYPE_BATCH_SUPPLIER = "batch_supplier";
+    public static final String CACHE_TYPE_BATCH_SUPPLIER_KEYS = "batch_supplier_keys";
+    public static final String CACHE_TYPE_VIRTUAL_THREAD_BLOCKED_TIMER = "virtual_thread_blocked";
+    public static final String CACHE_TYPE_VIRTUAL_THREAD_PINNED_TIMER = "virtual_thread_pinned";
+    public static final String CACHE_TYPE_LATENCY_MEMCACHED_GET = "latency_memcached_get";
+    public static final String CACHE_TYPE_LATENCY_MEMCACHED_SET = "latency_memcached_set";
+    public static final String CACHE_TYPE_LATENCY_SUPPLIER = "latency_supplier";
+    public static final String CACHE_TYPE_LATENCY_DECODE = "latency_decode";
+    public static final String CACHE_TYPE_LATENCY_QUEUE_WAIT = "latency_queue_wait";
     public static final String CACHE_TYPE_ALL = "cache";
+
+    /**
+     * Every metric name above, so that a {@link org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder}
+     * can resolve its metrics up front
+     */
+    public static final Set<String> METRIC_NAMES = Collections.unmodifiableSet(findMetricNames());
+
+    private static Set<String> findMetricNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for(Field field : CacheMetricStrings.class.getFields()) {
+            int modifiers = field.getModifiers();
+            if(Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType()==String.class) {
+                try {
+                    names.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return names;
+    }
 }
@@ -0,0 +1,30 @@
+package org.greencheek.caching.herdcache.memcached.virtualthreads;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Determines the threads on which the suppliers, and the blocking reads against memcached, are executed
+ */
+public interface ExecutionMode {
+
+    /**
+     * @param requested The executor given to the cache operation
+     * @return The executor on which to run the suppliers and blocking reads of the operation
+     */
+    ListeningExecutorService getExecutor(ListeningExecutorService requested);
+
+    /**
+     * @return true if the blocking reads against memcached, that would otherwise be performed on the calling
+     * thread, are to be performed on the executor.
+     */
+    boolean isBlockingReadOffloaded();
+
+    /**
+     * @return The given read, that records the time for which it blocked
+     */
+    <T> Callable<T> timeBlockingRead(Callable<T> read);
+
+    void shutdown();
+}
@@ -0,0 +1,28 @@
+package org.greencheek.caching.herdcache.memcached.virtualthreads;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the {@link ExecutionMode} as specified by the cache config.  If virtual threads are requested
+ * but the JVM does not support them (Java 21 is required), the platform thread mode is used.
+ */
+public class ExecutionModeFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionModeFactory.class);
+
+    public static ExecutionMode create(MemcachedCacheConfig config) {
+        if(config.isUseVirtualThreads()) {
+            ExecutorService executor = VirtualThreadSupport.newVirtualThreadPerTaskExecutor();
+            if(executor != null) {
+                return new VirtualThreadExecutionMode(executor, config.getVirtualThreadPinnedThreshold(),
+                        config.getMetricsRecorder());
+            }
+            logger.warn("Virtual threads are not supported by this JVM, suppliers are run on the given executor");
+        }
+        return new PlatformThreadExecutionMode();
+    }
+}
@@ -0,0 +1,164 @@
+package org.greencheek.caching.herdcache.memcached.virtualthreads;
+
+import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Records the time virtual threads are pinned to their carrier thread (i.e. blocked whilst in a synchronized
+ * block, or native frame), from the jdk.VirtualThreadPinned flight recorder event.  The event is streamed
+ * in process with a jdk.jfr.consumer.RecordingStream, which is obtained reflectively as the library is
+ * built for Java 8.
+ *
+ * The event is for the whole JVM, so a single stream is shared by all the caches that use virtual threads.
+ * The stream is started by the first cache to {@link #register(Duration, MetricRecorder)}, and closed when
+ * the last cache is unregistered.  The stream's threshold is the lowest of the registered thresholds, and
+ * each registration only records the events that exceed its own.
+ */
+class PinnedVirtualThreadMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinnedVirtualThreadMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final Object lock = new Object();
+
+    // guarded by lock
+    private static PinnedVirtualThreadMonitor shared;
+
+    private final AutoCloseable recordingStream;
+    private final Object eventSettings;
+    private final Method withThreshold;
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+    // guarded by lock
+    private Duration threshold;
+
+    private PinnedVirtualThreadMonitor(AutoCloseable recordingStream, Object eventSettings, Method withThreshold) {
+        this.recordingStream = recordingStream;
+        this.eventSettings = eventSettings;
+        this.withThreshold = withThreshold;
+    }
+
+    /**
+     * A cache's interest in the pinned events
+     */
+    static final class Registration {
+        private final long thresholdNanos;
+        private final MetricRecorder metricRecorder;
+
+        private Registration(Duration threshold, MetricRecorder metricRecorder) {
+            this.thresholdNanos = threshold.toNanos();
+            this.metricRecorder = metricRecorder;
+        }
+
+        private void onPinned(Duration pinned) {
+            long pinnedNanos = pinned.toNanos();
+            if(pinnedNanos >= thresholdNanos) {
+                metricRecorder.setDuration(CacheMetricStrings.CACHE_TYPE_VIRTUAL_THREAD_PINNED_TIMER, pinnedNanos);
+            }
+        }
+
+        void unregister() {
+            PinnedVirtualThreadMonitor.unregister(this);
+        }
+    }
+
+    /**
+     * @param threshold The minimum time a virtual thread is pinned for, for it to be recorded
+     * @return The registration, or null if the pinned event cannot be streamed
+     */
+    static Registration register(Duration threshold, MetricRecorder metricRecorder) {
+        synchronized (lock) {
+            if(shared == null) {
+                shared = start(threshold);
+                if(shared == null) {
+                    return null;
+                }
+            } else if(threshold.compareTo(shared.threshold) < 0) {
+                shared.setThreshold(threshold);
+            }
+            Registration registration = new Registration(threshold, metricRecorder);
+            shared.registrations.add(registration);
+            return registration;
+        }
+    }
+
+    private static void unregister(Registration registration) {
+        synchronized (lock) {
+            if(shared != null && shared.registrations.remove(registration) && shared.registrations.isEmpty()) {
+                shared.shutdown();
+                shared = null;
+            }
+        }
+    }
+
+    /**
+     * @return The monitor that is streaming the pinned events, or null if no cache is registered
+     */
+    static PinnedVirtualThreadMonitor getShared() {
+        synchronized (lock) {
+            return shared;
+        }
+    }
+
+    Duration getThreshold() {
+        synchronized (lock) {
+            return threshold;
+        }
+    }
+
+    private static PinnedVirtualThreadMonitor start(Duration threshold) {
+        try {
+            Class<?> recordingStreamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Class<?> eventSettingsClass = Class.forName("jdk.jfr.EventSettings");
+            Class<?> recordedEventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+            final Method getDuration = recordedEventClass.getMethod("getDuration");
+
+            AutoCloseable recordingStream = (AutoCloseable) recordingStreamClass.getConstructor().newInstance();
+            Object settings = recordingStreamClass.getMethod("enable", String.class).invoke(recordingStream, PINNED_EVENT);
+            PinnedVirtualThreadMonitor monitor = new PinnedVirtualThreadMonitor(recordingStream, settings,
+                    eventSettingsClass.getMethod("withThreshold", Duration.class));
+            monitor.setThreshold(threshold);
+
+            Consumer<Object> onPinned = (Object event) -> {
+                try {
+                    Duration pinned = (Duration) getDuration.invoke(event);
+                    for(Registration registration : monitor.registrations) {
+                        registration.onPinned(pinned);
+                    }
+                } catch (Exception e) {
+                    logger.debug("Unable to obtain duration of {} event", PINNED_EVENT, e);
+                }
+            };
+            recordingStreamClass.getMethod("onEvent", String.class, Consumer.class).invoke(recordingStream, PINNED_EVENT, onPinned);
+            recordingStreamClass.getMethod("startAsync").invoke(recordingStream);
+            return monitor;
+        } catch (Throwable t) {
+            logger.warn("Unable to monitor pinned virtual threads: {}", t.toString());
+            return null;
+        }
+    }
+
+    private void setThreshold(Duration threshold) {
+        this.threshold = threshold;
+        try {
+            withThreshold.invoke(eventSettings, threshold);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Unable to set the threshold of the {} event to {}: {}", PINNED_EVENT, threshold, e.toString());
+        }
+    }
+
+    private void shutdown() {
+        try {
+            recordingStream.close();
+        } catch (Exception e) {
+            logger.debug("Exception closing the recording stream", e);
+        }
+    }
+}
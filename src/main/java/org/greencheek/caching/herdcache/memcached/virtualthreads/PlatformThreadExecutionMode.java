@@ -0,0 +1,30 @@
+package org.greencheek.caching.herdcache.memcached.virtualthreads;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The suppliers are run on the executor given to the cache operation, and the blocking reads
+ * are performed on the calling thread
+ */
+public class PlatformThreadExecutionMode implements ExecutionMode {
+    @Override
+    public ListeningExecutorService getExecutor(ListeningExecutorService requested) {
+        return requested;
+    }
+
+    @Override
+    public boolean isBlockingReadOffloaded() {
+        return false;
+    }
+
+    @Override
+    public <T> Callable<T> timeBlockingRead(Callable<T> read) {
+        return read;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,65 @@
+package org.greencheek.caching.herdcache.memcached.virtualthreads;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.greencheek.caching.herdcache.memcached.metrics.MetricRecorder;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the suppliers, and the blocking reads against memcached, on a new virtual thread per task; rather than
+ * on the executor given to the cache operation.  The concurrency is therefore not limited by the size of a
+ * thread pool.  The time virtual threads spend blocked in memcached reads, and the time they are pinned to their
+ * carrier thread, are recorded.
+ */
+public class VirtualThreadExecutionMode implements ExecutionMode {
+
+    private final ListeningExecutorService virtualThreadExecutor;
+    private final MetricRecorder metricRecorder;
+    private final PinnedVirtualThreadMonitor.Registration pinnedMonitor;
+
+    public VirtualThreadExecutionMode(ExecutorService virtualThreadExecutor, Duration pinnedThreshold,
+                                      MetricRecorder metricRecorder) {
+        this.virtualThreadExecutor = MoreExecutors.listeningDecorator(virtualThreadExecutor);
+        this.metricRecorder = metricRecorder;
+        this.pinnedMonitor = PinnedVirtualThreadMonitor.register(pinnedThreshold, metricRecorder);
+    }
+
+    /**
+     * The requested executor is not used; every task of the cache is run on a new virtual thread.  So that an
+     * executor given to apply(..), i.e. to bound the concurrency of the suppliers, has no effect in this mode.
+     */
+    @Override
+    public ListeningExecutorService getExecutor(ListeningExecutorService requested) {
+        return virtualThreadExecutor;
+    }
+
+    @Override
+    public boolean isBlockingReadOffloaded() {
+        return true;
+    }
+
+    @Override
+    public <T> Callable<T> timeBlockingRead(final Callable<T> read) {
+        return () -> {
+            long startNanos = System.nanoTime();
+            try {
+                return read.call();
+            } finally {
+                metricRecorder.setDuration(CacheMetricStrings.CACHE_TYPE_VIRTUAL_THREAD_BLOCKED_TIMER,
+                        System.nanoTime() - startNanos);
+            }
+        };
+    }
+
+    @Override
+    public void shutdown() {
+        virtualThreadExecutor.shutdownNow();
+        if(pinnedMonitor != null) {
+            pinnedMonitor.unregister();
+        }
+    }
+}
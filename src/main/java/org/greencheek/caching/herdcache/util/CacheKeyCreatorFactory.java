@@ -14,6 +14,10 @@ public interface CacheKeyCreatorFactory {
     public static final CacheKeyCreatorFactory DEFAULT_INSTANCE = new CacheKeyCreatorFactory() {};
 
     default CacheKeyCreator create(MemcachedCacheConfig config) {
+        return create(config,createKeyHashing(config));
+    }
+
+    default KeyHashing createKeyHashing(MemcachedCacheConfig config) {
         KeyHashing hasher;
         switch (config.getKeyHashType()) {
             case NONE:
@@ -32,22 +36,27 @@ public interface CacheKeyCreatorFactory {
                 hasher = new XXHashKeyHashing(false,true);
                 break;
             case MD5_UPPER:
-                hasher = new MessageDigestHashing(KeyHashing.MD5,Runtime.getRuntime().availableProcessors()*2,true);
+                hasher = new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.MD5),true,false);
                 break;
             case SHA256_UPPER:
-                hasher = new MessageDigestHashing(KeyHashing.SHA256,Runtime.getRuntime().availableProcessors()*2,true);
+                hasher = new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.SHA256),true,false);
                 break;
             case MD5_LOWER:
-                hasher = new MessageDigestHashing(KeyHashing.MD5,Runtime.getRuntime().availableProcessors()*2,false);
+                hasher = new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.MD5),false,false);
                 break;
             case SHA256_LOWER:
-                hasher = new MessageDigestHashing(KeyHashing.SHA256,Runtime.getRuntime().availableProcessors()*2,false);
+                hasher = new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.SHA256),false,false);
+                break;
+            case MD5_BINARY:
+                hasher = new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.MD5),false,true);
+                break;
+            case SHA256_BINARY:
+                hasher = new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.SHA256),false,true);
                 break;
             default:
                 hasher = new FastestXXHashKeyHashing();
         }
-
-        return create(config,hasher);
+        return hasher;
     }
 
     default CacheKeyCreator create(MemcachedCacheConfig config, KeyHashing hasher) {
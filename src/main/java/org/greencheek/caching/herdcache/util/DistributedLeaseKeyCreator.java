@@ -0,0 +1,12 @@
+package org.greencheek.caching.herdcache.util;
+
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+
+/**
+ *
+ */
+public class DistributedLeaseKeyCreator {
+    public static String createKey(MemcachedCacheConfig config, String key) {
+        return config.getDistributedLeasePrefix() + key;
+    }
+}
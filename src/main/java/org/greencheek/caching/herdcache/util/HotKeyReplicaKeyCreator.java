@@ -0,0 +1,51 @@
+package org.greencheek.caching.herdcache.util;
+
+/**
+ * Creates (and parses) the keys under which the replicas of a hot key are stored.
+ * The format of the key is fixed, as the {@link org.greencheek.caching.herdcache.memcached.spy.extensions.locator.CeilingKeyKetamaNodeLocator}
+ * recognises the replica keys, and places the replica on a different node to that of the original key.
+ */
+public class HotKeyReplicaKeyCreator {
+    public static final String REPLICA_KEY_PREFIX = "hkr~";
+    private static final char REPLICA_INDEX_TERMINATOR = '~';
+    private static final char REPLICA_KEY_FIRST_CHAR = REPLICA_KEY_PREFIX.charAt(0);
+
+    public static String createKey(String key, int replica) {
+        return REPLICA_KEY_PREFIX + replica + REPLICA_INDEX_TERMINATOR + key;
+    }
+
+    /**
+     * Called by the node locator for every key, so the first char is checked before the prefix
+     */
+    public static boolean isReplicaKey(String key) {
+        return key.length() > REPLICA_KEY_PREFIX.length() && key.charAt(0) == REPLICA_KEY_FIRST_CHAR &&
+                key.startsWith(REPLICA_KEY_PREFIX);
+    }
+
+    /**
+     * @return The replica number of the given replica key, or 0 if the key is not a replica key
+     */
+    public static int getReplica(String key) {
+        if(!isReplicaKey(key)) {
+            return 0;
+        }
+        int replica = 0;
+        for(int i=REPLICA_KEY_PREFIX.length();i<key.length();i++) {
+            char c = key.charAt(i);
+            if(c==REPLICA_INDEX_TERMINATOR) {
+                return replica;
+            } else if(c<'0' || c>'9') {
+                return 0;
+            }
+            replica = replica*10 + (c-'0');
+        }
+        return 0;
+    }
+
+    /**
+     * @return The original key of the given replica key
+     */
+    public static String getKey(String replicaKey) {
+        return replicaKey.substring(replicaKey.indexOf(REPLICA_INDEX_TERMINATOR,REPLICA_KEY_PREFIX.length())+1);
+    }
+}
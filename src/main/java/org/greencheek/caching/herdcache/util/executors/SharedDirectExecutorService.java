@@ -0,0 +1,51 @@
+package org.greencheek.caching.herdcache.util.executors;
+
+import com.google.common.util.concurrent.AbstractListeningExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ListeningExecutorService} that runs tasks on the calling thread, that is used when a cache
+ * method is not given an executor.  Unlike {@link com.google.common.util.concurrent.MoreExecutors#newDirectExecutorService()},
+ * it does not track the running tasks, so a single instance is shared by all callers rather than
+ * one being created per call.  As it is shared, it cannot be shut down; shutdown has no effect.
+ */
+public final class SharedDirectExecutorService extends AbstractListeningExecutorService {
+
+    public static final ListeningExecutorService INSTANCE = new SharedDirectExecutorService();
+
+    private SharedDirectExecutorService() {
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        command.run();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return false;
+    }
+}
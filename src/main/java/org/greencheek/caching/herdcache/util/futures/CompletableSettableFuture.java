@@ -0,0 +1,106 @@
+package org.greencheek.caching.herdcache.util.futures;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * A SettableFuture that is a {@link CompletableFuture}.  The same future can therefore be returned
+ * to the callers of both the ListenableFuture and CompletionStage based apis, without an adapter.
+ */
+public class CompletableSettableFuture<V> extends CompletableFuture<V> implements SettableFuture<V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletableSettableFuture.class);
+
+    /**
+     * @return A future that is already completed with the given value.  The outcome of the future cannot be
+     * changed, so the same future can be safely returned to many callers.
+     */
+    public static <V> CompletableSettableFuture<V> completed(@Nullable V value) {
+        CompletableSettableFuture<V> future = new CompletedSettableFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    /**
+     * @return A CompletionStage that is completed with the outcome of the given future.  The given future can be
+     * shared by many callers (i.e. the herd's promise), so a dependent stage is returned; completing, obtruding or
+     * timing out the returned stage does not change the outcome seen by the other callers.  Only an already
+     * completed future, whose outcome cannot be changed, is returned as is.
+     */
+    public static <V> CompletionStage<V> toCompletionStage(ListenableFuture<V> future) {
+        if(future instanceof CompletedSettableFuture) {
+            return (CompletionStage<V>) future;
+        }
+
+        final CompletableSettableFuture<V> stage = new CompletableSettableFuture<>();
+        if(future instanceof CompletableFuture) {
+            ((CompletableFuture<V>) future).whenComplete((V result, Throwable t) -> {
+                if(t == null) {
+                    stage.complete(result);
+                } else {
+                    stage.completeExceptionally(t);
+                }
+            });
+            return stage;
+        }
+
+        Futures.addCallback(future, new FutureCallback<V>() {
+            @Override
+            public void onSuccess(V result) {
+                stage.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                stage.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return stage;
+    }
+
+    @Override
+    public boolean set(@Nullable V value) {
+        return complete(value);
+    }
+
+    @Override
+    public boolean setException(Throwable throwable) {
+        return completeExceptionally(throwable);
+    }
+
+    @Override
+    public void addListener(final Runnable listener, final Executor executor) {
+        whenComplete((V value, Throwable t) -> {
+            try {
+                executor.execute(listener);
+            } catch (RuntimeException e) {
+                logger.error("RuntimeException while executing runnable {} with executor {}", listener, executor, e);
+            }
+        });
+    }
+
+    /**
+     * A completed future, that is shared between callers.  Completing an already completed
+     * CompletableFuture has no effect, only the obtrude methods can change its outcome.
+     */
+    private static class CompletedSettableFuture<V> extends CompletableSettableFuture<V> {
+        @Override
+        public void obtrudeValue(V value) {
+            throw new UnsupportedOperationException("The value of a completed cache future cannot be changed");
+        }
+
+        @Override
+        public void obtrudeException(Throwable ex) {
+            throw new UnsupportedOperationException("The value of a completed cache future cannot be changed");
+        }
+    }
+}
@@ -7,16 +7,21 @@ import java.util.concurrent.ConcurrentMap;
 /**
  */
 public class FutureCompleter {
-    public static <V> void completeWithValue(SettableFuture<V> promise, String keyString, V cachedObject,
-                                             ConcurrentMap<String, ListenableFuture<V>> internalCache,
-                                             boolean removeFromInternalCacheBeforeCompletion) {
+    /**
+     * @return true if the promise was completed with the given value, false if it had already been completed
+     */
+    public static <V> boolean completeWithValue(SettableFuture<V> promise, String keyString, V cachedObject,
+                                                ConcurrentMap<String, ListenableFuture<V>> internalCache,
+                                                boolean removeFromInternalCacheBeforeCompletion) {
+        boolean completed;
         if (removeFromInternalCacheBeforeCompletion) {
             internalCache.remove(keyString);
-            promise.set(cachedObject);
+            completed = promise.set(cachedObject);
         } else {
-            promise.set(cachedObject);
+            completed = promise.set(cachedObject);
             internalCache.remove(keyString);
         }
+        return completed;
     }
 
     public static <V> void completeWithException(SettableFuture<V> promise, String keyString, Throwable exception,
@@ -1,22 +1,22 @@
 package org.greencheek.caching.herdcache.util.keycreators;
 
 import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashing;
+import org.greencheek.caching.herdcache.memcached.keyhashing.PrefixedKeyHashing;
 
 /**
-
+ * Hashes the prefix followed by the key.  The prefix is processed once, by {@link KeyHashing#withHashedPrefix(String)},
+ * rather than for every key.
  */
 public class HashAfterPrefixPrependedCacheKeyCreator implements CacheKeyCreator {
 
-    private final KeyHashing hasher;
-    private final String prefix;
+    private final PrefixedKeyHashing hasher;
 
     public HashAfterPrefixPrependedCacheKeyCreator(KeyHashing hasher, String prefix) {
-        this.hasher = hasher;
-        this.prefix = prefix;
+        this.hasher = hasher.withHashedPrefix(prefix);
     }
 
     @Override
     public String createKey(String key) {
-        return hasher.hash(prefix + key);
+        return hasher.hash(key);
     }
 }
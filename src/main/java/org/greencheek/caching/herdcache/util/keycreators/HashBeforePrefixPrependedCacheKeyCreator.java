@@ -17,6 +17,6 @@ public class HashBeforePrefixPrependedCacheKeyCreator implements CacheKeyCreator
 
     @Override
     public String createKey(String key) {
-        return prefix + hasher.hash(key);
+        return hasher.prependToHash(prefix, key);
     }
 }
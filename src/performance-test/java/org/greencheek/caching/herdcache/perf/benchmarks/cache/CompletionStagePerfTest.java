@@ -0,0 +1,117 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.memcached.SpyMemcachedCache;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares obtaining a CompletableFuture from the CompletionStage api, with adapting the ListenableFuture
+ * returned by apply (as a CompletableFuture based service would).  Both a near cache hit and a memcached hit
+ * are measured.  Run with -prof gc to compare the allocation per request.
+ */
+@Threads(4)
+public class CompletionStagePerfTest {
+
+    private static final Duration TTL = Duration.ofSeconds(600);
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        public MemcachedDaemonWrapper memcached;
+        public ListeningExecutorService executorService;
+        public SpyMemcachedCache<String> memcachedHitCache;
+        public SpyMemcachedCache<String> nearCacheHitCache;
+
+        @Setup
+        public void setUp() {
+            memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+            executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+
+            memcachedHitCache = new SpyMemcachedCache<>(new ElastiCacheCacheConfigBuilder()
+                    .setMemcachedHosts("localhost:" + memcached.getPort())
+                    .setTimeToLive(TTL)
+                    .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                    .setUseAsyncCacheReads(true)
+                    .setWaitForMemcachedSet(true)
+                    .buildMemcachedConfig());
+
+            nearCacheHitCache = new SpyMemcachedCache<>(new ElastiCacheCacheConfigBuilder()
+                    .setMemcachedHosts("localhost:" + memcached.getPort())
+                    .setTimeToLive(TTL)
+                    .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                    .setUseAsyncCacheReads(true)
+                    .setWaitForMemcachedSet(true)
+                    .setUseNearCache(true)
+                    .buildMemcachedConfig());
+
+            memcachedHitCache.applyAsync("key", () -> "value1", TTL, executorService).toCompletableFuture().join();
+            nearCacheHitCache.applyAsync("key", () -> "value1", TTL, executorService).toCompletableFuture().join();
+        }
+
+        @TearDown
+        public void tearDown() {
+            memcachedHitCache.shutdown();
+            nearCacheHitCache.shutdown();
+            executorService.shutdownNow();
+            memcached.getDaemon().stop();
+        }
+    }
+
+    private static <V> CompletableFuture<V> adapt(ListenableFuture<V> future) {
+        final CompletableFuture<V> completable = new CompletableFuture<>();
+        Futures.addCallback(future, new FutureCallback<V>() {
+            @Override
+            public void onSuccess(V result) {
+                completable.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                completable.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return completable;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String adaptedListenableFutureMemcachedHit(CacheState state) {
+        return adapt(state.memcachedHitCache.apply("key", () -> "value1", TTL, state.executorService)).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String completionStageMemcachedHit(CacheState state) {
+        return state.memcachedHitCache.applyAsync("key", () -> "value1", TTL, state.executorService).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String adaptedListenableFutureNearCacheHit(CacheState state) {
+        return adapt(state.nearCacheHitCache.apply("key", () -> "value1", TTL, state.executorService)).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String completionStageNearCacheHit(CacheState state) {
+        return state.nearCacheHitCache.applyAsync("key", () -> "value1", TTL, state.executorService).toCompletableFuture().join();
+    }
+}
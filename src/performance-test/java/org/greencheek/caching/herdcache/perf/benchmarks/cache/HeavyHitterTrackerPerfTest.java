@@ -0,0 +1,71 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitterTracker;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.NoOpHeavyHitterTracker;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.SampledHeavyHitterTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the overhead the heavy hitter tracker adds to each request, for a skewed key distribution.
+ * Run with -prof gc to confirm the sampled path does not allocate.
+ */
+@Threads(8)
+public class HeavyHitterTrackerPerfTest {
+
+    private static final int NUM = 1024;
+    private static final String[] keys = new String[NUM];
+    static {
+        for(int i=0;i<NUM;i++) {
+            keys[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SampledTrackerState {
+        public HeavyHitterTracker tracker;
+
+        @Setup
+        public void setUp() {
+            tracker = new SampledHeavyHitterTracker(10, 16, Duration.ofSeconds(60));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NoOpTrackerState {
+        public HeavyHitterTracker tracker;
+
+        @Setup
+        public void setUp() {
+            tracker = new NoOpHeavyHitterTracker();
+        }
+    }
+
+    private static String skewedKey() {
+        // a quarter of the requests are for 8 keys
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return keys[random.nextInt(4) == 0 ? random.nextInt(8) : random.nextInt(NUM)];
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void testSampledHeavyHitterTracker(SampledTrackerState state) {
+        state.tracker.recordRequest(skewedKey());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void testNoOpHeavyHitterTracker(NoOpTrackerState state) {
+        state.tracker.recordRequest(skewedKey());
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.memcached.SpyMemcachedCache;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Measures the cost of a cache hit, from the near cache and from memcached, through the apply and get
+ * methods.  Run with -prof gc, the gc.alloc.rate.norm figure is the number of bytes allocated per hit.
+ * The supplier is not capturing, so that the benchmark itself does not allocate per operation.
+ */
+@Threads(4)
+public class HitPathAllocationPerfTest {
+
+    private static final Duration TTL = Duration.ofSeconds(600);
+    private static final String KEY = "key";
+    private static final Supplier<String> SUPPLIER = () -> "value1";
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        public MemcachedDaemonWrapper memcached;
+        public ListeningExecutorService executorService;
+        public SpyMemcachedCache<String> nearCacheHitCache;
+        public SpyMemcachedCache<String> asyncReadHitCache;
+        public SpyMemcachedCache<String> syncReadHitCache;
+
+        @Setup
+        public void setUp() {
+            memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+            executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+
+            nearCacheHitCache = createCache(true, true);
+            asyncReadHitCache = createCache(true, false);
+            syncReadHitCache = createCache(false, false);
+
+            nearCacheHitCache.awaitForFutureOrElse(nearCacheHitCache.apply(KEY, SUPPLIER, TTL, executorService), null);
+            asyncReadHitCache.awaitForFutureOrElse(asyncReadHitCache.apply(KEY, SUPPLIER, TTL, executorService), null);
+            syncReadHitCache.awaitForFutureOrElse(syncReadHitCache.apply(KEY, SUPPLIER, TTL, executorService), null);
+        }
+
+        private SpyMemcachedCache<String> createCache(boolean asyncReads, boolean nearCache) {
+            return new SpyMemcachedCache<>(new ElastiCacheCacheConfigBuilder()
+                    .setMemcachedHosts("localhost:" + memcached.getPort())
+                    .setTimeToLive(TTL)
+                    .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                    .setUseAsyncCacheReads(asyncReads)
+                    .setUseNearCache(nearCache)
+                    .setWaitForMemcachedSet(true)
+                    .setMetricsRecorder(new YammerMetricsRecorder(new MetricRegistry()))
+                    .buildMemcachedConfig());
+        }
+
+        @TearDown
+        public void tearDown() {
+            nearCacheHitCache.shutdown();
+            asyncReadHitCache.shutdown();
+            syncReadHitCache.shutdown();
+            executorService.shutdownNow();
+            memcached.getDaemon().stop();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String nearCacheHit(CacheState state) throws ExecutionException, InterruptedException {
+        return state.nearCacheHitCache.apply(KEY, SUPPLIER, TTL, state.executorService).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String nearCacheHitOnCallingThread(CacheState state) throws ExecutionException, InterruptedException {
+        return state.nearCacheHitCache.apply(KEY, SUPPLIER).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String nearCacheGet(CacheState state) throws ExecutionException, InterruptedException {
+        return state.nearCacheHitCache.get(KEY).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String memcachedHitAsyncRead(CacheState state) throws ExecutionException, InterruptedException {
+        return state.asyncReadHitCache.apply(KEY, SUPPLIER, TTL, state.executorService).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public String memcachedHitSyncRead(CacheState state) throws ExecutionException, InterruptedException {
+        return state.syncReadHitCache.apply(KEY, SUPPLIER, TTL, state.executorService).get();
+    }
+}
@@ -0,0 +1,78 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import org.greencheek.caching.herdcache.memcached.InFlightRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the contention of the in flight registry against the ConcurrentLinkedHashMap it replaced,
+ * for the herd store usage pattern: putIfAbsent of a future, followed by its removal on completion.
+ */
+@Threads(8)
+public class InFlightRegistryPerfTest {
+
+    private static final int NUM = 1024;
+    private static final String[] keys = new String[NUM];
+    static {
+        for(int i=0;i<NUM;i++) {
+            keys[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class InFlightRegistryState {
+        public ConcurrentMap<String,Object> store;
+
+        @Setup
+        public void setUp() {
+            store = new InFlightRegistry<>(1000,Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ConcurrentLinkedHashMapState {
+        public ConcurrentMap<String,Object> store;
+
+        @Setup
+        public void setUp() {
+            store = new ConcurrentLinkedHashMap.Builder<String,Object>()
+                    .initialCapacity(1000)
+                    .maximumWeightedCapacity(1000)
+                    .build();
+        }
+    }
+
+    private static Object putIfAbsentAndRemove(ConcurrentMap<String,Object> store) {
+        String key = keys[ThreadLocalRandom.current().nextInt(NUM)];
+        Object future = new Object();
+        Object existing = store.putIfAbsent(key, future);
+        if(existing==null) {
+            store.remove(key, future);
+            return future;
+        }
+        return existing;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Object testInFlightRegistry(InFlightRegistryState state) {
+        return putIfAbsentAndRemove(state.store);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Object testConcurrentLinkedHashMap(ConcurrentLinkedHashMapState state) {
+        return putIfAbsentAndRemove(state.store);
+    }
+
+}
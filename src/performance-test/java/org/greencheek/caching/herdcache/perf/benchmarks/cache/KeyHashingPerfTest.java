@@ -0,0 +1,101 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+import org.greencheek.caching.herdcache.memcached.config.MemcachedCacheConfig;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashing;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
+import org.greencheek.caching.herdcache.memcached.spy.extensions.hashing.XXHashAlogrithm;
+import org.greencheek.caching.herdcache.util.CacheKeyCreatorFactory;
+import org.greencheek.caching.herdcache.util.keycreators.CacheKeyCreator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares, for each KeyHashingType, creating the memcached key and locating its node (the key pipeline),
+ * with the previous pipeline: concatenating the prefix, encoding the key with getBytes, formatting the hash with
+ * Long.toString/bytesToHex, and encoding the key again to locate the node.
+ * Run with -prof gc to see the allocation per key.
+ */
+@State(Scope.Benchmark)
+public class KeyHashingPerfTest {
+
+    private static final int NUM = 1024;
+    private static final String PREFIX = "herdcache:";
+    private static final String[] keys = new String[NUM];
+    private static final XXHash32 LOCATOR_HASH = XXHashFactory.fastestJavaInstance().hash32();
+    static {
+        for(int i=0;i<NUM;i++) {
+            keys[i] = "http://www.example.com/content/" + UUID.randomUUID().toString();
+        }
+    }
+
+    @Param({"NONE", "NATIVE_XXHASH", "NATIVE_XXHASH_64", "JAVA_XXHASH", "JAVA_XXHASH_64",
+            "MD5_UPPER", "SHA256_UPPER", "MD5_LOWER", "SHA256_LOWER", "MD5_BINARY", "SHA256_BINARY"})
+    public KeyHashingType keyHashingType;
+
+    @Param({"NO_PREFIX", "HASH_PREFIX", "PREPEND_PREFIX"})
+    public String prefixMode;
+
+    private CacheKeyCreator keyCreator;
+    private KeyHashing hasher;
+    private final XXHashAlogrithm locatorHash = new XXHashAlogrithm();
+
+    @Setup
+    public void setUp() {
+        MemcachedCacheConfig config = new ElastiCacheCacheConfigBuilder()
+                .setKeyHashType(keyHashingType)
+                .setKeyPrefix(prefixMode.equals("NO_PREFIX") ? Optional.empty() : Optional.of(PREFIX))
+                .setHashKeyPrefix(prefixMode.equals("HASH_PREFIX"))
+                .buildMemcachedConfig();
+        keyCreator = CacheKeyCreatorFactory.DEFAULT_INSTANCE.create(config);
+        hasher = CacheKeyCreatorFactory.DEFAULT_INSTANCE.createKeyHashing(config);
+    }
+
+    private static String key() {
+        return keys[ThreadLocalRandom.current().nextInt(NUM)];
+    }
+
+    private static long previousLocatorHash(String key) {
+        byte[] b = key.getBytes(StandardCharsets.UTF_8);
+        return LOCATOR_HASH.hash(b, 0, b.length, 0) & 0xFFFFFFFFl;
+    }
+
+    private String previousCreateKey(String key) {
+        if(prefixMode.equals("HASH_PREFIX")) {
+            key = PREFIX + key;
+        }
+
+        String hashed;
+        if(keyHashingType == KeyHashingType.NONE) {
+            hashed = key;
+        } else {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            hashed = hasher.hash(bytes, 0, bytes.length);
+        }
+        return prefixMode.equals("PREPEND_PREFIX") ? PREFIX + hashed : hashed;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public long keyPipeline() {
+        return locatorHash.hash(keyCreator.createKey(key()));
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public long previousKeyPipeline() {
+        return previousLocatorHash(previousCreateKey(key()));
+    }
+}
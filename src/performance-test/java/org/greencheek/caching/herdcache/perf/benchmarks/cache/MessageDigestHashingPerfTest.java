@@ -0,0 +1,147 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashing;
+import org.greencheek.caching.herdcache.memcached.keyhashing.MessageDigestHashing;
+import org.greencheek.caching.herdcache.memcached.keyhashing.MessageDigests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the throughput of MD5 and SHA-256 key hashing, from 1 to 64 threads, for the digests supplied by:
+ * <ul>
+ *     <li>QUEUE: the blocking queue the digests were previously held in (take and add on every hash)</li>
+ *     <li>POOLED: the bounded pool that clones the prototype rather than waiting when it is empty</li>
+ *     <li>THREAD_LOCAL: a digest per thread</li>
+ * </ul>
+ * The pools hold availableProcessors * 2 digests, as the cache key creator used to create them.  Each thread count
+ * is a benchmark of its own, so that a run gives the throughput curve of each strategy.
+ */
+@State(Scope.Benchmark)
+public class MessageDigestHashingPerfTest {
+
+    private static final int NUM = 1024;
+    private static final String[] keys = new String[NUM];
+    static {
+        for(int i=0;i<NUM;i++) {
+            keys[i] = "http://www.example.com/content/" + UUID.randomUUID().toString();
+        }
+    }
+
+    /**
+     * The digests as they were previously held
+     */
+    private static class BlockingQueueMessageDigests implements MessageDigests {
+        private final ArrayBlockingQueue<MessageDigest> digests;
+
+        BlockingQueueMessageDigests(String algorithm, int messageDigests) {
+            digests = new ArrayBlockingQueue<MessageDigest>(messageDigests);
+            for(int i=0;i<messageDigests;i++) {
+                digests.add(MessageDigests.create(algorithm));
+            }
+        }
+
+        @Override
+        public MessageDigest acquire() {
+            try {
+                return digests.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void release(MessageDigest digest) {
+            digest.reset();
+            digests.add(digest);
+        }
+    }
+
+    @Param({"QUEUE", "POOLED", "THREAD_LOCAL"})
+    public String digests;
+
+    @Param({KeyHashing.MD5, KeyHashing.SHA256})
+    public String algorithm;
+
+    private KeyHashing hasher;
+
+    @Setup
+    public void setUp() {
+        int messageDigests = Runtime.getRuntime().availableProcessors()*2;
+        MessageDigests supplier;
+        switch (digests) {
+            case "QUEUE":
+                supplier = new BlockingQueueMessageDigests(algorithm, messageDigests);
+                break;
+            case "POOLED":
+                supplier = MessageDigests.pooled(algorithm, messageDigests);
+                break;
+            default:
+                supplier = MessageDigests.threadLocal(algorithm);
+        }
+        hasher = new MessageDigestHashing(supplier, false, false);
+    }
+
+    private String hash() {
+        return hasher.hash(keys[ThreadLocalRandom.current().nextInt(NUM)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(1)
+    public String threads01() {
+        return hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(2)
+    public String threads02() {
+        return hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(4)
+    public String threads04() {
+        return hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(8)
+    public String threads08() {
+        return hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(16)
+    public String threads16() {
+        return hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(32)
+    public String threads32() {
+        return hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @Threads(64)
+    public String threads64() {
+        return hash();
+    }
+}
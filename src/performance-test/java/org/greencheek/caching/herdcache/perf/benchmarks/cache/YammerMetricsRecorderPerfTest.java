@@ -0,0 +1,50 @@
+package org.greencheek.caching.herdcache.perf.benchmarks.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Compares recording a cache hit and a counter with the recorder, which holds the resolved metrics,
+ * with looking the metrics up in the registry by name on every call.  Run with -prof gc to compare the
+ * allocation per call.
+ */
+@Threads(4)
+public class YammerMetricsRecorderPerfTest {
+
+    @State(Scope.Benchmark)
+    public static class RecorderState {
+        public MetricRegistry registry;
+        public YammerMetricsRecorder recorder;
+        public String prefix = "herdcache_";
+
+        @Setup
+        public void setUp() {
+            registry = new MetricRegistry();
+            recorder = new YammerMetricsRecorder(registry, prefix);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void recorder(RecorderState state) {
+        state.recorder.cacheHit(CacheMetricStrings.CACHE_TYPE_ALL);
+        state.recorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public void registryLookup(RecorderState state) {
+        String metricName = state.prefix + CacheMetricStrings.CACHE_TYPE_ALL;
+        state.registry.counter(metricName + "_hitcount").inc();
+        state.registry.meter(metricName + "_hitrate").mark();
+        state.registry.counter(state.prefix + CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE + "_count").inc();
+    }
+}
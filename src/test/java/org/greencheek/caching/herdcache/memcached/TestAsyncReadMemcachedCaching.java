@@ -0,0 +1,141 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the cache with the lookup against memcached performed without blocking the calling thread
+ */
+public class TestAsyncReadMemcachedCaching {
+
+    MemcachedDaemonWrapper memcached;
+    ListeningExecutorService executorService;
+    CacheWithExpiry<String> cache;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = createCache(memcached.getPort());
+    }
+
+    CacheWithExpiry<String> createCache(int port) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMemcachedGetTimeout(Duration.ofMillis(500))
+                        .setUseAsyncCacheReads(true)
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testValueIsReturnedFromMemcached() {
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+
+        assertEquals("Value should be value1", "value1", cache.awaitForFutureOrElse(val, null));
+        assertEquals(1, memcached.getDaemon().getCache().getCurrentItems());
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value2", executorService);
+        assertEquals("Value should be from memcached", "value1", cache.awaitForFutureOrElse(val2, null));
+
+        ListenableFuture<String> val3 = cache.get("Key1", executorService);
+        assertEquals("Value should be from memcached", "value1", cache.awaitForFutureOrElse(val3, null));
+
+        ListenableFuture<String> val4 = cache.get("Key2", executorService);
+        assertEquals("Value should not be in memcached", null, cache.awaitForFutureOrElse(val4, "notnull"));
+    }
+
+    @Test
+    public void testSupplierIsCalledOnceForConcurrentRequests() {
+        AtomicInteger supplierCalls = new AtomicInteger(0);
+        List<ListenableFuture<String>> futures = new ArrayList<>();
+        for(int i=0;i<10;i++) {
+            futures.add(cache.apply("Key1", () -> {
+                supplierCalls.incrementAndGet();
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                return "value1";
+            }, executorService));
+        }
+
+        for(ListenableFuture<String> future : futures) {
+            assertEquals("Value should be value1", "value1", cache.awaitForFutureOrElse(future, null));
+        }
+
+        assertEquals(1, supplierCalls.get());
+        assertEquals(1, memcached.getDaemon().getCache().getCurrentItems());
+    }
+
+    @Test
+    public void testSupplierIsNotRunOnTheMemcachedThreadWhenNoExecutorIsGiven() throws Exception {
+        AtomicReference<String> supplierThread = new AtomicReference<>();
+        ListenableFuture<String> val = cache.apply("Key1", () -> {
+            supplierThread.set(Thread.currentThread().getName());
+            return "value1";
+        });
+
+        // with folsom, waiting for the set on the netty io thread would never complete
+        assertEquals("Value should be value1", "value1", val.get(5, TimeUnit.SECONDS));
+        assertTrue("Supplier was run on: " + supplierThread.get(), supplierThread.get().startsWith("ForkJoinPool"));
+        assertEquals(1, memcached.getDaemon().getCache().getCurrentItems());
+    }
+
+    @Test
+    public void testSupplierIsCalledWhenMemcachedIsUnavailable() throws InterruptedException {
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("Value should be value1", "value1", cache.awaitForFutureOrElse(val, null));
+
+        memcached.getDaemon().stop();
+        Thread.sleep(1000);
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "memcacheddead", executorService);
+        assertEquals("Value should be from the supplier", "memcacheddead", cache.awaitForFutureOrElse(val2, null));
+    }
+}
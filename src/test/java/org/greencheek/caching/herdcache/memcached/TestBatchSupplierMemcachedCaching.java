@@ -0,0 +1,149 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.BatchSupplier;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the concurrent misses of different keys, for the same BatchSupplier, are obtained with a single call
+ */
+public class TestBatchSupplierMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+
+    private final List<Set<String>> calls = new CopyOnWriteArrayList<>();
+
+    private final BatchSupplier<String> batchSupplier = keys -> {
+        calls.add(keys);
+        Map<String,String> values = new HashMap<>();
+        for(String key : keys) {
+            values.put(key, "value" + key);
+        }
+        return values;
+    };
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(int maxKeys) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseAsyncCacheReads(true)
+                        .setBatchSupplierWindow(Duration.ofMillis(100))
+                        .setBatchSupplierMaxKeys(maxKeys)
+                        .buildMemcachedConfig()
+        );
+    }
+
+    private List<ListenableFuture<String>> applyAll(int numberOfKeys, BatchSupplier<String> supplier) {
+        List<ListenableFuture<String>> futures = new ArrayList<>();
+        for(int i=0;i<numberOfKeys;i++) {
+            futures.add(cache.apply("Key" + i, supplier, Duration.ofSeconds(60), executorService));
+        }
+        return futures;
+    }
+
+    @Test
+    public void testConcurrentMissesAreObtainedWithOneCall() {
+        cache = createCache(100);
+
+        List<ListenableFuture<String>> futures = applyAll(40, batchSupplier);
+        for(int i=0;i<40;i++) {
+            assertEquals("valueKey" + i, cache.awaitForFutureOrElse(futures.get(i), null));
+        }
+
+        assertEquals(1, calls.size());
+        assertEquals(40, calls.get(0).size());
+
+        // the values were written to memcached
+        futures = applyAll(40, batchSupplier);
+        for(int i=0;i<40;i++) {
+            assertEquals("valueKey" + i, cache.awaitForFutureOrElse(futures.get(i), null));
+        }
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void testBatchIsComputedWhenFull() {
+        cache = createCache(10);
+
+        List<ListenableFuture<String>> futures = applyAll(40, batchSupplier);
+        for(int i=0;i<40;i++) {
+            assertEquals("valueKey" + i, cache.awaitForFutureOrElse(futures.get(i), null));
+        }
+
+        assertEquals(4, calls.size());
+        for(Set<String> keys : calls) {
+            assertTrue(keys.size() <= 10);
+        }
+    }
+
+    @Test
+    public void testFailureOfBatchCompletesEachKeyWithTheFailure() {
+        cache = createCache(100);
+
+        List<ListenableFuture<String>> futures = applyAll(20, keys -> {
+            calls.add(keys);
+            throw new RuntimeException("backend unavailable");
+        });
+        for(int i=0;i<20;i++) {
+            assertEquals("failed", cache.awaitForFutureOrElse(futures.get(i), "failed"));
+        }
+        assertEquals(1, calls.size());
+
+        futures = applyAll(20, batchSupplier);
+        for(int i=0;i<20;i++) {
+            assertEquals("valueKey" + i, cache.awaitForFutureOrElse(futures.get(i), null));
+        }
+        assertEquals(2, calls.size());
+    }
+}
@@ -0,0 +1,145 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.KeyValidationType;
+import org.greencheek.caching.herdcache.memcached.config.MemcachedClientType;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the 7 bit packed binary keys against a memcached that talks the binary protocol
+ */
+public class TestBinaryKeyHashingMemcachedCaching {
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(true);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    /**
+     * jmemcached, in binary mode, answers a get of a missing key with an empty value rather than "not found".
+     * As a result a miss cannot be observed through the cache, so the values are set before they are read
+     */
+    private void assertKeysAreCached() {
+        for(int i=0;i<20;i++) {
+            ListenableFuture<String> val = cache.set("Key" + i, "value" + i);
+            assertEquals("value" + i, cache.awaitForFutureOrElse(val, null));
+        }
+
+        for(int i=0;i<20;i++) {
+            ListenableFuture<String> val = cache.apply("Key" + i, () -> "not cached", executorService);
+            assertEquals("value" + i, cache.awaitForFutureOrElse(val, null));
+        }
+
+        assertEquals(20, memcached.getDaemon().getCache().getCurrentItems());
+    }
+
+    @Test
+    public void testMD5BinaryKeyHashing() {
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY)
+                        .setWaitForMemcachedSet(true)
+                        .setKeyHashType(KeyHashingType.MD5_BINARY)
+                        .buildMemcachedConfig()
+        );
+
+        assertKeysAreCached();
+    }
+
+    @Test
+    public void testSHA256BinaryKeyHashingWithValidationAndPrefix() {
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY)
+                        .setWaitForMemcachedSet(true)
+                        .setKeyHashType(KeyHashingType.SHA256_BINARY)
+                        .setKeyValidationType(KeyValidationType.ALWAYS)
+                        .setKeyPrefix(Optional.of("bob"))
+                        .setHashKeyPrefix(false)
+                        .buildMemcachedConfig()
+        );
+
+        assertKeysAreCached();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBinaryKeysRequireTheBinaryProtocol() {
+        new ElastiCacheCacheConfigBuilder()
+                .setMemcachedHosts("localhost:" + memcached.getPort())
+                .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                .setKeyHashType(KeyHashingType.MD5_BINARY)
+                .buildMemcachedConfig();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBinaryKeysAreRejectedByTheFolsomClient() {
+        cache = new FolsomMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY)
+                        .setKeyHashType(KeyHashingType.MD5_BINARY)
+                        .setMemcachedClientType(MemcachedClientType.FOLSOM)
+                        .buildElastiCacheMemcachedConfig()
+        );
+    }
+
+    @Test
+    public void testFolsomClientWithHexKeysOnTheBinaryProtocol() {
+        cache = new FolsomMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY)
+                        .setWaitForMemcachedSet(true)
+                        .setKeyHashType(KeyHashingType.MD5_LOWER)
+                        .setMemcachedClientType(MemcachedClientType.FOLSOM)
+                        .buildElastiCacheMemcachedConfig()
+        );
+
+        assertKeysAreCached();
+    }
+}
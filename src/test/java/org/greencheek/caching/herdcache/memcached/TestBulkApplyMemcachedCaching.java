@@ -0,0 +1,158 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests obtaining a number of keys from the cache with a single call
+ */
+public class TestBulkApplyMemcachedCaching {
+
+    MemcachedDaemonWrapper memcached;
+    ListeningExecutorService executorService;
+    CacheWithExpiry<String> cache;
+    List<Set<String>> computedKeys;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        computedKeys = new CopyOnWriteArrayList<>();
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = createCache(memcached.getPort());
+    }
+
+    CacheWithExpiry<String> createCache(int port) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMemcachedGetTimeout(Duration.ofMillis(500))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private Map<String,String> valuesFor(Set<String> keys) {
+        computedKeys.add(new HashSet<>(keys));
+        Map<String,String> values = new HashMap<>();
+        for(String key : keys) {
+            values.put(key, "computed_" + key);
+        }
+        return values;
+    }
+
+    @Test
+    public void testComputationIsOnlyCalledForKeysNotInMemcached() {
+        assertEquals("stored_a", cache.awaitForFutureOrElse(cache.set("a", "stored_a", executorService), null));
+        assertEquals("stored_b", cache.awaitForFutureOrElse(cache.set("b", "stored_b", executorService), null));
+
+        Map<String,ListenableFuture<String>> values = cache.applyAll(Arrays.asList("a", "b", "c", "d", "c"),
+                this::valuesFor, executorService);
+
+        assertEquals(Arrays.asList("a", "b", "c", "d"), new ArrayList<>(values.keySet()));
+        assertEquals("stored_a", cache.awaitForFutureOrElse(values.get("a"), null));
+        assertEquals("stored_b", cache.awaitForFutureOrElse(values.get("b"), null));
+        assertEquals("computed_c", cache.awaitForFutureOrElse(values.get("c"), null));
+        assertEquals("computed_d", cache.awaitForFutureOrElse(values.get("d"), null));
+
+        assertEquals(1, computedKeys.size());
+        assertEquals(new HashSet<>(Arrays.asList("c", "d")), computedKeys.get(0));
+
+        assertEquals(4, memcached.getDaemon().getCache().getCurrentItems());
+
+        Map<String,ListenableFuture<String>> cached = cache.applyAll(Arrays.asList("a", "b", "c", "d"),
+                this::valuesFor, executorService);
+        assertEquals("computed_d", cache.awaitForFutureOrElse(cached.get("d"), null));
+        assertEquals("Computation should not have been called", 1, computedKeys.size());
+    }
+
+    @Test
+    public void testInFlightKeysAreNotComputedAgain() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        ListenableFuture<String> inflight = cache.apply("a", () -> {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow_a";
+        }, executorService);
+
+        Map<String,ListenableFuture<String>> values = cache.applyAll(Arrays.asList("a", "b"),
+                this::valuesFor, executorService);
+
+        assertEquals("computed_b", cache.awaitForFutureOrElse(values.get("b"), null));
+        assertFalse("in flight key should not have completed", values.get("a").isDone());
+
+        latch.countDown();
+
+        assertEquals("slow_a", cache.awaitForFutureOrElse(values.get("a"), null));
+        assertEquals("slow_a", cache.awaitForFutureOrElse(inflight, null));
+        assertEquals(1, computedKeys.size());
+        assertEquals(Collections.singleton("b"), computedKeys.get(0));
+    }
+
+    @Test
+    public void testKeysMissingFromComputationAreNull() {
+        Map<String,ListenableFuture<String>> values = cache.applyAll(Arrays.asList("a", "b"),
+                (keys) -> Collections.singletonMap("a", "only_a"), executorService);
+
+        assertEquals("only_a", cache.awaitForFutureOrElse(values.get("a"), null));
+        assertNull(cache.awaitForFutureOrElse(values.get("b"), "notnull"));
+        assertEquals(1, memcached.getDaemon().getCache().getCurrentItems());
+    }
+
+    @Test
+    public void testFailedComputationFailsAllMissingKeys() {
+        Map<String,ListenableFuture<String>> values = cache.applyAll(Arrays.asList("a", "b"),
+                (keys) -> { throw new RuntimeException("failed"); }, executorService);
+
+        assertEquals("failed", cache.awaitForFutureOrElse(values.get("a"), "failed"));
+        assertEquals("failed", cache.awaitForFutureOrElse(values.get("b"), "failed"));
+
+        Map<String,ListenableFuture<String>> retry = cache.applyAll(Arrays.asList("a", "b"),
+                this::valuesFor, executorService);
+        assertEquals("computed_a", cache.awaitForFutureOrElse(retry.get("a"), null));
+        assertEquals("computed_b", cache.awaitForFutureOrElse(retry.get("b"), null));
+    }
+}
@@ -0,0 +1,179 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CompletionStageCache;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the herd protection, caching and background revalidation of the CompletionStage api
+ */
+public class TestCompletionStageMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private SpyMemcachedCache<String> cache;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private static <V> V await(CompletionStage<V> stage) {
+        try {
+            return stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String slowSupplier(AtomicInteger calls, String value) {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    @Test
+    public void testConcurrentRequestsShareTheSameComputation() {
+        CompletionStageCache<String> stageCache = cache;
+        AtomicInteger calls = new AtomicInteger();
+
+        List<CompletionStage<String>> stages = new ArrayList<>();
+        for(int i=0;i<10;i++) {
+            stages.add(stageCache.applyAsync("Key1", () -> slowSupplier(calls, "value1"), Duration.ofSeconds(60), executorService));
+        }
+
+        for(CompletionStage<String> stage : stages) {
+            assertEquals("value1", await(stage));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, memcached.getDaemon().getCache().getCurrentItems());
+    }
+
+    @Test
+    public void testCompletingAStageDoesNotChangeTheOtherCallersStages() {
+        CompletionStageCache<String> stageCache = cache;
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletionStage<String> first = stageCache.applyAsync("Key1", () -> slowSupplier(calls, "value1"), Duration.ofSeconds(60), executorService);
+        CompletionStage<String> second = stageCache.applyAsync("Key1", () -> slowSupplier(calls, "value2"), Duration.ofSeconds(60), executorService);
+        CompletionStage<String> third = stageCache.applyAsync("Key1", () -> slowSupplier(calls, "value3"), Duration.ofSeconds(60), executorService);
+
+        first.toCompletableFuture().complete("completed by the caller");
+        second.toCompletableFuture().obtrudeException(new RuntimeException("obtruded by the caller"));
+
+        assertEquals("completed by the caller", await(first));
+        assertEquals("value1", await(third));
+        assertEquals("value1", await(stageCache.applyAsync("Key1", () -> "value4", Duration.ofSeconds(60), executorService)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testHerdIsSharedWithTheListenableFutureApi() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.apply("Key1", () -> slowSupplier(calls, "value1"), Duration.ofSeconds(60), executorService);
+        CompletionStage<String> stage = cache.applyAsync("Key1", () -> slowSupplier(calls, "value2"), Duration.ofSeconds(60), executorService);
+
+        assertEquals("value1", await(stage));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testCachedValueIsObtained() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(await(cache.getAsync("Key1", executorService)));
+        assertEquals("value1", await(cache.applyAsync("Key1", () -> slowSupplier(calls, "value1"), Duration.ofSeconds(60), executorService)));
+        assertEquals("value1", await(cache.applyAsync("Key1", () -> slowSupplier(calls, "value2"), Duration.ofSeconds(60), executorService)));
+        assertEquals("value1", await(cache.getAsync("Key1", executorService)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSupplierFailureCompletesTheStageExceptionally() {
+        CompletionStage<String> stage = cache.applyAsync("Key1", () -> {
+            throw new IllegalStateException("backend unavailable");
+        }, Duration.ofSeconds(60), executorService);
+
+        try {
+            stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+            fail("the stage should have completed exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } catch (Exception e) {
+            fail("unexpected exception: " + e);
+        }
+
+        assertEquals("value1", await(cache.applyAsync("Key1", () -> "value1", Duration.ofSeconds(60), executorService)));
+    }
+
+    @Test
+    public void testInvalidItemIsReturnedWhilstRevalidating() throws InterruptedException {
+        assertEquals("value1", await(cache.applyAsync("Key1", () -> "value1", Duration.ofSeconds(60), executorService)));
+
+        CompletionStage<String> stale = cache.applyAsync("Key1", () -> "value2", Duration.ofSeconds(60), executorService,
+                (String value) -> true, (String value) -> !value.equals("value1"), true);
+        assertEquals("value1", await(stale));
+
+        String value = null;
+        for(int i=0;i<50 && !"value2".equals(value);i++) {
+            Thread.sleep(100);
+            value = await(cache.getAsync("Key1", executorService));
+        }
+        assertEquals("value2", value);
+    }
+}
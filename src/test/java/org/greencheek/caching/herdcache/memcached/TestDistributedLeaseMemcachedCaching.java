@@ -0,0 +1,240 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that, with the distributed lease, only one of several caches (i.e. JVMs) that share the same
+ * memcached calls the Supplier for a key
+ */
+public class TestDistributedLeaseMemcachedCaching {
+
+    MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private List<CacheWithExpiry<String>> caches;
+    MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        caches = new ArrayList<>();
+        registry = new MetricRegistry();
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for(CacheWithExpiry<String> cache : caches) {
+            if(cache instanceof RequiresShutdown) {
+                ((RequiresShutdown) cache).shutdown();
+            }
+        }
+
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    CacheWithExpiry<String> createCache(int port, Duration maxWait, boolean useStaleCache) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(1))
+                        .setUseStaleCache(useStaleCache)
+                        .setStaleCacheAdditionalTimeToLive(Duration.ofSeconds(10))
+                        .setUseDistributedLease(true)
+                        .setDistributedLeaseMaxWait(maxWait)
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    private CacheWithExpiry<String> newCache(Duration maxWait, boolean useStaleCache) {
+        CacheWithExpiry<String> cache = createCache(memcached.getPort(), maxWait, useStaleCache);
+        caches.add(cache);
+        return cache;
+    }
+
+    private Supplier<String> blockingSupplier(CountDownLatch latch, AtomicInteger calls, String value) {
+        return () -> {
+            calls.incrementAndGet();
+            try {
+                latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        };
+    }
+
+    @Test
+    public void testOnlyOneCacheCallsTheSupplier() throws Exception {
+        CacheWithExpiry<String> jvm1 = newCache(Duration.ofSeconds(5), false);
+        CacheWithExpiry<String> jvm2 = newCache(Duration.ofSeconds(5), false);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger jvm1Calls = new AtomicInteger();
+        AtomicInteger jvm2Calls = new AtomicInteger();
+
+        ListenableFuture<String> jvm1Value = jvm1.apply("Key1", blockingSupplier(latch, jvm1Calls, "jvm1"), executorService);
+        Thread.sleep(500);
+        ListenableFuture<String> jvm2Value = jvm2.apply("Key1", blockingSupplier(latch, jvm2Calls, "jvm2"), executorService);
+
+        Thread.sleep(500);
+        latch.countDown();
+
+        assertEquals("jvm1", jvm1Value.get(5, TimeUnit.SECONDS));
+        assertEquals("jvm1", jvm2Value.get(5, TimeUnit.SECONDS));
+        assertEquals(1, jvm1Calls.get());
+        assertEquals("The cache without the lease should not call the supplier", 0, jvm2Calls.get());
+        assertEquals(1, registry.counter("distributed_lease_acquired_count").getCount());
+        assertEquals(1, registry.counter("distributed_lease_lost_count").getCount());
+    }
+
+    @Test
+    public void testLeaseIsRemovedOnceValueIsCalculated() throws Exception {
+        CacheWithExpiry<String> jvm1 = newCache(Duration.ofSeconds(5), false);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        ListenableFuture<String> value = jvm1.apply("Key1", blockingSupplier(latch, new AtomicInteger(), "jvm1"), executorService);
+        Thread.sleep(500);
+
+        assertEquals("Lease should be held in memcached", 1, memcached.getDaemon().getCache().getCurrentItems());
+        latch.countDown();
+        assertEquals("jvm1", value.get(5, TimeUnit.SECONDS));
+
+        Thread.sleep(500);
+        assertEquals("Only the value should be in memcached", 1, memcached.getDaemon().getCache().getCurrentItems());
+        assertEquals("jvm1", jvm1.awaitForFutureOrElse(jvm1.get("Key1"), null));
+    }
+
+    private void awaitCurrentItems(long items) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(memcached.getDaemon().getCache().getCurrentItems() != items && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void testLeaseIsHeldUntilTheSupplierCompletesWhenTheStaleIfErrorDeadlinePasses() throws Exception {
+        CacheWithExpiry<String> jvm1 = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setUseDistributedLease(true)
+                        .setUseStaleIfError(true)
+                        .setStaleIfErrorSupplierTimeout(Duration.ofMillis(500))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .buildMemcachedConfig()
+        );
+        caches.add(jvm1);
+
+        assertEquals("last known", jvm1.awaitForFutureOrElse(jvm1.apply("Key1", () -> "last known", executorService), null));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        ListenableFuture<String> value = jvm1.apply("Key1", blockingSupplier(latch, new AtomicInteger(), "fresh"),
+                executorService, (v) -> true, (cached) -> false);
+
+        assertEquals("last known", value.get(5, TimeUnit.SECONDS));
+        // the lease is added asynchronously, so wait for it before checking it outlives the completed future
+        awaitCurrentItems(2);
+        Thread.sleep(500);
+        assertEquals("Lease should be held whilst the supplier is running", 2, memcached.getDaemon().getCache().getCurrentItems());
+
+        latch.countDown();
+        awaitCurrentItems(1);
+        assertEquals("Only the value should be in memcached", 1, memcached.getDaemon().getCache().getCurrentItems());
+        assertEquals("fresh", jvm1.awaitForFutureOrElse(jvm1.get("Key1"), null));
+    }
+
+    @Test
+    public void testSupplierIsNotRunOnTheMemcachedThreadWhenNoExecutorIsGiven() throws Exception {
+        CacheWithExpiry<String> jvm1 = newCache(Duration.ofSeconds(5), false);
+
+        AtomicReference<String> supplierThread = new AtomicReference<>();
+        ListenableFuture<String> value = jvm1.apply("Key1", () -> {
+            supplierThread.set(Thread.currentThread().getName());
+            return "jvm1";
+        });
+
+        assertEquals("jvm1", value.get(5, TimeUnit.SECONDS));
+        assertTrue("Supplier was run on: " + supplierThread.get(), supplierThread.get().startsWith("ForkJoinPool"));
+    }
+
+    @Test
+    public void testSupplierIsCalledAfterMaxWait() throws Exception {
+        CacheWithExpiry<String> jvm1 = newCache(Duration.ofMillis(500), false);
+        CacheWithExpiry<String> jvm2 = newCache(Duration.ofMillis(500), false);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger jvm1Calls = new AtomicInteger();
+
+        ListenableFuture<String> jvm1Value = jvm1.apply("Key1", blockingSupplier(latch, jvm1Calls, "jvm1"), executorService);
+        Thread.sleep(500);
+        ListenableFuture<String> jvm2Value = jvm2.apply("Key1", () -> "jvm2", executorService);
+
+        assertEquals("jvm2", jvm2Value.get(5, TimeUnit.SECONDS));
+        assertEquals(1, registry.counter("distributed_lease_wait_timeout_count").getCount());
+
+        latch.countDown();
+        assertEquals("jvm1", jvm1Value.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStaleValueIsReturnedAfterMaxWait() throws Exception {
+        CacheWithExpiry<String> jvm1 = newCache(Duration.ofMillis(500), true);
+        CacheWithExpiry<String> jvm2 = newCache(Duration.ofMillis(500), true);
+
+        assertEquals("stale", jvm1.awaitForFutureOrElse(jvm1.apply("Key1", () -> "stale", executorService), null));
+        // item expires, the stale item remains
+        Thread.sleep(2000);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger jvm2Calls = new AtomicInteger();
+
+        ListenableFuture<String> jvm1Value = jvm1.apply("Key1", blockingSupplier(latch, new AtomicInteger(), "fresh"), executorService);
+        Thread.sleep(500);
+        ListenableFuture<String> jvm2Value = jvm2.apply("Key1", blockingSupplier(latch, jvm2Calls, "jvm2"), executorService);
+
+        assertEquals("stale", jvm2Value.get(5, TimeUnit.SECONDS));
+        assertEquals(0, jvm2Calls.get());
+
+        latch.countDown();
+        assertEquals("fresh", jvm1Value.get(5, TimeUnit.SECONDS));
+    }
+}
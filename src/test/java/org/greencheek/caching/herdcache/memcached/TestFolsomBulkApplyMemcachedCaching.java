@@ -0,0 +1,36 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.memcached.config.MemcachedClientType;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+
+import java.time.Duration;
+
+/**
+ * Runs the bulk apply tests against the folsom client
+ */
+public class TestFolsomBulkApplyMemcachedCaching extends TestBulkApplyMemcachedCaching {
+
+    @Override
+    CacheWithExpiry<String> createCache(int port) {
+        CacheWithExpiry<String> cache = new FolsomMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMemcachedGetTimeout(Duration.ofMillis(500))
+                        .setMemcachedClientType(MemcachedClientType.FOLSOM)
+                        .buildElastiCacheMemcachedConfig()
+        );
+
+        // folsom connects to memcached in the background
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return cache;
+    }
+}
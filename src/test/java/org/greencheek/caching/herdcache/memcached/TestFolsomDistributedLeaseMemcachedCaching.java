@@ -0,0 +1,42 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.memcached.config.MemcachedClientType;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+
+import java.time.Duration;
+
+/**
+ * Runs the distributed lease tests against the folsom client
+ */
+public class TestFolsomDistributedLeaseMemcachedCaching extends TestDistributedLeaseMemcachedCaching {
+
+    @Override
+    CacheWithExpiry<String> createCache(int port, Duration maxWait, boolean useStaleCache) {
+        CacheWithExpiry<String> cache = new FolsomMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(1))
+                        .setUseStaleCache(useStaleCache)
+                        .setStaleCacheAdditionalTimeToLive(Duration.ofSeconds(10))
+                        .setUseDistributedLease(true)
+                        .setDistributedLeaseMaxWait(maxWait)
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMemcachedGetTimeout(Duration.ofMillis(500))
+                        .setMemcachedClientType(MemcachedClientType.FOLSOM)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildElastiCacheMemcachedConfig()
+        );
+
+        // folsom connects to memcached in the background
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,40 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.memcached.config.MemcachedClientType;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+
+import java.time.Duration;
+
+/**
+ * Runs the negative caching tests against the folsom client
+ */
+public class TestFolsomNegativeCachingMemcachedCaching extends TestNegativeCachingMemcachedCaching {
+
+    @Override
+    CacheWithExpiry<String> createCache(int port, boolean useNegativeCaching) {
+        CacheWithExpiry<String> cache = new FolsomMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setUseNegativeCaching(useNegativeCaching)
+                        .setNegativeCacheTimeToLive(Duration.ofSeconds(1))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMemcachedGetTimeout(Duration.ofMillis(500))
+                        .setMemcachedClientType(MemcachedClientType.FOLSOM)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildElastiCacheMemcachedConfig()
+        );
+
+        // folsom connects to memcached in the background
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return cache;
+    }
+}
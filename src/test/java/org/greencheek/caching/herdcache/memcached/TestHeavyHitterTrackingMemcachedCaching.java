@@ -0,0 +1,130 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.heavyhitters.HeavyHitter;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the most frequently requested keys are tracked, and exposed as gauges
+ */
+public class TestHeavyHitterTrackingMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(boolean useHeavyHitterTracking, int topK) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseHeavyHitterTracking(useHeavyHitterTracking)
+                        .setHeavyHitterTopK(topK)
+                        .setHeavyHitterSamplingRate(1)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @Test
+    public void testMostFrequentlyRequestedKeysAreTracked() {
+        cache = createCache(true, 2);
+
+        for(int i=0;i<100;i++) {
+            assertEquals("hot", cache.awaitForFutureOrElse(cache.apply("HotKey", () -> "hot", executorService), null));
+            if(i%2==0) {
+                assertEquals("warm", cache.awaitForFutureOrElse(cache.apply("WarmKey", () -> "warm", executorService), null));
+            }
+            assertEquals("cold", cache.awaitForFutureOrElse(cache.apply("ColdKey" + i, () -> "cold", executorService), null));
+        }
+
+        List<HeavyHitter> heavyHitters = ((HeavyHitterTrackingCache)cache).getHeavyHitters();
+        assertEquals(2, heavyHitters.size());
+        assertEquals("HotKey", heavyHitters.get(0).getKey());
+        assertEquals("WarmKey", heavyHitters.get(1).getKey());
+        assertTrue(heavyHitters.get(0).getEstimatedRequests() >= 100);
+        assertTrue(heavyHitters.get(0).getRequestsPerSecond() > 0);
+        assertTrue(heavyHitters.get(0).getRequestsPerSecond() > heavyHitters.get(1).getRequestsPerSecond());
+
+        Gauge requests = registry.getGauges().get("heavy_hitter_1_requests_per_second");
+        assertTrue(((Long) requests.getValue()) > 0);
+        assertTrue(registry.getGauges().containsKey("heavy_hitter_2_misses_per_second"));
+        assertTrue(registry.getGauges().containsKey("heavy_hitter_2_supplier_calls_per_second"));
+    }
+
+    @Test
+    public void testMissesAndSupplierCallsAreTracked() {
+        cache = createCache(true, 10);
+
+        for(int i=0;i<10;i++) {
+            assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> "value1", executorService), null));
+            memcached.getDaemon().getCache().flush_all();
+        }
+        assertEquals(null, cache.awaitForFutureOrElse(cache.get("Key1"), null));
+
+        List<HeavyHitter> heavyHitters = ((HeavyHitterTrackingCache)cache).getHeavyHitters();
+        assertEquals(1, heavyHitters.size());
+        HeavyHitter heavyHitter = heavyHitters.get(0);
+        assertEquals("Key1", heavyHitter.getKey());
+        assertEquals(11, heavyHitter.getEstimatedRequests());
+        assertEquals(heavyHitter.getRequestsPerSecond(), heavyHitter.getMissesPerSecond(), 0.001);
+        assertEquals(heavyHitter.getRequestsPerSecond() * 10 / 11, heavyHitter.getSupplierCallsPerSecond(), 0.001);
+    }
+
+    @Test
+    public void testNoHeavyHittersWhenTrackingIsDisabled() {
+        cache = createCache(false, 10);
+
+        assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> "value1", executorService), null));
+
+        assertTrue(((HeavyHitterTrackingCache)cache).getHeavyHitters().isEmpty());
+        assertTrue(registry.getGauges().keySet().stream().noneMatch(name -> name.startsWith("heavy_hitter")));
+    }
+}
@@ -0,0 +1,135 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that hot keys are replicated to the successor memcached nodes, and read from the replicas
+ */
+public class TestHotKeyReplicationMemcachedCaching {
+
+    private List<MemcachedDaemonWrapper> memcacheds;
+    private ListeningExecutorService executorService;
+    private List<CacheWithExpiry<String>> caches;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        registry = new MetricRegistry();
+        caches = new ArrayList<>();
+        memcacheds = new ArrayList<>();
+
+        for(int i=0;i<3;i++) {
+            MemcachedDaemonWrapper memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+            if(memcached.getDaemon()==null) {
+                throw new RuntimeException("Unable to start local memcached");
+            }
+            memcacheds.add(memcached);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for(CacheWithExpiry<String> cache : caches) {
+            if(cache instanceof RequiresShutdown) {
+                ((RequiresShutdown) cache).shutdown();
+            }
+        }
+
+        for(MemcachedDaemonWrapper memcached : memcacheds) {
+            memcached.getDaemon().stop();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(String hotKey, Duration hedgedReadDelay) {
+        String hosts = "localhost:" + memcacheds.get(0).getPort() + ",localhost:" + memcacheds.get(1).getPort() +
+                ",localhost:" + memcacheds.get(2).getPort();
+
+        CacheWithExpiry<String> cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts(hosts)
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setHotKeys(hotKey == null ? Collections.<String>emptySet() : Collections.singleton(hotKey))
+                        .setHotKeyReplicas(2)
+                        .setHotKeyHedgedReadDelay(hedgedReadDelay)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+        caches.add(cache);
+        return cache;
+    }
+
+    private long getCurrentItems(int memcached) {
+        return memcacheds.get(memcached).getDaemon().getCache().getCurrentItems();
+    }
+
+    @Test
+    public void testHotKeyIsReplicatedToEachNode() throws Exception {
+        CacheWithExpiry<String> cache = createCache("Key1", Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        // replicas are written without waiting
+        Thread.sleep(500);
+        assertEquals(1, getCurrentItems(0));
+        assertEquals(1, getCurrentItems(1));
+        assertEquals(1, getCurrentItems(2));
+
+        for(int i=0;i<20;i++) {
+            assertEquals("value1", cache.awaitForFutureOrElse(cache.get("Key1"), null));
+            assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> "should not be called", executorService), null));
+        }
+        assertTrue(registry.counter("hot_key_replica_hitcount").getCount() > 0);
+    }
+
+    @Test
+    public void testNonHotKeyIsNotReplicated() throws Exception {
+        CacheWithExpiry<String> cache = createCache("Key2", Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        Thread.sleep(500);
+        assertEquals(1, getCurrentItems(0) + getCurrentItems(1) + getCurrentItems(2));
+    }
+
+    @Test
+    public void testOriginalItemIsReadWhenReplicaIsMissing() {
+        CacheWithExpiry<String> writer = createCache(null, Duration.ZERO);
+        CacheWithExpiry<String> reader = createCache("Key1", Duration.ofMillis(1));
+
+        ListenableFuture<String> val = writer.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", writer.awaitForFutureOrElse(val, null));
+
+        for(int i=0;i<20;i++) {
+            assertEquals("value1", reader.awaitForFutureOrElse(reader.get("Key1"), null));
+        }
+    }
+}
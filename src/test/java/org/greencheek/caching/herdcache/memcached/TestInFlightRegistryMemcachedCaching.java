@@ -0,0 +1,123 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the futures in flight are not evicted when more keys than the max capacity are in flight
+ */
+public class TestInFlightRegistryMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(20));
+        registry = new MetricRegistry();
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setMaxCapacity(2)
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private long gauge(String name) {
+        return (Long)((Gauge)registry.getGauges().get(name)).getValue();
+    }
+
+    @Test
+    public void testHerdProtectionIsKeptWhenMoreKeysThanMaxCapacityAreInFlight() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        int keys = 10;
+
+        List<ListenableFuture<String>> first = new ArrayList<>();
+        for(int i=0;i<keys;i++) {
+            final String value = "value" + i;
+            first.add(cache.apply("Key" + i, () -> {
+                calls.incrementAndGet();
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            }, executorService));
+        }
+
+        assertEquals(keys, gauge("value_calculation_in_flight"));
+
+        List<ListenableFuture<String>> second = new ArrayList<>();
+        for(int i=0;i<keys;i++) {
+            second.add(cache.apply("Key" + i, () -> {
+                calls.incrementAndGet();
+                return "should not be called";
+            }, executorService));
+        }
+
+        latch.countDown();
+
+        for(int i=0;i<keys;i++) {
+            assertEquals("value" + i, first.get(i).get(5, TimeUnit.SECONDS));
+            assertEquals("value" + i, second.get(i).get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(keys, calls.get());
+
+        // futures are removed from the registry once completed
+        Thread.sleep(200);
+        assertEquals(0, gauge("value_calculation_in_flight"));
+        assertEquals(keys, gauge("value_calculation_in_flight_peak"));
+    }
+}
@@ -0,0 +1,171 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.latency.LatencySnapshot;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the latencies of the memcached operations are recorded by node, along with the supplier,
+ * decode and queue wait latencies, and exposed as gauges and over JMX
+ */
+public class TestLatencyInstrumentationMemcachedCaching {
+
+    private static final String JMX_NAME = "TestLatencyInstrumentationMemcachedCaching";
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(boolean useLatencyInstrumentation) {
+        return createCache(useLatencyInstrumentation, true);
+    }
+
+    private CacheWithExpiry<String> createCache(boolean useLatencyInstrumentation, boolean waitForMemcachedSet) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(waitForMemcachedSet)
+                        .setUseLatencyInstrumentation(useLatencyInstrumentation)
+                        .setLatencySnapshotInterval(Duration.ofMillis(100))
+                        .setLatencyJmxName(JMX_NAME)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    private static String getNodeSeries(Map<String,LatencySnapshot> snapshots, String series) {
+        for(Map.Entry<String,LatencySnapshot> entry : snapshots.entrySet()) {
+            if(entry.getKey().startsWith(series + "_") && !entry.getKey().endsWith("_unknown")
+                    && entry.getValue().getCount() > 0) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasLatencies(Map<String,LatencySnapshot> snapshots, String series) {
+        return snapshots.containsKey(series) && snapshots.get(series).getCount() > 0;
+    }
+
+    @Test
+    public void testLatenciesAreRecordedByNode() throws Exception {
+        cache = createCache(true);
+
+        // the snapshots are of the latest interval, so keep the cache busy until an interval has seen each operation
+        Map<String,LatencySnapshot> snapshots = Collections.emptyMap();
+        long deadline = System.currentTimeMillis() + 10000;
+        for(int i=0;System.currentTimeMillis() < deadline;i++) {
+            final String value = "value" + i;
+            assertEquals(value, cache.awaitForFutureOrElse(cache.apply("Key" + i, () -> value, executorService), null));
+            assertEquals(value, cache.awaitForFutureOrElse(cache.get("Key" + i), null));
+
+            snapshots = ((LatencyTrackingCache)cache).getLatencySnapshots();
+            if(getNodeSeries(snapshots, "latency_memcached_get") != null
+                    && getNodeSeries(snapshots, "latency_memcached_set") != null
+                    && hasLatencies(snapshots, "latency_supplier")
+                    && hasLatencies(snapshots, "latency_queue_wait")
+                    && hasLatencies(snapshots, "latency_decode")) {
+                break;
+            }
+        }
+
+        String getSeries = getNodeSeries(snapshots, "latency_memcached_get");
+        assertNotNull(getSeries);
+        assertTrue(getSeries.endsWith("_" + memcached.getPort()));
+        LatencySnapshot gets = snapshots.get(getSeries);
+        assertTrue(gets.getP99Nanos() > 0);
+        assertTrue(gets.getMaxNanos() >= gets.getP50Nanos());
+
+        assertNotNull(getNodeSeries(snapshots, "latency_memcached_set"));
+        assertTrue(hasLatencies(snapshots, "latency_supplier"));
+        assertTrue(hasLatencies(snapshots, "latency_queue_wait"));
+        assertTrue(hasLatencies(snapshots, "latency_decode"));
+
+        assertTrue(registry.getGauges().containsKey(getSeries + "_p99"));
+        assertTrue(registry.getGauges().containsKey("latency_supplier_count"));
+
+        ObjectName objectName = new ObjectName("org.greencheek.caching.herdcache:type=LatencyInstrumentation,name=" + JMX_NAME);
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+
+        ((RequiresShutdown) cache).shutdown();
+        cache = null;
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+    @Test
+    public void testSetLatenciesAreRecordedWhenTheSetIsNotWaitedFor() {
+        cache = createCache(true, false);
+
+        String setSeries = null;
+        long deadline = System.currentTimeMillis() + 10000;
+        for(int i=0;setSeries == null && System.currentTimeMillis() < deadline;i++) {
+            final String value = "value" + i;
+            assertEquals(value, cache.awaitForFutureOrElse(cache.apply("Key" + i, () -> value, executorService), null));
+            setSeries = getNodeSeries(((LatencyTrackingCache)cache).getLatencySnapshots(), "latency_memcached_set");
+        }
+
+        assertNotNull(setSeries);
+        assertTrue(setSeries.endsWith("_" + memcached.getPort()));
+    }
+
+    @Test
+    public void testNoLatenciesWhenInstrumentationIsDisabled() {
+        cache = createCache(false);
+
+        assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> "value1", executorService), null));
+
+        assertTrue(((LatencyTrackingCache)cache).getLatencySnapshots().isEmpty());
+        assertTrue(registry.getGauges().keySet().stream().noneMatch(name -> name.startsWith("latency_")));
+    }
+}
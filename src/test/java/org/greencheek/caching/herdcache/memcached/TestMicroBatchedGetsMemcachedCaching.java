@@ -0,0 +1,105 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that concurrent gets, sent to memcached as micro batched multi-gets, each obtain their own value
+ */
+public class TestMicroBatchedGetsMemcachedCaching {
+
+    private List<MemcachedDaemonWrapper> memcacheds;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(20));
+        memcacheds = new ArrayList<>();
+
+        for(int i=0;i<2;i++) {
+            MemcachedDaemonWrapper memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+            if(memcached.getDaemon()==null) {
+                throw new RuntimeException("Unable to start local memcached");
+            }
+            memcacheds.add(memcached);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        for(MemcachedDaemonWrapper memcached : memcacheds) {
+            memcached.getDaemon().stop();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(boolean asyncReads) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcacheds.get(0).getPort() + ",localhost:" + memcacheds.get(1).getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseAsyncCacheReads(asyncReads)
+                        .setUseMicroBatchedGets(true)
+                        .setMicroBatchWindow(Duration.ofMillis(1))
+                        .setMicroBatchMaxKeys(16)
+                        .buildMemcachedConfig()
+        );
+    }
+
+    private void assertConcurrentGetsObtainTheirOwnValue() {
+        for(int i=0;i<50;i++) {
+            final String value = "value" + i;
+            assertEquals(value, cache.awaitForFutureOrElse(cache.apply("Key" + i, () -> value, executorService), null));
+        }
+
+        List<ListenableFuture<String>> gets = new ArrayList<>();
+        for(int i=0;i<100;i++) {
+            gets.add(cache.get("Key" + i, executorService));
+        }
+
+        for(int i=0;i<50;i++) {
+            assertEquals("value" + i, cache.awaitForFutureOrElse(gets.get(i), null));
+        }
+        for(int i=50;i<100;i++) {
+            assertNull(cache.awaitForFutureOrElse(gets.get(i), "not found"));
+        }
+    }
+
+    @Test
+    public void testAsyncGetsAreBatched() {
+        cache = createCache(true);
+        assertConcurrentGetsObtainTheirOwnValue();
+    }
+
+    @Test
+    public void testBlockingGetsAreBatched() {
+        cache = createCache(false);
+        assertConcurrentGetsObtainTheirOwnValue();
+    }
+}
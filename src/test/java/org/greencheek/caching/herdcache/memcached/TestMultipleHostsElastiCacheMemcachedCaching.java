@@ -233,5 +233,39 @@ public class TestMultipleHostsElastiCacheMemcachedCaching {
         testHashAlgorithm(new AsciiXXHashAlogrithm());
     }
 
+    @Test
+    public void testNodesAreLocatedFromTheKeyHash() {
+        for(KeyHashingType keyHashingType : new KeyHashingType[]{KeyHashingType.JAVA_XXHASH_64, KeyHashingType.MD5_LOWER}) {
+            memcached1.getDaemon().getCache().flush_all();
+            memcached2.getDaemon().getCache().flush_all();
+            cache = new SpyMemcachedCache<String>(
+                    new ElastiCacheCacheConfigBuilder()
+                            .setMemcachedHosts("localhost:" + memcached1.getPort() + ",localhost:" + memcached2.getPort())
+                            .setTimeToLive(Duration.ofSeconds(60))
+                            .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                            .setWaitForMemcachedSet(true)
+                            .setKeyHashType(keyHashingType)
+                            .setUseKeyHashForNodeLocation(true)
+                            .setUseStaleCache(true)
+                            .buildMemcachedConfig()
+            );
+
+            try {
+                for (int i = 0; i < 50; i++) {
+                    final String value = "value" + i;
+                    assertEquals(value, cache.awaitForFutureOrElse(cache.apply("Key" + i, () -> value, executorService), null));
+                }
+                for (int i = 0; i < 50; i++) {
+                    assertEquals("value" + i, cache.awaitForFutureOrElse(cache.get("Key" + i), null));
+                }
+
+                assertTrue(memcached1.getDaemon().getCache().getCurrentItems() > 1);
+                assertTrue(memcached2.getDaemon().getCache().getCurrentItems() > 1);
+            } finally {
+                ((RequiresShutdown) cache).shutdown();
+            }
+        }
+    }
+
 
 }
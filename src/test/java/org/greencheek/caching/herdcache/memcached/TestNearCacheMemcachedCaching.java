@@ -0,0 +1,192 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the in process near cache, that sits in front of memcached
+ */
+public class TestNearCacheMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(Duration nearCacheTimeToLive, Duration nearCacheMaxStaleness) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseNearCache(true)
+                        .setNearCacheTimeToLive(nearCacheTimeToLive)
+                        .setNearCacheMaxStaleness(nearCacheMaxStaleness)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @Test
+    public void testValueIsServedFromNearCache() {
+        cache = createCache(Duration.ofSeconds(10), Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        memcached.getDaemon().getCache().flush_all();
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value2", executorService);
+        assertEquals("Value should be from the near cache", "value1", cache.awaitForFutureOrElse(val2, null));
+
+        ListenableFuture<String> val3 = cache.get("Key1", executorService);
+        assertEquals("Value should be from the near cache", "value1", cache.awaitForFutureOrElse(val3, null));
+
+        assertEquals(2, registry.counter("near_cache_hitcount").getCount());
+    }
+
+    @Test
+    public void testNearCacheEntryExpires() throws InterruptedException {
+        cache = createCache(Duration.ofMillis(500), Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        memcached.getDaemon().getCache().flush_all();
+        Thread.sleep(1000);
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value2", executorService);
+        assertEquals("Near cache entry should have expired", "value2", cache.awaitForFutureOrElse(val2, null));
+    }
+
+    @Test
+    public void testStaleNearCacheEntryIsRefreshedFromMemcached() throws InterruptedException {
+        cache = createCache(Duration.ofMillis(500), Duration.ofSeconds(10));
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        // another node updates memcached
+        CacheWithExpiry<String> otherNode = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .buildMemcachedConfig());
+        try {
+            assertEquals("value2", otherNode.awaitForFutureOrElse(otherNode.set("Key1", "value2", executorService), null));
+        } finally {
+            ((RequiresShutdown)otherNode).shutdown();
+        }
+
+        Thread.sleep(1000);
+
+        ListenableFuture<String> stale = cache.apply("Key1", () -> "value3", executorService);
+        assertEquals("Stale value should be served whilst refreshed", "value1", cache.awaitForFutureOrElse(stale, null));
+
+        Thread.sleep(500);
+
+        ListenableFuture<String> refreshed = cache.apply("Key1", () -> "value3", executorService);
+        assertEquals("Value should have been refreshed from memcached", "value2", cache.awaitForFutureOrElse(refreshed, null));
+    }
+
+    @Test
+    public void testSetUpdatesNearCache() {
+        cache = createCache(Duration.ofSeconds(10), Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        ListenableFuture<String> set = cache.set("Key1", "value2", executorService);
+        assertEquals("value2", cache.awaitForFutureOrElse(set, null));
+
+        memcached.getDaemon().getCache().flush_all();
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value3", executorService);
+        assertEquals("Near cache should contain the set value", "value2", cache.awaitForFutureOrElse(val2, null));
+    }
+
+    @Test
+    public void testClearRemovesFromNearCache() {
+        cache = createCache(Duration.ofSeconds(10), Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        ((ClearableCache)cache).clear("Key1");
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value2", executorService);
+        assertEquals("Near cache entry should have been removed", "value2", cache.awaitForFutureOrElse(val2, null));
+    }
+
+    @Test
+    public void testNearCacheHitsShareTheCompletedFuture() {
+        cache = createCache(Duration.ofSeconds(10), Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "value1", executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        ListenableFuture<String> hit1 = cache.apply("Key1", () -> "value2");
+        ListenableFuture<String> hit2 = cache.get("Key1");
+        assertSame("Near cache hits should not allocate a future per hit", hit1, hit2);
+
+        // a caller cannot change the value seen by the other callers
+        CompletableFuture<String> shared = (CompletableFuture<String>) hit1;
+        assertFalse(shared.complete("value3"));
+        assertFalse(shared.cancel(true));
+        try {
+            shared.obtrudeValue("value3");
+            fail("The value of the shared future should not be changeable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals("value1", cache.awaitForFutureOrElse(hit2, null));
+    }
+}
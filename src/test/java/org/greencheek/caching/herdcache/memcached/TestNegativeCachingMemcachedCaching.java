@@ -0,0 +1,163 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that null (and non cacheable) supplier results are stored in memcached as a sentinel, and that
+ * the supplier is not called whilst the sentinel is in memcached.
+ */
+public class TestNegativeCachingMemcachedCaching {
+
+    MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        registry = new MetricRegistry();
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    CacheWithExpiry<String> createCache(int port, boolean useNegativeCaching) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setUseNegativeCaching(useNegativeCaching)
+                        .setNegativeCacheTimeToLive(Duration.ofSeconds(1))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @Test
+    public void testNullSupplierResultIsNegativelyCached() {
+        cache = createCache(memcached.getPort(), true);
+        AtomicInteger calls = new AtomicInteger();
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> { calls.incrementAndGet(); return null; }, executorService);
+        assertNull(cache.awaitForFutureOrElse(val, "notnull"));
+        assertEquals(1, memcached.getDaemon().getCache().getCurrentItems());
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> { calls.incrementAndGet(); return "value"; }, executorService);
+        assertNull(cache.awaitForFutureOrElse(val2, "notnull"));
+
+        assertEquals("Supplier should not be called whilst the key is negatively cached", 1, calls.get());
+        assertEquals(1, registry.counter("negative_cache_hitcount").getCount());
+        assertEquals(1, registry.counter("negative_cache_writes_count").getCount());
+    }
+
+    @Test
+    public void testNonCacheableSupplierResultIsNegativelyCached() {
+        cache = createCache(memcached.getPort(), true);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "error page", executorService, (value) -> false);
+        assertEquals("error page", cache.awaitForFutureOrElse(val, null));
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value", executorService);
+        assertNull(cache.awaitForFutureOrElse(val2, "notnull"));
+    }
+
+    @Test
+    public void testNegativeCacheEntryExpires() throws Exception {
+        cache = createCache(memcached.getPort(), true);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> null, executorService);
+        assertNull(cache.awaitForFutureOrElse(val, "notnull"));
+
+        Thread.sleep(2500);
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> "value", executorService);
+        assertEquals("value", cache.awaitForFutureOrElse(val2, null));
+    }
+
+    @Test
+    public void testGetReturnsNullForNegativeCacheEntry() {
+        cache = createCache(memcached.getPort(), true);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> null, executorService);
+        assertNull(cache.awaitForFutureOrElse(val, "notnull"));
+
+        assertNull(cache.awaitForFutureOrElse(cache.get("Key1"), "notnull"));
+    }
+
+    @Test
+    public void testBulkApplyNegativelyCachesMissingValues() {
+        cache = createCache(memcached.getPort(), true);
+        AtomicInteger calls = new AtomicInteger();
+
+        Map<String,ListenableFuture<String>> values = cache.applyAll(Arrays.asList("Key1", "Key2"), (keys) -> {
+            calls.incrementAndGet();
+            return Collections.singletonMap("Key1", "value1");
+        }, executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(values.get("Key1"), null));
+        assertNull(cache.awaitForFutureOrElse(values.get("Key2"), "notnull"));
+
+        Map<String,ListenableFuture<String>> values2 = cache.applyAll(Arrays.asList("Key1", "Key2"), (keys) -> {
+            calls.incrementAndGet();
+            return Collections.singletonMap("Key2", "value2");
+        }, executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(values2.get("Key1"), null));
+        assertNull(cache.awaitForFutureOrElse(values2.get("Key2"), "notnull"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testNullIsNotCachedWhenNegativeCachingDisabled() {
+        cache = createCache(memcached.getPort(), false);
+        AtomicInteger calls = new AtomicInteger();
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> { calls.incrementAndGet(); return null; }, executorService);
+        assertNull(cache.awaitForFutureOrElse(val, "notnull"));
+        assertEquals(0, memcached.getDaemon().getCache().getCurrentItems());
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> { calls.incrementAndGet(); return "value"; }, executorService);
+        assertEquals("value", cache.awaitForFutureOrElse(val2, null));
+        assertEquals(2, calls.get());
+    }
+}
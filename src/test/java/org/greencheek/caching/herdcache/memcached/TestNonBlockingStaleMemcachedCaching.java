@@ -0,0 +1,116 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the requests waiting on a value that is being calculated are given the stale value,
+ * without blocking the calling thread.
+ */
+public class TestNonBlockingStaleMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private ListeningExecutorService requestExecutorService;
+    private CacheWithExpiry<String> cache;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        requestExecutorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(20));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(1))
+                        .setUseStaleCache(true)
+                        .setStaleCacheAdditionalTimeToLive(Duration.ofSeconds(10))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+        requestExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequestsReceiveStaleValueWithoutBlocking() throws Exception {
+        ListenableFuture<String> val = cache.apply("Key1", () -> "stale", executorService);
+        assertEquals("stale", cache.awaitForFutureOrElse(val, null));
+
+        Thread.sleep(2000);
+
+        CountDownLatch supplierLatch = new CountDownLatch(1);
+        ListenableFuture<String> fresh = cache.apply("Key1", () -> {
+            try {
+                supplierLatch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "fresh";
+        }, executorService);
+
+        int requests = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        List<ListenableFuture<ListenableFuture<String>>> submitted = new ArrayList<>();
+        for(int i=0;i<requests;i++) {
+            submitted.add(requestExecutorService.submit(() -> {
+                start.await();
+                return cache.apply("Key1", () -> "should not be called", executorService);
+            }));
+        }
+        start.countDown();
+
+        List<ListenableFuture<String>> waiters = new ArrayList<>();
+        for(ListenableFuture<ListenableFuture<String>> request : submitted) {
+            // apply(..) should return without waiting on the stale lookup
+            waiters.add(request.get(1, TimeUnit.SECONDS));
+        }
+
+        for(ListenableFuture<String> waiter : waiters) {
+            assertEquals("stale", waiter.get(2, TimeUnit.SECONDS));
+        }
+
+        assertTrue("value should still be being calculated", !fresh.isDone());
+        supplierLatch.countDown();
+        assertEquals("fresh", cache.awaitForFutureOrElse(fresh, null));
+    }
+}
@@ -0,0 +1,126 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the probabilistic early recomputation (XFetch) of items that are close to expiry
+ */
+public class TestProbabilisticEarlyRecomputationMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(double beta) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseProbabilisticEarlyRecomputation(true)
+                        .setProbabilisticEarlyRecomputationBeta(beta)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    private String slowValue(String value, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    @Test
+    public void testItemCloseToExpiryIsRecomputedInBackground() throws InterruptedException {
+        cache = createCache(10000);
+        AtomicInteger calls = new AtomicInteger();
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> { calls.incrementAndGet(); return slowValue("value1", 200); },
+                Duration.ofSeconds(2), executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        ListenableFuture<String> val2 = cache.apply("Key1", () -> { calls.incrementAndGet(); return "value2"; },
+                Duration.ofSeconds(2), executorService);
+        assertEquals("Cached value should be returned whilst recomputing", "value1", cache.awaitForFutureOrElse(val2, null));
+
+        Thread.sleep(500);
+
+        assertEquals(2, calls.get());
+        assertEquals(1, registry.counter("early_recomputation_count").getCount());
+
+        ListenableFuture<String> val3 = cache.get("Key1", executorService);
+        assertEquals("Value should have been recomputed", "value2", cache.awaitForFutureOrElse(val3, null));
+    }
+
+    @Test
+    public void testItemNotCloseToExpiryIsNotRecomputed() throws InterruptedException {
+        cache = createCache(1.0);
+        AtomicInteger calls = new AtomicInteger();
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> { calls.incrementAndGet(); return "value1"; },
+                Duration.ofSeconds(60), executorService);
+        assertEquals("value1", cache.awaitForFutureOrElse(val, null));
+
+        for(int i=0;i<10;i++) {
+            ListenableFuture<String> cached = cache.apply("Key1", () -> { calls.incrementAndGet(); return "value2"; },
+                    Duration.ofSeconds(60), executorService);
+            assertEquals("value1", cache.awaitForFutureOrElse(cached, null));
+        }
+
+        Thread.sleep(200);
+        assertEquals(1, calls.get());
+        assertEquals(0, registry.counter("early_recomputation_count").getCount());
+
+        ListenableFuture<String> val3 = cache.get("Key1", executorService);
+        assertEquals("Envelope should not be returned", "value1", cache.awaitForFutureOrElse(val3, null));
+    }
+}
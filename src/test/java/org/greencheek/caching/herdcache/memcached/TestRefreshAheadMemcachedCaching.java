@@ -0,0 +1,128 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that hot keys are recomputed in the background before they expire, within the refresh budget
+ */
+public class TestRefreshAheadMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    private CacheWithExpiry<String> createCache(double maxRefreshesPerSecond) {
+        return new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(3))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseRefreshAhead(true)
+                        .setRefreshAheadMinAccessesPerMinute(5)
+                        .setRefreshAheadTime(Duration.ofSeconds(1))
+                        .setRefreshAheadMaxRefreshesPerSecond(maxRefreshesPerSecond)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    private String apply(String key, AtomicInteger supplierCalls) {
+        return cache.awaitForFutureOrElse(cache.apply(key, () -> "value" + supplierCalls.incrementAndGet(), executorService), null);
+    }
+
+    @Test
+    public void testHotKeyIsRefreshedBeforeExpiry() throws Exception {
+        cache = createCache(10);
+        AtomicInteger supplierCalls = new AtomicInteger();
+
+        for(int i=0;i<10;i++) {
+            assertEquals("value1", apply("Key1", supplierCalls));
+        }
+
+        // refreshed a second before the item expires
+        Thread.sleep(2500);
+        assertEquals(2, supplierCalls.get());
+        assertEquals(1, registry.counter("refresh_ahead_count").getCount());
+
+        // the original item would have expired
+        Thread.sleep(1000);
+        assertEquals("value2", apply("Key1", supplierCalls));
+        assertEquals(2, supplierCalls.get());
+    }
+
+    @Test
+    public void testColdKeyIsNotRefreshed() throws Exception {
+        cache = createCache(10);
+        AtomicInteger supplierCalls = new AtomicInteger();
+
+        for(int i=0;i<3;i++) {
+            assertEquals("value1", apply("Key1", supplierCalls));
+        }
+
+        Thread.sleep(2500);
+        assertEquals(1, supplierCalls.get());
+        assertEquals(0, registry.counter("refresh_ahead_count").getCount());
+    }
+
+    @Test
+    public void testRefreshesAreLimitedByTheBudget() throws Exception {
+        cache = createCache(0.1);
+        AtomicInteger supplierCalls1 = new AtomicInteger();
+        AtomicInteger supplierCalls2 = new AtomicInteger();
+
+        for(int i=0;i<10;i++) {
+            assertEquals("value1", apply("Key1", supplierCalls1));
+            assertEquals("value1", apply("Key2", supplierCalls2));
+        }
+
+        Thread.sleep(2500);
+        assertEquals(1, registry.counter("refresh_ahead_count").getCount());
+        assertEquals(1, registry.counter("refresh_ahead_budget_exceeded_count").getCount());
+        assertEquals(3, supplierCalls1.get() + supplierCalls2.get());
+    }
+}
@@ -0,0 +1,85 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.StaleCacheMode;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs the stale cache tests, with the stale value held in the same memcached item as the fresh value
+ */
+public class TestSingleItemStaleMemcachedCaching extends TestStaleMemcachedCaching {
+
+    @Override
+    CacheWithExpiry<String> createCache(int port) {
+        if(cache!=null) {
+            ((RequiresShutdown)cache).shutdown();
+        }
+
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + port)
+                        .setTimeToLive(Duration.ofSeconds(1))
+                        .setUseStaleCache(true)
+                        .setStaleCacheMode(StaleCacheMode.SINGLE_ITEM)
+                        .setStaleCacheAdditionalTimeToLive(Duration.ofSeconds(4))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+
+        return cache;
+    }
+
+    @Test
+    public void testOneItemIsStoredInMemcached() throws InterruptedException {
+        ListenableFuture<String> val = cache.apply("Key1", () -> "will be stale", executorService);
+        assertEquals("will be stale", cache.awaitForFutureOrElse(val, null));
+
+        assertEquals("Stale value should not be written as a separate item", 1, memcached.getDaemon().getCache().getCurrentItems());
+
+        Thread.sleep(1500);
+
+        ListenableFuture<String> get = cache.get("Key1", executorService);
+        assertNull("Item past its soft expiry should not be returned as fresh", cache.awaitForFutureOrElse(get, "notnull"));
+        assertEquals("Item should still be in memcached as a stale value", 1, memcached.getDaemon().getCache().getCurrentItems());
+    }
+
+    @Test
+    public void testNoEarlyRecomputationBeforeTheSoftExpiry() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        // a slow supplier makes an early recomputation (were it enabled) likely on a hit well before the expiry
+        ListenableFuture<String> val = cache.apply("Key1", () -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value";
+        }, executorService);
+        assertEquals("value", cache.awaitForFutureOrElse(val, null));
+
+        for(int i=0;i<50;i++) {
+            ListenableFuture<String> hit = cache.apply("Key1", () -> {
+                calls.incrementAndGet();
+                return "recomputed";
+            }, executorService);
+            assertEquals("value", cache.awaitForFutureOrElse(hit, null));
+        }
+
+        Thread.sleep(200);
+        assertEquals("Supplier should not be called before the soft expiry", 1, calls.get());
+    }
+}
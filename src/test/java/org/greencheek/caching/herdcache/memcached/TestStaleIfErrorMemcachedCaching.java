@@ -0,0 +1,201 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.predicates.StatefulPredicate;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the last known value is returned when the Supplier fails, or exceeds its deadline
+ */
+public class TestStaleIfErrorMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private CacheWithExpiry<String> cache;
+    private MetricRegistry registry;
+
+    @Before
+    public void setUp() {
+        executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+        registry = new MetricRegistry();
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    /**
+     * The metric is recorded after the future is completed, so may not be visible the moment the value is
+     */
+    private void assertStaleIfErrorCount(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while(registry.counter("stale_if_error_count").getCount() < expected &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, registry.counter("stale_if_error_count").getCount());
+    }
+
+    private CacheWithExpiry<String> createCache(boolean useStaleIfError, boolean useStaleCache, Duration supplierTimeout) {
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(1))
+                        .setUseStaleCache(useStaleCache)
+                        .setStaleCacheAdditionalTimeToLive(Duration.ofSeconds(10))
+                        .setUseStaleIfError(useStaleIfError)
+                        .setStaleIfErrorSupplierTimeout(supplierTimeout)
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+        return cache;
+    }
+
+    @Test
+    public void testInvalidCachedValueReturnedWhenSupplierFails() throws Exception {
+        createCache(true, false, Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "last known", executorService);
+        assertEquals("last known", cache.awaitForFutureOrElse(val, null));
+
+        ListenableFuture<String> failed = cache.apply("Key1", () -> {
+            throw new RuntimeException("backend down");
+        }, executorService, (value) -> true, (cached) -> false);
+
+        assertEquals("last known", cache.awaitForFutureOrElse(failed, null));
+        assertStaleIfErrorCount(1);
+    }
+
+    @Test
+    public void testStatefulPredicateTestedObjectReturnedWhenSupplierFails() {
+        createCache(true, false, Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "last known", executorService);
+        assertEquals("last known", cache.awaitForFutureOrElse(val, null));
+
+        StatefulPredicate<String> isValid = new StatefulPredicate<>((cached) -> false);
+        ListenableFuture<String> failed = cache.apply("Key1", () -> {
+            throw new RuntimeException("backend down");
+        }, executorService, (value) -> true, isValid);
+
+        assertEquals("last known", cache.awaitForFutureOrElse(failed, null));
+        assertEquals("last known", isValid.getTestedObject());
+    }
+
+    @Test
+    public void testStaleItemReturnedWhenSupplierFails() throws Exception {
+        createCache(true, true, Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "stale", executorService);
+        assertEquals("stale", cache.awaitForFutureOrElse(val, null));
+
+        Thread.sleep(2000);
+
+        ListenableFuture<String> failed = cache.apply("Key1", () -> {
+            throw new RuntimeException("backend down");
+        }, executorService);
+
+        assertEquals("stale", cache.awaitForFutureOrElse(failed, null));
+        assertStaleIfErrorCount(1);
+    }
+
+    @Test
+    public void testExceptionReturnedWhenNoLastKnownValue() throws Exception {
+        createCache(true, true, Duration.ZERO);
+
+        ListenableFuture<String> failed = cache.apply("Key1", () -> {
+            throw new RuntimeException("backend down");
+        }, executorService);
+
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("Exception from the supplier should be returned");
+        } catch (ExecutionException e) {
+            assertEquals("backend down", e.getCause().getMessage());
+        }
+        assertEquals(0, registry.counter("stale_if_error_count").getCount());
+    }
+
+    @Test
+    public void testExceptionReturnedWhenStaleIfErrorDisabled() throws Exception {
+        createCache(false, false, Duration.ZERO);
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "last known", executorService);
+        assertEquals("last known", cache.awaitForFutureOrElse(val, null));
+
+        ListenableFuture<String> failed = cache.apply("Key1", () -> {
+            throw new RuntimeException("backend down");
+        }, executorService, (value) -> true, (cached) -> false);
+
+        assertNull(cache.awaitForFutureOrElse(failed, null));
+        assertEquals(0, registry.counter("stale_if_error_count").getCount());
+    }
+
+    @Test
+    public void testLastKnownValueReturnedWhenSupplierExceedsDeadline() throws Exception {
+        createCache(true, false, Duration.ofMillis(500));
+
+        ListenableFuture<String> val = cache.apply("Key1", () -> "last known", executorService);
+        assertEquals("last known", cache.awaitForFutureOrElse(val, null));
+
+        CountDownLatch supplierLatch = new CountDownLatch(1);
+        ListenableFuture<String> slow = cache.apply("Key1", () -> {
+            try {
+                supplierLatch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "fresh";
+        }, executorService, (value) -> true, (cached) -> false);
+
+        assertEquals("last known", slow.get(2, TimeUnit.SECONDS));
+        assertStaleIfErrorCount(1);
+
+        // concurrent requests are given the last known value, whilst the supplier is running
+        ListenableFuture<String> concurrent = cache.apply("Key1", () -> "should not be called", executorService);
+        assertEquals("last known", concurrent.get(1, TimeUnit.SECONDS));
+
+        supplierLatch.countDown();
+        Thread.sleep(500);
+
+        ListenableFuture<String> fresh = cache.apply("Key1", () -> "should not be called", executorService);
+        assertEquals("fresh", cache.awaitForFutureOrElse(fresh, null));
+    }
+}
@@ -28,8 +28,8 @@ import static org.junit.Assert.assertTrue;
  * Created by dominictootell on 25/08/2014.
  */
 public class TestStaleMemcachedCaching {
-    private MemcachedDaemonWrapper memcached;
-    private ListeningExecutorService executorService;
+    MemcachedDaemonWrapper memcached;
+    ListeningExecutorService executorService;
     CacheWithExpiry<String> cache;
     MetricRegistry registry;
     private ConsoleReporter reporter;
@@ -0,0 +1,147 @@
+package org.greencheek.caching.herdcache.memcached;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.CacheWithExpiry;
+import org.greencheek.caching.herdcache.RequiresShutdown;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.greencheek.caching.herdcache.memcached.virtualthreads.VirtualThreadSupport;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that with the virtual thread execution mode, the suppliers run on virtual threads (when the JVM supports
+ * them), and on the given executor otherwise.
+ */
+public class TestVirtualThreadMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ListeningExecutorService executorService;
+    private MetricRegistry registry;
+    private CacheWithExpiry<String> cache;
+
+    @Before
+    public void setUp() {
+        // a single thread, so that the fan out test would take many seconds on the given executor
+        executorService = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+        registry = new MetricRegistry();
+
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseVirtualThreads(true)
+                        .setMetricsRecorder(new YammerMetricsRecorder(registry))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(cache!=null && cache instanceof RequiresShutdown) {
+            ((RequiresShutdown) cache).shutdown();
+        }
+
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testSupplierRunsOnVirtualThreadWhenSupported() {
+        AtomicReference<Thread> supplierThread = new AtomicReference<>();
+
+        assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> {
+            supplierThread.set(Thread.currentThread());
+            return "value1";
+        }, executorService), null));
+
+        assertEquals(VirtualThreadSupport.isSupported(), VirtualThreadSupport.isVirtual(supplierThread.get()));
+        assertEquals("value1", cache.awaitForFutureOrElse(cache.get("Key1", executorService), null));
+    }
+
+    @Test
+    public void testHighFanOutIsNotLimitedByTheExecutor() {
+        Assume.assumeTrue(VirtualThreadSupport.isSupported());
+
+        long start = System.currentTimeMillis();
+        List<ListenableFuture<String>> futures = new ArrayList<>();
+        for(int i=0;i<200;i++) {
+            final String value = "value" + i;
+            futures.add(cache.apply("Key" + i, () -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            }, executorService));
+        }
+
+        for(int i=0;i<200;i++) {
+            assertEquals("value" + i, cache.awaitForFutureOrElse(futures.get(i), null));
+        }
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertTrue(registry.timer("virtual_thread_blocked_timer").getCount() >= 200);
+    }
+
+    @Test
+    public void testPinnedTimeIsRecorded() throws InterruptedException {
+        Assume.assumeTrue(VirtualThreadSupport.isSupported());
+
+        final Object lock = new Object();
+        assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> {
+            // blocking within a synchronized block pins the virtual thread to its carrier
+            synchronized (lock) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "value1";
+        }, executorService), null));
+
+        // the flight recorder events are streamed asynchronously
+        for(int i=0;i<100 && registry.timer("virtual_thread_pinned_timer").getCount()==0;i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(registry.timer("virtual_thread_pinned_timer").getCount() > 0);
+    }
+
+    @Test
+    public void testBlockedTimeIsNotRecordedWithoutVirtualThreads() {
+        Assume.assumeFalse(VirtualThreadSupport.isSupported());
+
+        assertEquals("value1", cache.awaitForFutureOrElse(cache.apply("Key1", () -> "value1", executorService), null));
+        assertFalse(registry.getTimers().containsKey("virtual_thread_blocked_timer"));
+    }
+}
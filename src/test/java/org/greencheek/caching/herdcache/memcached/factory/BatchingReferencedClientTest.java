@@ -0,0 +1,114 @@
+package org.greencheek.caching.herdcache.memcached.factory;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingReferencedClientTest {
+
+    /**
+     * Records the multi-gets, and returns "value-"+key for each key.  Keys are located on two nodes,
+     * based on their last character.
+     */
+    private static class RecordingClient implements ReferencedClient {
+        private final List<Collection<String>> bulkGets = Collections.synchronizedList(new ArrayList<>());
+        private final SocketAddress node1 = InetSocketAddress.createUnresolved("node1",11211);
+        private final SocketAddress node2 = InetSocketAddress.createUnresolved("node2",11211);
+
+        public boolean isAvailable() { return true; }
+        public List<InetSocketAddress> getResolvedHosts() { return Collections.emptyList(); }
+        public Object get(String key, long time, TimeUnit unit) { throw new UnsupportedOperationException(); }
+        public ListenableFuture<Object> asyncGet(String key) { throw new UnsupportedOperationException(); }
+
+        public ListenableFuture<Map<String,Object>> asyncGetBulk(Collection<String> keys) {
+            bulkGets.add(keys);
+            Map<String,Object> values = new HashMap<>();
+            for(String key : keys) {
+                if(!key.startsWith("missing")) {
+                    values.put(key, "value-" + key);
+                }
+            }
+            return Futures.immediateFuture(values);
+        }
+
+        public SocketAddress getPrimaryNodeAddress(String key) {
+            return key.charAt(key.length()-1) % 2 == 0 ? node1 : node2;
+        }
+
+        public Future set(String key, int ttlInSeconds, Object value) { return null; }
+        public ListenableFuture<Boolean> add(String key, int ttlInSeconds, Object value) { return null; }
+        public Future delete(String key) { return null; }
+        public Future flush() { return null; }
+        public void shutdown() { }
+    }
+
+    @Test
+    public void testGetsWithinTheWindowAreSentAsOneMultiGetPerNode() throws Exception {
+        RecordingClient delegate = new RecordingClient();
+        BatchingReferencedClient client = new BatchingReferencedClient(delegate, TimeUnit.MILLISECONDS.toNanos(100), 64);
+
+        List<ListenableFuture<Object>> futures = new ArrayList<>();
+        for(int i=0;i<10;i++) {
+            futures.add(client.asyncGet("key" + i));
+        }
+        ListenableFuture<Object> missing = client.asyncGet("missing1");
+
+        for(int i=0;i<10;i++) {
+            assertEquals("value-key" + i, futures.get(i).get(1, TimeUnit.SECONDS));
+        }
+        assertNull(missing.get(1, TimeUnit.SECONDS));
+
+        assertEquals(2, delegate.bulkGets.size());
+        assertEquals(11, delegate.bulkGets.get(0).size() + delegate.bulkGets.get(1).size());
+        client.shutdown();
+    }
+
+    @Test
+    public void testFullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        RecordingClient delegate = new RecordingClient();
+        BatchingReferencedClient client = new BatchingReferencedClient(delegate, TimeUnit.SECONDS.toNanos(30), 4);
+
+        List<ListenableFuture<Object>> futures = new ArrayList<>();
+        for(int i=0;i<4;i++) {
+            futures.add(client.asyncGet("key0"));
+        }
+        ListenableFuture<Object> pending = client.asyncGet("key0");
+
+        for(ListenableFuture<Object> future : futures) {
+            assertEquals("value-key0", future.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, delegate.bulkGets.size());
+        assertEquals(1, delegate.bulkGets.get(0).size());
+        assertTrue(!pending.isDone());
+
+        // outstanding gets are sent on shutdown
+        client.shutdown();
+        assertEquals("value-key0", pending.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSynchronousGetIsBatched() {
+        RecordingClient delegate = new RecordingClient();
+        BatchingReferencedClient client = new BatchingReferencedClient(delegate, TimeUnit.MILLISECONDS.toNanos(1), 64);
+
+        assertEquals("value-key1", client.get("key1", 1, TimeUnit.SECONDS));
+        assertNull(client.get("missing1", 1, TimeUnit.SECONDS));
+        assertEquals(2, delegate.bulkGets.size());
+        client.shutdown();
+    }
+}
@@ -0,0 +1,128 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+import net.jpountz.xxhash.XXHashFactory;
+import org.greencheek.caching.herdcache.memcached.spy.extensions.hashing.AsciiXXHashAlogrithm;
+import org.greencheek.caching.herdcache.memcached.spy.extensions.hashing.XX64HashAlogrithm;
+import org.greencheek.caching.herdcache.memcached.spy.extensions.hashing.XXHashAlogrithm;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that hashing through the thread's buffers gives the same keys as hashing the UTF-8 bytes of the String
+ */
+public class KeyHashingBuffersTest {
+
+    private static final List<String> KEYS = Arrays.asList(
+            "",
+            "Hello",
+            "http://www.example.com/content/article?id=1234&format=json",
+            "caf\u00e9 cr\u00e8me",
+            "\u4e2d\u6587\u5185\u5bb9",
+            "emoji \ud83d\ude00 key",
+            "unpaired \ud83d high",
+            "unpaired \ude00 low",
+            "trailing high \ud83d",
+            createLongKey(KeyHashingBuffers.MAX_RETAINED_LENGTH + 1)
+    );
+
+    // longer than a block of the message digests
+    private static final String LONG_PREFIX = "http://www.example.com/content/articles/2014/very/long/prefix/\u00e9/";
+
+    private static String createLongKey(int length) {
+        StringBuilder b = new StringBuilder(length);
+        for(int i=0;i<length;i++) {
+            b.append((char)('a' + (i % 26)));
+        }
+        return b.toString();
+    }
+
+    private static Map<String,KeyHashing> hashers() {
+        Map<String,KeyHashing> hashers = new LinkedHashMap<>();
+        hashers.put("NONE", new NoKeyHashing());
+        hashers.put("NATIVE_XXHASH", new FastestXXHashKeyHashing());
+        hashers.put("NATIVE_XXHASH_64", new XXHashKeyHashing(true,true));
+        hashers.put("JAVA_XXHASH", new JavaXXHashKeyHashing());
+        hashers.put("JAVA_XXHASH_64", new XXHashKeyHashing(false,true));
+        hashers.put("MD5_UPPER", new MessageDigestHashing(KeyHashing.MD5,1,true));
+        hashers.put("SHA256_UPPER", new MessageDigestHashing(KeyHashing.SHA256,1,true));
+        hashers.put("MD5_LOWER", new MessageDigestHashing(KeyHashing.MD5,1,false));
+        hashers.put("SHA256_LOWER", new MessageDigestHashing(KeyHashing.SHA256,1,false));
+        hashers.put("MD5_BINARY", new MessageDigestHashing(KeyHashing.MD5,1,false,true));
+        hashers.put("SHA256_BINARY", new MessageDigestHashing(KeyHashing.SHA256,1,false,true));
+        hashers.put("THREAD_LOCAL_MD5_UPPER", new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.MD5),true,false));
+        hashers.put("THREAD_LOCAL_SHA256_BINARY", new MessageDigestHashing(MessageDigests.threadLocal(KeyHashing.SHA256),false,true));
+        return hashers;
+    }
+
+    private static String hashOfBytes(KeyHashing hasher, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return hasher.hash(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testKeysAreTheSameAsHashingTheUtf8Bytes() {
+        for(Map.Entry<String,KeyHashing> entry : hashers().entrySet()) {
+            KeyHashing hasher = entry.getValue();
+            for(String key : KEYS) {
+                String message = entry.getKey() + ": " + key;
+                if(!(hasher instanceof NoKeyHashing)) {
+                    assertEquals(message, hashOfBytes(hasher, key), hasher.hash(key));
+                }
+                assertEquals(message, hasher.hash("prefix\u00e9" + key), hasher.hash("prefix\u00e9", key));
+                assertEquals(message, hasher.hash("prefix\u00e9" + key), hasher.withHashedPrefix("prefix\u00e9").hash(key));
+                assertEquals(message, hasher.hash(LONG_PREFIX + key), hasher.withHashedPrefix(LONG_PREFIX).hash(key));
+                assertEquals(message, "prefix\u00e9" + hasher.hash(key), hasher.prependToHash("prefix\u00e9", key));
+            }
+        }
+    }
+
+    @Test
+    public void testSpyHashAlgorithmsAreTheSameAsHashingTheBytes() {
+        XXHashFactory factory = XXHashFactory.fastestJavaInstance();
+        for(String key : KEYS) {
+            byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+            byte[] ascii = new byte[key.length()];
+            for(int i=0;i<ascii.length;i++) {
+                ascii[i] = (byte) key.charAt(i);
+            }
+
+            assertEquals(factory.hash32().hash(utf8,0,utf8.length,0) & 0xFFFFFFFFl, new XXHashAlogrithm().hash(key));
+            assertEquals(factory.hash64().hash(utf8,0,utf8.length,0) & 0xFFFFFFFFl, new XX64HashAlogrithm().hash(key));
+            assertEquals(factory.hash32().hash(ascii,0,ascii.length,0) & 0xFFFFFFFFl, new AsciiXXHashAlogrithm().hash(key));
+        }
+    }
+
+    @Test
+    public void testDecimalStrings() {
+        KeyHashingBuffers buffers = KeyHashingBuffers.get();
+        for(long value : new long[]{0, 1, -1, 9, 10, -10, 99, 100, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE / 10, Long.MIN_VALUE / 10}) {
+            assertEquals(Long.toString(value), buffers.toDecimalString(null, value));
+            assertEquals("p:" + value, buffers.toDecimalString("p:", value));
+        }
+    }
+
+    @Test
+    public void testSevenBitStrings() {
+        KeyHashingBuffers buffers = KeyHashingBuffers.get();
+        assertEquals("", buffers.toSevenBitString(null, new byte[0], 0));
+        assertEquals("\u007f\u0040", buffers.toSevenBitString(null, new byte[]{(byte)0xFF}, 1));
+        assertEquals("p:\u0000\u0020\u0000", buffers.toSevenBitString("p:", new byte[]{0x00, (byte)0x80}, 2));
+
+        byte[] allOnes = new byte[32];
+        Arrays.fill(allOnes, (byte)0xFF);
+        String packed = buffers.toSevenBitString(null, allOnes, allOnes.length);
+        assertEquals(KeyHashingBuffers.sevenBitLength(32), packed.length());
+        assertEquals(37, packed.length());
+        assertEquals(37, packed.getBytes(StandardCharsets.UTF_8).length);
+        // 256 bits fill 36 chars and 4 bits of the last, which is padded with zeros
+        assertEquals(0x78, packed.charAt(36));
+    }
+}
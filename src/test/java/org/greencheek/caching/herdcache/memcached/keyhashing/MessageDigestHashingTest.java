@@ -0,0 +1,92 @@
+package org.greencheek.caching.herdcache.memcached.keyhashing;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that the digests are not shared between threads, and that hashing does not wait for a digest
+ */
+public class MessageDigestHashingTest {
+
+    private static final int THREADS = 16;
+    private static final int HASHES_PER_THREAD = 2000;
+
+    private static void assertConcurrentHashesAreCorrect(MessageDigests digests) throws Exception {
+        KeyHashing expected = new MessageDigestHashing(KeyHashing.SHA256,1,false);
+        KeyHashing hasher = new MessageDigestHashing(digests,false,false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<String>>> results = new ArrayList<>();
+            for(int t=0;t<THREADS;t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        start.await();
+                        List<String> keys = new ArrayList<>(HASHES_PER_THREAD);
+                        for(int i=0;i<HASHES_PER_THREAD;i++) {
+                            keys.add(hasher.hash("thread" + thread + "key" + i));
+                        }
+                        return keys;
+                    }
+                }));
+            }
+            start.countDown();
+
+            for(int t=0;t<THREADS;t++) {
+                List<String> keys = results.get(t).get(30, TimeUnit.SECONDS);
+                for(int i=0;i<HASHES_PER_THREAD;i++) {
+                    assertEquals(expected.hash("thread" + t + "key" + i), keys.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadLocalDigestsUnderConcurrency() throws Exception {
+        assertConcurrentHashesAreCorrect(MessageDigests.threadLocal(KeyHashing.SHA256));
+    }
+
+    @Test
+    public void testPoolWithFewerDigestsThanThreadsDoesNotBlock() throws Exception {
+        assertConcurrentHashesAreCorrect(MessageDigests.pooled(KeyHashing.SHA256,1));
+    }
+
+    @Test
+    public void testThreadLocalDigestIsReusedByTheThread() {
+        MessageDigests digests = MessageDigests.threadLocal(KeyHashing.MD5);
+        MessageDigest digest = digests.acquire();
+        digests.release(digest);
+        assertSame(digest, digests.acquire());
+    }
+
+    @Test
+    public void testEmptyPoolSuppliesACloneOfThePrototype() {
+        MessageDigests digests = MessageDigests.pooled(KeyHashing.MD5,1);
+        MessageDigest first = digests.acquire();
+        MessageDigest second = digests.acquire();
+        assertNotSame(first, second);
+        assertEquals(KeyHashing.MD5, second.getAlgorithm());
+
+        digests.release(first);
+        digests.release(second);
+        assertSame(first, digests.acquire());
+    }
+}
@@ -0,0 +1,141 @@
+package org.greencheek.caching.herdcache.memcached.latency;
+
+import com.codahale.metrics.MetricRegistry;
+import org.greencheek.caching.herdcache.memcached.factory.ReferencedClient;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HdrLatencyInstrumentationTest {
+
+    private static final InetSocketAddress NODE_1 = InetSocketAddress.createUnresolved("node1", 11211);
+    private static final InetSocketAddress NODE_2 = InetSocketAddress.createUnresolved("node2", 11212);
+
+    private final MetricRegistry registry = new MetricRegistry();
+    // snapshots are taken by the test
+    private final HdrLatencyInstrumentation instrumentation = new HdrLatencyInstrumentation(Duration.ofDays(1),
+            new YammerMetricsRecorder(registry), null);
+
+    /**
+     * A client that locates keys starting with "a" on node1, "b" on node2, and does not locate any other key
+     */
+    private final ReferencedClient client = (ReferencedClient) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{ReferencedClient.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getPrimaryNodeAddress")) {
+                    String key = (String) args[0];
+                    return key.startsWith("a") ? NODE_1 : key.startsWith("b") ? NODE_2 : null;
+                }
+                return null;
+            });
+
+    @After
+    public void tearDown() {
+        instrumentation.shutdown();
+    }
+
+    @Test
+    public void testLatenciesAreRecordedByNode() {
+        for(int i=1;i<=100;i++) {
+            instrumentation.recordGet(client, "a" + i, i * 1000);
+        }
+        instrumentation.recordGet(client, "b", 5000);
+        instrumentation.recordGet(client, "c", 7000);
+        instrumentation.recordSet(client, "b", 9000);
+
+        instrumentation.snapshot();
+        Map<String,LatencySnapshot> snapshots = instrumentation.getLatencySnapshots();
+
+        LatencySnapshot node1Gets = snapshots.get("latency_memcached_get_node1_11211");
+        assertEquals(100, node1Gets.getCount());
+        assertEquals(50000, node1Gets.getP50Nanos(), 500);
+        assertEquals(99000, node1Gets.getP99Nanos(), 990);
+        assertEquals(100000, node1Gets.getMaxNanos(), 1000);
+
+        assertEquals(1, snapshots.get("latency_memcached_get_node2_11212").getCount());
+        assertEquals(1, snapshots.get("latency_memcached_get_unknown").getCount());
+        assertEquals(1, snapshots.get("latency_memcached_set_node2_11212").getCount());
+        assertEquals(0, snapshots.get("latency_memcached_set_unknown").getCount());
+        assertFalse(snapshots.containsKey("latency_memcached_set_node1_11211"));
+
+        assertEquals(node1Gets.getP99Nanos(),
+                registry.getGauges().get("latency_memcached_get_node1_11211_p99").getValue());
+        assertEquals(100L, registry.getGauges().get("latency_memcached_get_node1_11211_count").getValue());
+    }
+
+    @Test
+    public void testKeyIsLocatedOnceUntilTheNextSnapshot() {
+        AtomicInteger locates = new AtomicInteger();
+        ReferencedClient countingClient = (ReferencedClient) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{ReferencedClient.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getPrimaryNodeAddress")) {
+                        locates.incrementAndGet();
+                        return NODE_1;
+                    }
+                    return null;
+                });
+
+        instrumentation.recordGet(countingClient, "a", 1000);
+        instrumentation.recordSet(countingClient, "a", 2000);
+        instrumentation.recordGet(countingClient, "a", 3000);
+        assertEquals(1, locates.get());
+
+        instrumentation.recordGet(client, "a", 1000);
+        assertEquals("The node is cached per client", 1, locates.get());
+
+        instrumentation.snapshot();
+        instrumentation.recordGet(countingClient, "a", 1000);
+        assertEquals("The snapshot clears the cached nodes", 2, locates.get());
+
+        Map<String,LatencySnapshot> snapshots = instrumentation.getLatencySnapshots();
+        assertEquals(3, snapshots.get("latency_memcached_get_node1_11211").getCount());
+        assertEquals(1, snapshots.get("latency_memcached_set_node1_11211").getCount());
+    }
+
+    @Test
+    public void testSnapshotsAreOfTheLatestInterval() {
+        instrumentation.recordSupplier(1000);
+        instrumentation.recordDecode(2000);
+        instrumentation.recordQueueWait(3000);
+        instrumentation.snapshot();
+
+        Map<String,LatencySnapshot> snapshots = instrumentation.getLatencySnapshots();
+        assertEquals(1, snapshots.get("latency_supplier").getCount());
+        assertEquals(2000, snapshots.get("latency_decode").getMaxNanos(), 20);
+        assertEquals(3000, snapshots.get("latency_queue_wait").getMaxNanos(), 30);
+
+        instrumentation.recordSupplier(1000);
+        instrumentation.snapshot();
+        snapshots = instrumentation.getLatencySnapshots();
+        assertEquals(1, snapshots.get("latency_supplier").getCount());
+        assertEquals(0, snapshots.get("latency_decode").getCount());
+        assertEquals(0L, registry.getGauges().get("latency_decode_p99").getValue());
+    }
+
+    @Test
+    public void testSnapshotsAreRegisteredWithJmx() throws Exception {
+        HdrLatencyInstrumentation registered = new HdrLatencyInstrumentation(Duration.ofDays(1),
+                new YammerMetricsRecorder(new MetricRegistry()), "HdrLatencyInstrumentationTest");
+        ObjectName name = new ObjectName(
+                "org.greencheek.caching.herdcache:type=LatencyInstrumentation,name=HdrLatencyInstrumentationTest");
+        try {
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        } finally {
+            registered.shutdown();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
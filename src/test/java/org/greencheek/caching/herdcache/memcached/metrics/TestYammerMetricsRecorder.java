@@ -0,0 +1,71 @@
+package org.greencheek.caching.herdcache.memcached.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.greencheek.caching.herdcache.memcached.util.CacheMetricStrings;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the metrics held by the recorder are those in the registry
+ */
+public class TestYammerMetricsRecorder {
+
+    private MetricRegistry registry;
+    private YammerMetricsRecorder recorder;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        recorder = new YammerMetricsRecorder(registry, "herdcache_");
+    }
+
+    @Test
+    public void testMetricsAreOnlyRegisteredWhenRecorded() {
+        assertTrue(registry.getMetrics().isEmpty());
+
+        recorder.cacheHit(CacheMetricStrings.CACHE_TYPE_NEAR_CACHE);
+
+        assertEquals(2, registry.getMetrics().size());
+        assertTrue(registry.getCounters().containsKey("herdcache_near_cache_hitcount"));
+        assertTrue(registry.getMeters().containsKey("herdcache_near_cache_hitrate"));
+    }
+
+    @Test
+    public void testRecordedMetricsAreUpdatedInTheRegistry() {
+        for(int i=0;i<3;i++) {
+            recorder.cacheHit(CacheMetricStrings.CACHE_TYPE_ALL);
+            recorder.cacheMiss(CacheMetricStrings.CACHE_TYPE_ALL);
+            recorder.incrementCounter(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE);
+            recorder.setDuration(CacheMetricStrings.CACHE_TYPE_DISTRIBUTED_CACHE, TimeUnit.MILLISECONDS.toNanos(1));
+            recorder.updateHistogram(CacheMetricStrings.CACHE_TYPE_BATCH_SUPPLIER_KEYS, 10);
+        }
+
+        assertEquals(3, registry.counter("herdcache_cache_hitcount").getCount());
+        assertEquals(3, registry.meter("herdcache_cache_hitrate").getCount());
+        assertEquals(3, registry.counter("herdcache_cache_misscount").getCount());
+        assertEquals(3, registry.meter("herdcache_cache_missrate").getCount());
+        assertEquals(3, registry.counter("herdcache_distributed_cache_count").getCount());
+        assertEquals(3, registry.timer("herdcache_distributed_cache_timer").getCount());
+        assertEquals(3, registry.histogram("herdcache_batch_supplier_keys").getCount());
+    }
+
+    @Test
+    public void testNamesOtherThanTheCacheMetricStringsAreRecorded() {
+        recorder.incrementCounter("custom");
+        recorder.incrementCounter("custom");
+
+        assertEquals(2, registry.counter("herdcache_custom_count").getCount());
+    }
+
+    @Test
+    public void testMetricNamesContainsTheCacheMetricStrings() {
+        assertTrue(CacheMetricStrings.METRIC_NAMES.contains(CacheMetricStrings.CACHE_TYPE_ALL));
+        assertTrue(CacheMetricStrings.METRIC_NAMES.contains(CacheMetricStrings.CACHE_TYPE_NEAR_CACHE));
+        assertTrue(CacheMetricStrings.METRIC_NAMES.contains(CacheMetricStrings.CACHE_TYPE_VIRTUAL_THREAD_PINNED_TIMER));
+    }
+}
@@ -0,0 +1,81 @@
+package org.greencheek.caching.herdcache.memcached.observable;
+
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.ObservableCache;
+import org.greencheek.caching.herdcache.domain.CacheItem;
+import org.greencheek.caching.herdcache.memcached.SpyObservableMemcachedCache;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Single;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the in process near cache with the RxJava Observable cache
+ */
+public class TestNearCacheObservableMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ObservableCache<String> cache;
+
+    @Before
+    public void setUp() {
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyObservableMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseNearCache(true)
+                        .setNearCacheTimeToLive(Duration.ofSeconds(10))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+        cache.shutdown();
+    }
+
+    @Test
+    public void testValueIsServedFromNearCache() {
+        Single<CacheItem<String>> val = cache.apply("Key1", () -> "value1", Duration.ZERO);
+        assertEquals("value1", val.toBlocking().value().value());
+
+        memcached.getDaemon().getCache().flush_all();
+
+        Single<CacheItem<String>> val2 = cache.apply("Key1", () -> "value2", Duration.ZERO);
+        CacheItem<String> item = val2.toBlocking().value();
+        assertEquals("Value should be from the near cache", "value1", item.value());
+        assertEquals(true, item.isFromCache());
+    }
+
+    @Test
+    public void testSetUpdatesNearCache() {
+        Single<CacheItem<String>> val = cache.apply("Key1", () -> "value1", Duration.ZERO);
+        assertEquals("value1", val.toBlocking().value().value());
+
+        Single<CacheItem<String>> set = cache.set("Key1", "value2", Duration.ZERO);
+        assertEquals("value2", set.toBlocking().value().value());
+
+        memcached.getDaemon().getCache().flush_all();
+
+        Single<CacheItem<String>> val2 = cache.apply("Key1", () -> "value3", Duration.ZERO);
+        assertEquals("Near cache should contain the set value", "value2", val2.toBlocking().value().value());
+    }
+}
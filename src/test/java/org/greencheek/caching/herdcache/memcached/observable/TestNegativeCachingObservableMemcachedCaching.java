@@ -0,0 +1,79 @@
+package org.greencheek.caching.herdcache.memcached.observable;
+
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.ObservableCache;
+import org.greencheek.caching.herdcache.domain.CacheItem;
+import org.greencheek.caching.herdcache.memcached.SpyObservableMemcachedCache;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests negative caching with the RxJava Observable cache
+ */
+public class TestNegativeCachingObservableMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ObservableCache<String> cache;
+
+    @Before
+    public void setUp() {
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyObservableMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .setUseNegativeCaching(true)
+                        .setNegativeCacheTimeToLive(Duration.ofSeconds(10))
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+        cache.shutdown();
+    }
+
+    @Test
+    public void testNegativeCacheHitIsAnEmptyCacheItem() {
+        AtomicInteger calls = new AtomicInteger();
+
+        CacheItem<String> item = cache.apply("Key1", () -> { calls.incrementAndGet(); return null; }, Duration.ZERO)
+                .toBlocking().value();
+        assertTrue(item.isEmpty());
+        assertEquals(false, item.isFromCache());
+
+        CacheItem<String> item2 = cache.apply("Key1", () -> { calls.incrementAndGet(); return "value"; }, Duration.ZERO)
+                .toBlocking().value();
+        assertTrue(item2.isEmpty());
+        assertEquals(true, item2.isFromCache());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testGetReturnsEmptyCacheItemForNegativeCacheEntry() {
+        cache.apply("Key1", () -> null, Duration.ZERO).toBlocking().value();
+
+        CacheItem<String> item = cache.get("Key1").toBlocking().value();
+        assertTrue(item.isEmpty());
+    }
+}
@@ -0,0 +1,110 @@
+package org.greencheek.caching.herdcache.memcached.observable;
+
+import net.spy.memcached.ConnectionFactoryBuilder;
+import org.greencheek.caching.herdcache.ObservableCache;
+import org.greencheek.caching.herdcache.domain.CacheItem;
+import org.greencheek.caching.herdcache.memcached.SpyObservableMemcachedCache;
+import org.greencheek.caching.herdcache.memcached.config.builder.ElastiCacheCacheConfigBuilder;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonFactory;
+import org.greencheek.caching.herdcache.memcached.util.MemcachedDaemonWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Single;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests obtaining a number of keys from the RxJava Observable cache with a single call
+ */
+public class TestObservableBulkApplyMemcachedCaching {
+
+    private MemcachedDaemonWrapper memcached;
+    private ObservableCache<String> cache;
+    private List<Set<String>> computedKeys;
+
+    @Before
+    public void setUp() {
+        computedKeys = new CopyOnWriteArrayList<>();
+        memcached = MemcachedDaemonFactory.createMemcachedDaemon(false);
+
+        if(memcached.getDaemon()==null) {
+            throw new RuntimeException("Unable to start local memcached");
+        }
+
+        cache = new SpyObservableMemcachedCache<>(
+                new ElastiCacheCacheConfigBuilder()
+                        .setMemcachedHosts("localhost:" + memcached.getPort())
+                        .setTimeToLive(Duration.ofSeconds(60))
+                        .setProtocol(ConnectionFactoryBuilder.Protocol.TEXT)
+                        .setWaitForMemcachedSet(true)
+                        .buildMemcachedConfig()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        if(memcached!=null) {
+            memcached.getDaemon().stop();
+        }
+        cache.shutdown();
+    }
+
+    private Map<String,String> valuesFor(Set<String> keys) {
+        computedKeys.add(new HashSet<>(keys));
+        Map<String,String> values = new HashMap<>();
+        for(String key : keys) {
+            values.put(key, "computed_" + key);
+        }
+        return values;
+    }
+
+    @Test
+    public void testComputationIsOnlyCalledForKeysNotInMemcached() {
+        assertEquals("stored_a", cache.set("a", "stored_a", Duration.ZERO).toBlocking().value().value());
+
+        Map<String,Single<CacheItem<String>>> values = cache.applyAll(Arrays.asList("a", "b", "c"),
+                this::valuesFor, Duration.ZERO);
+
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(values.keySet()));
+
+        CacheItem<String> a = values.get("a").toBlocking().value();
+        assertEquals("stored_a", a.value());
+        assertTrue(a.isFromCache());
+
+        CacheItem<String> b = values.get("b").toBlocking().value();
+        assertEquals("computed_b", b.value());
+        assertFalse(b.isFromCache());
+        assertEquals("computed_c", values.get("c").toBlocking().value().value());
+
+        assertEquals(1, computedKeys.size());
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), computedKeys.get(0));
+        assertEquals(3, memcached.getDaemon().getCache().getCurrentItems());
+
+        Map<String,Single<CacheItem<String>>> cached = cache.applyAll(Arrays.asList("b", "c"),
+                this::valuesFor, Duration.ZERO);
+        assertEquals("computed_c", cached.get("c").toBlocking().value().value());
+        assertEquals("Computation should not have been called", 1, computedKeys.size());
+    }
+
+    @Test
+    public void testFailedComputationFailsAllMissingKeys() {
+        Map<String,Single<CacheItem<String>>> values = cache.applyAll(Arrays.asList("a", "b"),
+                (keys) -> { throw new RuntimeException("failed"); }, Duration.ZERO);
+
+        try {
+            values.get("a").toBlocking().value();
+            fail("Exception should have been thrown");
+        } catch (RuntimeException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        Map<String,Single<CacheItem<String>>> retry = cache.applyAll(Arrays.asList("a", "b"),
+                this::valuesFor, Duration.ZERO);
+        assertEquals("computed_b", retry.get("b").toBlocking().value().value());
+    }
+}
@@ -0,0 +1,76 @@
+package org.greencheek.caching.herdcache.memcached.refreshahead;
+
+import com.codahale.metrics.MetricRegistry;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveRefreshAheadSchedulerTest {
+
+    private static final int MAX_PENDING_REFRESHES = 10;
+
+    private final AdaptiveRefreshAheadScheduler scheduler = createScheduler();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    private static AdaptiveRefreshAheadScheduler createScheduler() {
+        return new AdaptiveRefreshAheadScheduler(1, Duration.ofSeconds(1), 10, 1, MAX_PENDING_REFRESHES,
+                new YammerMetricsRecorder(new MetricRegistry()));
+    }
+
+    @Test
+    public void testConcurrentSchedulesDoNotExceedTheMaxPendingRefreshes() throws Exception {
+        int threads = 8;
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        try {
+            // the limit is only exceeded if callers race for the last pending refresh, so race many times
+            for(int round=0;round<2000;round++) {
+                AdaptiveRefreshAheadScheduler racedScheduler = createScheduler();
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<?>> scheduled = new ArrayList<>();
+                for(int t=0;t<threads;t++) {
+                    final int thread = t;
+                    scheduled.add(callers.submit(() -> {
+                        start.await();
+                        for(int i=0;i<MAX_PENDING_REFRESHES;i++) {
+                            racedScheduler.scheduleRefresh("key" + thread + "_" + i, expiresAt, 0, executor -> {});
+                        }
+                        return null;
+                    }));
+                }
+                for(Future<?> future : scheduled) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                racedScheduler.shutdown();
+
+                assertEquals(MAX_PENDING_REFRESHES, racedScheduler.getPendingRefreshes());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeyIsOnlyScheduledOnce() {
+        long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        scheduler.scheduleRefresh("key", expiresAt, 0, executor -> {});
+        scheduler.scheduleRefresh("key", expiresAt, 0, executor -> {});
+
+        assertEquals(1, scheduler.getPendingRefreshes());
+    }
+}
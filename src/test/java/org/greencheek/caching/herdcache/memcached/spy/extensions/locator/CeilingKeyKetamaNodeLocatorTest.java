@@ -2,7 +2,13 @@ package org.greencheek.caching.herdcache.memcached.spy.extensions.locator;
 
 import net.spy.memcached.*;
 import net.spy.memcached.ops.Operation;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashing;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingBuffers;
+import org.greencheek.caching.herdcache.memcached.keyhashing.KeyHashingType;
+import org.greencheek.caching.herdcache.memcached.keyhashing.MessageDigestHashing;
+import org.greencheek.caching.herdcache.memcached.keyhashing.XXHashKeyHashing;
 import org.greencheek.caching.herdcache.memcached.spy.extensions.hashing.JenkinsHash;
+import org.greencheek.caching.herdcache.util.HotKeyReplicaKeyCreator;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -13,7 +19,9 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -57,9 +65,116 @@ public class CeilingKeyKetamaNodeLocatorTest {
         assertArrayEquals(originalList.toArray(),customList.toArray());
     }
 
+    @Test
+    public void testHotKeyReplicasAreRoutedToDistinctNodes() {
+        for(int i=0;i<1000;i++) {
+            String key = strings.get(i);
+            MemcachedNode primary = customarray.getPrimary(key);
+            MemcachedNode replica1 = customarray.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 1));
+            MemcachedNode replica2 = customarray.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 2));
+
+            assertNotSame(primary, replica1);
+            assertNotSame(primary, replica2);
+            assertNotSame(replica1, replica2);
+            assertSame(replica1, customarray.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 1)));
+        }
+    }
+
+    @Test
+    public void testHotKeyReplicasOfHashedKeysAreRoutedToDistinctNodes() {
+        KeyHashing md5 = new MessageDigestHashing(KeyHashing.MD5, 1, false);
+        NodeLocator md5Locator = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash(),
+                KeyHashingType.MD5_LOWER);
+        for(int i=0;i<1000;i++) {
+            String key = md5.hash(strings.get(i));
+            MemcachedNode primary = md5Locator.getPrimary(key);
+            MemcachedNode replica1 = md5Locator.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 1));
+            MemcachedNode replica2 = md5Locator.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 2));
+
+            assertNotSame(primary, replica1);
+            assertNotSame(primary, replica2);
+            assertNotSame(replica1, replica2);
+        }
+    }
+
+    @Test
+    public void testHotKeyReplicasWrapAroundFewerNodes() {
+        List<MemcachedNode> nodes = new ArrayList<>(memcachedNodes.subList(0, 2));
+        NodeLocator locator = new CeilingKeyKetamaNodeLocator(nodes, new JenkinsHash());
+
+        String key = strings.get(0);
+        MemcachedNode primary = locator.getPrimary(key);
+        assertNotSame(primary, locator.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 1)));
+        assertSame(primary, locator.getPrimary(HotKeyReplicaKeyCreator.createKey(key, 2)));
+    }
+
 
+    @Test
+    public void testHashedKeysAreLocatedFromTheirHash() {
+        KeyHashing xxhash64 = new XXHashKeyHashing(false, true);
+        KeyHashing md5 = new MessageDigestHashing(KeyHashing.MD5, 1, false);
+        NodeLocator xxhashLocator = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash(),
+                KeyHashingType.JAVA_XXHASH_64);
+        NodeLocator md5Locator = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash(),
+                KeyHashingType.MD5_LOWER);
+        CeilingKeyKetamaNodeLocator positions = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash());
+        NodeLocator xxhashReadonlyLocator = xxhashLocator.getReadonlyCopy();
+
+        Set<MemcachedNode> nodesUsed = new HashSet<>();
+        for(int i=0;i<10000;i++) {
+            String key = xxhash64.hash(strings.get(i));
+            long position = Long.parseLong(key) & 0xFFFFFFFFL;
+            MemcachedNode node = xxhashLocator.getPrimary(key);
+            assertSame(positions.getNodeForKey(position), node);
+            assertEquals(node.getSocketAddress(), xxhashReadonlyLocator.getPrimary(key).getSocketAddress());
+            nodesUsed.add(node);
+
+            String md5Key = md5.hash(strings.get(i));
+            assertSame(positions.getNodeForKey(Long.parseLong(md5Key.substring(0, 8), 16)), md5Locator.getPrimary(md5Key));
+        }
+        // the keys are spread over the nodes
+        assertTrue(nodesUsed.size() > NUM_NODES * 0.9);
+    }
 
+    @Test
+    public void testKeysNotInTheFormatOfTheKeyHashAreHashed() {
+        NodeLocator locator = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash(), KeyHashingType.NATIVE_XXHASH);
+        NodeLocator md5Locator = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash(), KeyHashingType.SHA256_UPPER);
+        for(String key : new String[]{"stale-12345", "prefix12345", "-", "", "123456789012345678901",
+                strings.get(0), "ABCDEF0123456789ABCDEF0123456789"}) {
+            assertSame(customarray.getPrimary(key), locator.getPrimary(key));
+            assertSame(customarray.getPrimary(key), md5Locator.getPrimary(key));
+        }
+    }
 
+    @Test
+    public void testNoKeyHashingLocatesByHashingTheKey() {
+        NodeLocator locator = new CeilingKeyKetamaNodeLocator(memcachedNodes, new JenkinsHash(), KeyHashingType.NONE);
+        for(int i=0;i<1000;i++) {
+            assertSame(customarray.getPrimary(Integer.toString(i)), locator.getPrimary(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    public void testRingPositionOfHashedKeys() {
+        assertEquals(12345, KeyHashRingPosition.position(KeyHashingType.NATIVE_XXHASH, "12345"));
+        assertEquals(-12345 & 0xFFFFFFFFL, KeyHashRingPosition.position(KeyHashingType.NATIVE_XXHASH, "-12345"));
+        assertEquals(Long.MIN_VALUE & 0xFFFFFFFFL, KeyHashRingPosition.position(KeyHashingType.JAVA_XXHASH_64,
+                Long.toString(Long.MIN_VALUE)));
+        assertEquals(0xFFFFFFFFL, KeyHashRingPosition.position(KeyHashingType.JAVA_XXHASH_64, Long.toString(-1)));
+        assertEquals(0xABCDEF01L, KeyHashRingPosition.position(KeyHashingType.MD5_LOWER, "abcdef0123456789abcdef0123456789"));
+        assertEquals(KeyHashRingPosition.NO_POSITION, KeyHashRingPosition.position(KeyHashingType.MD5_LOWER, "abcdef01"));
+        assertEquals(KeyHashRingPosition.NO_POSITION, KeyHashRingPosition.position(KeyHashingType.NONE, "12345"));
+        assertEquals(KeyHashRingPosition.NO_POSITION, KeyHashRingPosition.position(KeyHashingType.NATIVE_XXHASH, "12a45"));
+
+        // the first 32 bits of the 7 bit packed digest
+        byte[] digest = new byte[]{(byte)0xAB, (byte)0xCD, (byte)0xEF, 0x01, 0x23, 0x45, 0x67, (byte)0x89,
+                (byte)0xAB, (byte)0xCD, (byte)0xEF, 0x01, 0x23, 0x45, 0x67, (byte)0x89};
+        String binaryKey = KeyHashingBuffers.get().toSevenBitString(null, digest, digest.length);
+        assertEquals(0xABCDEF01L, KeyHashRingPosition.position(KeyHashingType.MD5_BINARY, binaryKey));
+        assertEquals(KeyHashRingPosition.NO_POSITION, KeyHashRingPosition.position(KeyHashingType.SHA256_BINARY, binaryKey));
+        assertEquals(KeyHashRingPosition.NO_POSITION, KeyHashRingPosition.position(KeyHashingType.MD5_BINARY, "bob" + binaryKey));
+    }
 
     static class KetemaTestingMemcachedNode implements MemcachedNode {
 
@@ -0,0 +1,54 @@
+package org.greencheek.caching.herdcache.memcached.spy.extensions.transcoders;
+
+import net.spy.memcached.CachedData;
+import org.greencheek.caching.herdcache.memcached.envelope.NegativeCacheEntry;
+import org.greencheek.caching.herdcache.memcached.folsom.transcoder.FastTranscoder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that the negative cache sentinel is encoded compactly, and decoded to the singleton
+ */
+public class NegativeCacheEntryTranscodingTest {
+
+    @Test
+    public void testSpyTranscoderEncodesSentinelWithoutSerializing() {
+        FastSerializingTranscoder transcoder = new FastSerializingTranscoder();
+        CachedData data = transcoder.encode(NegativeCacheEntry.INSTANCE);
+
+        assertEquals(0, data.getData().length);
+        assertSame(NegativeCacheEntry.INSTANCE, transcoder.decode(data));
+    }
+
+    @Test
+    public void testSpyTranscoderDecodesValues() {
+        FastSerializingTranscoder transcoder = new FastSerializingTranscoder();
+        assertEquals("value", transcoder.decode(transcoder.encode("value")));
+        assertEquals("", transcoder.decode(transcoder.encode("")));
+    }
+
+    @Test
+    public void testFolsomTranscoderEncodesSentinelWithoutSerializing() {
+        FastTranscoder transcoder = new FastTranscoder(true,true);
+        byte[] data = transcoder.encode(NegativeCacheEntry.INSTANCE);
+
+        assertEquals(0, data.length);
+        assertSame(NegativeCacheEntry.INSTANCE, transcoder.decode(data));
+        assertEquals("value", transcoder.decode(transcoder.encode("value")));
+    }
+
+    @Test
+    public void testFolsomTranscoderOnlyDecodesTheSentinelWhenNegativeCachingIsEnabled() {
+        FastTranscoder transcoder = new FastTranscoder();
+        assertNotSame(NegativeCacheEntry.INSTANCE, transcoder.decode(new byte[0]));
+
+        for(FastTranscoder t : new FastTranscoder[]{transcoder, new FastTranscoder(true,true), new FastTranscoder(false,true)}) {
+            assertEquals("", t.decode(t.encode("")));
+            assertArrayEquals(new byte[0], (byte[]) t.decode(t.encode(new byte[0])));
+        }
+    }
+}
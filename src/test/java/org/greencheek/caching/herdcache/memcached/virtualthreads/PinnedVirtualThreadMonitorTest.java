@@ -0,0 +1,36 @@
+package org.greencheek.caching.herdcache.memcached.virtualthreads;
+
+import com.codahale.metrics.MetricRegistry;
+import org.greencheek.caching.herdcache.memcached.metrics.YammerMetricsRecorder;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PinnedVirtualThreadMonitorTest {
+
+    @Test
+    public void testOneStreamIsSharedByAllTheRegistrations() {
+        PinnedVirtualThreadMonitor.Registration first = PinnedVirtualThreadMonitor.register(Duration.ofMillis(20),
+                new YammerMetricsRecorder(new MetricRegistry()));
+        // the flight recorder stream requires Java 14, or later
+        Assume.assumeNotNull(first);
+
+        PinnedVirtualThreadMonitor monitor = PinnedVirtualThreadMonitor.getShared();
+        PinnedVirtualThreadMonitor.Registration second = PinnedVirtualThreadMonitor.register(Duration.ofMillis(5),
+                new YammerMetricsRecorder(new MetricRegistry()));
+
+        assertSame(monitor, PinnedVirtualThreadMonitor.getShared());
+        assertEquals("The lowest threshold is streamed", Duration.ofMillis(5), monitor.getThreshold());
+
+        first.unregister();
+        assertSame(monitor, PinnedVirtualThreadMonitor.getShared());
+
+        second.unregister();
+        assertNull("The stream is closed with the last registration", PinnedVirtualThreadMonitor.getShared());
+    }
+}